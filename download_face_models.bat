@@ -13,7 +13,7 @@ if not exist "src\main\resources\face_models" (
 
 cd src\main\resources\face_models
 
-echo [1/2] Downloading deploy.prototxt...
+echo [1/4] Downloading deploy.prototxt...
 echo URL: https://github.com/opencv/opencv/raw/master/samples/dnn/face_detector/deploy.prototxt
 curl -L -o deploy.prototxt https://github.com/opencv/opencv/raw/master/samples/dnn/face_detector/deploy.prototxt
 if %ERRORLEVEL% NEQ 0 (
@@ -24,7 +24,7 @@ if %ERRORLEVEL% NEQ 0 (
 )
 echo.
 
-echo [2/2] Downloading res10_300x300_ssd_iter_140000.caffemodel...
+echo [2/4] Downloading res10_300x300_ssd_iter_140000.caffemodel...
 echo URL: https://github.com/opencv/opencv_3rdparty/raw/dnn_samples_face_detector_20170830/res10_300x300_ssd_iter_140000.caffemodel
 echo This file is ~10MB, please wait...
 curl -L -o res10_300x300_ssd_iter_140000.caffemodel https://github.com/opencv/opencv_3rdparty/raw/dnn_samples_face_detector_20170830/res10_300x300_ssd_iter_140000.caffemodel
@@ -36,6 +36,29 @@ if %ERRORLEVEL% NEQ 0 (
 )
 echo.
 
+echo [3/4] Downloading face_detection_yunet_2023mar.onnx (optional, face.detector.backend=yunet)...
+echo URL: https://github.com/opencv/opencv_zoo/raw/main/models/face_detection_yunet/face_detection_yunet_2023mar.onnx
+curl -L -o face_detection_yunet_2023mar.onnx https://github.com/opencv/opencv_zoo/raw/main/models/face_detection_yunet/face_detection_yunet_2023mar.onnx
+if %ERRORLEVEL% NEQ 0 (
+    echo [ERROR] Failed to download YuNet model
+    echo Please download manually from the URL above
+) else (
+    echo [OK] YuNet model downloaded successfully
+)
+echo.
+
+echo [4/4] Downloading face_recognition_sface_2021dec.onnx (optional, face.embedder.backend=sface)...
+echo URL: https://github.com/opencv/opencv_zoo/raw/main/models/face_recognition_sface/face_recognition_sface_2021dec.onnx
+echo This file is ~37MB, please wait...
+curl -L -o face_recognition_sface_2021dec.onnx https://github.com/opencv/opencv_zoo/raw/main/models/face_recognition_sface/face_recognition_sface_2021dec.onnx
+if %ERRORLEVEL% NEQ 0 (
+    echo [ERROR] Failed to download SFace model
+    echo Please download manually from the URL above
+) else (
+    echo [OK] SFace model downloaded successfully
+)
+echo.
+
 echo ========================================
 echo Download Complete
 echo ========================================
@@ -43,7 +66,8 @@ echo.
 echo Verifying downloaded files:
 dir
 echo.
-echo If both files are present, you can now start the application.
+echo If deploy.prototxt and the caffemodel are present, you can now start the application.
+echo The YuNet and SFace models are only needed for the yunet detector and sface embedder backends.
 echo.
 
 cd /d "%~dp0"
@@ -0,0 +1,41 @@
+package com.qualtech_ai.config;
+
+import com.qualtech_ai.service.FaceModelRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Face model readiness ({@code faceModel} in the readiness health group):
+ * out of service while the detector and embedder networks load, down if
+ * loading failed.
+ */
+@Component
+@RequiredArgsConstructor
+public class FaceModelHealthIndicator implements HealthIndicator {
+
+    private final FaceModelRegistry faceModelRegistry;
+
+    @Override
+    public Health health() {
+        return switch (faceModelRegistry.getState()) {
+            case READY -> Health.up()
+                    .withDetail("backend", faceModelRegistry.getBackend())
+                    .withDetail("detectors", faceModelRegistry.getDetectorCount())
+                    .withDetail("embedder", faceModelRegistry.getEmbedderBackend())
+                    .withDetail("loadMillis", faceModelRegistry.getLoadMillis())
+                    .build();
+            case LOADING -> Health.outOfService()
+                    .withDetail("backend", faceModelRegistry.getBackend())
+                    .withDetail("embedder", faceModelRegistry.getEmbedderBackend())
+                    .withDetail("state", "loading")
+                    .build();
+            case FAILED -> Health.down()
+                    .withDetail("backend", faceModelRegistry.getBackend())
+                    .withDetail("embedder", faceModelRegistry.getEmbedderBackend())
+                    .withDetail("error", String.valueOf(faceModelRegistry.getFailure()))
+                    .build();
+        };
+    }
+}
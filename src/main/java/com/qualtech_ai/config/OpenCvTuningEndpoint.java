@@ -0,0 +1,26 @@
+package com.qualtech_ai.config;
+
+import com.qualtech_ai.service.OpenCvTuningService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * OpenCV threads, detector pool size and DNN backend chosen at startup, with
+ * the measurements behind the choice ({@code /actuator/opencvtuning})
+ */
+@Component
+@Endpoint(id = "opencvtuning")
+@RequiredArgsConstructor
+public class OpenCvTuningEndpoint {
+
+    private final OpenCvTuningService openCvTuningService;
+
+    @ReadOperation
+    public Map<String, Object> tuning() {
+        return openCvTuningService.summary();
+    }
+}
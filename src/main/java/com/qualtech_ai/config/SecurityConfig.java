@@ -50,7 +50,9 @@ public class SecurityConfig {
                                 "/assets/**",
                                 "/favicon.ico",
                                 "/*.html",
-                                "/error")
+                                "/error",
+                                "/actuator/health/liveness",
+                                "/actuator/health/readiness")
                         .permitAll()
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
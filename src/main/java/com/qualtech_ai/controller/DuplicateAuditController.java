@@ -0,0 +1,108 @@
+package com.qualtech_ai.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qualtech_ai.service.DuplicateAuditService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Admin controller for the duplicate enrollment audit
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/audit/duplicates")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class DuplicateAuditController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final DuplicateAuditService duplicateAuditService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Start a background audit (or return the one already running)
+     * POST /api/admin/audit/duplicates
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startAudit(
+            @RequestParam(value = "threshold", required = false) Double threshold,
+            @RequestParam(value = "neighbours", required = false) Integer neighbours) {
+        log.info("🔍 Admin requested duplicate enrollment audit");
+        if (threshold != null && (threshold <= 0.0 || threshold > 1.0)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", "threshold must be in (0, 1]"));
+        }
+        if (neighbours != null && (neighbours < 1 || neighbours > DuplicateAuditService.MAX_NEIGHBOURS)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", "neighbours must be in [1, " + DuplicateAuditService.MAX_NEIGHBOURS + "]"));
+        }
+        DuplicateAuditService.AuditJob job = duplicateAuditService.startAudit(threshold, neighbours);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "success", true,
+                "job", job.summary()));
+    }
+
+    /**
+     * Progress of an audit
+     * GET /api/admin/audit/duplicates/{jobId}
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getStatus(@PathVariable String jobId) {
+        return duplicateAuditService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(Map.<String, Object>of(
+                        "success", true,
+                        "job", job.summary())))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                        "success", false,
+                        "error", "Unknown audit job: " + jobId)));
+    }
+
+    /**
+     * Suspected duplicate clusters as newline-delimited JSON, strongest first,
+     * followed by a summary line. While the audit is running this is the
+     * clusters confirmed so far; the summary line carries the status.
+     * GET /api/admin/audit/duplicates/{jobId}/report
+     */
+    @GetMapping("/{jobId}/report")
+    public ResponseEntity<?> getReport(@PathVariable String jobId) {
+        DuplicateAuditService.AuditJob job = duplicateAuditService.getJob(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                    "success", false,
+                    "error", "Unknown audit job: " + jobId));
+        }
+        if (job.getStatus() == DuplicateAuditService.AuditStatus.FAILED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "success", false,
+                    "job", job.summary()));
+        }
+        log.info("📄 Streaming duplicate audit report {} ({}, {} clusters)",
+                jobId, job.getStatus(), job.getClusterCount());
+        StreamingResponseBody body = out -> {
+            Iterator<DuplicateAuditService.DuplicateCluster> clusters =
+                    duplicateAuditService.clusters(job).iterator();
+            while (clusters.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(clusters.next()));
+                out.write('\n');
+                out.flush();
+            }
+            out.write(objectMapper.writeValueAsString(Map.of("summary", job.summary()))
+                    .getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
@@ -1,5 +1,6 @@
 package com.qualtech_ai.controller;
 
+import com.qualtech_ai.dto.FaceIdentificationResponse;
 import com.qualtech_ai.dto.FaceRegistrationRequest;
 import com.qualtech_ai.dto.FaceVerificationRequest;
 import com.qualtech_ai.dto.FaceVerificationResponse;
@@ -20,6 +21,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FaceRecognitionController {
 
+    private static final int MAX_IDENTIFY_IMAGES = 16;
+    private static final int MAX_TOP_K = 20;
+
     private final FaceRecognitionService faceRecognitionService;
 
     @PostMapping(value = "/register", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -86,6 +90,25 @@ public class FaceRecognitionController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/identify", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<FaceIdentificationResponse> identifyFaces(
+            @RequestParam("images") List<MultipartFile> images,
+            @RequestParam(value = "topK", required = false, defaultValue = "5") int topK) throws IOException {
+
+        if (images == null || images.isEmpty() || images.size() > MAX_IDENTIFY_IMAGES) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (topK < 1 || topK > MAX_TOP_K) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        FaceIdentificationResponse response = faceRecognitionService.identifyFaces(images, topK);
+        if ("Verification in progress".equals(response.getMessage())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/users")
     public ResponseEntity<List<FaceUser>> getAllFaceUsers() {
         List<FaceUser> users = faceRecognitionService.getAllFaceUsers();
@@ -0,0 +1,69 @@
+package com.qualtech_ai.controller;
+
+import com.qualtech_ai.service.FaceReembeddingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Admin controller for re-embedding stored users after the embedder changes
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/embeddings/reembed")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class FaceReembeddingController {
+
+    private final FaceReembeddingService faceReembeddingService;
+
+    /**
+     * Active users stored with a model other than the active embedder's
+     * GET /api/admin/embeddings/reembed
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getPending() {
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "staleUsers", faceReembeddingService.countStale()));
+    }
+
+    /**
+     * Start a background re-embedding (or return the one already running)
+     * POST /api/admin/embeddings/reembed
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> start() {
+        log.info("🔁 Admin requested re-embedding of stored users");
+        try {
+            FaceReembeddingService.ReembeddingJob job = faceReembeddingService.start();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "success", true,
+                    "job", job.summary()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Progress of a re-embedding job
+     * GET /api/admin/embeddings/reembed/{jobId}
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getStatus(@PathVariable String jobId) {
+        return faceReembeddingService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(Map.<String, Object>of(
+                        "success", true,
+                        "job", job.summary())))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                        "success", false,
+                        "error", "Unknown re-embedding job: " + jobId)));
+    }
+}
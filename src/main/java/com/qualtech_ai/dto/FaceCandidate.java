@@ -0,0 +1,21 @@
+package com.qualtech_ai.dto;
+
+import com.qualtech_ai.entity.FaceUser;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One ranked identification candidate for a detected face
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceCandidate {
+    private int rank; // 1 = best
+    private FaceUser user;
+    private double similarity;
+    private boolean aboveThreshold;
+}
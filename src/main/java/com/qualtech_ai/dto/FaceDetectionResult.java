@@ -24,6 +24,7 @@ public class FaceDetectionResult {
     private boolean moving;
     private String age;
     private String provider; // AWS, Azure, or Local
+    private Integer trackId; // Stable per stream when tracking is on, else null
 
     // Liveness specific fields
     private Boolean eyesOpen;
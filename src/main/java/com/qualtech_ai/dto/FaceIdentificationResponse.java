@@ -0,0 +1,40 @@
+package com.qualtech_ai.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceIdentificationResponse {
+    private boolean success;
+    private String message;
+    private int topK;
+    @Builder.Default
+    private List<IdentifiedFace> faces = new ArrayList<>();
+    @Builder.Default
+    private List<String> imageErrors = new ArrayList<>(); // Per-image problems, the rest of the batch still runs
+
+    public static FaceIdentificationResponse success(int topK, List<IdentifiedFace> faces, List<String> imageErrors) {
+        FaceIdentificationResponse response = new FaceIdentificationResponse();
+        response.setSuccess(true);
+        response.setMessage(faces.size() + " face(s) identified");
+        response.setTopK(topK);
+        response.setFaces(faces);
+        response.setImageErrors(imageErrors);
+        return response;
+    }
+
+    public static FaceIdentificationResponse failure(String message) {
+        FaceIdentificationResponse response = new FaceIdentificationResponse();
+        response.setSuccess(false);
+        response.setMessage(message);
+        return response;
+    }
+}
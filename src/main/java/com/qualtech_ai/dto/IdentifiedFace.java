@@ -0,0 +1,27 @@
+package com.qualtech_ai.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A face detected in one of the submitted images with its ranked candidates
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdentifiedFace {
+    private int imageIndex; // Position of the image in the request
+    private String imageName;
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+    @Builder.Default
+    private List<FaceCandidate> candidates = new ArrayList<>();
+}
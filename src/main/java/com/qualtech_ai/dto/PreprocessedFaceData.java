@@ -6,5 +6,5 @@ package com.qualtech_ai.dto;
  */
 public record PreprocessedFaceData(
     String base64Image,
-    String faceEmbedding
+    float[] faceEmbedding
 ) {}
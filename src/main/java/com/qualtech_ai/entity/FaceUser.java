@@ -1,5 +1,6 @@
 package com.qualtech_ai.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -8,7 +9,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "face_users")
+@Table(name = "face_users", indexes = @Index(name = "idx_face_users_updated_at", columnList = "updated_at"))
 @Data
 public class FaceUser {
     @Id
@@ -22,7 +23,11 @@ public class FaceUser {
     private String email;
 
     @Column(columnDefinition = "TEXT")
-    private String faceEmbedding; // Store face embedding as JSON string
+    private String faceEmbedding; // Legacy: JSON list of Base64 CSV embeddings (pre binary format)
+
+    @JsonIgnore
+    @Column(name = "face_embedding_bin", columnDefinition = "bytea")
+    private byte[] faceEmbeddingData; // Binary exemplars, see FaceEmbeddingCodec
 
     @Column(name = "image_url")
     private String imageUrl; // URL to the image in S3
@@ -0,0 +1,30 @@
+package com.qualtech_ai.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record of a deleted face user, so a gallery restored from a snapshot can
+ * drop users deleted after its watermark without listing every active id
+ */
+@Entity
+@Table(name = "face_user_deletions", indexes = @Index(name = "idx_face_user_deletions_deleted_at", columnList = "deleted_at"))
+@Data
+@NoArgsConstructor
+public class FaceUserDeletion {
+    @Id
+    @Column(name = "user_id", length = 36)
+    private String userId;
+
+    @CreationTimestamp
+    @Column(name = "deleted_at", updatable = false)
+    private LocalDateTime deletedAt; // Same JVM clock as FaceUser.updatedAt
+
+    public FaceUserDeletion(String userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,33 @@
+package com.qualtech_ai.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection interface for loading the resident face gallery.
+ * Carries the user summary and embeddings without the LOB image data.
+ */
+public interface FaceGalleryView {
+    String getId();
+
+    String getName();
+
+    String getEmail();
+
+    String getDepartment();
+
+    String getPosition();
+
+    String getImageUrl();
+
+    String getAwsFaceId();
+
+    String getExternalImageId();
+
+    byte[] getFaceEmbeddingData();
+
+    String getFaceEmbedding(); // Legacy text format, only set on rows not yet migrated
+
+    Boolean getActive();
+
+    LocalDateTime getUpdatedAt();
+}
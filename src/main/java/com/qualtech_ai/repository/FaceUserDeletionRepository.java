@@ -0,0 +1,9 @@
+package com.qualtech_ai.repository;
+
+import com.qualtech_ai.entity.FaceUserDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FaceUserDeletionRepository extends JpaRepository<FaceUserDeletion, String> {
+}
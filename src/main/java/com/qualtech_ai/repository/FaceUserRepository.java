@@ -1,19 +1,30 @@
 package com.qualtech_ai.repository;
 
 import com.qualtech_ai.entity.FaceUser;
-import com.qualtech_ai.projection.FaceEmbeddingView;
+import com.qualtech_ai.projection.FaceGalleryView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 @Transactional(readOnly = true)
 public interface FaceUserRepository extends JpaRepository<FaceUser, String> {
+    // Active users with an embedding whose stored model differs from :model, reading only the
+    // header bytes (FaceEmbeddingCodec: byte 0 version, byte 1 model). An empty binary column means
+    // the legacy grid text column (model 0); an unreadable header counts as another model.
+    String STORED_WITH_OTHER_MODEL = "FROM face_users WHERE is_active = true "
+            + "AND (face_embedding_bin IS NOT NULL OR face_embedding IS NOT NULL) AND CASE "
+            + "WHEN face_embedding_bin IS NULL OR length(face_embedding_bin) = 0 THEN :model <> 0 "
+            + "WHEN length(face_embedding_bin) < 8 OR get_byte(face_embedding_bin, 0) <> 1 THEN true "
+            + "ELSE get_byte(face_embedding_bin, 1) <> :model END";
+
     Optional<FaceUser> findByEmail(String email);
 
     boolean existsByEmail(String email);
@@ -32,7 +43,30 @@ public interface FaceUserRepository extends JpaRepository<FaceUser, String> {
     @Query("SELECT fu FROM FaceUser fu WHERE fu.awsFaceId = :awsFaceId")
     Optional<FaceUser> findByAwsFaceIdWithoutImageData(String awsFaceId);
 
-    // Efficient duplicate check query - only retrieves face embeddings, no LOB data
-    @Query("SELECT u.faceEmbedding FROM FaceUser u WHERE u.faceEmbedding IS NOT NULL")
-    List<FaceEmbeddingView> findAllEmbeddings();
+    // Gallery load query - user summary and embeddings of active users, no LOB data
+    @Query("SELECT u.id AS id, u.name AS name, u.email AS email, u.department AS department, "
+            + "u.position AS position, u.imageUrl AS imageUrl, u.awsFaceId AS awsFaceId, "
+            + "u.externalImageId AS externalImageId, u.faceEmbeddingData AS faceEmbeddingData, "
+            + "u.faceEmbedding AS faceEmbedding, u.isActive AS active, u.updatedAt AS updatedAt FROM FaceUser u "
+            + "WHERE u.isActive = true AND (u.faceEmbeddingData IS NOT NULL OR u.faceEmbedding IS NOT NULL)")
+    List<FaceGalleryView> findActiveGalleryEntries();
+
+    // Gallery catch-up query - every user changed after the snapshot watermark, active or not
+    @Query("SELECT u.id AS id, u.name AS name, u.email AS email, u.department AS department, "
+            + "u.position AS position, u.imageUrl AS imageUrl, u.awsFaceId AS awsFaceId, "
+            + "u.externalImageId AS externalImageId, u.faceEmbeddingData AS faceEmbeddingData, "
+            + "u.faceEmbedding AS faceEmbedding, u.isActive AS active, u.updatedAt AS updatedAt FROM FaceUser u "
+            + "WHERE u.updatedAt > :since")
+    List<FaceGalleryView> findGalleryEntriesUpdatedAfter(LocalDateTime since);
+
+    // Gallery catch-up query - ids of users deleted after the snapshot watermark
+    @Query("SELECT d.userId FROM FaceUserDeletion d WHERE d.deletedAt > :since")
+    List<String> findGalleryUserIdsDeletedAfter(LocalDateTime since);
+
+    // Re-embedding queries - users stored with another model than the active embedder's
+    @Query(value = "SELECT COUNT(*) " + STORED_WITH_OTHER_MODEL, nativeQuery = true)
+    long countActiveUsersStoredWithOtherModel(@Param("model") int model);
+
+    @Query(value = "SELECT id " + STORED_WITH_OTHER_MODEL, nativeQuery = true)
+    List<String> findActiveUserIdsStoredWithOtherModel(@Param("model") int model);
 }
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.ArrayList;
 import com.qualtech_ai.dto.AdvancedFaceDetail;
 import com.qualtech_ai.dto.AdvancedFaceAnalysisResult;
+import com.qualtech_ai.util.FrameBuffer;
 import jakarta.annotation.PostConstruct;
 
 @Slf4j
@@ -48,12 +49,24 @@ public class AwsFaceService {
     }
 
     public SearchFacesByImageResponse searchFace(byte[] imageBytes) {
+        return searchFace(SdkBytes.fromByteArray(imageBytes));
+    }
+
+    /**
+     * Search with a pooled frame; the request reads the frame's native memory
+     * without a heap copy, so the frame must stay open until this returns
+     */
+    public SearchFacesByImageResponse searchFace(FrameBuffer frame) {
+        return searchFace(SdkBytes.fromByteBufferUnsafe(frame.asByteBuffer()));
+    }
+
+    private SearchFacesByImageResponse searchFace(SdkBytes imageBytes) {
         if (rekognitionClient == null) {
             log.warn("❌ AWS Rekognition is NOT CONFIGURED. Skipping search.");
             return null;
         }
 
-        Image image = Image.builder().bytes(SdkBytes.fromByteArray(imageBytes)).build();
+        Image image = Image.builder().bytes(imageBytes).build();
 
         try {
             log.debug("🔍 AWS: Searching collection '{}' (threshold: 80%)", collectionId);
@@ -330,6 +343,18 @@ public class AwsFaceService {
     }
 
     public IndexFacesResponse indexFace(byte[] imageBytes, String externalId) {
+        return indexFace(SdkBytes.fromByteArray(imageBytes), externalId);
+    }
+
+    /**
+     * Index a pooled frame without a heap copy; the frame must stay open
+     * until this returns
+     */
+    public IndexFacesResponse indexFace(FrameBuffer frame, String externalId) {
+        return indexFace(SdkBytes.fromByteBufferUnsafe(frame.asByteBuffer()), externalId);
+    }
+
+    private IndexFacesResponse indexFace(SdkBytes imageBytes, String externalId) {
         if (rekognitionClient == null) {
             log.warn("Attempted to index face but AWS Rekognition is not configured.");
             return null;
@@ -337,7 +362,7 @@ public class AwsFaceService {
 
         ensureCollectionExists();
 
-        Image image = Image.builder().bytes(SdkBytes.fromByteArray(imageBytes)).build();
+        Image image = Image.builder().bytes(imageBytes).build();
 
         try {
             IndexFacesRequest request = IndexFacesRequest.builder()
@@ -3,6 +3,7 @@ package com.qualtech_ai.service;
 import com.azure.ai.vision.face.FaceClient;
 import com.azure.ai.vision.face.models.*;
 import com.azure.core.util.BinaryData;
+import com.qualtech_ai.util.FrameBuffer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -61,6 +62,11 @@ public class AzureFaceService {
      * - Optional.of(list) -> Success (List might be empty if no faces found)
      */
     public CompletableFuture<Optional<List<FaceDetectionResult>>> detectFacesSafe(byte[] imageBytes) {
+        return detectFacesSafe(imageBytes == null ? null : BinaryData.fromBytes(imageBytes),
+                imageBytes == null ? 0 : imageBytes.length);
+    }
+
+    private CompletableFuture<Optional<List<FaceDetectionResult>>> detectFacesSafe(BinaryData image, int length) {
         if (faceClient == null || !enabled) {
             if (!enabled) {
                 log.info("Azure Face API is disabled - skipping");
@@ -89,13 +95,13 @@ public class AzureFaceService {
 
             try {
                 // 4. Validate Input
-                if (imageBytes == null || imageBytes.length < 1024) {
+                if (image == null || length < 1024) {
                     log.debug("Image too small or null for Azure.");
                     return Optional.of(new ArrayList<>());
                 }
 
                 // 5. Execute Service Call
-                return executeAzureCall(imageBytes);
+                return executeAzureCall(image);
             } finally {
                 azureSemaphore.release();
             }
@@ -114,6 +120,29 @@ public class AzureFaceService {
         }
     }
 
+    /**
+     * Detect faces in a pooled frame, uploaded straight from its native
+     * memory. The call holds its own reference to the frame, so a timed-out
+     * request never reads a buffer that has been reused.
+     */
+    public List<FaceDetectionResult> detectFaces(FrameBuffer frame) {
+        FrameBuffer reference = frame.retain();
+        CompletableFuture<Optional<List<FaceDetectionResult>>> future;
+        try {
+            future = detectFacesSafe(BinaryData.fromByteBuffer(reference.asByteBuffer()), reference.length());
+        } catch (RuntimeException e) {
+            reference.close();
+            throw e;
+        }
+        future.whenComplete((result, error) -> reference.close());
+        try {
+            return future.get(5, TimeUnit.SECONDS).orElse(new ArrayList<>());
+        } catch (Exception e) {
+            log.warn("Azure detectFaces call failed: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
     private synchronized boolean acquireRateLimitToken() {
         long now = System.currentTimeMillis();
         if (now - rateLimitWindowStart.get() > RATE_LIMIT_WINDOW_MS) {
@@ -142,11 +171,11 @@ public class AzureFaceService {
         return false;
     }
 
-    private Optional<List<FaceDetectionResult>> executeAzureCall(byte[] imageBytes) {
+    private Optional<List<FaceDetectionResult>> executeAzureCall(BinaryData image) {
         try {
             log.debug("Calling Azure Face API...");
             List<FaceDetectionResult> results = faceClient.detect(
-                    BinaryData.fromBytes(imageBytes),
+                    image,
                     FaceDetectionModel.DETECTION_03,
                     FaceRecognitionModel.RECOGNITION_04,
                     true, // returnFaceId
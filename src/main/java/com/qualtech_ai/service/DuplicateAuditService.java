@@ -0,0 +1,460 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.entity.FaceUser;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Background audit for accounts enrolled more than once.
+ * <p>
+ * Every gallery row is used as a probe against the gallery's own search
+ * (the HNSW index on large galleries), so candidate pairs cost one
+ * approximate query per row instead of an all-pairs comparison. Candidates
+ * are verified block by block with the exact best similarity over all
+ * exemplars of both users and joined into clusters with union-find as they
+ * are confirmed, so counters and clusters grow while the audit runs.
+ * <p>
+ * Probes, including the exact sharded scan of unindexed galleries, run on a
+ * dedicated ForkJoinPool whose parallelism is the audit's CPU budget, so an
+ * audit never takes more cores than configured away from live verification.
+ * Cluster members are looked up only while a report is streamed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DuplicateAuditService {
+
+    private static final int BLOCK_ROWS = 4096;
+    private static final int PROBE_BATCH = 64;
+    private static final float CANDIDATE_MARGIN = 0.05f;
+    private static final int MAX_RETAINED_JOBS = 10;
+    public static final int MAX_NEIGHBOURS = 100;
+
+    private final FaceGalleryService faceGalleryService;
+    private final FaceModelRegistry faceModelRegistry;
+
+    // 0 = the active embedder's match threshold, as for the registration duplicate check
+    @Value("${face.audit.duplicates.threshold:0}")
+    private double configuredThreshold;
+
+    @Value("${face.audit.duplicates.neighbours:5}")
+    private int defaultNeighbours;
+
+    @Value("${face.audit.duplicates.parallelism:0}")
+    private int configuredParallelism;
+
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "face-duplicate-audit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, AuditJob> jobs = new ConcurrentHashMap<>();
+    private volatile AuditJob currentJob;
+
+    /**
+     * Start an audit, or return the one already running
+     *
+     * @param threshold  minimum exact similarity for a pair to be reported; null for the default,
+     *                   the active embedder's match threshold unless configured
+     * @param neighbours candidate users fetched per probe row, at most {@link #MAX_NEIGHBOURS}; null for the default
+     */
+    public synchronized AuditJob startAudit(Double threshold, Integer neighbours) {
+        if (currentJob != null && currentJob.getStatus() == AuditStatus.RUNNING) {
+            return currentJob;
+        }
+        AuditJob job = new AuditJob(UUID.randomUUID().toString(),
+                threshold != null ? threshold : defaultThreshold(),
+                Math.min(MAX_NEIGHBOURS, Math.max(1, neighbours != null ? neighbours : defaultNeighbours)),
+                parallelism());
+        retain(job);
+        currentJob = job;
+        jobExecutor.submit(() -> run(job));
+        log.info("🔍 Duplicate audit {} started: threshold {}, {} neighbours, {} threads",
+                job.getId(), job.getThreshold(), job.getNeighbours(), job.getParallelism());
+        return job;
+    }
+
+    private double defaultThreshold() {
+        return configuredThreshold > 0 ? configuredThreshold : faceModelRegistry.embedder().matchThreshold();
+    }
+
+    public Optional<AuditJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Clusters confirmed so far, strongest first. The order is fixed when
+     * called; each cluster's members are looked up only when the stream
+     * reaches it, so a large report is never held in memory at once.
+     */
+    public Stream<DuplicateCluster> clusters(AuditJob job) {
+        return job.outlines().stream().map(this::toCluster);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    private void run(AuditJob job) {
+        ForkJoinPool pool = new ForkJoinPool(job.getParallelism(), p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("face-duplicate-audit-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        try {
+            scan(job, pool);
+            job.status = AuditStatus.COMPLETED;
+            log.info("✅ Duplicate audit {} completed: {} rows, {} candidate pairs, {} verified, {} clusters",
+                    job.getId(), job.getRowsScanned(), job.getCandidatePairs(), job.getVerifiedPairs(),
+                    job.getClusterCount());
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.status = AuditStatus.FAILED;
+            log.error("❌ Duplicate audit {} failed: {}", job.getId(), e.getMessage(), e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Probe the gallery with every row, block by block, then verify the pairs
+     * that block found for the first time. Rows are copied out in blocks so
+     * the gallery lock is never held across a probe.
+     */
+    private void scan(AuditJob job, ForkJoinPool pool) {
+        Set<PairKey> seen = ConcurrentHashMap.newKeySet();
+        float floor = (float) job.getThreshold() - CANDIDATE_MARGIN;
+        job.totalRows = faceGalleryService.getExemplarCount();
+        for (int from = 0; ; from += BLOCK_ROWS) {
+            FaceGalleryService.RowBlock block = faceGalleryService.copyRows(from, BLOCK_ROWS);
+            if (block.rows() == 0) {
+                break;
+            }
+            Set<PairKey> found = ConcurrentHashMap.newKeySet();
+            int batches = (block.rows() + PROBE_BATCH - 1) / PROBE_BATCH;
+            pool.submit(() -> IntStream.range(0, batches).parallel()
+                    .forEach(b -> probeBatch(block, b * PROBE_BATCH, job.getNeighbours(), floor, pool,
+                            seen, found)))
+                    .join();
+            job.rowsScanned.addAndGet(block.rows());
+            job.candidatePairs.addAndGet(found.size());
+            job.addVerified(verify(job, found));
+            if (block.rows() < BLOCK_ROWS) {
+                break;
+            }
+        }
+    }
+
+    private void probeBatch(FaceGalleryService.RowBlock block, int fromRow, int neighbours, float floor,
+                            ForkJoinPool pool, Set<PairKey> seen, Set<PairKey> found) {
+        int toRow = Math.min(block.rows(), fromRow + PROBE_BATCH);
+        List<float[]> probes = new ArrayList<>(toRow - fromRow);
+        for (int row = fromRow; row < toRow; row++) {
+            float[] probe = new float[FaceGalleryService.DIMENSION];
+            System.arraycopy(block.vectors(), row * FaceGalleryService.DIMENSION, probe, 0, probe.length);
+            probes.add(probe);
+        }
+        // One extra neighbour: the probe's own user is normally the best hit
+        List<List<FaceGalleryService.Match>> results =
+                faceGalleryService.findTopMatches(probes, neighbours + 1, pool);
+        for (int i = 0; i < results.size(); i++) {
+            String owner = block.rowIds()[fromRow + i];
+            for (FaceGalleryService.Match match : results.get(i)) {
+                String other = match.user().getId();
+                if (!owner.equals(other) && match.similarity() >= floor) {
+                    PairKey pair = PairKey.of(owner, other);
+                    if (seen.add(pair)) {
+                        found.add(pair);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Exact best similarity over all exemplar pairs of each candidate
+     */
+    private List<DuplicatePair> verify(AuditJob job, Set<PairKey> candidates) {
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        Set<String> involved = new HashSet<>();
+        for (PairKey pair : candidates) {
+            involved.add(pair.first());
+            involved.add(pair.second());
+        }
+        Map<String, List<float[]>> exemplars = faceGalleryService.exemplarsOf(involved);
+        List<DuplicatePair> verified = new ArrayList<>();
+        for (PairKey pair : candidates) {
+            List<float[]> a = exemplars.get(pair.first());
+            List<float[]> b = exemplars.get(pair.second());
+            if (a == null || b == null) {
+                continue; // deleted while the audit was running
+            }
+            double best = -1.0;
+            for (float[] x : a) {
+                for (float[] y : b) {
+                    best = Math.max(best, dot(x, y));
+                }
+            }
+            if (best >= job.getThreshold()) {
+                verified.add(new DuplicatePair(pair.first(), pair.second(), best));
+            }
+        }
+        return verified;
+    }
+
+    private DuplicateCluster toCluster(ClusterOutline outline) {
+        List<DuplicateMember> users = new ArrayList<>(outline.userIds().size());
+        for (String userId : outline.userIds()) {
+            Optional<FaceUser> user = faceGalleryService.getUser(userId);
+            users.add(new DuplicateMember(userId,
+                    user.map(FaceUser::getName).orElse(null),
+                    user.map(FaceUser::getEmail).orElse(null)));
+        }
+        return new DuplicateCluster(users, outline.pairs().get(0).similarity(), outline.pairs());
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private int parallelism() {
+        if (configuredParallelism > 0) {
+            return configuredParallelism;
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+    }
+
+    private void retain(AuditJob job) {
+        jobs.put(job.getId(), job);
+        if (jobs.size() > MAX_RETAINED_JOBS) {
+            jobs.values().stream()
+                    .filter(j -> j.getStatus() != AuditStatus.RUNNING)
+                    .min(Comparator.comparing(AuditJob::getStartedAt))
+                    .ifPresent(oldest -> jobs.remove(oldest.getId()));
+        }
+    }
+
+    public enum AuditStatus {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private record PairKey(String first, String second) {
+        static PairKey of(String a, String b) {
+            return a.compareTo(b) < 0 ? new PairKey(a, b) : new PairKey(b, a);
+        }
+    }
+
+    public record DuplicatePair(String firstUserId, String secondUserId, double similarity) {
+    }
+
+    public record DuplicateMember(String userId, String name, String email) {
+    }
+
+    public record DuplicateCluster(List<DuplicateMember> users, double maxSimilarity, List<DuplicatePair> pairs) {
+    }
+
+    /**
+     * A cluster's user ids and pairs, strongest pair first, before its
+     * members are looked up
+     */
+    private record ClusterOutline(List<String> userIds, List<DuplicatePair> pairs) {
+    }
+
+    /**
+     * State of one audit run. Verified pairs are joined into clusters with
+     * union-find as each block is verified; reads of the clusters take a
+     * consistent copy under the job's lock.
+     */
+    public static class AuditJob {
+        private final String id;
+        private final double threshold;
+        private final int neighbours;
+        private final int parallelism;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger rowsScanned = new AtomicInteger();
+        private final AtomicInteger candidatePairs = new AtomicInteger();
+        private final Map<String, String> parent = new HashMap<>();
+        private final List<DuplicatePair> pairs = new ArrayList<>();
+        private volatile AuditStatus status = AuditStatus.RUNNING;
+        private volatile LocalDateTime finishedAt;
+        private volatile int totalRows;
+        private volatile int clusterCount;
+        private volatile String error;
+
+        AuditJob(String id, double threshold, int neighbours, int parallelism) {
+            this.id = id;
+            this.threshold = threshold;
+            this.neighbours = neighbours;
+            this.parallelism = parallelism;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public double getThreshold() {
+            return threshold;
+        }
+
+        public int getNeighbours() {
+            return neighbours;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public LocalDateTime getFinishedAt() {
+            return finishedAt;
+        }
+
+        public AuditStatus getStatus() {
+            return status;
+        }
+
+        public int getRowsScanned() {
+            return rowsScanned.get();
+        }
+
+        public int getTotalRows() {
+            return totalRows;
+        }
+
+        public int getCandidatePairs() {
+            return candidatePairs.get();
+        }
+
+        public synchronized int getVerifiedPairs() {
+            return pairs.size();
+        }
+
+        public int getClusterCount() {
+            return clusterCount;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        synchronized void addVerified(List<DuplicatePair> verified) {
+            for (DuplicatePair pair : verified) {
+                pairs.add(pair);
+                union(pair.firstUserId(), pair.secondUserId());
+            }
+        }
+
+        /**
+         * Connected components of the pairs verified so far, strongest first
+         */
+        synchronized List<ClusterOutline> outlines() {
+            Map<String, List<String>> members = new HashMap<>();
+            for (String userId : parent.keySet()) {
+                members.computeIfAbsent(find(userId), r -> new ArrayList<>()).add(userId);
+            }
+            Map<String, List<DuplicatePair>> edges = new HashMap<>();
+            for (DuplicatePair pair : pairs) {
+                edges.computeIfAbsent(find(pair.firstUserId()), r -> new ArrayList<>()).add(pair);
+            }
+            List<ClusterOutline> outlines = new ArrayList<>(members.size());
+            for (Map.Entry<String, List<String>> entry : members.entrySet()) {
+                List<String> userIds = entry.getValue();
+                userIds.sort(Comparator.naturalOrder());
+                List<DuplicatePair> clusterPairs = edges.get(entry.getKey());
+                clusterPairs.sort(Comparator.comparingDouble(DuplicatePair::similarity).reversed());
+                outlines.add(new ClusterOutline(userIds, clusterPairs));
+            }
+            outlines.sort(Comparator.comparingDouble((ClusterOutline o) -> o.pairs().get(0).similarity())
+                    .reversed());
+            return outlines;
+        }
+
+        private void union(String a, String b) {
+            String rootA = find(a);
+            String rootB = find(b);
+            if (!rootA.equals(rootB)) {
+                parent.put(rootA, rootB);
+                clusterCount--;
+            }
+        }
+
+        private String find(String id) {
+            String root = parent.get(id);
+            if (root == null) {
+                parent.put(id, id);
+                clusterCount++;
+                return id;
+            }
+            while (!root.equals(parent.get(root))) {
+                root = parent.get(root);
+            }
+            // Path compression
+            String node = id;
+            while (!node.equals(root)) {
+                String next = parent.get(node);
+                parent.put(node, root);
+                node = next;
+            }
+            return root;
+        }
+
+        /**
+         * Progress and counters, without the clusters
+         */
+        public Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("jobId", id);
+            summary.put("status", status);
+            summary.put("threshold", threshold);
+            summary.put("neighbours", neighbours);
+            summary.put("parallelism", parallelism);
+            summary.put("startedAt", startedAt);
+            summary.put("finishedAt", finishedAt);
+            summary.put("rowsScanned", rowsScanned.get());
+            summary.put("totalRows", totalRows);
+            summary.put("candidatePairs", candidatePairs.get());
+            summary.put("verifiedPairs", getVerifiedPairs());
+            summary.put("clusterCount", clusterCount);
+            if (error != null) {
+                summary.put("error", error);
+            }
+            return summary;
+        }
+    }
+}
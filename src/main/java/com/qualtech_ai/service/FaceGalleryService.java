@@ -0,0 +1,1183 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.entity.FaceUser;
+import com.qualtech_ai.projection.FaceGalleryView;
+import com.qualtech_ai.repository.FaceUserRepository;
+import com.qualtech_ai.util.FaceEmbeddingCodec;
+import com.qualtech_ai.util.FloatRowStore;
+import com.qualtech_ai.util.HnswIndex;
+import com.qualtech_ai.util.QuantizedVectorStore;
+import com.qualtech_ai.util.SimilarityKernel;
+import com.qualtech_ai.util.ShardedScanner;
+import com.qualtech_ai.util.SimilarityKernels;
+import com.qualtech_ai.util.TopK;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident gallery of all active users' face embeddings.
+ * Embeddings are held L2-normalized in an off-heap {@link FloatRowStore} (one
+ * row per exemplar) with a parallel array of user ids, so local matching never
+ * touches the database or parses stored strings, and the rows add nothing to
+ * the Java heap.
+ * <p>
+ * The gallery is persisted to a memory-mapped snapshot file (see
+ * {@link FaceGallerySnapshot}) after changes. On startup the snapshot is
+ * mapped and only users changed since its updated_at watermark are read from
+ * the database. The snapshot's matrix section is scanned in place as the
+ * exact rows, and is mapped again after each write that saw the current rows,
+ * so rows stay shared with the page cache instead of copied per process.
+ * <p>
+ * Galleries at or above {@code face.gallery.index.min-size} exemplars are
+ * searched through an HNSW graph built in the background and persisted to a
+ * local file; smaller galleries (and the window before the graph is ready)
+ * use the exact scan.
+ * <p>
+ * Exact search is sharded across a dedicated ForkJoinPool once the gallery
+ * reaches {@code face.gallery.search.parallel-min-rows} exemplars.
+ * <p>
+ * With {@code face.gallery.quantization.encoding} set to int8 or fp16, the
+ * off-heap quantized codes are the rows every search scans (sharded like the
+ * exact scan), and only the best candidates are re-ranked against the float
+ * rows. Those are read from the mapped snapshot, whose pages are file-backed
+ * and reclaimable, so the resident working set is a quarter (int8) or half
+ * (fp16) of the float rows; only rows added since the last snapshot write
+ * are held off-heap. Without the snapshot the float rows stay off-heap and
+ * nothing is saved.
+ * <p>
+ * Only embeddings of the configured embedder's model are loaded; users
+ * stored with another model stay out of the gallery until they are
+ * re-embedded (see {@code FaceReembeddingService}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FaceGalleryService {
+
+    public static final int DIMENSION = 128; // Must match the embedder output size
+    private static final int INITIAL_CAPACITY = 256;
+    private static final double INDEX_REBUILD_DELETED_RATIO = 0.2;
+    private static final int QUANTIZATION_REPORT_PROBES = 200;
+    private static final int DUPLICATE_SCAN_BLOCK_ROWS = 4096;
+    // Index candidates for the duplicate check; widens the search beyond the best hit
+    private static final int DUPLICATE_INDEX_CANDIDATES = 8;
+    // Re-read a little before the watermark to cover clock skew and late commits
+    private static final Duration CATCH_UP_OVERLAP = Duration.ofMinutes(5);
+
+    private final FaceUserRepository faceUserRepository;
+    private final FaceModelRegistry faceModelRegistry;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, FaceUser> users = new ConcurrentHashMap<>();
+    private final SimilarityKernel kernel = SimilarityKernels.preferred();
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "face-gallery-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "face-gallery-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean snapshotPending = new AtomicBoolean(false);
+    private final List<float[]> inFlightProbes = new ArrayList<>();
+    private final AtomicReference<LocalDateTime> watermark = new AtomicReference<>();
+
+    @Value("${face.gallery.index.enabled:true}")
+    private boolean indexEnabled;
+
+    @Value("${face.gallery.index.min-size:20000}")
+    private int indexMinSize;
+
+    @Value("${face.gallery.index.m:16}")
+    private int indexM;
+
+    @Value("${face.gallery.index.ef-construction:200}")
+    private int indexEfConstruction;
+
+    @Value("${face.gallery.index.ef-search:64}")
+    private int indexEfSearch;
+
+    @Value("${face.gallery.index.file:${java.io.tmpdir}/qualtech/face-gallery.hnsw}")
+    private String indexFile;
+
+    @Value("${face.gallery.quantization.encoding:none}")
+    private String quantizationEncoding;
+
+    @Value("${face.gallery.quantization.rerank-depth:16}")
+    private int rerankDepth;
+
+    @Value("${face.gallery.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${face.gallery.snapshot.file:${java.io.tmpdir}/qualtech/face-gallery.snapshot}")
+    private String snapshotFile;
+
+    @Value("${face.gallery.snapshot.write-delay-ms:5000}")
+    private long snapshotWriteDelayMs;
+
+    @Value("${face.gallery.search.parallelism:0}")
+    private int searchParallelism;
+
+    @Value("${face.gallery.search.parallel-min-rows:50000}")
+    private int parallelMinRows;
+
+    @Value("${face.gallery.search.shard-bytes:262144}")
+    private int shardBytes;
+
+    private ForkJoinPool searchPool;
+    private ShardedScanner scanner;
+    private volatile Map<String, Object> quantizationReport = Map.of();
+
+    // Guarded by lock
+    private FloatRowStore vectors = new FloatRowStore(DIMENSION, INITIAL_CAPACITY);
+    private String[] rowIds = new String[INITIAL_CAPACITY];
+    private int rowCount = 0;
+    private int maxUserExemplars = 1; // Upper bound, only ever grows
+    private long rowsVersion = 0L; // Bumped on every row change, to tell whether a snapshot is current
+    private HnswIndex index;
+    private QuantizedVectorStore quantized;
+    private volatile int embeddingModel;
+    private boolean indexBuilding = false;
+    private boolean indexModified = false;
+    private final Set<String> indexDirtyUsers = new HashSet<>();
+
+    @PostConstruct
+    public void loadGallery() {
+        embeddingModel = faceModelRegistry.getEmbeddingModel();
+        if (!snapshotEnabled && QuantizedVectorStore.Encoding.fromConfig(quantizationEncoding) != null) {
+            log.warn("Face gallery quantization without the snapshot keeps the float rows off-heap as well; "
+                    + "enable face.gallery.snapshot to re-rank from the mapped file instead");
+        }
+        initSearchPool();
+        long start = System.currentTimeMillis();
+        try {
+            if (snapshotEnabled && loadSnapshot()) {
+                int changed = catchUpFromDatabase();
+                log.info("Face gallery restored from snapshot: {} users, {} exemplars, {} users caught up in {} ms",
+                        users.size(), getExemplarCount(), changed, System.currentTimeMillis() - start);
+                if (changed > 0) {
+                    scheduleSnapshotWrite();
+                }
+            } else {
+                loadFromDatabase();
+                log.info("Face gallery loaded: {} users, {} exemplars in {} ms",
+                        users.size(), getExemplarCount(), System.currentTimeMillis() - start);
+                scheduleSnapshotWrite();
+            }
+            scheduleIndexBuild(true);
+            scheduleQuantizationReport();
+        } catch (Exception e) {
+            log.error("Failed to load face gallery: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Find the closest registered user for a probe feature vector
+     *
+     * @return the best match, or empty if the probe is invalid or the gallery
+     * is empty
+     */
+    public Optional<Match> findBestMatch(float[] probe) {
+        if (probe == null || probe.length != DIMENSION) {
+            return Optional.empty();
+        }
+        return findBestMatches(List.of(probe)).get(0);
+    }
+
+    /**
+     * Find the closest registered user for each probe in one pass over the
+     * gallery (e.g. all faces of a group photo)
+     *
+     * @return one entry per probe, empty where the probe is invalid or the
+     * gallery is empty
+     */
+    public List<Optional<Match>> findBestMatches(List<float[]> probes) {
+        List<Optional<Match>> best = new ArrayList<>(probes.size());
+        for (List<Match> candidates : findTopMatches(probes, 1)) {
+            best.add(candidates.isEmpty() ? Optional.empty() : Optional.of(candidates.get(0)));
+        }
+        return best;
+    }
+
+    /**
+     * Ranked candidates for each probe: the k most similar distinct users,
+     * best first. Rows are collected in bounded heaps; the gallery is never
+     * sorted.
+     *
+     * @return one list per probe, empty where the probe is invalid or the
+     * gallery is empty
+     */
+    public List<List<Match>> findTopMatches(List<float[]> probes, int k) {
+        return findTopMatches(probes, k, searchPool);
+    }
+
+    /**
+     * {@link #findTopMatches(List, int)} with the exact sharded scan run on
+     * {@code executor} instead of the gallery's search pool, for background
+     * jobs that must not take more cores than their own budget
+     */
+    public List<List<Match>> findTopMatches(List<float[]> probes, int k, ForkJoinPool executor) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        List<float[]> queries = new ArrayList<>(probes.size());
+        for (float[] probe : probes) {
+            queries.add(probe != null && probe.length == DIMENSION ? normalize(probe) : null);
+        }
+        List<List<String>> candidateIds = new ArrayList<>(probes.size());
+        List<float[]> candidateScores = new ArrayList<>(probes.size());
+
+        lock.readLock().lock();
+        try {
+            // A user owns at most maxUserExemplars rows, so this many rows always
+            // contain the k best distinct users
+            int rowsNeeded = Math.max(1, Math.min(rowCount, k * maxUserExemplars));
+            List<Integer> exact = new ArrayList<>();
+            List<Integer> approximate = new ArrayList<>();
+            for (int p = 0; p < queries.size(); p++) {
+                candidateIds.add(List.of());
+                candidateScores.add(new float[0]);
+                float[] query = queries.get(p);
+                if (query == null || rowCount == 0) {
+                    continue;
+                }
+                if (useIndex()) {
+                    List<HnswIndex.Hit> hits = index.search(query, k);
+                    if (!hits.isEmpty()) {
+                        List<String> ids = new ArrayList<>(hits.size());
+                        float[] scores = new float[hits.size()];
+                        for (int i = 0; i < hits.size(); i++) {
+                            ids.add(hits.get(i).label());
+                            scores[i] = hits.get(i).score();
+                        }
+                        candidateIds.set(p, ids);
+                        candidateScores.set(p, scores);
+                        continue;
+                    }
+                }
+                (quantized != null ? approximate : exact).add(p);
+            }
+
+            if (!approximate.isEmpty()) {
+                float[][] batch = new float[approximate.size()][];
+                for (int i = 0; i < batch.length; i++) {
+                    batch[i] = queries.get(approximate.get(i));
+                }
+                TopK[] top = quantizedTopRows(batch, rowsNeeded, executor);
+                for (int i = 0; i < batch.length; i++) {
+                    collectDistinct(top[i], k, approximate.get(i), candidateIds, candidateScores);
+                }
+            }
+
+            if (!exact.isEmpty()) {
+                // Rows are pre-normalized: one dot product per row is the cosine similarity
+                float[][] batch = new float[exact.size()][];
+                for (int i = 0; i < batch.length; i++) {
+                    batch[i] = queries.get(exact.get(i));
+                }
+                TopK[] top = scanner.scan(executor, batch, vectors, rowCount, rowsNeeded);
+                for (int i = 0; i < batch.length; i++) {
+                    collectDistinct(top[i], k, exact.get(i), candidateIds, candidateScores);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<List<Match>> results = new ArrayList<>(probes.size());
+        for (int p = 0; p < candidateIds.size(); p++) {
+            List<String> ids = candidateIds.get(p);
+            List<Match> matches = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                FaceUser user = users.get(ids.get(i));
+                if (user != null) {
+                    matches.add(new Match(user, candidateScores.get(p)[i]));
+                }
+            }
+            results.add(matches);
+        }
+        return results;
+    }
+
+    /**
+     * Check for any registered user at or above the threshold (duplicate
+     * detection). Indexed galleries answer from the HNSW graph; otherwise the
+     * quantized tier is scanned and re-ranked when enabled, or the exact scan
+     * runs, stopping at the first block of rows that holds a match.
+     */
+    public Optional<Match> findFirstMatchAtLeast(float[] probe, double threshold) {
+        if (probe == null || probe.length != DIMENSION) {
+            return Optional.empty();
+        }
+        float[] query = normalize(probe);
+
+        String matchId = null;
+        float matchScore = 0f;
+        boolean scan = true;
+        lock.readLock().lock();
+        try {
+            if (useIndex()) {
+                List<HnswIndex.Hit> hits = index.search(query, DUPLICATE_INDEX_CANDIDATES);
+                if (!hits.isEmpty()) {
+                    scan = false;
+                    if (hits.get(0).score() >= threshold) {
+                        matchId = hits.get(0).label();
+                        matchScore = hits.get(0).score();
+                    }
+                }
+            }
+            if (scan && quantized != null && rowCount > 0) {
+                // Scanning every float row would pull the whole mapped matrix back into memory
+                scan = false;
+                TopK best = quantizedTopRows(new float[][]{query}, 1, searchPool)[0].sortDescending();
+                if (best.score(0) >= threshold) {
+                    matchId = rowIds[best.id(0)];
+                    matchScore = best.score(0);
+                }
+            }
+            for (int from = 0; scan && from < rowCount && matchId == null; from += DUPLICATE_SCAN_BLOCK_ROWS) {
+                TopK best = new TopK(1);
+                vectors.scan(query, from, Math.min(rowCount, from + DUPLICATE_SCAN_BLOCK_ROWS), best);
+                best.sortDescending();
+                if (best.score(0) >= threshold) {
+                    matchId = rowIds[best.id(0)];
+                    matchScore = best.score(0);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        FaceUser user = matchId == null ? null : users.get(matchId);
+        return user == null ? Optional.empty() : Optional.of(new Match(user, matchScore));
+    }
+
+    /**
+     * Reserve a probe for the duration of a registration. Fails if a probe at
+     * or above the threshold is already reserved, so two concurrent
+     * registrations of one face cannot both pass the gallery check.
+     *
+     * @return the reservation, or empty if a similar probe is in flight
+     */
+    public Optional<InFlightProbe> reserveProbe(float[] probe, double threshold) {
+        if (probe == null || probe.length != DIMENSION) {
+            return Optional.of(new InFlightProbe(null));
+        }
+        float[] query = normalize(probe);
+        synchronized (inFlightProbes) {
+            for (float[] other : inFlightProbes) {
+                if (kernel.dot(query, 0, other, 0, DIMENSION) >= threshold) {
+                    return Optional.empty();
+                }
+            }
+            inFlightProbes.add(query);
+        }
+        return Optional.of(new InFlightProbe(query));
+    }
+
+    /**
+     * Replace a user's exemplars once the surrounding transaction commits
+     */
+    public void onEmbeddingsSaved(FaceUser user, List<float[]> exemplars) {
+        FaceUser summary = toSummary(user);
+        List<float[]> valid = exemplars.stream().filter(e -> e != null && e.length == DIMENSION).toList();
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeRows(Set.of(summary.getId()));
+                if (summary.isActive() && !valid.isEmpty()) {
+                    users.put(summary.getId(), summary);
+                    appendRows(summary.getId(), valid);
+                } else {
+                    users.remove(summary.getId());
+                }
+                syncIndex(summary.getId());
+            } finally {
+                lock.writeLock().unlock();
+            }
+            advanceWatermark(summary.getUpdatedAt());
+            scheduleSnapshotWrite();
+            log.debug("Face gallery updated for user {} ({} exemplars)", summary.getId(), valid.size());
+        });
+    }
+
+    /**
+     * Refresh the cached user summary (S3/AWS info) once the transaction commits
+     */
+    public void onUserUpdated(FaceUser user) {
+        FaceUser summary = toSummary(user);
+        afterCommit(() -> {
+            if (users.computeIfPresent(summary.getId(), (id, existing) -> summary) != null) {
+                advanceWatermark(summary.getUpdatedAt());
+                scheduleSnapshotWrite();
+            }
+        });
+    }
+
+    /**
+     * Drop a user's exemplars once the surrounding transaction commits
+     */
+    public void onUserDeleted(String userId) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                users.remove(userId);
+                removeRows(Set.of(userId));
+                syncIndex(userId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            scheduleSnapshotWrite();
+            log.debug("Face gallery entry removed for user {}", userId);
+        });
+    }
+
+    /**
+     * Copy of up to {@code maxRows} normalized rows starting at {@code fromRow},
+     * for offline jobs that walk the gallery without holding the lock
+     */
+    public RowBlock copyRows(int fromRow, int maxRows) {
+        lock.readLock().lock();
+        try {
+            int from = Math.min(Math.max(0, fromRow), rowCount);
+            int rows = Math.min(maxRows, rowCount - from);
+            float[] block = new float[rows * DIMENSION];
+            vectors.copyRows(from, rows, block, 0);
+            return new RowBlock(Arrays.copyOfRange(rowIds, from, from + rows), block, rows);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normalized exemplars of the given users, in one pass over the gallery
+     */
+    public Map<String, List<float[]>> exemplarsOf(Set<String> userIds) {
+        Map<String, List<float[]>> exemplars = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < rowCount; row++) {
+                if (userIds.contains(rowIds[row])) {
+                    float[] exemplar = new float[DIMENSION];
+                    vectors.copyRow(row, exemplar, 0);
+                    exemplars.computeIfAbsent(rowIds[row], id -> new ArrayList<>()).add(exemplar);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return exemplars;
+    }
+
+    public Optional<FaceUser> getUser(String userId) {
+        return Optional.ofNullable(users.get(userId));
+    }
+
+    public int getUserCount() {
+        return users.size();
+    }
+
+    /**
+     * Embedding model id of the rows held; new embeddings are stored with it
+     */
+    public int getEmbeddingModel() {
+        return embeddingModel;
+    }
+
+    public String getKernelName() {
+        return kernel.name();
+    }
+
+    public int getExemplarCount() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search strategy currently in use: "hnsw", "quantized-int8",
+     * "quantized-fp16" or "exact"
+     */
+    public String getSearchMode() {
+        lock.readLock().lock();
+        try {
+            if (useIndex()) {
+                return "hnsw";
+            }
+            return quantized != null ? "quantized-" + quantized.encoding().name().toLowerCase() : "exact";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getIndexEfSearch() {
+        return indexEfSearch;
+    }
+
+    public int getSearchParallelism() {
+        return scanner == null ? 1 : scanner.parallelism();
+    }
+
+    /**
+     * Quantized tier against the float baseline: resident bytes of the rows
+     * with the exact tier and with the quantized one, recall@1 of the
+     * quantized scan plus re-rank, and scan time per probe. Empty when the
+     * tier is disabled or the report has not been computed yet.
+     */
+    public Map<String, Object> getQuantizationReport() {
+        return quantizationReport;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexExecutor.shutdownNow();
+        snapshotExecutor.shutdownNow();
+        if (searchPool != null) {
+            searchPool.shutdown();
+        }
+        if (snapshotPending.get()) {
+            writeSnapshot();
+        }
+        lock.readLock().lock();
+        try {
+            if (index != null && indexModified) {
+                index.save(Path.of(indexFile));
+                log.info("Face gallery index saved to {}", indexFile);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to save face gallery index: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Measure the quantized tier on perturbed copies of gallery rows, off the
+     * request path
+     */
+    private void scheduleQuantizationReport() {
+        if (quantized == null) {
+            return;
+        }
+        indexExecutor.execute(() -> {
+            try {
+                Random random = new Random(17);
+                float noise = (float) (0.5 / Math.sqrt(DIMENSION));
+                float[] probe = new float[DIMENSION];
+                int probes = 0;
+                int hits = 0;
+                long floatNanos = 0L;
+                long quantizedNanos = 0L;
+                for (int p = 0; p < QUANTIZATION_REPORT_PROBES; p++) {
+                    // Lock per probe so gallery writes are not held up by the whole run
+                    lock.readLock().lock();
+                    try {
+                        if (quantized == null || rowCount == 0) {
+                            return;
+                        }
+                        vectors.copyRow(random.nextInt(rowCount), probe, 0);
+                        for (int i = 0; i < DIMENSION; i++) {
+                            probe[i] += noise * (float) random.nextGaussian();
+                        }
+                        float[] query = normalize(probe);
+
+                        float[][] batch = {query};
+                        long start = System.nanoTime();
+                        TopK exact = scanner.scan(batch, vectors, rowCount, 1)[0].sortDescending();
+                        long mid = System.nanoTime();
+                        int bestRow = quantizedTopRows(batch, 1, searchPool)[0].sortDescending().id(0);
+                        long end = System.nanoTime();
+
+                        probes++;
+                        floatNanos += mid - start;
+                        quantizedNanos += end - mid;
+                        if (rowIds[bestRow].equals(rowIds[exact.id(0)])) {
+                            hits++;
+                        }
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+
+                Map<String, Object> report = new LinkedHashMap<>();
+                lock.readLock().lock();
+                try {
+                    // The exact tier scans, and so keeps resident, every float row. The quantized
+                    // tier keeps its codes plus the float rows not yet in the mapped snapshot; mapped
+                    // rows are file-backed page cache that re-ranking touches a few rows at a time.
+                    long residentBefore = vectors.bytesUsed();
+                    long residentAfter = quantized.bytesUsed() + vectors.bytesReserved();
+                    report.put("encoding", quantized.encoding().name().toLowerCase());
+                    report.put("rows", rowCount);
+                    report.put("floatBytes", vectors.bytesUsed());
+                    report.put("floatOffHeapBytes", vectors.bytesReserved());
+                    report.put("floatMappedBytes", vectors.bytesMapped());
+                    report.put("quantizedBytes", quantized.bytesUsed());
+                    report.put("residentBytesBefore", residentBefore);
+                    report.put("residentBytesAfter", residentAfter);
+                    report.put("residentReduction", residentAfter == 0 ? 0.0 : (double) residentBefore / residentAfter);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                report.put("rerankDepth", rerankDepth);
+                report.put("recallAt1", (double) hits / probes);
+                report.put("floatScanMsPerProbe", floatNanos / 1e6 / probes);
+                report.put("quantizedScanMsPerProbe", quantizedNanos / 1e6 / probes);
+                quantizationReport = report;
+                log.info("Face gallery quantization report: {}", report);
+            } catch (Exception e) {
+                log.warn("Failed to measure quantized gallery tier: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * For each query, the {@code rows} best rows by exact score among the
+     * candidates of a sharded quantized scan on {@code executor}, unsorted
+     * (caller holds the read lock and has checked rowCount &gt; 0)
+     */
+    private TopK[] quantizedTopRows(float[][] queries, int rows, ForkJoinPool executor) {
+        int depth = Math.max(1, Math.min(Math.max(rerankDepth, rows), rowCount));
+        TopK[] candidates = scanner.scan(executor, queries, quantized, rowCount, depth);
+        TopK[] reranked = new TopK[queries.length];
+        for (int q = 0; q < queries.length; q++) {
+            reranked[q] = new TopK(Math.max(1, rows));
+            candidates[q].sortDescending();
+            for (int i = 0; i < candidates[q].size(); i++) {
+                int row = candidates[q].id(i);
+                reranked[q].offer(row, vectors.dot(queries[q], row));
+            }
+        }
+        return reranked;
+    }
+
+    /**
+     * Keep each user's best row, up to k users (caller holds the read lock)
+     */
+    private void collectDistinct(TopK rows, int k, int probe, List<List<String>> ids, List<float[]> scores) {
+        rows.sortDescending();
+        List<String> distinct = new ArrayList<>(k);
+        float[] distinctScores = new float[k];
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < rows.size() && distinct.size() < k; i++) {
+            String userId = rowIds[rows.id(i)];
+            if (seen.add(userId)) {
+                distinctScores[distinct.size()] = rows.score(i);
+                distinct.add(userId);
+            }
+        }
+        ids.set(probe, distinct);
+        scores.set(probe, distinctScores);
+    }
+
+    private void initSearchPool() {
+        int parallelism = searchParallelism > 0 ? searchParallelism : Runtime.getRuntime().availableProcessors();
+        searchPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("face-gallery-search-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        scanner = new ShardedScanner(searchPool, parallelMinRows, shardBytes);
+    }
+
+    private void loadFromDatabase() {
+        List<FaceGalleryView> entries = faceUserRepository.findActiveGalleryEntries();
+        lock.writeLock().lock();
+        try {
+            resetRows();
+            for (FaceGalleryView entry : entries) {
+                advanceWatermark(entry.getUpdatedAt());
+                List<float[]> exemplars = decodeEntry(entry);
+                if (!exemplars.isEmpty()) {
+                    users.put(entry.getId(), toSummary(entry));
+                    appendRows(entry.getId(), exemplars);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Restore the gallery from the snapshot file
+     *
+     * @return false if there is no usable snapshot
+     */
+    private boolean loadSnapshot() {
+        Path path = Path.of(snapshotFile);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try {
+            FaceGallerySnapshot.Contents contents = FaceGallerySnapshot.read(path, DIMENSION, embeddingModel);
+            lock.writeLock().lock();
+            try {
+                resetRows();
+                vectors = contents.vectors();
+                rowIds = contents.rowIds();
+                rowCount = contents.rowCount();
+                Map<String, Integer> exemplarCounts = new HashMap<>();
+                float[] row = new float[DIMENSION];
+                for (int r = 0; r < rowCount; r++) {
+                    maxUserExemplars = Math.max(maxUserExemplars, exemplarCounts.merge(rowIds[r], 1, Integer::sum));
+                    if (quantized != null) {
+                        vectors.copyRow(r, row, 0);
+                        quantized.append(row, 0);
+                    }
+                }
+                users.putAll(contents.users());
+                watermark.set(contents.watermark());
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable face gallery snapshot {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Apply users changed or deleted since the snapshot watermark
+     *
+     * @return number of users dropped or reloaded
+     */
+    private int catchUpFromDatabase() {
+        LocalDateTime since = watermark.get() == null
+                ? LocalDateTime.of(1970, 1, 1, 0, 0)
+                : watermark.get().minus(CATCH_UP_OVERLAP);
+        // Deactivations and embedding changes bump updated_at; hard deletes are logged
+        Set<String> stale = new HashSet<>(faceUserRepository.findGalleryUserIdsDeletedAfter(since));
+        List<FaceGalleryView> changed = faceUserRepository.findGalleryEntriesUpdatedAfter(since);
+
+        lock.writeLock().lock();
+        try {
+            for (FaceGalleryView entry : changed) {
+                stale.add(entry.getId());
+            }
+            removeRows(stale);
+            users.keySet().removeAll(stale);
+
+            for (FaceGalleryView entry : changed) {
+                advanceWatermark(entry.getUpdatedAt());
+                if (!Boolean.TRUE.equals(entry.getActive())) {
+                    continue;
+                }
+                List<float[]> exemplars = decodeEntry(entry);
+                if (!exemplars.isEmpty()) {
+                    users.put(entry.getId(), toSummary(entry));
+                    appendRows(entry.getId(), exemplars);
+                }
+            }
+            return stale.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Coalesce changes into one snapshot write after a short delay
+     */
+    private void scheduleSnapshotWrite() {
+        if (!snapshotEnabled || !snapshotPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            snapshotExecutor.schedule(this::writeSnapshot, snapshotWriteDelayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            snapshotPending.set(false);
+            log.debug("Face gallery snapshot not scheduled: {}", e.getMessage());
+        }
+    }
+
+    private void writeSnapshot() {
+        snapshotPending.set(false);
+        long start = System.currentTimeMillis();
+        long writtenVersion;
+        lock.readLock().lock();
+        try {
+            FaceGallerySnapshot.write(Path.of(snapshotFile), DIMENSION, embeddingModel, rowCount, rowIds, vectors,
+                    users, watermark.get());
+            writtenVersion = rowsVersion;
+            log.debug("Face gallery snapshot written: {} exemplars in {} ms",
+                    rowCount, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Failed to write face gallery snapshot {}: {}", snapshotFile, e.getMessage());
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        remapSnapshotRows(writtenVersion);
+    }
+
+    /**
+     * Swap the rows just written for the snapshot's mapping, releasing the
+     * off-heap copies of rows added since the last mapping; skipped if the
+     * rows changed after the write
+     */
+    private void remapSnapshotRows(long writtenVersion) {
+        try {
+            FloatRowStore mapped = FaceGallerySnapshot.mapVectors(Path.of(snapshotFile), DIMENSION, embeddingModel);
+            lock.writeLock().lock();
+            try {
+                if (rowsVersion == writtenVersion && mapped.rows() == rowCount) {
+                    vectors = mapped;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.debug("Face gallery rows not remapped from {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    private void advanceWatermark(LocalDateTime updatedAt) {
+        if (updatedAt != null) {
+            watermark.accumulateAndGet(updatedAt,
+                    (current, candidate) -> current == null || candidate.isAfter(current) ? candidate : current);
+        }
+    }
+
+    /**
+     * Empty the gallery (caller holds the write lock)
+     */
+    private void resetRows() {
+        users.clear();
+        rowCount = 0;
+        Arrays.fill(rowIds, null);
+        vectors = new FloatRowStore(DIMENSION, INITIAL_CAPACITY);
+        rowsVersion++;
+        QuantizedVectorStore.Encoding encoding = QuantizedVectorStore.Encoding.fromConfig(quantizationEncoding);
+        quantized = encoding == null ? null : new QuantizedVectorStore(DIMENSION, encoding, INITIAL_CAPACITY);
+    }
+
+    private boolean useIndex() {
+        return index != null && rowCount >= indexMinSize;
+    }
+
+    /**
+     * Mirror a user's current rows into the index (caller holds the write lock)
+     */
+    private void syncIndex(String userId) {
+        if (indexBuilding) {
+            indexDirtyUsers.add(userId);
+        }
+        if (index != null) {
+            index.remove(userId);
+            addIndexRows(index, userId);
+            indexModified = true;
+            if (index.deletedRatio() > INDEX_REBUILD_DELETED_RATIO) {
+                scheduleIndexBuild(false);
+            }
+        } else if (rowCount >= indexMinSize) {
+            scheduleIndexBuild(false);
+        }
+    }
+
+    private void addIndexRows(HnswIndex target, String userId) {
+        for (int row = 0; row < rowCount; row++) {
+            if (userId.equals(rowIds[row])) {
+                float[] vector = new float[DIMENSION];
+                vectors.copyRow(row, vector, 0);
+                target.add(userId, vector);
+            }
+        }
+    }
+
+    /**
+     * Build (or load) the index off the request path. Writes that land while
+     * the build runs are recorded and replayed before the index is swapped in.
+     */
+    private void scheduleIndexBuild(boolean loadFromFile) {
+        if (!indexEnabled) {
+            return;
+        }
+        FloatRowStore snapshot;
+        String[] snapshotIds;
+        int snapshotRows;
+        lock.writeLock().lock();
+        try {
+            if (indexBuilding || rowCount < indexMinSize) {
+                return;
+            }
+            indexBuilding = true;
+            indexDirtyUsers.clear();
+            snapshotRows = rowCount;
+            // Off-heap copy for the build only; the index keeps its own vectors
+            snapshot = new FloatRowStore(DIMENSION, rowCount);
+            float[] row = new float[DIMENSION];
+            for (int r = 0; r < rowCount; r++) {
+                vectors.copyRow(r, row, 0);
+                snapshot.append(row, 0);
+            }
+            snapshotIds = Arrays.copyOf(rowIds, rowCount);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        indexExecutor.execute(() -> {
+            HnswIndex built = null;
+            try {
+                long start = System.currentTimeMillis();
+                built = loadFromFile ? loadIndexFile(snapshot, snapshotIds, snapshotRows) : null;
+                if (built == null) {
+                    built = new HnswIndex(DIMENSION, indexM, indexEfConstruction, indexEfSearch);
+                    float[] vector = new float[DIMENSION];
+                    for (int row = 0; row < snapshotRows; row++) {
+                        snapshot.copyRow(row, vector, 0);
+                        built.add(snapshotIds[row], vector);
+                    }
+                    built.save(Path.of(indexFile));
+                }
+                log.info("Face gallery index ready: {} exemplars in {} ms",
+                        built.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("Failed to build face gallery index: {}", e.getMessage());
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (built != null) {
+                    for (String userId : indexDirtyUsers) {
+                        built.remove(userId);
+                        addIndexRows(built, userId);
+                    }
+                    indexModified = !indexDirtyUsers.isEmpty();
+                    index = built;
+                }
+                indexDirtyUsers.clear();
+                indexBuilding = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Load the persisted index if it still matches the gallery snapshot
+     */
+    private HnswIndex loadIndexFile(FloatRowStore snapshot, String[] snapshotIds, int snapshotRows) {
+        Path path = Path.of(indexFile);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            HnswIndex loaded = HnswIndex.load(path);
+            long expected = 0L;
+            float[] vector = new float[DIMENSION];
+            for (int row = 0; row < snapshotRows; row++) {
+                snapshot.copyRow(row, vector, 0);
+                expected += HnswIndex.rowFingerprint(snapshotIds[row], vector, 0, DIMENSION);
+            }
+            if (loaded.dimension() != DIMENSION || loaded.fingerprint() != expected) {
+                log.info("Face gallery index file {} is stale, rebuilding", path);
+                return null;
+            }
+            loaded.setEfSearch(indexEfSearch);
+            return loaded;
+        } catch (Exception e) {
+            log.warn("Failed to load face gallery index from {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private void appendRows(String userId, List<float[]> exemplars) {
+        maxUserExemplars = Math.max(maxUserExemplars, exemplars.size());
+        int required = rowCount + exemplars.size();
+        if (required > rowIds.length) {
+            rowIds = Arrays.copyOf(rowIds, Math.max(required, rowIds.length * 2));
+        }
+        rowsVersion++;
+        float[] normalized = new float[DIMENSION];
+        for (float[] exemplar : exemplars) {
+            normalizeInto(exemplar, normalized, 0);
+            vectors.append(normalized, 0);
+            if (quantized != null) {
+                quantized.append(normalized, 0);
+            }
+            rowIds[rowCount++] = userId;
+        }
+    }
+
+    /**
+     * Drop the users' rows, filling each hole with the last row. Unlike
+     * order-preserving compaction this only writes the holes, so mapped
+     * snapshot pages elsewhere stay shared.
+     */
+    private void removeRows(Set<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        int row = 0;
+        while (row < rowCount) {
+            if (!userIds.contains(rowIds[row])) {
+                row++;
+                continue;
+            }
+            int last = rowCount - 1;
+            if (row != last) {
+                vectors.moveRow(last, row);
+                rowIds[row] = rowIds[last];
+                if (quantized != null) {
+                    quantized.moveRow(last, row);
+                }
+            }
+            rowIds[last] = null;
+            rowCount--;
+            rowsVersion++;
+        }
+        vectors.truncate(rowCount);
+        if (quantized != null) {
+            quantized.truncate(rowCount);
+        }
+    }
+
+    private List<float[]> decodeEntry(FaceGalleryView entry) {
+        try {
+            if (FaceEmbeddingCodec.storedModel(entry.getFaceEmbeddingData()) != embeddingModel) {
+                log.debug("Skipping user {}: embedded with another model", entry.getId());
+                return List.of();
+            }
+            return FaceEmbeddingCodec.decodeStored(entry.getFaceEmbeddingData(), entry.getFaceEmbedding()).stream()
+                    .filter(e -> e.length == DIMENSION)
+                    .toList();
+        } catch (Exception e) {
+            log.warn("Skipping unreadable embedding for user {}: {}", entry.getId(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        float[] normalized = new float[DIMENSION];
+        normalizeInto(vector, normalized, 0);
+        return normalized;
+    }
+
+    private static void normalizeInto(float[] vector, float[] target, int offset) {
+        double norm = 0.0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        // A zero vector stays zero and therefore never matches anything
+        float scale = norm == 0.0 ? 0f : (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSION; i++) {
+            target[offset + i] = vector[i] * scale;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Detached copy of the user without embedding or image data
+     */
+    private static FaceUser toSummary(FaceUser user) {
+        FaceUser summary = new FaceUser();
+        summary.setId(user.getId());
+        summary.setName(user.getName());
+        summary.setEmail(user.getEmail());
+        summary.setDepartment(user.getDepartment());
+        summary.setPosition(user.getPosition());
+        summary.setImageUrl(user.getImageUrl());
+        summary.setAwsFaceId(user.getAwsFaceId());
+        summary.setExternalImageId(user.getExternalImageId());
+        summary.setActive(user.isActive());
+        summary.setCreatedAt(user.getCreatedAt());
+        summary.setUpdatedAt(user.getUpdatedAt());
+        return summary;
+    }
+
+    private static FaceUser toSummary(FaceGalleryView view) {
+        FaceUser summary = new FaceUser();
+        summary.setId(view.getId());
+        summary.setName(view.getName());
+        summary.setEmail(view.getEmail());
+        summary.setDepartment(view.getDepartment());
+        summary.setPosition(view.getPosition());
+        summary.setImageUrl(view.getImageUrl());
+        summary.setAwsFaceId(view.getAwsFaceId());
+        summary.setExternalImageId(view.getExternalImageId());
+        summary.setActive(!Boolean.FALSE.equals(view.getActive()));
+        summary.setUpdatedAt(view.getUpdatedAt());
+        return summary;
+    }
+
+    /**
+     * Probe reserved by {@link #reserveProbe}; closing releases it
+     */
+    public final class InFlightProbe implements AutoCloseable {
+        private final float[] probe;
+
+        private InFlightProbe(float[] probe) {
+            this.probe = probe;
+        }
+
+        @Override
+        public void close() {
+            if (probe != null) {
+                synchronized (inFlightProbes) {
+                    inFlightProbes.remove(probe);
+                }
+            }
+        }
+    }
+
+    /**
+     * Detached block of gallery rows: user id per row and the row-major
+     * normalized vectors
+     */
+    public record RowBlock(String[] rowIds, float[] vectors, int rows) {
+    }
+
+    /**
+     * Best gallery match for a probe: the user and the cosine similarity
+     */
+    public record Match(FaceUser user, double similarity) {
+    }
+}
@@ -0,0 +1,266 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.entity.FaceUser;
+import com.qualtech_ai.util.FloatRowStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * On-disk snapshot of the resident face gallery, little-endian throughout:
+ *
+ * <pre>
+ * header (64 bytes)  magic, version, dimension, row count, user count,
+ *                    embedding model id, watermark (max updated_at, epoch
+ *                    millis), section offsets
+ * users section      per user: id and summary fields as length-prefixed UTF-8
+ * rows section       per row: int32 index into the users section
+ * matrix section     row count * dimension float32, 64-byte aligned
+ * </pre>
+ *
+ * Written to a temp file and moved into place atomically, never modified in
+ * place. The matrix section is opened with {@link FloatRowStore#map} and
+ * scanned where it lies, so the gallery's exact rows are the page cache's
+ * pages rather than a heap copy of them.
+ */
+final class FaceGallerySnapshot {
+
+    private static final int MAGIC = 0x4E534751; // "QGSN" in little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int MATRIX_ALIGNMENT = 64;
+    private static final int WRITE_CHUNK = 1 << 20;
+
+    private FaceGallerySnapshot() {
+    }
+
+    /**
+     * Snapshot contents; rowIds is sized exactly to rowCount and vectors maps
+     * the file's matrix section
+     */
+    record Contents(int dimension, int rowCount, String[] rowIds, FloatRowStore vectors,
+                    Map<String, FaceUser> users, LocalDateTime watermark) {
+    }
+
+    static void write(Path file, int dimension, int model, int rowCount, String[] rowIds, FloatRowStore vectors,
+                      Map<String, FaceUser> users, LocalDateTime watermark) throws IOException {
+        Map<String, Integer> userIndex = new HashMap<>();
+        ByteArrayOutputStream userBytes = new ByteArrayOutputStream();
+        for (int row = 0; row < rowCount; row++) {
+            String id = rowIds[row];
+            if (!userIndex.containsKey(id)) {
+                userIndex.put(id, userIndex.size());
+                writeUser(userBytes, id, users.get(id));
+            }
+        }
+
+        long usersOffset = HEADER_SIZE;
+        long rowsOffset = usersOffset + userBytes.size();
+        long matrixOffset = align(rowsOffset + (long) rowCount * Integer.BYTES);
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(rowCount).putInt(userIndex.size())
+                    .putInt(model)
+                    .putLong(watermark == null ? Long.MIN_VALUE : toMillis(watermark))
+                    .putLong(usersOffset).putLong(rowsOffset).putLong(matrixOffset);
+            header.clear();
+            writeFully(channel, header, 0);
+            writeFully(channel, ByteBuffer.wrap(userBytes.toByteArray()), usersOffset);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(WRITE_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            long position = rowsOffset;
+            for (int row = 0; row < rowCount; row++) {
+                if (chunk.remaining() < Integer.BYTES) {
+                    position += flush(channel, chunk, position);
+                }
+                chunk.putInt(userIndex.get(rowIds[row]));
+            }
+            position += flush(channel, chunk, position);
+
+            position = matrixOffset;
+            int blockRows = Math.max(1, WRITE_CHUNK / (dimension * Float.BYTES));
+            float[] block = new float[blockRows * dimension];
+            for (int row = 0; row < rowCount; row += blockRows) {
+                int count = Math.min(blockRows, rowCount - row);
+                vectors.copyRows(row, count, block, 0);
+                chunk.asFloatBuffer().put(block, 0, count * dimension);
+                chunk.position(count * dimension * Float.BYTES);
+                position += flush(channel, chunk, position);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map and read a snapshot; the matrix stays mapped as the returned rows.
+     * Snapshots written before the model id was recorded hold model 0.
+     */
+    static Contents read(Path file, int expectedDimension, int expectedModel) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = readHeader(channel, file, expectedDimension, expectedModel);
+            int dimension = header.getInt(8);
+            int rowCount = header.getInt(12);
+            int userCount = header.getInt(16);
+            long watermarkMillis = header.getLong(24);
+            long usersOffset = header.getLong(32);
+            long rowsOffset = header.getLong(40);
+            long matrixOffset = header.getLong(48);
+
+            MappedByteBuffer meta = channel.map(FileChannel.MapMode.READ_ONLY, usersOffset, matrixOffset - usersOffset);
+            meta.order(ByteOrder.LITTLE_ENDIAN);
+            String[] userIds = new String[userCount];
+            Map<String, FaceUser> users = new HashMap<>(userCount * 2);
+            for (int u = 0; u < userCount; u++) {
+                FaceUser user = readUser(meta);
+                userIds[u] = user.getId();
+                users.put(user.getId(), user);
+            }
+            meta.position((int) (rowsOffset - usersOffset));
+            String[] rowIds = new String[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                rowIds[row] = userIds[meta.getInt()];
+            }
+
+            FloatRowStore vectors = FloatRowStore.map(channel, matrixOffset, rowCount, dimension);
+            LocalDateTime watermark = watermarkMillis == Long.MIN_VALUE ? null : fromMillis(watermarkMillis);
+            return new Contents(dimension, rowCount, rowIds, vectors, users, watermark);
+        }
+    }
+
+    /**
+     * Map only the matrix section of a snapshot, e.g. to swap the rows just
+     * written in for their off-heap copies
+     */
+    static FloatRowStore mapVectors(Path file, int expectedDimension, int expectedModel) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = readHeader(channel, file, expectedDimension, expectedModel);
+            return FloatRowStore.map(channel, header.getLong(48), header.getInt(12), header.getInt(8));
+        }
+    }
+
+    /**
+     * Read and validate the header against the expected layout and the file size
+     */
+    private static ByteBuffer readHeader(FileChannel channel, Path file, int expectedDimension, int expectedModel)
+            throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Not a face gallery snapshot: " + file);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Not a face gallery snapshot: " + file);
+            }
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a face gallery snapshot: " + file);
+        }
+        int dimension = header.getInt(8);
+        if (dimension != expectedDimension) {
+            throw new IOException("Snapshot dimension " + dimension + " does not match " + expectedDimension);
+        }
+        if (header.getInt(20) != expectedModel) {
+            throw new IOException("Snapshot embedding model " + header.getInt(20) + " does not match "
+                    + expectedModel);
+        }
+        long expectedSize = header.getLong(48) + (long) header.getInt(12) * dimension * Float.BYTES;
+        if (channel.size() < expectedSize) {
+            throw new IOException("Snapshot is truncated: " + channel.size() + " < " + expectedSize);
+        }
+        return header;
+    }
+
+    private static void writeUser(ByteArrayOutputStream out, String id, FaceUser user) {
+        writeString(out, id);
+        writeString(out, user == null ? null : user.getName());
+        writeString(out, user == null ? null : user.getEmail());
+        writeString(out, user == null ? null : user.getDepartment());
+        writeString(out, user == null ? null : user.getPosition());
+        writeString(out, user == null ? null : user.getImageUrl());
+        writeString(out, user == null ? null : user.getAwsFaceId());
+        writeString(out, user == null ? null : user.getExternalImageId());
+    }
+
+    private static FaceUser readUser(ByteBuffer in) {
+        FaceUser user = new FaceUser();
+        user.setId(readString(in));
+        user.setName(readString(in));
+        user.setEmail(readString(in));
+        user.setDepartment(readString(in));
+        user.setPosition(readString(in));
+        user.setImageUrl(readString(in));
+        user.setAwsFaceId(readString(in));
+        user.setExternalImageId(readString(in));
+        return user;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes == null ? -1 : bytes.length;
+        out.write(length);
+        out.write(length >>> 8);
+        out.write(length >>> 16);
+        out.write(length >>> 24);
+        if (bytes != null) {
+            out.writeBytes(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long flush(FileChannel channel, ByteBuffer chunk, long position) throws IOException {
+        chunk.flip();
+        int written = chunk.remaining();
+        writeFully(channel, chunk, position);
+        chunk.clear();
+        return written;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + MATRIX_ALIGNMENT - 1) / MATRIX_ALIGNMENT * MATRIX_ALIGNMENT;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+}
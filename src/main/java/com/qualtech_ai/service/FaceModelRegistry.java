@@ -0,0 +1,188 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.util.FaceDetector;
+import com.qualtech_ai.util.FaceEmbedder;
+import com.qualtech_ai.util.OpenCvTuning;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the configured face detector and embedder backends at startup and
+ * tracks whether they are ready to serve.
+ * <p>
+ * The detector ({@code face.detector.backend}: {@code ssd} or {@code yunet})
+ * and the embedder ({@code face.embedder.backend}: {@code grid} or
+ * {@code sface}) read their model files from the classpath once into memory
+ * and parse every pooled network from those buffers, in parallel on a loader
+ * pool, then warm each one up with an inference on synthetic input so the
+ * first request runs at steady-state latency. Nothing is written to disk.
+ * Before the detectors load, {@link OpenCvTuningService} picks OpenCV's thread
+ * count, the detector pool size and the DNN backend.
+ * Readiness is reported by {@code FaceModelHealthIndicator} in the readiness
+ * health group.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FaceModelRegistry {
+
+    public enum State {
+        LOADING, READY, FAILED
+    }
+
+    private final List<FaceDetector> detectors;
+    private final List<FaceEmbedder> embedders;
+    private final OpenCvTuningService openCvTuningService;
+
+    @Value("${face.detector.backend:ssd}")
+    private String backend;
+
+    @Value("${face.embedder.backend:grid}")
+    private String embedderBackend;
+
+    // 0 = one loader thread per core
+    @Value("${face.models.loader-threads:0}")
+    private int loaderThreads;
+
+    private volatile State state = State.LOADING;
+    private volatile String failure;
+    private volatile long loadMillis;
+    private FaceDetector detector;
+    private FaceEmbedder embedder;
+    private ExecutorService startup;
+    private ExecutorService loader;
+
+    @PostConstruct
+    public void load() {
+        detector = detectors.stream()
+                .filter(candidate -> candidate.name().equalsIgnoreCase(backend))
+                .findFirst()
+                .orElse(null);
+        if (detector == null) {
+            fail("Unknown face detector backend '" + backend + "', expected one of "
+                    + detectors.stream().map(FaceDetector::name).toList());
+            return;
+        }
+        embedder = embedders.stream()
+                .filter(candidate -> candidate.name().equalsIgnoreCase(embedderBackend))
+                .findFirst()
+                .orElse(null);
+        if (embedder == null) {
+            fail("Unknown face embedder backend '" + embedderBackend + "', expected one of "
+                    + embedders.stream().map(FaceEmbedder::name).toList());
+            return;
+        }
+
+        int threads = loaderThreads > 0 ? loaderThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        loader = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "face-model-loader-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        startup = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "face-model-startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("🧠 Loading {} face detectors and {} embedder on {} threads...",
+                detector.name(), embedder.name(), threads);
+
+        long start = System.currentTimeMillis();
+        startup.submit(() -> {
+            try {
+                OpenCvTuning tuning = openCvTuningService.tune(detector, loader);
+                detector.load(loader, tuning);
+                embedder.load(loader);
+                loadMillis = System.currentTimeMillis() - start;
+                state = State.READY;
+                log.info("✅ {} face detectors and {} embedder loaded and warmed up in {} ms - Ready for real-time detection!",
+                        detector.name(), embedder.name(), loadMillis);
+            } catch (Exception e) {
+                fail(e.getMessage());
+            } finally {
+                loader.shutdown();
+            }
+        });
+        startup.shutdown();
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * The active backend; only usable once {@link #isReady()}
+     */
+    public FaceDetector detector() {
+        return detector;
+    }
+
+    public String getBackend() {
+        return detector == null ? backend : detector.name();
+    }
+
+    /**
+     * The active embedder; only usable once {@link #isReady()}
+     */
+    public FaceEmbedder embedder() {
+        return embedder;
+    }
+
+    public String getEmbedderBackend() {
+        return embedder == null ? embedderBackend : embedder.name();
+    }
+
+    /**
+     * Model id of the configured embedder, known before it has loaded; stored
+     * embeddings of any other model are not comparable with new ones
+     */
+    public int getEmbeddingModel() {
+        return embedder == null ? -1 : embedder.modelId();
+    }
+
+    /**
+     * Why loading failed, or null
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public int getDetectorCount() {
+        return detector == null ? 0 : detector.poolSize();
+    }
+
+    private void fail(String message) {
+        failure = message;
+        state = State.FAILED;
+        // Don't throw - allow app to run, just won't detect faces locally
+        log.error("🔥 CRITICAL: Failed to load face detection models: {}", message);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (startup != null) {
+            startup.shutdownNow();
+        }
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.qualtech_ai.service;
 
+import com.qualtech_ai.dto.FaceIdentificationResponse;
 import com.qualtech_ai.dto.FaceRegistrationRequest;
 import com.qualtech_ai.dto.FaceVerificationRequest;
 import com.qualtech_ai.dto.FaceVerificationResponse;
@@ -32,6 +33,14 @@ public interface FaceRecognitionService {
      */
     FaceVerificationResponse verifyFaceStream(FaceVerificationRequest request) throws IOException;
     
+    /**
+     * Identify every face in a batch of images against the registered users
+     * @param images The probe images
+     * @param topK Number of ranked candidates to return per face
+     * @return Ranked candidates for each detected face
+     */
+    FaceIdentificationResponse identifyFaces(List<MultipartFile> images, int topK) throws IOException;
+    
     /**
      * Get all registered face users
      * @return List of all registered users
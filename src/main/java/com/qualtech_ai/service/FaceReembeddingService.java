@@ -0,0 +1,286 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.entity.FaceUser;
+import com.qualtech_ai.repository.FaceUserRepository;
+import com.qualtech_ai.service.impl.FaceUserTxService;
+import com.qualtech_ai.util.DetectedFace;
+import com.qualtech_ai.util.FaceAnalysis;
+import com.qualtech_ai.util.ImageDecoder;
+import com.qualtech_ai.util.NativeMemoryTracker;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background re-embedding of stored users with the active embedder.
+ * <p>
+ * Embeddings of different models are not comparable, so after
+ * {@code face.embedder.backend} changes, users stored with the previous
+ * model drop out of the gallery. This job re-runs detection and embedding
+ * on each such user's enrolment image (face_users.image_data) and saves the
+ * result, which puts the user back in the gallery. Users without a stored
+ * image, or whose image no longer yields exactly one face, are counted as
+ * skipped and have to enrol again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FaceReembeddingService {
+
+    private static final int MAX_RETAINED_JOBS = 10;
+    private static final Size FACE_CROP = new Size(FaceAnalysis.STANDARD_SIZE, FaceAnalysis.STANDARD_SIZE);
+
+    private final FaceUserRepository faceUserRepository;
+    private final FaceUserTxService faceUserTxService;
+    private final FaceModelRegistry faceModelRegistry;
+    private final NativeMemoryTracker nativeMemoryTracker;
+
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "face-reembedding");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, ReembeddingJob> jobs = new ConcurrentHashMap<>();
+    private volatile ReembeddingJob currentJob;
+
+    /**
+     * Start re-embedding every active user stored with another model, or
+     * return the job already running
+     *
+     * @throws IllegalStateException if the face models are not loaded
+     */
+    public synchronized ReembeddingJob start() {
+        if (currentJob != null && currentJob.getStatus() == JobStatus.RUNNING) {
+            return currentJob;
+        }
+        if (!faceModelRegistry.isReady()) {
+            throw new IllegalStateException("Face models are not ready (" + faceModelRegistry.getState() + ")");
+        }
+        ReembeddingJob job = new ReembeddingJob(UUID.randomUUID().toString(),
+                faceModelRegistry.getEmbedderBackend(), faceModelRegistry.getEmbeddingModel());
+        retain(job);
+        currentJob = job;
+        jobExecutor.submit(() -> run(job));
+        log.info("🔁 Re-embedding job {} started: target {} (model {})",
+                job.getId(), job.getEmbedder(), job.getModel());
+        return job;
+    }
+
+    public Optional<ReembeddingJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Active users whose stored embedding was produced by another model
+     */
+    public long countStale() {
+        return faceUserRepository.countActiveUsersStoredWithOtherModel(faceModelRegistry.getEmbeddingModel());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    private void run(ReembeddingJob job) {
+        try {
+            List<String> stale = faceUserRepository.findActiveUserIdsStoredWithOtherModel(job.getModel());
+            job.total = stale.size();
+            for (String userId : stale) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Re-embedding interrupted");
+                }
+                try (NativeMemoryTracker.Scope scope = nativeMemoryTracker.open("reembed")) {
+                    if (reembed(userId)) {
+                        job.reembedded.incrementAndGet();
+                    } else {
+                        job.skipped.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    job.failed.incrementAndGet();
+                    log.warn("Re-embedding failed for user {}: {}", userId, e.getMessage());
+                }
+            }
+            job.status = JobStatus.COMPLETED;
+            log.info("✅ Re-embedding job {} completed: {} users, {} re-embedded, {} skipped, {} failed",
+                    job.getId(), job.getTotal(), job.getReembedded(), job.getSkipped(), job.getFailed());
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.status = JobStatus.FAILED;
+            log.error("❌ Re-embedding job {} failed: {}", job.getId(), e.getMessage(), e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Embed one user's enrolment image and save it
+     *
+     * @return false if the user has no usable image
+     */
+    private boolean reembed(String userId) {
+        FaceUser user = faceUserRepository.findById(userId).orElse(null);
+        byte[] imageBytes = user == null ? null : decodeImageData(user.getImageData());
+        if (imageBytes == null) {
+            log.debug("User {} has no stored image to re-embed", userId);
+            return false;
+        }
+
+        Mat image = ImageDecoder.decode(imageBytes);
+        Mat faceRoi = null;
+        try {
+            if (image.empty()) {
+                return false;
+            }
+            List<DetectedFace> faces = faceModelRegistry.detector().detect(image, image.cols(), image.rows());
+            if (faces.size() != 1) {
+                log.debug("User {} image has {} faces, expected one", userId, faces.size());
+                return false;
+            }
+            DetectedFace face = faces.get(0);
+            faceRoi = new Mat(image, face.toRect());
+            float[] embedding;
+            try (FaceAnalysis analysis = FaceAnalysis.resized(faceRoi, FACE_CROP,
+                    face.landmarksIn(faceRoi.cols(), faceRoi.rows()))) {
+                embedding = faceModelRegistry.embedder().embed(analysis);
+            }
+            faceUserTxService.saveEmbedding(userId, embedding);
+            return true;
+        } finally {
+            if (faceRoi != null)
+                faceRoi.release();
+            image.release();
+        }
+    }
+
+    /**
+     * Bytes of a stored {@code data:<type>;base64,...} image, or null
+     */
+    private static byte[] decodeImageData(String imageData) {
+        if (imageData == null || imageData.isBlank()) {
+            return null;
+        }
+        int comma = imageData.indexOf(',');
+        try {
+            return Base64.getDecoder().decode(comma >= 0 ? imageData.substring(comma + 1) : imageData);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void retain(ReembeddingJob job) {
+        jobs.put(job.getId(), job);
+        if (jobs.size() > MAX_RETAINED_JOBS) {
+            jobs.values().stream()
+                    .filter(j -> j.getStatus() != JobStatus.RUNNING)
+                    .min(Comparator.comparing(ReembeddingJob::getStartedAt))
+                    .ifPresent(oldest -> jobs.remove(oldest.getId()));
+        }
+    }
+
+    public enum JobStatus {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * State of one re-embedding run
+     */
+    public static class ReembeddingJob {
+        private final String id;
+        private final String embedder;
+        private final int model;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger reembedded = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile JobStatus status = JobStatus.RUNNING;
+        private volatile LocalDateTime finishedAt;
+        private volatile int total;
+        private volatile String error;
+
+        ReembeddingJob(String id, String embedder, int model) {
+            this.id = id;
+            this.embedder = embedder;
+            this.model = model;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getEmbedder() {
+            return embedder;
+        }
+
+        public int getModel() {
+            return model;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public LocalDateTime getFinishedAt() {
+            return finishedAt;
+        }
+
+        public JobStatus getStatus() {
+            return status;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getReembedded() {
+            return reembedded.get();
+        }
+
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("jobId", id);
+            summary.put("status", status);
+            summary.put("embedder", embedder);
+            summary.put("model", model);
+            summary.put("startedAt", startedAt);
+            summary.put("finishedAt", finishedAt);
+            summary.put("total", total);
+            summary.put("reembedded", reembedded.get());
+            summary.put("skipped", skipped.get());
+            summary.put("failed", failed.get());
+            if (error != null) {
+                summary.put("error", error);
+            }
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.entity.FaceUser;
+import com.qualtech_ai.util.FaceTracker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-stream face trackers for {@code /verify-stream}, keyed by the
+ * authenticated principal and the request's correlation id (see
+ * {@link FaceTracker}), so one caller can never continue another caller's
+ * stream, and the identity it carries, by reusing its correlation id.
+ * <p>
+ * Sessions idle for longer than {@code face.tracking.session-ttl-ms} are
+ * dropped on the next stream frame. Session and track counts are published
+ * as {@code face.tracking.*} gauges.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FaceTrackingService {
+
+    /**
+     * What a track remembers from its last full identification
+     */
+    public record Identity(FaceUser user, double similarity, double livenessScore, String emotion) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<SessionKey, FaceTracker<Identity>> sessions = new ConcurrentHashMap<>();
+
+    @Value("${face.tracking.enabled:true}")
+    private boolean enabled;
+
+    @Value("${face.tracking.detect-every:5}")
+    private int detectEvery;
+
+    @Value("${face.tracking.min-iou:0.3}")
+    private double minIou;
+
+    @Value("${face.tracking.max-centroid-shift:0.5}")
+    private double maxCentroidShift;
+
+    @Value("${face.tracking.min-match-score:0.6}")
+    private double minMatchScore;
+
+    @Value("${face.tracking.search-margin:0.5}")
+    private double searchMargin;
+
+    @Value("${face.tracking.trust-decay:0.95}")
+    private double trustDecay;
+
+    @Value("${face.tracking.reidentify-below:0.6}")
+    private double reidentifyBelow;
+
+    @Value("${face.tracking.max-misses:1}")
+    private int maxMisses;
+
+    @Value("${face.tracking.session-ttl-ms:30000}")
+    private long sessionTtlMs;
+
+    private FaceTracker.Settings settings;
+
+    @PostConstruct
+    public void init() {
+        settings = new FaceTracker.Settings(detectEvery, minIou, maxCentroidShift, minMatchScore, searchMargin,
+                trustDecay, reidentifyBelow, maxMisses);
+        Gauge.builder("face.tracking.sessions", sessions, Map::size)
+                .description("Streams with a face tracker")
+                .register(meterRegistry);
+        Gauge.builder("face.tracking.tracks", this, FaceTrackingService::getTrackCount)
+                .description("Faces tracked across all streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The stream's tracker, created on first use; empty when tracking is
+     * disabled or the stream has no authenticated principal or correlation
+     * id. Callers synchronize on the tracker while processing a frame.
+     */
+    public Optional<FaceTracker<Identity>> session(String principal, String correlationId) {
+        if (!enabled || principal == null || principal.isBlank()
+                || correlationId == null || correlationId.isBlank()) {
+            return Optional.empty();
+        }
+        evictIdle();
+        return Optional.of(sessions.computeIfAbsent(new SessionKey(principal, correlationId),
+                key -> new FaceTracker<>(settings)));
+    }
+
+    /**
+     * Forget a stream and release its tracker
+     */
+    public void end(String principal, String correlationId) {
+        end(new SessionKey(principal, correlationId));
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getTrackCount() {
+        return sessions.values().stream().mapToInt(FaceTracker::getTrackCount).sum();
+    }
+
+    private void end(SessionKey key) {
+        FaceTracker<Identity> tracker = sessions.remove(key);
+        if (tracker != null) {
+            synchronized (tracker) {
+                tracker.close();
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - sessionTtlMs;
+        sessions.forEach((key, tracker) -> {
+            if (tracker.getLastUsedMillis() < cutoff && sessions.remove(key, tracker)) {
+                synchronized (tracker) {
+                    tracker.close();
+                }
+                log.debug("Face tracking session {} of {} expired", key.correlationId(), key.principal());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessions.keySet().forEach(this::end);
+    }
+
+    private record SessionKey(String principal, String correlationId) {
+    }
+}
@@ -0,0 +1,305 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.util.FaceDetector;
+import com.qualtech_ai.util.OpenCvTuning;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Point;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks OpenCV's thread count, the detector pool size and the DNN backend at
+ * startup, so OpenCV's internal parallelism and concurrent requests don't
+ * oversubscribe the cores.
+ * <p>
+ * Called by {@code FaceModelRegistry} before the detectors are loaded for
+ * serving. For each DNN backend the detector is loaded once with the largest
+ * candidate pool; every thread count / pool size pair is then measured with
+ * {@code face.tuning.clients} concurrent callers detecting on a synthetic
+ * frame for {@code face.tuning.measure-ms}, with at most pool-size calls in
+ * flight as with the real pool. Pool sizes larger than the callers could
+ * keep busy are not tried; by default there are as many callers as the
+ * largest pool on this machine. The configuration with the highest
+ * throughput whose p95 latency meets {@code face.tuning.latency-slo-ms} wins
+ * (the lowest p95 if none does). Pairs using more than twice the cores are
+ * skipped.
+ * <p>
+ * {@code face.tuning.threads}, {@code face.detector.pool.size} and
+ * {@code face.tuning.dnn-backend} fix their dimension instead of searching
+ * it; with all three fixed, or {@code face.tuning.enabled=false}, nothing is
+ * measured. The result is served by the {@code opencvtuning} actuator
+ * endpoint.
+ */
+@Slf4j
+@Service
+public class OpenCvTuningService {
+
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    private static final String AUTO = "auto";
+
+    @Value("${face.tuning.enabled:true}")
+    private boolean enabled;
+
+    // 0 = tune
+    @Value("${face.tuning.threads:0}")
+    private int threads;
+
+    // 0 = tune
+    @Value("${face.detector.pool.size:0}")
+    private int poolSize;
+
+    // auto, default or opencv
+    @Value("${face.tuning.dnn-backend:auto}")
+    private String dnnBackend;
+
+    @Value("${face.tuning.latency-slo-ms:150}")
+    private double latencySloMs;
+
+    // 0 = one per core, so every pool size up to the core count can be kept busy
+    @Value("${face.tuning.clients:0}")
+    private int clients;
+
+    @Value("${face.tuning.measure-ms:400}")
+    private long measureMs;
+
+    private volatile OpenCvTuning chosen;
+    private volatile String source = "pending";
+    private volatile List<OpenCvTuning.Measurement> measurements = List.of();
+    private volatile long tuningMillis;
+
+    /**
+     * Choose the configuration for {@code detector} and apply OpenCV's thread
+     * count; the detector is left unloaded, for the caller to load with the
+     * returned configuration
+     *
+     * @param loader used to load the detector's networks for measuring
+     */
+    public OpenCvTuning tune(FaceDetector detector, Executor loader) throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int callerCount = clients > 0 ? clients : cores;
+        List<Integer> threadCandidates = threads > 0 ? List.of(threads) : OpenCvTuning.candidateCounts(cores);
+        List<Integer> poolCandidates = poolSize > 0
+                ? List.of(poolSize)
+                : OpenCvTuning.poolCandidates(cores, callerCount);
+        List<OpenCvTuning.DnnBackend> backendCandidates = AUTO.equalsIgnoreCase(dnnBackend)
+                ? List.of(OpenCvTuning.DnnBackend.values())
+                : List.of(OpenCvTuning.DnnBackend.valueOf(dnnBackend.toUpperCase(Locale.ROOT)));
+
+        boolean fixed = threadCandidates.size() == 1 && poolCandidates.size() == 1 && backendCandidates.size() == 1;
+        if (!enabled || fixed) {
+            chosen = new OpenCvTuning(threads, poolSize, backendCandidates.size() == 1
+                    ? backendCandidates.get(0) : OpenCvTuning.DnnBackend.DEFAULT);
+            source = "configured";
+            chosen.applyThreads();
+            log.info("⚙️ OpenCV tuning not measured, using {}", chosen);
+            return chosen;
+        }
+
+        log.info("⏱️ Tuning OpenCV for {} detection: threads {}, pool sizes {}, backends {}, {} clients, p95 SLO {} ms",
+                detector.name(), threadCandidates, poolCandidates, backendCandidates, callerCount, latencySloMs);
+        long start = System.currentTimeMillis();
+        int maxPool = poolCandidates.stream().mapToInt(Integer::intValue).max().orElse(1);
+        List<OpenCvTuning.Measurement> results = new ArrayList<>();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(callerCount, r -> {
+            Thread thread = new Thread(r, "face-tuning-client-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Mat frame = syntheticFrame();
+        RuntimeException failure = null;
+        try {
+            for (OpenCvTuning.DnnBackend backend : backendCandidates) {
+                try {
+                    detector.load(loader, new OpenCvTuning(0, maxPool, backend));
+                    for (int threadCount : threadCandidates) {
+                        opencv_core.setNumThreads(threadCount);
+                        // Settle OpenCV's thread pool at the new size
+                        detector.detect(frame, FRAME_WIDTH, FRAME_HEIGHT);
+                        for (int pool : poolCandidates) {
+                            if (threadCount * pool > 2 * cores && !anyFixed(threadCandidates, poolCandidates)) {
+                                continue;
+                            }
+                            OpenCvTuning.Measurement measurement =
+                                    measure(detector, frame, new OpenCvTuning(threadCount, pool, backend), callers,
+                                            callerCount);
+                            results.add(measurement);
+                            log.debug("OpenCV tuning {}: {} det/s, p50 {} ms, p95 {} ms", measurement.tuning(),
+                                    String.format("%.1f", measurement.throughput()),
+                                    String.format("%.1f", measurement.p50Millis()),
+                                    String.format("%.1f", measurement.p95Millis()));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // e.g. a backend this OpenCV build cannot run; the other backends may still be usable
+                    failure = e;
+                    log.warn("⚠️ OpenCV tuning skipped the {} DNN backend: {}", backend, e.getMessage());
+                } finally {
+                    detector.close();
+                }
+            }
+        } finally {
+            callers.shutdownNow();
+            frame.release();
+        }
+
+        if (results.isEmpty()) {
+            throw failure != null ? failure : new IllegalStateException("No OpenCV configuration could be measured");
+        }
+        OpenCvTuning.Measurement best = OpenCvTuning.best(results, latencySloMs).orElseThrow();
+        measurements = List.copyOf(results);
+        tuningMillis = System.currentTimeMillis() - start;
+        chosen = best.tuning();
+        source = best.meets(latencySloMs) ? "tuned" : "tuned-over-slo";
+        chosen.applyThreads();
+        log.info("✅ OpenCV tuned in {} ms: {} threads, {} detectors, {} backend ({} det/s, p95 {} ms{})",
+                tuningMillis, chosen.threads(), chosen.poolSize(), chosen.backend(),
+                String.format("%.1f", best.throughput()), String.format("%.1f", best.p95Millis()),
+                best.meets(latencySloMs) ? "" : ", over the SLO");
+        return chosen;
+    }
+
+    /**
+     * Chosen configuration and every measurement, for the actuator endpoint
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        OpenCvTuning tuning = chosen;
+        summary.put("source", source);
+        summary.put("threads", tuning == null ? null : tuning.threads());
+        summary.put("opencvThreads", opencv_core.getNumThreads());
+        summary.put("poolSize", tuning == null ? null : tuning.poolSize());
+        summary.put("dnnBackend", tuning == null ? null : tuning.backend().name().toLowerCase(Locale.ROOT));
+        summary.put("latencySloMs", latencySloMs);
+        summary.put("clients", clients > 0 ? clients : Runtime.getRuntime().availableProcessors());
+        summary.put("measureMs", measureMs);
+        summary.put("tuningMillis", tuningMillis);
+        summary.put("measurements", measurements.stream().map(measurement -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("threads", measurement.tuning().threads());
+            entry.put("poolSize", measurement.tuning().poolSize());
+            entry.put("dnnBackend", measurement.tuning().backend().name().toLowerCase(Locale.ROOT));
+            entry.put("throughput", measurement.throughput());
+            entry.put("p50Ms", measurement.p50Millis());
+            entry.put("p95Ms", measurement.p95Millis());
+            entry.put("withinSlo", measurement.meets(latencySloMs));
+            return entry;
+        }).toList());
+        return summary;
+    }
+
+    /**
+     * The chosen configuration, or null before tuning
+     */
+    public OpenCvTuning getChosen() {
+        return chosen;
+    }
+
+    /**
+     * With a configured thread count or pool size, every pair is measured so
+     * there is always at least one
+     */
+    private static boolean anyFixed(List<Integer> threadCandidates, List<Integer> poolCandidates) {
+        return threadCandidates.size() == 1 || poolCandidates.size() == 1;
+    }
+
+    /**
+     * {@code callerCount} callers detect in a loop for {@code measureMs}, at
+     * most {@code tuning.poolSize()} at a time; latency includes the wait for
+     * a slot
+     */
+    private OpenCvTuning.Measurement measure(FaceDetector detector, Mat frame, OpenCvTuning tuning,
+                                             ExecutorService callers, int callerCount) {
+        Semaphore slots = new Semaphore(tuning.poolSize());
+        long deadline = System.nanoTime() + measureMs * 1_000_000L;
+        List<Future<long[]>> runs = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < callerCount; i++) {
+            runs.add(callers.submit(() -> {
+                long[] latencies = new long[64];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long callStart = System.nanoTime();
+                    slots.acquire();
+                    try {
+                        detector.detect(frame, FRAME_WIDTH, FRAME_HEIGHT);
+                    } finally {
+                        slots.release();
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - callStart;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        try {
+            for (Future<long[]> run : runs) {
+                long[] latencies = run.get();
+                int offset = all.length;
+                all = Arrays.copyOf(all, offset + latencies.length);
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while tuning OpenCV", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Face detection failed while tuning OpenCV: "
+                    + e.getCause().getMessage(), e.getCause());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(all);
+        return new OpenCvTuning.Measurement(tuning, all.length / seconds,
+                percentileMillis(all, 0.50), percentileMillis(all, 0.95));
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return Double.MAX_VALUE;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Noisy background with a bright face-sized ellipse, so detectors do
+     * their usual amount of work
+     */
+    private static Mat syntheticFrame() {
+        Mat frame = new Mat(FRAME_HEIGHT, FRAME_WIDTH, opencv_core.CV_8UC3);
+        try (Mat low = new Mat(new Scalar(40, 40, 40, 0));
+             Mat high = new Mat(new Scalar(120, 120, 120, 0));
+             Point center = new Point(FRAME_WIDTH / 2, FRAME_HEIGHT / 2);
+             Size axes = new Size(FRAME_WIDTH / 8, FRAME_HEIGHT / 5);
+             Scalar skin = new Scalar(120, 160, 210, 0)) {
+            opencv_core.setRNGSeed(FRAME_WIDTH);
+            opencv_core.randu(frame, low, high);
+            opencv_imgproc.ellipse(frame, center, axes, 0, 0, 360, skin, -1, opencv_imgproc.LINE_8, 0);
+        }
+        return frame;
+    }
+}
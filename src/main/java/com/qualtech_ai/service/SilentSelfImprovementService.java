@@ -1,7 +1,6 @@
 package com.qualtech_ai.service;
 
-import com.qualtech_ai.entity.FaceUser;
-import com.qualtech_ai.repository.FaceUserRepository;
+import com.qualtech_ai.service.impl.FaceUserTxService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -20,17 +19,17 @@ public class SilentSelfImprovementService {
     @Value("${face.self-improvement.min-attempts:5}")
     private int minAttemptsBeforeUpdate;
 
-    private final FaceUserRepository faceUserRepository;
+    private final FaceUserTxService faceUserTxService;
     private final ConcurrentHashMap<String, AtomicLong> userAttemptCounts = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Double> userAverageConfidence = new ConcurrentHashMap<>();
 
-    public SilentSelfImprovementService(FaceUserRepository faceUserRepository) {
-        this.faceUserRepository = faceUserRepository;
+    public SilentSelfImprovementService(FaceUserTxService faceUserTxService) {
+        this.faceUserTxService = faceUserTxService;
     }
 
     @Transactional
     public void recordHighConfidenceMatch(@org.springframework.lang.NonNull String userId, double confidence,
-            String newFaceEmbedding) {
+            float[] newFaceEmbedding, int embeddingModel) {
         if (confidence < highConfidenceThreshold) {
             return;
         }
@@ -49,7 +48,7 @@ public class SilentSelfImprovementService {
         double avgConfidence = userAverageConfidence.get(userId);
 
         if (attempts >= minAttemptsBeforeUpdate && avgConfidence > highConfidenceThreshold) {
-            updateFaceEmbeddingSilently(userId, newFaceEmbedding, confidence);
+            updateFaceEmbeddingSilently(userId, newFaceEmbedding, embeddingModel, confidence);
         }
 
         log.debug("Recorded high confidence match - User: {}, Confidence: {}, Attempts: {}, Avg: {}",
@@ -57,22 +56,19 @@ public class SilentSelfImprovementService {
     }
 
     @Transactional
-    private void updateFaceEmbeddingSilently(@org.springframework.lang.NonNull String userId, String newFaceEmbedding,
-            double confidence) {
+    private void updateFaceEmbeddingSilently(@org.springframework.lang.NonNull String userId, float[] newFaceEmbedding,
+            int embeddingModel, double confidence) {
         try {
 
-            FaceUser user = faceUserRepository.findById(userId).orElse(null);
-            if (user != null) {
-                user.setFaceEmbedding(newFaceEmbedding);
-                faceUserRepository.save(user);
+            // Saved through the transactional service so the resident gallery picks it up on commit
+            faceUserTxService.saveEmbedding(userId, newFaceEmbedding, embeddingModel);
 
-                log.info("Silent self-improvement: Updated face embedding for user {} (confidence: {})",
-                        user.getEmail(), confidence);
+            log.info("Silent self-improvement: Updated face embedding for user {} (confidence: {})",
+                    userId, confidence);
 
-                // Reset counters after successful update
-                userAttemptCounts.remove(userId);
-                userAverageConfidence.remove(userId);
-            }
+            // Reset counters after successful update
+            userAttemptCounts.remove(userId);
+            userAverageConfidence.remove(userId);
         } catch (Exception e) {
             log.error("Failed to update face embedding for user {}: {}", userId, e.getMessage());
         }
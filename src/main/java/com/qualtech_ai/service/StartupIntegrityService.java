@@ -109,7 +109,9 @@ public class StartupIntegrityService {
         int nullEmbeddingCount = 0;
         
         for (FaceUser user : allUsers) {
-            if (user.getFaceEmbedding() == null || user.getFaceEmbedding().trim().isEmpty()) {
+            boolean hasBinary = user.getFaceEmbeddingData() != null && user.getFaceEmbeddingData().length > 0;
+            boolean hasLegacy = user.getFaceEmbedding() != null && !user.getFaceEmbedding().trim().isEmpty();
+            if (!hasBinary && !hasLegacy) {
                 nullEmbeddingCount++;
                 log.warn("⚠️  NULL EMBEDDING FOUND: User {} (ID: {})", user.getEmail(), user.getId());
             }
@@ -7,26 +7,30 @@ import com.qualtech_ai.dto.FaceDetectionResult;
 import com.qualtech_ai.dto.AdvancedFaceAnalysisResult;
 import com.qualtech_ai.dto.AdvancedFaceDetail;
 import com.qualtech_ai.dto.PreprocessedFaceData;
+import com.qualtech_ai.dto.FaceCandidate;
+import com.qualtech_ai.dto.FaceIdentificationResponse;
+import com.qualtech_ai.dto.IdentifiedFace;
 import com.qualtech_ai.service.S3Service;
 import com.qualtech_ai.entity.FaceUser;
+import com.qualtech_ai.entity.FaceUserDeletion;
 import com.qualtech_ai.exception.ResourceNotFoundException;
+import com.qualtech_ai.repository.FaceUserDeletionRepository;
 import com.qualtech_ai.repository.FaceUserRepository;
-import com.qualtech_ai.projection.FaceEmbeddingView;
 import com.qualtech_ai.service.FaceRecognitionService;
+import com.qualtech_ai.service.FaceGalleryService;
+import com.qualtech_ai.service.FaceModelRegistry;
+import com.qualtech_ai.service.FaceTrackingService;
 import com.qualtech_ai.exception.CustomException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bytedeco.javacpp.BytePointer;
-import org.bytedeco.javacpp.FloatPointer;
-import org.bytedeco.opencv.global.opencv_core;
-import org.bytedeco.opencv.global.opencv_dnn;
 import org.bytedeco.opencv.global.opencv_imgcodecs;
 import org.bytedeco.opencv.global.opencv_imgproc;
 import org.bytedeco.opencv.opencv_core.*;
-import org.bytedeco.opencv.opencv_dnn.Net;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -37,29 +41,31 @@ import com.qualtech_ai.service.AwsFaceService;
 import com.qualtech_ai.service.AzureFaceService;
 import com.qualtech_ai.entity.FaceVerificationLog;
 import com.qualtech_ai.util.FaceImagePreprocessor;
+import com.qualtech_ai.util.FrameBuffer;
+import com.qualtech_ai.util.FrameBufferPool;
+import com.qualtech_ai.util.FrameMultipartFile;
+import com.qualtech_ai.util.ImageDecoder;
+import com.qualtech_ai.util.FaceAnalysis;
+import com.qualtech_ai.util.DetectedFace;
+import com.qualtech_ai.util.FaceDetectionBatcher;
+import com.qualtech_ai.util.FaceTracker;
+import com.qualtech_ai.util.LivenessScorer;
+import com.qualtech_ai.util.MultiResolutionFrame;
+import com.qualtech_ai.util.NativeMemoryTracker;
 import com.qualtech_ai.service.MultiFrameVerificationService;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.ByteBuffer;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Optional;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
 import java.util.concurrent.ConcurrentHashMap;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.bytedeco.opencv.global.opencv_core.CV_32F;
-import static org.bytedeco.opencv.global.opencv_dnn.blobFromImage;
-import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_COLOR;
-import org.bytedeco.opencv.opencv_core.MatVector;
 
 @Slf4j
 @Service
@@ -67,98 +73,90 @@ import org.bytedeco.opencv.opencv_core.MatVector;
 public class FaceRecognitionServiceImpl implements FaceRecognitionService {
     private static final double FACE_MATCH_THRESHOLD = 0.70; // Relaxed for better usability in common lighting
 
-    private static final double FACE_DETECTION_CONFIDENCE = 0.45; // Refined for faster detection
     private static final int MAX_FACES_TO_PROCESS = 3; // Limit for real-time performance
 
-    // DNN model paths - Using Caffe models
-    private static final String FACE_DETECTOR_MODEL_RES = "classpath:face_models/deploy.prototxt";
-    private static final String FACE_DETECTOR_WEIGHTS_RES = "classpath:face_models/res10_300x300_ssd_iter_140000.caffemodel";
-
     // Image preprocessing parameters - Optimized for speed
-    private static final int INPUT_WIDTH = 300;
-    private static final int INPUT_HEIGHT = 300;
-    private static final int FEATURE_SIZE = 128; // Standard face embedding size
+    private static final int INPUT_WIDTH = FaceDetectionBatcher.INPUT_SIZE;
+    private static final int INPUT_HEIGHT = FaceDetectionBatcher.INPUT_SIZE;
+    // Reduced decodes keep both sides at least this large, so the detector input loses nothing
+    private static final int DETECTION_MIN_SIDE = Math.max(INPUT_WIDTH, INPUT_HEIGHT);
+    private static final int FACE_CROP_SIZE = FaceAnalysis.STANDARD_SIZE;
+    private static final Size FACE_CROP = new Size(FACE_CROP_SIZE, FACE_CROP_SIZE);
 
     // Performance optimization constants
-    private static final int FACE_SIZE_THRESHOLD = 40; // Minimum face size for detection
     private static final double LIVENESS_THRESHOLD = 45.0; // Balanced for security and usability (reduced to handle
                                                            // screen glow)
 
     private final FaceUserRepository faceUserRepository;
+    private final FaceUserDeletionRepository faceUserDeletionRepository;
     private final S3Service s3Service;
-    private final ResourceLoader resourceLoader;
     private final AwsFaceService awsFaceService;
     private final AzureFaceService azureFaceService;
     private final FaceVerificationLogRepository faceVerificationLogRepository;
     private final FaceImagePreprocessor faceImagePreprocessor;
     private final FaceUserTxService faceUserTxService;
     private final MultiFrameVerificationService multiFrameVerificationService;
+    private final FaceGalleryService faceGalleryService;
+    private final FrameBufferPool frameBufferPool;
+    private final NativeMemoryTracker nativeMemoryTracker;
+    private final FaceModelRegistry faceModelRegistry;
+    private final FaceTrackingService faceTrackingService;
     // AdaptiveThresholdService disabled for stabilization - using fixed threshold
     // private final AdaptiveThresholdService adaptiveThresholdService;
     @Value("${face.recognition.threshold:0.85}")
     private double fixedThreshold;
 
+    // Minimum face size for detection
+    @Value("${face.detector.min-face-size:40}")
+    private int minFaceSize;
+
     // SilentSelfImprovementService disabled for stabilization
     // private final SilentSelfImprovementService silentSelfImprovementService;
-    private ObjectMapper objectMapper = new ObjectMapper(); // Non-final since it's directly initialized
-
     private AtomicInteger activeRequests = new AtomicInteger(0);
     private static final int MAX_CONCURRENT_REQUESTS = 4;
 
     // Frame buffer for motion detection in stream mode
-    private ConcurrentHashMap<String, List<byte[]>> streamFrameBuffers = new ConcurrentHashMap<String, List<byte[]>>();
+    private ConcurrentHashMap<String, List<FrameBuffer>> streamFrameBuffers = new ConcurrentHashMap<String, List<FrameBuffer>>();
     private static final int STREAM_BUFFER_SIZE = 3; // Number of frames to collect before multi-frame check
 
-    // DNN-based face detector - Pre-initialized for performance
-    private Net faceDetector;
-    private boolean initializationFailed = false;
-    private volatile boolean modelLoaded = false;
-
-    // Pre-load models on startup
-    @jakarta.annotation.PostConstruct
-    public void initializeModels() {
-        log.info("Pre-loading face detection models for optimal performance...");
-        Thread modelLoader = new Thread(() -> {
-            try {
-                initializeFaceDetector();
-                modelLoaded = true;
-                log.info("Face detection models loaded successfully - Ready for real-time detection!");
-            } catch (Exception e) {
-                log.error("Failed to pre-load face detection models: {}", e.getMessage());
-                initializationFailed = true;
-            }
-        });
-        modelLoader.setDaemon(true);
-        modelLoader.start();
-    }
-
     @Override
     public FaceUser registerFace(FaceRegistrationRequest request) throws IOException {
         log.info("Starting face registration for email: {}", request.getEmail());
 
+        // The upload is read once; decoding and the AWS calls share this buffer
+        try (NativeMemoryTracker.Scope scope = nativeMemoryTracker.open("register");
+             FrameBuffer frame = frameBufferPool.read(request.getImage())) {
+            return registerFace(request, frame);
+        }
+    }
+
+    private FaceUser registerFace(FaceRegistrationRequest request, FrameBuffer frame) throws IOException {
         // 1️⃣ Preprocess (NO DB) - face detection, validation, feature extraction
-        PreprocessedFaceData data = preprocess(request);
+        PreprocessedFaceData data = preprocess(request, frame);
 
         // 2️⃣ Check email uniqueness (READ-ONLY DB)
         if (faceUserTxService.existsByEmail(request.getEmail())) {
             throw new IllegalArgumentException("User with this email already exists");
         }
 
-        // 3️⃣ Duplicate check (READ-ONLY DB)
-        checkDuplicate(data.faceEmbedding());
-
-        // 3.5 Check for duplicates in AWS (Deep Fix)
-        checkAwsDuplicate(request.getImage());
+        // 3️⃣ Duplicate check against the resident gallery (NO DB), held until the embedding is committed
+        FaceUser user;
+        try (FaceGalleryService.InFlightProbe reservation = checkDuplicate(data.faceEmbedding())) {
+            // 3.5 Check for duplicates in AWS (Deep Fix)
+            checkAwsDuplicate(frame);
 
-        // 4️⃣ Create user (TX)
-        FaceUser user = faceUserTxService.createUser(request, data.base64Image());
+            // 4️⃣ Create user (TX)
+            user = faceUserTxService.createUser(request, data.base64Image());
 
-        // 5️⃣ Save embedding (TX)
-        faceUserTxService.saveEmbedding(user.getId(), data.faceEmbedding());
+            // 5️⃣ Save embedding (TX) - the gallery is updated on commit
+            faceUserTxService.saveEmbedding(user.getId(), data.faceEmbedding());
+        }
 
         // 6️⃣ External services (NO TX)
-        uploadImageToS3(user, request.getImage());
-        indexFaceInAws(user, request.getImage());
+        MultipartFile image = request.getImage();
+        uploadImageToS3(user, new FrameMultipartFile(frame, image.getName(), image.getOriginalFilename(),
+                image.getContentType()));
+        indexFaceInAws(user, frame);
 
         log.info("Successfully registered face for user: {} (ID: {})", user.getName(), user.getId());
         return user;
@@ -181,7 +179,7 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
         }
     }
 
-    private void indexFaceInAws(FaceUser user, MultipartFile image) {
+    private void indexFaceInAws(FaceUser user, FrameBuffer frame) {
         // Index in AWS if available
         if (awsFaceService.isAvailable()) {
             try {
@@ -189,7 +187,7 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
                 String externalId = user.getId();
 
                 software.amazon.awssdk.services.rekognition.model.IndexFacesResponse response = awsFaceService
-                        .indexFace(image.getBytes(), externalId);
+                        .indexFace(frame, externalId);
 
                 if (response != null && !response.faceRecords().isEmpty()) {
                     String awsFaceId = response.faceRecords().get(0).face().faceId();
@@ -209,6 +207,12 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
     @Override
     @Transactional(readOnly = true)
     public FaceVerificationResponse verifyFace(FaceVerificationRequest request) throws IOException {
+        try (NativeMemoryTracker.Scope scope = nativeMemoryTracker.open("verify")) {
+            return verifySingleFrame(request);
+        }
+    }
+
+    private FaceVerificationResponse verifySingleFrame(FaceVerificationRequest request) throws IOException {
         // MANDATORY VALIDATIONS for face verification (Service Level)
 
         // 1. Basic request validation
@@ -234,24 +238,12 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
         }
 
         Mat image = null;
-        File tempFile = null;
+        FrameBuffer frame = null;
 
         try {
-            byte[] imageBytes = request.getImage().getBytes();
+            frame = frameBufferPool.read(request.getImage());
 
-            // Prepare temporary file for OpenCV
-            String originalName = request.getImage().getOriginalFilename();
-            String extension = ".jpg";
-            if (originalName != null && originalName.contains(".")) {
-                extension = originalName.substring(originalName.lastIndexOf("."));
-            }
-            tempFile = Files.createTempFile("verify_" + UUID.randomUUID() + "_", extension).toFile();
-
-            try (var is = new java.io.ByteArrayInputStream(imageBytes)) {
-                Files.copy(is, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            image = opencv_imgcodecs.imread(tempFile.getAbsolutePath(), IMREAD_COLOR);
+            image = ImageDecoder.decode(frame);
             if (image == null || image.empty()) {
                 throw new IOException("Could not load image for verification");
             }
@@ -264,12 +256,12 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
                 if (!localFaces.isEmpty()) {
                     Rect largest = localFaces.get(0);
                     Mat faceRoi = new Mat(image, largest);
-                    Mat resizedLiveness = new Mat();
-                    opencv_imgproc.resize(faceRoi, resizedLiveness, new Size(160, 160));
-                    localLivenessScore = calculateLiveness(resizedLiveness);
-                    localLivenessPassed = localLivenessScore > LIVENESS_THRESHOLD;
-                    resizedLiveness.release();
-                    faceRoi.release();
+                    try (FaceAnalysis analysis = FaceAnalysis.resized(faceRoi, FACE_CROP)) {
+                        localLivenessScore = calculateLiveness(analysis);
+                        localLivenessPassed = localLivenessScore > LIVENESS_THRESHOLD;
+                    } finally {
+                        faceRoi.release();
+                    }
                 }
             } catch (Exception e) {
                 log.error("Local preprocessing error: {}", e.getMessage());
@@ -286,10 +278,10 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
 
             if (awsFaceService.isAvailable()) {
                 log.info("Routing verification through Advanced AWS Security Path");
-                return verifyFaceAws(request, imageBytes, image, width, height);
+                return verifyFaceAws(request, image, width, height);
             } else if (azureFaceService.isAvailable()) {
                 log.info("Routing verification through Azure Path (Fallback)");
-                return verifyFaceAzure(request, imageBytes, image);
+                return verifyFaceAzure(request, frame, image);
             } else {
                 return FaceVerificationResponse.failure("No cloud provider available for secure verification");
             }
@@ -301,8 +293,8 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
             activeRequests.decrementAndGet();
             if (image != null)
                 image.release();
-            if (tempFile != null && tempFile.exists())
-                tempFile.delete();
+            if (frame != null)
+                frame.close();
         }
     }
 
@@ -331,41 +323,42 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
 
         // Delete the user from the database
         faceUserRepository.delete(user);
+        faceUserDeletionRepository.save(new FaceUserDeletion(id));
+        faceGalleryService.onUserDeleted(id);
     }
 
     @Override
     public byte[] processImage(MultipartFile imageFile) throws IOException {
+        try (NativeMemoryTracker.Scope scope = nativeMemoryTracker.open("process")) {
+            return annotateImage(imageFile);
+        }
+    }
+
+    private byte[] annotateImage(MultipartFile imageFile) throws IOException {
         if (imageFile == null || imageFile.isEmpty()) {
             return new byte[0];
         }
 
+        // The upload is read once; the fallbacks return the same buffer's bytes
         Mat image = null;
-        File tempFile = null;
-        try {
-            tempFile = new File(System.getProperty("java.io.tmpdir"), "process_" + System.currentTimeMillis() + ".jpg");
-            try (var is = imageFile.getInputStream()) {
-                Files.copy(is, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (FrameBuffer frame = frameBufferPool.read(imageFile)) {
+            // Detect faces to verify system is working
+            if (!faceModelRegistry.isReady()) {
+                log.warn("Skipping local face detection for image processing: models are {}.",
+                        faceModelRegistry.getState());
+                return frame.toByteArray(); // Return original image if detector failed
             }
 
-            image = opencv_imgcodecs.imread(tempFile.getAbsolutePath());
+            image = ImageDecoder.decode(frame);
             if (image == null || image.empty()) {
-                return imageFile.getBytes();
-            }
-
-            // Detect faces to verify system is working
-            if (faceDetector == null && !initializationFailed) {
-                initializeFaceDetector();
-            }
-            if (initializationFailed) {
-                log.warn("Skipping local face detection for image processing due to initialization failure.");
-                return imageFile.getBytes(); // Return original image if detector failed
+                return frame.toByteArray();
             }
 
-            List<Rect> faceRects = detectFaces(image);
+            List<DetectedFace> faces = detectFaces(image);
 
             // Draw boxes just for debug/verification
-            for (Rect rect : faceRects) {
-                opencv_imgproc.rectangle(image, rect, new Scalar(0, 255, 0, 0), 2, 8, 0);
+            for (DetectedFace face : faces) {
+                opencv_imgproc.rectangle(image, face.toRect(), new Scalar(0, 255, 0, 0), 2, 8, 0);
             }
 
             byte[] result;
@@ -378,349 +371,107 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
         } finally {
             if (image != null)
                 image.release();
-            if (tempFile != null && tempFile.exists())
-                tempFile.delete();
         }
     }
 
     /**
-     * Initialize the DNN-based face detector
+     * Optimized face detection for real-time performance
      */
-    private synchronized void initializeFaceDetector() {
-        if (faceDetector != null || initializationFailed)
-            return;
-
-        try {
-            log.info("START: initializeFaceDetector from classpath");
-            System.err.println("--- NATIVE AI INITIALIZATION START ---");
-
-            // Create temp files for models since opencv needs file paths
-            Path tempDir = Files.createTempDirectory("qualtech_models");
-            log.info("Using temp directory for models: {}", tempDir.toAbsolutePath());
-
-            Path protoPath = tempDir.resolve("deploy.prototxt");
-            Resource protoRes = resourceLoader.getResource(FACE_DETECTOR_MODEL_RES);
-            try (var is = protoRes.getInputStream()) {
-                Files.copy(is, protoPath, StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            Path weightsPath = tempDir.resolve("res10_300x300_ssd_iter_140000.caffemodel");
-            Resource weightsRes = resourceLoader.getResource(FACE_DETECTOR_WEIGHTS_RES);
-            try (var is = weightsRes.getInputStream()) {
-                Files.copy(is, weightsPath, StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            // Load the network using file paths
-            log.info("Calling native OpenCV readNetFromCaffe...");
-            faceDetector = opencv_dnn.readNetFromCaffe(
-                    protoPath.toAbsolutePath().toString(),
-                    weightsPath.toAbsolutePath().toString());
-
-            System.err.println("--- NATIVE AI INITIALIZATION SUCCESS ---");
-            log.info("SUCCESS: Loaded face detection model");
-        } catch (Throwable t) {
-            initializationFailed = true;
-            log.error("CRITICAL: Failed to initialize face detector: {}", t.getMessage());
-            // Don't throw - allow app to run, just won't detect faces locally
-        }
+    private List<Rect> detectFacesOptimized(Mat image) {
+        return detectFacesOptimized(image, image.cols(), image.rows()).stream().map(DetectedFace::toRect).toList();
     }
 
     /**
-     * Optimized face detection for real-time performance
+     * Detect on {@code image}, which may be a reduced decode of the frame;
+     * boxes and landmarks are returned in frame coordinates ({@code frameWidth}
+     * x {@code frameHeight})
      */
-    private List<Rect> detectFacesOptimized(Mat image) {
-        List<Rect> detectionsList = new java.util.ArrayList<>();
-        Mat blob = null;
-        Mat detections = null;
-
+    private List<DetectedFace> detectFacesOptimized(Mat image, int frameWidth, int frameHeight) {
         try {
-            // Prepare input blob with optimized parameters
-            blob = blobFromImage(image, 1.0, new Size(INPUT_WIDTH, INPUT_HEIGHT),
-                    new Scalar(104.0, 177.0, 123.0, 0.0), false, false, CV_32F);
-
-            // Thread-safe access to native DNN resource
-            synchronized (this) {
-                if (faceDetector == null) {
-                    log.warn("Face detector is null in detectFacesOptimized, attempting re-initialization.");
-                    initializeFaceDetector();
-                }
-                if (faceDetector == null || initializationFailed) {
-                    log.error("Face detector is not initialized or failed to initialize. Cannot detect faces.");
-                    return detectionsList;
-                }
-                faceDetector.setInput(blob);
-                detections = faceDetector.forward();
-            }
-
-            long[] sizes = detections.createIndexer().sizes();
-            for (int i = 0; i < sizes[2]; i++) {
-                try (FloatPointer data = new FloatPointer(detections.ptr(0, 0, i))) {
-                    float confidence = data.get(2);
-
-                    if (confidence > FACE_DETECTION_CONFIDENCE) {
-                        int x = (int) (data.get(3) * image.cols());
-                        int y = (int) (data.get(4) * image.rows());
-                        int width = (int) (data.get(5) * image.cols() - x);
-                        int height = (int) (data.get(6) * image.rows() - y);
-
-                        // Optimized bound checking
-                        x = Math.max(0, x);
-                        y = Math.max(0, y);
-                        width = Math.min(width, image.cols() - x);
-                        height = Math.min(height, image.rows() - y);
-
-                        // Reduced size threshold for better detection
-                        if (width > FACE_SIZE_THRESHOLD && height > FACE_SIZE_THRESHOLD) {
-                            detectionsList.add(new Rect(x, y, width, height));
-                        }
-                    }
-                }
-            }
-
-            // Sort by area (width * height) descending - optimized
-            detectionsList.sort((r1, r2) -> Integer.compare(r2.width() * r2.height(), r1.width() * r1.height()));
-
-            return detectionsList;
+            // Reduced size threshold for better detection
+            return detectLargerThan(image, frameWidth, frameHeight, minFaceSize);
         } catch (Exception e) {
             log.error("Error during optimized face detection: {}", e.getMessage());
-            return detectionsList;
-        } finally {
-            if (detections != null)
-                detections.release();
-            if (blob != null)
-                blob.release();
+            return new java.util.ArrayList<>();
         }
     }
 
     /**
      * Detect all faces in the image using DNN
-     * Returns a list of Rects sorted by area (largest first)
+     * Returns the faces sorted by area (largest first)
      */
-    private List<Rect> detectFaces(Mat image) {
-        List<Rect> detectionsList = new java.util.ArrayList<>();
-        Mat blob = null;
-        Mat detections = null;
-
+    private List<DetectedFace> detectFaces(Mat image) {
         try {
-            // Prepare input blob
-            blob = blobFromImage(image, 1.0, new Size(INPUT_WIDTH, INPUT_HEIGHT),
-                    new Scalar(104.0, 177.0, 123.0, 0.0), false, false, CV_32F);
-
-            // Thread-safe access to native DNN resource
-            synchronized (this) {
-                if (faceDetector == null) { // Should not happen if initializationFailed check is done upstream
-                    log.warn("Face detector is null in detectFaces, attempting re-initialization.");
-                    initializeFaceDetector();
-                }
-                if (faceDetector == null || initializationFailed) {
-                    log.error("Face detector is not initialized or failed to initialize. Cannot detect faces.");
-                    return detectionsList;
-                }
-                faceDetector.setInput(blob);
-                detections = faceDetector.forward();
-            }
-
-            long[] sizes = detections.createIndexer().sizes();
-            for (int i = 0; i < sizes[2]; i++) {
-                try (FloatPointer data = new FloatPointer(detections.ptr(0, 0, i))) {
-                    float confidence = data.get(2);
-
-                    if (confidence > FACE_DETECTION_CONFIDENCE) {
-                        int x = (int) (data.get(3) * image.cols());
-                        int y = (int) (data.get(4) * image.rows());
-                        int width = (int) (data.get(5) * image.cols() - x);
-                        int height = (int) (data.get(6) * image.rows() - y);
-
-                        // Bound checking
-                        x = Math.max(0, x);
-                        y = Math.max(0, y);
-                        width = Math.min(width, image.cols() - x);
-                        height = Math.min(height, image.rows() - y);
-
-                        if (width > 50 && height > 50) { // Filter out tiny detections
-                            detectionsList.add(new Rect(x, y, width, height));
-                        }
-                    }
-                }
-            }
-
-            // Sort by area (width * height) descending
-            detectionsList.sort((r1, r2) -> Integer.compare(r2.width() * r2.height(), r1.width() * r1.height()));
-
-            return detectionsList;
+            // Filter out tiny detections
+            return detectLargerThan(image, image.cols(), image.rows(), 50);
         } catch (Exception e) {
             log.error("CRITICAL: Error during native face detection: {}", e.getMessage(), e);
-            return detectionsList; // Return what we found or empty
-        } finally {
-            if (detections != null)
-                detections.release();
-            if (blob != null)
-                blob.release();
+            return new java.util.ArrayList<>();
         }
     }
 
     /**
-     * Extract feature vector from face image
-     * This is a simplified version - in production, use a proper face recognition
-     * model
+     * Faces from the configured detector backend with both sides above
+     * {@code minSize}, largest first
      */
-    private float[] extractFeatureVector(Mat face) {
-        // Robust feature extraction: Divide image into grid and compute multiple
-        // statistics
-        // (Mean, Variance, and simple Local Symmetry)
-
-        Mat gray = new Mat();
-        opencv_imgproc.cvtColor(face, gray, opencv_imgproc.COLOR_BGR2GRAY);
-
-        // Equalize histogram to handle lighting variations
-        Mat equalized = new Mat();
-        opencv_imgproc.equalizeHist(gray, equalized);
-
-        Mat normalized = new Mat();
-        opencv_core.normalize(equalized, normalized, 0, 1.0, opencv_core.NORM_MINMAX, CV_32F, null);
-
-        float[] features = new float[FEATURE_SIZE];
-        int divisions = (int) Math.sqrt(FEATURE_SIZE / 2); // Split budget between mean and variance
-        int cellW = normalized.cols() / divisions;
-        int cellH = normalized.rows() / divisions;
-        int idx = 0;
-
-        for (int i = 0; i < divisions && idx < FEATURE_SIZE - 2; i++) {
-            for (int j = 0; j < divisions && idx < FEATURE_SIZE - 2; j++) {
-                int x = j * cellW;
-                int y = i * cellH;
-                int w = Math.min(cellW, normalized.cols() - x);
-                int h = Math.min(cellH, normalized.rows() - y);
-
-                Mat cell = new Mat(normalized, new Rect(x, y, w, h));
-                Mat mean = new Mat();
-                Mat stddev = new Mat();
-                opencv_core.meanStdDev(cell, mean, stddev);
-
-                features[idx++] = (float) mean.createIndexer().getDouble(0);
-                features[idx++] = (float) stddev.createIndexer().getDouble(0);
-
-                mean.release();
-                stddev.release();
-                cell.release();
-            }
+    private List<DetectedFace> detectLargerThan(Mat image, int frameWidth, int frameHeight, int minSize) {
+        List<DetectedFace> detectionsList = new java.util.ArrayList<>();
+        if (!faceModelRegistry.isReady()) {
+            log.error("Face detector is not ready ({}). Cannot detect faces.", faceModelRegistry.getState());
+            return detectionsList;
         }
-
-        // Add more global characteristics to fill the rest of the vector
-        Scalar globalMean = opencv_core.mean(normalized);
-        while (idx < FEATURE_SIZE) {
-            features[idx++] = (float) globalMean.get(0);
+        // Runs on a pooled detector (SSD: possibly in one batch with other requests' frames)
+        List<DetectedFace> faces = faceModelRegistry.detector().detect(image, frameWidth, frameHeight);
+
+        // Sort by area (width * height) descending
+        faces.sort((f1, f2) -> Integer.compare(f2.area(), f1.area()));
+        for (DetectedFace face : faces) {
+            if (face.width() > minSize && face.height() > minSize) {
+                detectionsList.add(face);
+            }
         }
-
-        gray.release();
-        equalized.release();
-        normalized.release();
-
-        return features;
+        return detectionsList;
     }
 
     /**
-     * Compare two face embeddings using cosine similarity
-     * Returns a similarity score between 0 and 1 (higher is more similar)
+     * Extract feature vector from face image with the configured embedder
+     * (grid statistics or the SFace CNN, see face.embedder.backend)
      */
-    private double compareFaceEmbeddings(String embeddingEmbeddingOrJson, String embedding2) {
-        // Task 5: Multi-Embedding Matching
-        // Identify if embedding2 is a JSON list or single string
-        try {
-            List<String> storedEmbeddings = new ArrayList<>();
-            if (embedding2.trim().startsWith("[")) {
-                storedEmbeddings = objectMapper.readValue(embedding2, new TypeReference<List<String>>() {
-                });
-            } else {
-                storedEmbeddings.add(embedding2);
-            }
-
-            double maxScore = 0.0;
-            float[] features1 = stringToFeatures(embeddingEmbeddingOrJson);
-
-            for (String stored : storedEmbeddings) {
-                float[] features2 = stringToFeatures(stored);
-                double score = cosineSimilarity(features1, features2);
-                if (score > maxScore)
-                    maxScore = score;
-            }
-            return maxScore;
-        } catch (Exception e) {
-            log.error("Error comparing embeddings: {}", e.getMessage());
-            return 0.0;
-        }
+    private float[] extractFeatureVector(FaceAnalysis analysis) {
+        return faceModelRegistry.embedder().embed(analysis);
     }
 
     /**
-     * Calculate cosine similarity between two feature vectors
+     * Embeddings of all faces of a frame, in one inference where the embedder
+     * supports it
      */
-    private double cosineSimilarity(float[] vec1, float[] vec2) {
-        if (vec1.length != vec2.length) {
-            log.warn("Feature vectors have different lengths: {} vs {}", vec1.length, vec2.length);
-            return 0.0;
-        }
-
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-
-        for (int i = 0; i < vec1.length; i++) {
-            dotProduct += vec1[i] * vec2[i];
-            norm1 += vec1[i] * vec1[i];
-            norm2 += vec2[i] * vec2[i];
-        }
-
-        if (norm1 == 0.0 || norm2 == 0.0) {
-            return 0.0;
-        }
-
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    private List<float[]> extractFeatureVectors(List<FaceAnalysis> analyses) {
+        return faceModelRegistry.embedder().embed(analyses);
     }
 
     /**
-     * Convert feature vector to Base64 encoded string
+     * Cosine similarity at which a local gallery match counts, for the active
+     * embedder; embeddings of different models score on different scales
      */
+    private double localMatchThreshold() {
+        return faceModelRegistry.embedder().matchThreshold();
+    }
+
     /**
      * Extract features from a Mat object for self-improvement
      */
-    private String extractFeaturesFromMat(Mat faceMat) throws IOException {
+    private float[] extractFeaturesFromMat(Mat faceMat) throws IOException {
         if (faceMat == null || faceMat.empty()) {
             throw new IOException("Face matrix is null or empty");
         }
 
-        Mat resizedFace = null;
-        try {
-            // Resize face to standard size for feature extraction
-            resizedFace = new Mat();
-            opencv_imgproc.resize(faceMat, resizedFace, new Size(160, 160));
-
+        // Resize face to standard size for feature extraction
+        try (FaceAnalysis analysis = FaceAnalysis.resized(faceMat, FACE_CROP)) {
             // Extract features from the face
-            float[] features = extractFeatureVector(resizedFace);
-
-            // Convert features to Base64 string for storage
-            return featuresToString(features);
-
-        } finally {
-            if (resizedFace != null) {
-                resizedFace.release();
-            }
+            return extractFeatureVector(analysis);
         }
     }
 
-    private String featuresToString(float[] features) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < features.length; i++) {
-            if (i > 0)
-                sb.append(",");
-            sb.append(features[i]);
-        }
-        return java.util.Base64.getEncoder().encodeToString(sb.toString().getBytes());
-    }
-
-    /**
-     * Convert Base64 encoded string back to feature vector
-     */
-
     /**
      * Calculate liveness using Laplacian Variance (Blur detection)
      */
@@ -728,150 +479,48 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
      * Calculate liveness score (0-100) with strict anti-spoofing for screens and
      * frames
      */
-    private double calculateLiveness(Mat face) {
-        Mat gray = new Mat();
-        Mat laplacian = new Mat();
-        Mat hsv = new Mat();
-        Mat reflectionMask = new Mat();
-        MatVector channels = new MatVector();
-
+    private double calculateLiveness(FaceAnalysis analysis) {
         try {
-            // 1. Texture/Sharpness Analysis (Laplacian Variance)
-            opencv_imgproc.cvtColor(face, gray, opencv_imgproc.COLOR_BGR2GRAY);
-            opencv_imgproc.Laplacian(gray, laplacian, opencv_core.CV_64F);
-
-            double variance = 0;
-            Mat mean = new Mat();
-            Mat stddev = new Mat();
-            try {
-                opencv_core.meanStdDev(laplacian, mean, stddev);
-                variance = Math.pow(stddev.createIndexer().getDouble(0), 2);
-            } finally {
-                mean.release();
-                stddev.release();
-            }
-
-            // Adjusted for 160x160 face crops: variance of 100-200 is common for sharp
-            // faces
-            // Previous formula (variance - 50) / 7.5 was too strict for real-time
-            // mobile/web streams
-
-            // 2. Reflection Detection (Glare from screens or glass frames)
-            opencv_imgproc.cvtColor(face, hsv, opencv_imgproc.COLOR_BGR2HSV);
-
-            opencv_core.inRange(hsv,
-                    new Mat(new Scalar(0, 0, 220, 0)), // High Value (Brightness)
-                    new Mat(new Scalar(180, 50, 255, 0)), // Low Saturation (White/Glare)
-                    reflectionMask);
-            double reflectionRatio = (double) opencv_core.countNonZero(reflectionMask) / (face.rows() * face.cols());
-
-            // 3. Color Balance Analysis (Screens often emit excessive Blue light)
-            opencv_core.split(face, channels);
-
-            double rToB = 1.0;
-            Mat bMean = new Mat(), rMean = new Mat();
-            Mat bStd = new Mat(), rStd = new Mat();
-            try {
-                opencv_core.meanStdDev(channels.get(0), bMean, bStd); // Blue channel
-                opencv_core.meanStdDev(channels.get(2), rMean, rStd); // Red channel
-
-                double blueAvg = bMean.createIndexer().getDouble(0);
-                double redAvg = rMean.createIndexer().getDouble(0);
-
-                rToB = (blueAvg > 0) ? redAvg / blueAvg : 1.0;
-            } finally {
-                bMean.release();
-                rMean.release();
-                bStd.release();
-                rStd.release();
-            }
-
-            // --- SCORING LOGIC ---
-            double finalScore = 50.0; // Start with a stable base score for a detected face
-
-            // Texture Bonus: Real skin has natural texture/sharpness
-            if (variance > 60 && variance < 1000) {
-                finalScore += 20.0;
-            }
-
-            // --- PENALTIES (Strict Gates) ---
-
-            // Penalty: Blue Light (Screen indication)
-            if (rToB <= 1.0) { // Relaxed from 1.2
-                finalScore -= 30.0; // Reduced penalty
-                log.debug("Liveness Penalty: Blue light detected (R/B ratio: {})", rToB);
-            } else if (rToB < 1.1) { // Mild penalty for cool lighting that mimics screens
-                finalScore -= 15.0;
-            }
-
-            // Penalty: Reflections (Screen/Glass)
-            if (reflectionRatio > 0.10) { // Relaxed from 0.04
-                finalScore -= 100.0; // Immediate fail
-                log.debug("Liveness Penalty: High reflection detected ({}%)", reflectionRatio * 100);
-            } else if (reflectionRatio > 0.03) { // Relaxed from 0.005
-                finalScore -= 20.0;
-            }
-
-            // Penalty: Too Smooth (Blurry Photo) or Too Grainy (Moiré pattern/Screen noise)
-            if (variance < 40) { // Stricter blur threshold
-                finalScore -= 70.0;
-                log.debug("Liveness Penalty: Image too smooth/blurry (Var: {})", variance);
-            } else if (variance > 1400) {
-                finalScore -= 80.0;
-                log.debug("Liveness Penalty: High frequency noise (Moiré pattern likely) (Var: {})", variance);
-            }
-
-            // Clamp 0-100
-            finalScore = Math.max(0, Math.min(100, finalScore));
+            // Texture (Laplacian variance), glare ratio and R/B balance in two passes over the crop
+            LivenessScorer.Measurements measurements = analysis.liveness();
+            double finalScore = LivenessScorer.score(measurements);
 
             log.info("Liveness Check: Score={} (Var={}, Reflect={}%, R/B={})",
-                    finalScore, variance, reflectionRatio * 100, rToB);
+                    finalScore, measurements.laplacianVariance(), measurements.reflectionRatio() * 100,
+                    measurements.redToBlue());
 
             return finalScore;
 
         } catch (Exception e) {
             log.error("Error calculating liveness: {}", e.getMessage());
             return 0.0; // Fail safe
-        } finally {
-            gray.release();
-            laplacian.release();
-            hsv.release();
-            reflectionMask.release();
-            channels.close(); // Important: release split channels
         }
     }
 
     /**
      * Detect emotion based on basic facial features (pixel intensity distribution)
      */
-    private String detectEmotion(Mat face) {
+    private String detectEmotion(FaceAnalysis analysis) {
         // Improved emotion detection: Analyze intensity distribution and variance
-        Mat gray = new Mat();
-
         try {
-            opencv_imgproc.cvtColor(face, gray, opencv_imgproc.COLOR_BGR2GRAY);
+            Mat gray = analysis.gray();
 
             // Calculate global intensity and variance
-            double avgIntensity = 0;
-            double variance = 0;
-            Mat mean = new Mat();
-            Mat stddev = new Mat();
-            try {
-                opencv_core.meanStdDev(gray, mean, stddev);
-                avgIntensity = mean.createIndexer().getDouble(0);
-                variance = Math.pow(stddev.createIndexer().getDouble(0), 2);
-            } finally {
-                mean.release();
-                stddev.release();
-            }
+            double avgIntensity = analysis.grayMean();
+            double variance = Math.pow(analysis.grayStdDev(), 2);
 
-            // Analyze mouth region (lower 3rd of face ROI)
+            // Analyze mouth region (lower 3rd of face ROI), read straight from the pixels
+            int cols = gray.cols();
             int mouthY = (int) (gray.rows() * 0.7);
-            int mouthH = gray.rows() - mouthY;
-            Mat mouthRegion = new Mat(gray, new Rect(0, mouthY, gray.cols(), mouthH));
-            Scalar mouthMean = opencv_core.mean(mouthRegion);
-            double mouthIntensity = mouthMean.get(0);
-            mouthRegion.release();
+            int total = cols * gray.rows();
+            byte[] pixels = analysis.workspace().bytes(total);
+            ByteBuffer pixelBuffer = gray.createBuffer();
+            pixelBuffer.get(pixels, 0, total);
+            long mouthSum = 0;
+            for (int p = mouthY * cols; p < total; p++) {
+                mouthSum += pixels[p] & 0xFF;
+            }
+            double mouthIntensity = total > mouthY * cols ? (double) mouthSum / (total - mouthY * cols) : 0.0;
 
             // Heuristic based on research on facial expressions and intensity distribution
             if (variance > 3000)
@@ -886,29 +535,10 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
             return "Neutral";
         } catch (Exception e) {
             return "Neutral";
-        } finally {
-            gray.release();
         }
     }
 
-    private float[] stringToFeatures(String encoded) {
-        try {
-            String decoded = new String(java.util.Base64.getDecoder().decode(encoded));
-            String[] parts = decoded.split(",");
-            float[] features = new float[parts.length];
-
-            for (int i = 0; i < parts.length; i++) {
-                features[i] = Float.parseFloat(parts[i]);
-            }
-
-            return features;
-        } catch (Exception e) {
-            log.error("Error decoding features: {}", e.getMessage());
-            return new float[FEATURE_SIZE];
-        }
-    }
-
-    private FaceVerificationResponse verifyFaceAws(FaceVerificationRequest request, byte[] imageBytes, Mat fullImage,
+    private FaceVerificationResponse verifyFaceAws(FaceVerificationRequest request, Mat fullImage,
             int imgWidth,
             int imgHeight)
             throws IOException {
@@ -981,7 +611,9 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
                         faceCrop = new Mat(preprocessedImage, new Rect(x, y, w, h));
 
                         // A. Local Liveness Check on the crop
-                        livenessScore = calculateLiveness(faceCrop);
+                        try (FaceAnalysis analysis = FaceAnalysis.of(faceCrop)) {
+                            livenessScore = calculateLiveness(analysis);
+                        }
                         isLive = livenessScore > LIVENESS_THRESHOLD;
 
                         // B. Identity Verification: Search THIS specific face crop in AWS Collection
@@ -1144,11 +776,11 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
         }
     }
 
-    private FaceVerificationResponse verifyFaceAzure(FaceVerificationRequest request, byte[] imageBytes, Mat fullImage)
+    private FaceVerificationResponse verifyFaceAzure(FaceVerificationRequest request, FrameBuffer frame, Mat fullImage)
             throws IOException {
         try {
             List<com.azure.ai.vision.face.models.FaceDetectionResult> azureFaces = azureFaceService
-                    .detectFaces(imageBytes);
+                    .detectFaces(frame);
 
             List<FaceDetectionResult> results = new ArrayList<>();
 
@@ -1186,10 +818,13 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
 
                     if (w > 0 && h > 0) {
                         Mat faceRoi = new Mat(fullImage, new Rect(x, y, w, h));
-                        emotion = detectEmotion(faceRoi);
-                        livenessScore = calculateLiveness(faceRoi);
-                        isLive = livenessScore > LIVENESS_THRESHOLD;
-                        faceRoi.release();
+                        try (FaceAnalysis analysis = FaceAnalysis.of(faceRoi)) {
+                            emotion = detectEmotion(analysis);
+                            livenessScore = calculateLiveness(analysis);
+                            isLive = livenessScore > LIVENESS_THRESHOLD;
+                        } finally {
+                            faceRoi.release();
+                        }
                     }
                 } catch (Exception e) {
                     log.warn("Local analysis fallback failed for Azure face: {}", e.getMessage());
@@ -1292,6 +927,12 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
     @Override
     @Transactional(readOnly = true)
     public FaceVerificationResponse verifyFaceStream(FaceVerificationRequest request) throws IOException {
+        try (NativeMemoryTracker.Scope scope = nativeMemoryTracker.open("verify-stream")) {
+            return verifyStreamFrame(request);
+        }
+    }
+
+    private FaceVerificationResponse verifyStreamFrame(FaceVerificationRequest request) throws IOException {
         // Single-flight lock
         if (activeRequests.incrementAndGet() > MAX_CONCURRENT_REQUESTS) {
             activeRequests.decrementAndGet();
@@ -1299,7 +940,8 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
         }
 
         Mat image = null;
-        File tempFile = null;
+        FrameBuffer frame = null;
+        MultiResolutionFrame resolutions = null;
 
         try {
             // Multi-frame buffering logic to enable motion detection
@@ -1308,12 +950,12 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
                 correlationId = "anonymous-stream-" + Thread.currentThread().getName();
             }
 
-            byte[] imageBytes = request.getImage().getBytes();
+            frame = frameBufferPool.read(request.getImage());
 
-            // Add to thread-safe buffer
-            List<byte[]> buffer = streamFrameBuffers.computeIfAbsent(correlationId,
+            // Add to thread-safe buffer; the buffer holds its own reference to the frame
+            List<FrameBuffer> buffer = streamFrameBuffers.computeIfAbsent(correlationId,
                     k -> new java.util.concurrent.CopyOnWriteArrayList<>());
-            buffer.add(imageBytes);
+            buffer.add(frame.retain());
 
             // If we have enough frames, trigger multi-frame analysis (motion detection)
             if (buffer.size() >= STREAM_BUFFER_SIZE) {
@@ -1324,119 +966,48 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
                 // Critical: Remove buffer before processing to avoid re-entry issues
                 streamFrameBuffers.remove(correlationId);
 
-                return multiFrameVerificationService.verifyWithMultipleFrames(frames, request, this);
+                try {
+                    return multiFrameVerificationService.verifyWithMultipleFrames(frames, request, this);
+                } finally {
+                    buffer.forEach(FrameBuffer::close);
+                }
             }
 
             // Optimized stream mode - skip logging for performance
 
-            // Create temp file
-            String originalName = request.getImage().getOriginalFilename();
-            String extension = ".jpg";
-            if (originalName != null && originalName.contains(".")) {
-                extension = originalName.substring(originalName.lastIndexOf("."));
-            }
-            tempFile = Files.createTempFile("stream_" + UUID.randomUUID() + "_", extension).toFile();
-
-            try (var is = new java.io.ByteArrayInputStream(imageBytes)) {
-                Files.copy(is, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            image = opencv_imgcodecs.imread(tempFile.getAbsolutePath(), IMREAD_COLOR);
-            if (image == null || image.empty()) {
-                return FaceVerificationResponse.failure("Could not load image for streaming verification");
-            }
-
-            int width = image.cols();
-            int height = image.rows();
-
-            if (request.getProvider() == FaceProvider.AWS && awsFaceService.isAvailable()) {
-                return verifyFaceAws(request, imageBytes, image, width, height);
-            } else if (request.getProvider() == FaceProvider.AZURE && azureFaceService.isAvailable()) {
-                return verifyFaceAzure(request, imageBytes, image);
+            boolean awsPath = request.getProvider() == FaceProvider.AWS && awsFaceService.isAvailable();
+            boolean azurePath = request.getProvider() == FaceProvider.AZURE && azureFaceService.isAvailable();
+            if (awsPath || azurePath) {
+                // Cloud providers analyse the full-resolution frame
+                image = ImageDecoder.decode(frame);
+                if (image == null || image.empty()) {
+                    return FaceVerificationResponse.failure("Could not load image for streaming verification");
+                }
+                return awsPath
+                        ? verifyFaceAws(request, image, image.cols(), image.rows())
+                        : verifyFaceAzure(request, frame, image);
             }
 
             // Fast local processing for stream mode
-            if (faceDetector == null && !initializationFailed) {
-                initializeFaceDetector();
-            }
-
-            if (faceDetector == null) {
+            if (!faceModelRegistry.isReady()) {
                 return FaceVerificationResponse.failure("Face detection service is currently unavailable.");
             }
 
-            // Use optimized detection
-            List<Rect> faceRects = detectFacesOptimized(image);
-            if (faceRects.isEmpty()) {
-                return FaceVerificationResponse.failure("No faces detected");
+            // Detect on a reduced decode; full resolution is decoded only for faces too small to crop from it
+            resolutions = MultiResolutionFrame.of(frame, DETECTION_MIN_SIDE);
+            Mat detectionImage = resolutions.detectionImage();
+            if (detectionImage == null || detectionImage.empty()) {
+                return FaceVerificationResponse.failure("Could not load image for streaming verification");
             }
 
-            // Identity Trust Model: Evaluate all faces in the frame individually
-            List<FaceDetectionResult> detections = new ArrayList<>();
-            List<FaceUser> allUsers = faceUserRepository.findAll();
-
-            for (Rect rect : faceRects) {
-                Mat faceRoi = null;
-                Mat resizedFace = null;
-                try {
-                    faceRoi = new Mat(image, rect);
-                    resizedFace = new Mat();
-                    opencv_imgproc.resize(faceRoi, resizedFace, new Size(160, 160));
-
-                    float[] features = extractFeatureVector(resizedFace);
-                    String embedding = featuresToString(features);
-
-                    // 1. Local Liveness & Spoof Check
-                    double livenessScore = calculateLiveness(resizedFace);
-                    boolean isLive = livenessScore > LIVENESS_THRESHOLD;
-                    boolean isSpoofed = livenessScore < 20.0;
-                    String emotion = detectEmotion(resizedFace);
-
-                    // 2. Identity Search
-                    double maxSimilarity = -1;
-                    FaceUser matchedUser = null;
-
-                    for (FaceUser user : allUsers) {
-                        double similarity = compareFaceEmbeddings(embedding, user.getFaceEmbedding());
-                        if (similarity > maxSimilarity) {
-                            maxSimilarity = similarity;
-                            matchedUser = user;
-                        }
-                    }
-
-                    // 3. Per-Face Authorization
-                    // authorized only if live, matching, and not spoofed
-                    boolean authorized = isLive && !isSpoofed && maxSimilarity >= FACE_MATCH_THRESHOLD;
-
-                    String analysisMsg = null;
-                    if (isSpoofed)
-                        analysisMsg = "🚨 SPOOF DETECTED";
-                    else if (!isLive)
-                        analysisMsg = "❌ NOT LIVE";
-                    else if (!authorized && matchedUser == null)
-                        analysisMsg = "👤 UNKNOWN";
-
-                    detections.add(FaceDetectionResult.builder()
-                            .x(rect.x())
-                            .y(rect.y())
-                            .width(rect.width())
-                            .height(rect.height())
-                            .authorized(authorized)
-                            .user(matchedUser)
-                            .confidence(maxSimilarity)
-                            .isLive(isLive && !isSpoofed)
-                            .livenessScore(livenessScore)
-                            .isSpoofed(isSpoofed)
-                            .emotion(emotion)
-                            .age("N/A")
-                            .analysisMessage(analysisMsg)
-                            .build());
-
-                } finally {
-                    if (faceRoi != null)
-                        faceRoi.release();
-                    if (resizedFace != null)
-                        resizedFace.release();
-                }
+            // Tracked streams detect only every few frames and re-identify only new or stale tracks
+            Optional<FaceTracker<FaceTrackingService.Identity>> tracker =
+                    faceTrackingService.session(authenticatedPrincipal(), request.getCorrelationId());
+            List<FaceDetectionResult> detections = tracker.isPresent()
+                    ? trackedStreamDetections(tracker.get(), resolutions)
+                    : streamDetections(resolutions);
+            if (detections.isEmpty()) {
+                return FaceVerificationResponse.failure("No faces detected");
             }
 
             // Sort results: Authorized first, then Spoofed, then others
@@ -1457,9 +1028,254 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
             activeRequests.decrementAndGet();
             if (image != null)
                 image.release();
-            if (tempFile != null && tempFile.exists()) {
-                tempFile.delete();
+            if (resolutions != null)
+                resolutions.close();
+            if (frame != null)
+                frame.close();
+        }
+    }
+
+    /**
+     * Detect and identify every face of a stream frame
+     */
+    private List<FaceDetectionResult> streamDetections(MultiResolutionFrame resolutions) {
+        List<DetectedFace> faces = detectFacesOptimized(resolutions.detectionImage(), resolutions.fullWidth(),
+                resolutions.fullHeight());
+        List<FaceTrackingService.Identity> identities = identifyStreamFaces(resolutions, faces);
+        List<FaceDetectionResult> detections = new ArrayList<>(faces.size());
+        for (int i = 0; i < faces.size(); i++) {
+            DetectedFace face = faces.get(i);
+            detections.add(streamResult(face.x(), face.y(), face.width(), face.height(), identities.get(i), null));
+        }
+        return detections;
+    }
+
+    /**
+     * Follow the stream's faces into this frame, detecting only when the
+     * tracker asks for it, and identify only tracks that are new or whose
+     * identity has gone stale; the others report the state they carry
+     */
+    private List<FaceDetectionResult> trackedStreamDetections(FaceTracker<FaceTrackingService.Identity> tracker,
+                                                              MultiResolutionFrame resolutions) {
+        Mat detectionImage = resolutions.detectionImage();
+        int scale = resolutions.scale();
+        synchronized (tracker) {
+            boolean detected = tracker.nextFrame(scale) || !tracker.follow(detectionImage, scale);
+            if (detected) {
+                List<DetectedFace> faces = detectFacesOptimized(detectionImage, resolutions.fullWidth(),
+                        resolutions.fullHeight());
+                tracker.update(faces, detectionImage, scale);
+            }
+
+            // Identify only from detected boxes and landmarks; a track that went stale while being
+            // followed makes the tracker detect on the next frame
+            List<FaceTracker.Track<FaceTrackingService.Identity>> visible = tracker.visibleTracks();
+            List<FaceTracker.Track<FaceTrackingService.Identity>> pending = !detected ? List.of() : visible.stream()
+                    .filter(FaceTracker.Track::needsIdentification)
+                    .toList();
+            if (!pending.isEmpty()) {
+                List<FaceTrackingService.Identity> identities = identifyStreamFaces(resolutions,
+                        pending.stream().map(FaceTracker.Track::toDetectedFace).toList());
+                for (int i = 0; i < pending.size(); i++) {
+                    pending.get(i).identified(identities.get(i));
+                }
             }
+
+            List<FaceDetectionResult> detections = new ArrayList<>(visible.size());
+            for (FaceTracker.Track<FaceTrackingService.Identity> track : visible) {
+                detections.add(streamResult(track.getX(), track.getY(), track.getWidth(), track.getHeight(),
+                        track.getState(), track.getId()));
+            }
+            return detections;
+        }
+    }
+
+    /**
+     * Name of the authenticated caller, or null for anonymous requests
+     */
+    private static String authenticatedPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Liveness, emotion and best gallery match for each face; every face of
+     * the frame is embedded in one batch and searched in one gallery pass
+     */
+    private List<FaceTrackingService.Identity> identifyStreamFaces(MultiResolutionFrame resolutions,
+                                                                   List<DetectedFace> faces) {
+        List<float[]> featureList;
+        double[] livenessScores = new double[faces.size()];
+        String[] emotions = new String[faces.size()];
+
+        // Crops stay open until every face of the frame is embedded in one batch
+        List<Mat> faceRois = new ArrayList<>(faces.size());
+        List<FaceAnalysis> analyses = new ArrayList<>(faces.size());
+        try {
+            for (int i = 0; i < faces.size(); i++) {
+                Mat faceRoi = resolutions.crop(faces.get(i).toRect(), FACE_CROP_SIZE);
+                faceRois.add(faceRoi);
+                // Gray and equalized views are shared by all three analysers
+                FaceAnalysis analysis = FaceAnalysis.resized(faceRoi, FACE_CROP,
+                        faces.get(i).landmarksIn(faceRoi.cols(), faceRoi.rows()));
+                analyses.add(analysis);
+
+                // 1. Local Liveness & Spoof Check
+                livenessScores[i] = calculateLiveness(analysis);
+                emotions[i] = detectEmotion(analysis);
+            }
+            featureList = extractFeatureVectors(analyses);
+        } finally {
+            analyses.forEach(FaceAnalysis::close);
+            faceRois.forEach(Mat::release);
+        }
+
+        // 2. Identity Search against the resident gallery: all faces in one pass
+        List<Optional<FaceGalleryService.Match>> bestMatches = faceGalleryService.findBestMatches(featureList);
+
+        List<FaceTrackingService.Identity> identities = new ArrayList<>(faces.size());
+        for (int i = 0; i < faces.size(); i++) {
+            Optional<FaceGalleryService.Match> bestMatch = bestMatches.get(i);
+            identities.add(new FaceTrackingService.Identity(
+                    bestMatch.map(FaceGalleryService.Match::user).orElse(null),
+                    bestMatch.map(FaceGalleryService.Match::similarity).orElse(-1.0),
+                    livenessScores[i],
+                    emotions[i]));
+        }
+        return identities;
+    }
+
+    /**
+     * Stream payload for one face
+     *
+     * @param trackId the face's track in the stream, or null without tracking
+     */
+    private FaceDetectionResult streamResult(int x, int y, int width, int height,
+                                             FaceTrackingService.Identity identity, Integer trackId) {
+        double livenessScore = identity.livenessScore();
+        boolean isLive = livenessScore > LIVENESS_THRESHOLD;
+        boolean isSpoofed = livenessScore < 20.0;
+        double maxSimilarity = identity.similarity();
+        FaceUser matchedUser = identity.user();
+
+        // 3. Per-Face Authorization
+        // authorized only if live, matching, and not spoofed
+        boolean authorized = isLive && !isSpoofed && maxSimilarity >= localMatchThreshold();
+
+        String analysisMsg = null;
+        if (isSpoofed)
+            analysisMsg = "🚨 SPOOF DETECTED";
+        else if (!isLive)
+            analysisMsg = "❌ NOT LIVE";
+        else if (!authorized && matchedUser == null)
+            analysisMsg = "👤 UNKNOWN";
+
+        return FaceDetectionResult.builder()
+                .x(x)
+                .y(y)
+                .width(width)
+                .height(height)
+                .authorized(authorized)
+                .user(matchedUser)
+                .confidence(maxSimilarity)
+                .isLive(isLive && !isSpoofed)
+                .livenessScore(livenessScore)
+                .isSpoofed(isSpoofed)
+                .emotion(identity.emotion())
+                .age("N/A")
+                .analysisMessage(analysisMsg)
+                .trackId(trackId)
+                .build();
+    }
+
+    @Override
+    public FaceIdentificationResponse identifyFaces(List<MultipartFile> images, int topK) throws IOException {
+        try (NativeMemoryTracker.Scope scope = nativeMemoryTracker.open("identify")) {
+            return identify(images, topK);
+        }
+    }
+
+    private FaceIdentificationResponse identify(List<MultipartFile> images, int topK) throws IOException {
+        if (activeRequests.incrementAndGet() > MAX_CONCURRENT_REQUESTS) {
+            activeRequests.decrementAndGet();
+            return FaceIdentificationResponse.failure("Verification in progress");
+        }
+
+        try {
+            if (!faceModelRegistry.isReady()) {
+                return FaceIdentificationResponse.failure("Face detection service is currently unavailable.");
+            }
+
+            // 1. Detect and embed every face of every image, then search the gallery once
+            List<IdentifiedFace> faces = new ArrayList<>();
+            List<float[]> probes = new ArrayList<>();
+            List<String> imageErrors = new ArrayList<>();
+
+            for (int index = 0; index < images.size(); index++) {
+                MultipartFile file = images.get(index);
+                // Detect on a reduced decode; full resolution only for faces too small to crop from it
+                try (FrameBuffer frame = frameBufferPool.read(file);
+                     MultiResolutionFrame resolutions = MultiResolutionFrame.of(frame, DETECTION_MIN_SIDE)) {
+                    Mat detectionImage = resolutions.detectionImage();
+                    if (detectionImage == null || detectionImage.empty()) {
+                        imageErrors.add(index + ": could not decode image");
+                        continue;
+                    }
+                    List<DetectedFace> detected = detectFacesOptimized(detectionImage, resolutions.fullWidth(),
+                            resolutions.fullHeight());
+                    // All faces of the image are embedded in one batch
+                    List<Mat> faceRois = new ArrayList<>(detected.size());
+                    List<FaceAnalysis> analyses = new ArrayList<>(detected.size());
+                    try {
+                        for (DetectedFace face : detected) {
+                            Mat faceRoi = resolutions.crop(face.toRect(), FACE_CROP_SIZE);
+                            faceRois.add(faceRoi);
+                            analyses.add(FaceAnalysis.resized(faceRoi, FACE_CROP,
+                                    face.landmarksIn(faceRoi.cols(), faceRoi.rows())));
+                        }
+                        probes.addAll(extractFeatureVectors(analyses));
+                    } finally {
+                        analyses.forEach(FaceAnalysis::close);
+                        faceRois.forEach(Mat::release);
+                    }
+                    for (DetectedFace face : detected) {
+                        faces.add(IdentifiedFace.builder()
+                                .imageIndex(index)
+                                .imageName(file.getOriginalFilename())
+                                .x(face.x())
+                                .y(face.y())
+                                .width(face.width())
+                                .height(face.height())
+                                .build());
+                    }
+                } catch (Exception e) {
+                    log.warn("Identification failed for image {}: {}", index, e.getMessage());
+                    imageErrors.add(index + ": " + e.getMessage());
+                }
+            }
+
+            // 2. Ranked candidates per face from bounded heaps in the gallery
+            List<List<FaceGalleryService.Match>> candidates = faceGalleryService.findTopMatches(probes, topK);
+            for (int i = 0; i < faces.size(); i++) {
+                List<FaceCandidate> ranked = new ArrayList<>();
+                for (FaceGalleryService.Match match : candidates.get(i)) {
+                    ranked.add(FaceCandidate.builder()
+                            .rank(ranked.size() + 1)
+                            .user(match.user())
+                            .similarity(match.similarity())
+                            .aboveThreshold(match.similarity() >= localMatchThreshold())
+                            .build());
+                }
+                faces.get(i).setCandidates(ranked);
+            }
+
+            return FaceIdentificationResponse.success(topK, faces, imageErrors);
+        } finally {
+            activeRequests.decrementAndGet();
         }
     }
 
@@ -1467,16 +1283,35 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
     public Map<String, Object> getSystemStatus() {
         Map<String, Object> status = new HashMap<>();
 
-        status.put("modelLoaded", modelLoaded);
-        status.put("initializationFailed", initializationFailed);
+        status.put("modelLoaded", faceModelRegistry.isReady());
+        status.put("modelState", faceModelRegistry.getState());
         status.put("awsAvailable", awsFaceService.isAvailable());
         status.put("azureAvailable", azureFaceService.isAvailable());
         status.put("totalRegisteredUsers", faceUserRepository.count());
+        status.put("galleryUsers", faceGalleryService.getUserCount());
+        status.put("galleryExemplars", faceGalleryService.getExemplarCount());
+        status.put("similarityKernel", faceGalleryService.getKernelName());
+        status.put("gallerySearchMode", faceGalleryService.getSearchMode());
+        status.put("galleryEfSearch", faceGalleryService.getIndexEfSearch());
+        status.put("gallerySearchParallelism", faceGalleryService.getSearchParallelism());
+        status.put("galleryQuantization", faceGalleryService.getQuantizationReport());
+        status.put("frameBuffersInUse", frameBufferPool.getInUse());
+        status.put("frameBufferPoolBytes", frameBufferPool.getPooledBytes());
+        status.put("nativeMemoryBytes", org.bytedeco.javacpp.Pointer.totalBytes());
+        status.put("detectorBackend", faceModelRegistry.getBackend());
+        status.put("detectorPoolSize", faceModelRegistry.getDetectorCount());
+        status.put("detectorsInUse", faceModelRegistry.isReady() ? faceModelRegistry.detector().inUse() : 0);
         status.put("faceMatchThreshold", FACE_MATCH_THRESHOLD);
+        status.put("embedderBackend", faceModelRegistry.getEmbedderBackend());
+        status.put("embeddingModel", faceModelRegistry.getEmbeddingModel());
+        status.put("localMatchThreshold", faceModelRegistry.isReady() ? localMatchThreshold() : null);
         status.put("livenessThreshold", LIVENESS_THRESHOLD);
-        status.put("detectionConfidence", FACE_DETECTION_CONFIDENCE);
+        status.put("trackingSessions", faceTrackingService.getSessionCount());
+        status.put("trackedFaces", faceTrackingService.getTrackCount());
+        status.put("detectionConfidence",
+                faceModelRegistry.isReady() ? faceModelRegistry.detector().confidenceThreshold() : null);
         status.put("maxFacesToProcess", MAX_FACES_TO_PROCESS);
-        status.put("faceSizeThreshold", FACE_SIZE_THRESHOLD);
+        status.put("faceSizeThreshold", minFaceSize);
 
         return status;
     }
@@ -1485,48 +1320,39 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
      * Preprocess face image - detect face, validate brightness and liveness
      * This method performs NO database operations
      */
-    private PreprocessedFaceData preprocess(FaceRegistrationRequest request) throws IOException {
+    private PreprocessedFaceData preprocess(FaceRegistrationRequest request, FrameBuffer frame) {
         log.debug("Starting face preprocessing for email: {}", request.getEmail());
 
         Mat image = null;
         Mat faceRoi = null;
-        Mat resizedFace = null;
-        File tempFile = null;
+        FaceAnalysis analysis = null;
 
         try {
-            byte[] imageBytes = request.getImage().getBytes();
-            tempFile = Files.createTempFile("preprocess_" + UUID.randomUUID() + "_", ".jpg").toFile();
-            Files.write(tempFile.toPath(), imageBytes);
-
-            image = opencv_imgcodecs.imread(tempFile.getAbsolutePath(), IMREAD_COLOR);
+            image = ImageDecoder.decode(frame);
             if (image == null || image.empty()) {
                 throw new IllegalArgumentException("Invalid image file");
             }
 
-            if (faceDetector == null && !initializationFailed) {
-                initializeFaceDetector();
-            }
-            if (initializationFailed) {
+            if (!faceModelRegistry.isReady()) {
                 throw new RuntimeException("Face detection service is not available");
             }
 
-            List<Rect> faceRects = detectFaces(image);
-            if (faceRects.isEmpty()) {
+            List<DetectedFace> faces = detectFaces(image);
+            if (faces.isEmpty()) {
                 throw new IllegalArgumentException("No faces detected in the image");
             }
-            if (faceRects.size() > 1) {
+            if (faces.size() > 1) {
                 throw new IllegalArgumentException(
                         "Multiple faces detected. Please provide an image with exactly one face.");
             }
 
-            Rect faceRect = faceRects.get(0);
-            faceRoi = new Mat(image, faceRect);
+            DetectedFace face = faces.get(0);
+            faceRoi = new Mat(image, face.toRect());
+            // Brightness, liveness and features all work on the standard crop and share its gray image
+            analysis = FaceAnalysis.resized(faceRoi, FACE_CROP, face.landmarksIn(faceRoi.cols(), faceRoi.rows()));
 
             // Validation: Brightness
-            Mat gray = new Mat();
-            opencv_imgproc.cvtColor(faceRoi, gray, opencv_imgproc.COLOR_BGR2GRAY);
-            double brightness = opencv_core.mean(gray).get(0);
-            gray.release();
+            double brightness = analysis.grayMean();
 
             if (brightness < 40) {
                 throw new IllegalArgumentException(
@@ -1534,71 +1360,73 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
             }
 
             // Validation: Liveness (Hard Gate at Registration)
-            resizedFace = new Mat();
-            opencv_imgproc.resize(faceRoi, resizedFace, new Size(160, 160));
-            double livenessScore = calculateLiveness(resizedFace);
+            double livenessScore = calculateLiveness(analysis);
             if (livenessScore < 40.0) { // Registration requires decent liveness
                 throw new IllegalArgumentException(
                         "Registration denied: Quality/Liveness too low. Avoid using screens.");
             }
 
             // Extraction: Features
-            float[] features = extractFeatureVector(resizedFace);
-            String faceEmbedding = featuresToString(features);
+            float[] faceEmbedding = extractFeatureVector(analysis);
 
             // Response: Encode original image
             String imageData = "data:" + request.getImage().getContentType() + ";base64,"
-                    + java.util.Base64.getEncoder().encodeToString(imageBytes);
+                    + new String(java.util.Base64.getEncoder().encode(frame.asByteBuffer()).array(),
+                            java.nio.charset.StandardCharsets.US_ASCII);
 
             return new PreprocessedFaceData(imageData, faceEmbedding);
 
         } finally {
             if (image != null)
                 image.release();
+            if (analysis != null)
+                analysis.close();
             if (faceRoi != null)
                 faceRoi.release();
-            if (resizedFace != null)
-                resizedFace.release();
-            if (tempFile != null && tempFile.exists())
-                tempFile.delete();
         }
     }
 
     /**
-     * Check for duplicate faces using efficient projection query
-     * This method performs READ-ONLY database operations
+     * Check for duplicate faces against the resident gallery (no DB access).
+     * The probe is reserved first so that a concurrent registration of the same
+     * face is rejected even before either one has committed.
+     *
+     * @return the reservation, to be closed once the embedding is saved
      */
-    private void checkDuplicate(String embedding) {
+    private FaceGalleryService.InFlightProbe checkDuplicate(float[] embedding) {
         log.debug("Starting duplicate check for face embedding");
 
-        List<FaceEmbeddingView> existingEmbeddings = faceUserRepository.findAllEmbeddings();
+        FaceGalleryService.InFlightProbe reservation = faceGalleryService
+                .reserveProbe(embedding, localMatchThreshold())
+                .orElseThrow(() -> {
+                    log.warn("Duplicate face detected during registration (Concurrent Registration)");
+                    return new CustomException("This face is already being registered by another request.");
+                });
 
-        for (FaceEmbeddingView view : existingEmbeddings) {
-            if (compareFaceEmbeddings(embedding, view.getFaceEmbedding()) >= FACE_MATCH_THRESHOLD) {
-                log.warn("Duplicate face detected during registration (Local Check)");
-                throw new CustomException("This face is already registered in the system (Local Match).");
-            }
+        if (faceGalleryService.findFirstMatchAtLeast(embedding, localMatchThreshold()).isPresent()) {
+            reservation.close();
+            log.warn("Duplicate face detected during registration (Local Check)");
+            throw new CustomException("This face is already registered in the system (Local Match).");
         }
 
         log.debug("No duplicate faces found locally");
+        return reservation;
     }
 
     /**
      * Check for duplicate faces using AWS Rekognition (Deep Fix)
      */
-    private void checkAwsDuplicate(MultipartFile image) {
+    private void checkAwsDuplicate(FrameBuffer frame) {
         if (awsFaceService.isAvailable()) {
             try {
                 software.amazon.awssdk.services.rekognition.model.SearchFacesByImageResponse response = awsFaceService
-                        .searchFace(image.getBytes());
+                        .searchFace(frame);
 
                 if (response != null && !response.faceMatches().isEmpty()) {
                     float similarity = response.faceMatches().get(0).similarity();
                     log.warn("Duplicate face detected in AWS with similarity: {}", similarity);
                     throw new CustomException("This face is already authorized in the system (Cloud Match).");
                 }
-            } catch (IOException e) {
-                log.error("Error reading image for AWS check", e);
             } catch (Exception e) {
                 if (e instanceof CustomException)
                     throw e;
@@ -1607,56 +1435,15 @@ public class FaceRecognitionServiceImpl implements FaceRecognitionService {
         }
     }
 
-    private List<MultipartFile> convertToMultipartFiles(List<byte[]> buffers, String originalName, String contentType) {
+    private List<MultipartFile> convertToMultipartFiles(List<FrameBuffer> buffers, String originalName,
+            String contentType) {
         List<MultipartFile> files = new ArrayList<>();
         // Ensure non-null values for null-safety
         final String safeOriginalName = (originalName != null) ? originalName : "frame.jpg";
         final String safeContentType = (contentType != null) ? contentType : "image/jpeg";
 
         for (int i = 0; i < buffers.size(); i++) {
-            final byte[] content = buffers.get(i);
-            final String name = "frame_" + i;
-            files.add(new MultipartFile() {
-                @Override
-                public String getName() {
-                    return name;
-                }
-
-                @Override
-                public String getOriginalFilename() {
-                    return safeOriginalName;
-                }
-
-                @Override
-                public String getContentType() {
-                    return safeContentType;
-                }
-
-                @Override
-                public boolean isEmpty() {
-                    return content.length == 0;
-                }
-
-                @Override
-                public long getSize() {
-                    return content.length;
-                }
-
-                @Override
-                public byte[] getBytes() throws IOException {
-                    return content;
-                }
-
-                @Override
-                public java.io.InputStream getInputStream() throws IOException {
-                    return new java.io.ByteArrayInputStream(content);
-                }
-
-                @Override
-                public void transferTo(File dest) throws IOException, IllegalStateException {
-                    Files.write(dest.toPath(), content);
-                }
-            });
+            files.add(new FrameMultipartFile(buffers.get(i), "frame_" + i, safeOriginalName, safeContentType));
         }
         return files;
     }
@@ -1,15 +1,15 @@
 package com.qualtech_ai.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.qualtech_ai.dto.FaceRegistrationRequest;
 import com.qualtech_ai.entity.FaceUser;
 import com.qualtech_ai.repository.FaceUserRepository;
+import com.qualtech_ai.service.FaceGalleryService;
+import com.qualtech_ai.util.FaceEmbeddingCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -19,6 +19,7 @@ import java.util.Objects;
 public class FaceUserTxService {
 
     private final FaceUserRepository faceUserRepository;
+    private final FaceGalleryService faceGalleryService;
 
     @Transactional
     public FaceUser createUser(FaceRegistrationRequest request, String imageBase64) {
@@ -35,25 +36,33 @@ public class FaceUserTxService {
     }
 
     @Transactional
-    public void saveEmbedding(String userId, String embedding) {
+    public void saveEmbedding(String userId, float[] embedding) {
+        saveEmbedding(userId, embedding, faceGalleryService.getEmbeddingModel());
+    }
+
+    /**
+     * Save an embedding produced by the given model; only the gallery's
+     * current model is accepted, so a user's exemplars never mix models
+     */
+    @Transactional
+    public void saveEmbedding(String userId, float[] embedding, int embeddingModel) {
         Objects.requireNonNull(userId, "userId cannot be null");
+        if (embeddingModel != faceGalleryService.getEmbeddingModel()) {
+            throw new IllegalArgumentException("Embedding model " + embeddingModel
+                    + " does not match the gallery's model " + faceGalleryService.getEmbeddingModel());
+        }
         log.debug("Saving face embedding for user: {}", userId);
 
         FaceUser user = faceUserRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
 
-        // Store embedding as JSON list for future multiple embeddings support
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            List<String> embeddingList = new ArrayList<>();
-            embeddingList.add(embedding);
-            user.setFaceEmbedding(objectMapper.writeValueAsString(embeddingList));
-        } catch (Exception e) {
-            log.error("Failed to serialize embeddings, falling back to simple string", e);
-            user.setFaceEmbedding(embedding);
-        }
+        // Binary exemplar list (multiple embeddings supported); legacy text column is retired
+        List<float[]> exemplars = List.of(embedding);
+        user.setFaceEmbeddingData(FaceEmbeddingCodec.encode(exemplars, embeddingModel));
+        user.setFaceEmbedding(null);
 
-        faceUserRepository.save(user);
+        FaceUser saved = faceUserRepository.save(user);
+        faceGalleryService.onEmbeddingsSaved(saved, exemplars);
     }
 
     @Transactional
@@ -67,7 +76,7 @@ public class FaceUserTxService {
         user.setAwsFaceId(awsFaceId);
         user.setExternalImageId(externalId);
 
-        faceUserRepository.save(user);
+        faceGalleryService.onUserUpdated(faceUserRepository.save(user));
     }
 
     @Transactional
@@ -81,7 +90,7 @@ public class FaceUserTxService {
         user.setImageUrl(imageUrl);
         user.setS3Key(s3Key);
 
-        faceUserRepository.save(user);
+        faceGalleryService.onUserUpdated(faceUserRepository.save(user));
     }
 
     @Transactional(readOnly = true)
@@ -1,6 +1,7 @@
 package com.qualtech_ai.service.impl;
 
 import com.qualtech_ai.service.S3Service;
+import com.qualtech_ai.util.FrameMultipartFile;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -29,18 +30,22 @@ public class S3ServiceImpl implements S3Service {
 
     @Override
     public String uploadFile(MultipartFile file, String key) throws IOException {
-        try (InputStream inputStream = file.getInputStream()) {
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .contentType(file.getContentType())
-                    .contentLength(file.getSize())
-                    .build();
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(file.getContentType())
+                .contentLength(file.getSize())
+                .build();
 
-            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(inputStream, file.getSize()));
-
-            return String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, region, key);
+        if (file instanceof FrameMultipartFile frameFile) {
+            // Already buffered by the caller; upload from that buffer instead of reading the upload again
+            s3Client.putObject(putObjectRequest, RequestBody.fromByteBuffer(frameFile.frame().asByteBuffer()));
+        } else {
+            try (InputStream inputStream = file.getInputStream()) {
+                s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(inputStream, file.getSize()));
+            }
         }
+        return String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, region, key);
     }
 
     @Override
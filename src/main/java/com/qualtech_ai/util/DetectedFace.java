@@ -0,0 +1,60 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.opencv_core.Rect;
+
+/**
+ * One face found by a {@link FaceDetector}, in frame pixel coordinates.
+ *
+ * @param confidence detector score, on the backend's own scale
+ * @param landmarks  right eye, left eye, nose tip, right and left mouth
+ *                   corner as x, y pairs (10 values), or null when the
+ *                   backend does not locate landmarks
+ */
+public record DetectedFace(int x, int y, int width, int height, float confidence, float[] landmarks) {
+
+    public int area() {
+        return width * height;
+    }
+
+    public Rect toRect() {
+        return new Rect(x, y, width, height);
+    }
+
+    /**
+     * Landmarks relative to a crop of this face's box that has been scaled to
+     * {@code cropWidth} x {@code cropHeight}, or null without landmarks
+     */
+    public float[] landmarksIn(int cropWidth, int cropHeight) {
+        if (landmarks == null) {
+            return null;
+        }
+        float scaleX = (float) cropWidth / width;
+        float scaleY = (float) cropHeight / height;
+        float[] relative = new float[landmarks.length];
+        for (int i = 0; i < landmarks.length; i += 2) {
+            relative[i] = (landmarks[i] - x) * scaleX;
+            relative[i + 1] = (landmarks[i + 1] - y) * scaleY;
+        }
+        return relative;
+    }
+
+    /**
+     * Intersection over union of the two boxes, 0 when they do not overlap
+     */
+    public double iou(DetectedFace other) {
+        return iou(x, y, width, height, other.x, other.y, other.width, other.height);
+    }
+
+    /**
+     * Intersection over union of two boxes given as x, y, width, height
+     */
+    public static double iou(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        int overlapW = Math.min(ax + aw, bx + bw) - Math.max(ax, bx);
+        int overlapH = Math.min(ay + ah, by + bh) - Math.max(ay, by);
+        if (overlapW <= 0 || overlapH <= 0) {
+            return 0.0;
+        }
+        double intersection = (double) overlapW * overlapH;
+        return intersection / ((double) aw * ah + (double) bw * bh - intersection);
+    }
+}
@@ -0,0 +1,177 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+/**
+ * Everything derived from one face crop, computed on first use and shared by
+ * the analysers (liveness, emotion, features, brightness), so each colour
+ * conversion happens at most once per face.
+ * <pre>
+ * try (FaceAnalysis analysis = FaceAnalysis.resized(faceRoi, FACE_CROP)) {
+ *     float[] features = analysis.features();
+ *     double liveness = LivenessScorer.score(analysis.liveness());
+ * }
+ * </pre>
+ * The derived Mats live in a pooled {@link MatWorkspace} and are only valid
+ * until the analysis is closed. The crop itself stays owned by the caller.
+ */
+public final class FaceAnalysis implements AutoCloseable {
+
+    /**
+     * Side of the standard face crop the analysers are tuned for
+     */
+    public static final int STANDARD_SIZE = 160;
+
+    private final Mat face;
+    private final Mat source;
+    private final float[] landmarks;
+    private final MatWorkspace workspace;
+    private boolean grayReady;
+    private boolean equalizedReady;
+    private boolean grayStatsReady;
+    private double grayMean;
+    private double grayStdDev;
+    private LivenessScorer.Measurements liveness;
+    private float[] features;
+
+    private FaceAnalysis(Mat face, Mat source, float[] landmarks, MatWorkspace workspace) {
+        this.face = face;
+        this.source = source;
+        this.landmarks = landmarks;
+        this.workspace = workspace;
+    }
+
+    /**
+     * Analyse a crop as it is
+     */
+    public static FaceAnalysis of(Mat face) {
+        MatWorkspace workspace = MatWorkspace.acquire();
+        return new FaceAnalysis(face, face, null, workspace);
+    }
+
+    /**
+     * Analyse a crop resized to the standard face size
+     */
+    public static FaceAnalysis resized(Mat crop, Size size) {
+        return resized(crop, size, null);
+    }
+
+    /**
+     * Analyse a crop resized to the standard face size, keeping the detector's
+     * landmarks for aligned embedding
+     *
+     * @param landmarks five x, y pairs in crop coordinates, or null
+     */
+    public static FaceAnalysis resized(Mat crop, Size size, float[] landmarks) {
+        MatWorkspace workspace = MatWorkspace.acquire();
+        try {
+            Mat face = workspace.mat(MatWorkspace.Slot.FACE);
+            opencv_imgproc.resize(crop, face, size);
+            return new FaceAnalysis(face, crop, landmarks, workspace);
+        } catch (RuntimeException e) {
+            workspace.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The BGR face being analysed
+     */
+    public Mat face() {
+        return face;
+    }
+
+    /**
+     * The crop as given, before resizing
+     */
+    public Mat source() {
+        return source;
+    }
+
+    /**
+     * Landmarks in {@link #source()} coordinates, or null
+     */
+    public float[] landmarks() {
+        return landmarks;
+    }
+
+    /**
+     * Scratch space for analysers that need more than the cached views
+     */
+    public MatWorkspace workspace() {
+        return workspace;
+    }
+
+    public Mat gray() {
+        Mat gray = workspace.mat(MatWorkspace.Slot.GRAY);
+        if (!grayReady) {
+            opencv_imgproc.cvtColor(face, gray, opencv_imgproc.COLOR_BGR2GRAY);
+            grayReady = true;
+        }
+        return gray;
+    }
+
+    /**
+     * Histogram-equalized gray face
+     */
+    public Mat equalized() {
+        Mat equalized = workspace.mat(MatWorkspace.Slot.EQUALIZED);
+        if (!equalizedReady) {
+            opencv_imgproc.equalizeHist(gray(), equalized);
+            equalizedReady = true;
+        }
+        return equalized;
+    }
+
+    /**
+     * Mean gray intensity (brightness)
+     */
+    public double grayMean() {
+        computeGrayStats();
+        return grayMean;
+    }
+
+    public double grayStdDev() {
+        computeGrayStats();
+        return grayStdDev;
+    }
+
+    /**
+     * Texture, glare and colour balance measurements for the liveness score
+     */
+    public LivenessScorer.Measurements liveness() {
+        if (liveness == null) {
+            liveness = LivenessScorer.measure(face, gray(), workspace);
+        }
+        return liveness;
+    }
+
+    /**
+     * Grid statistics descriptor; the array is shared, copy it before changing it
+     */
+    public float[] features() {
+        if (features == null) {
+            features = GridFeatureExtractor.fromEqualized(equalized(), workspace);
+        }
+        return features;
+    }
+
+    private void computeGrayStats() {
+        if (!grayStatsReady) {
+            Mat mean = workspace.mat(MatWorkspace.Slot.MEAN);
+            Mat stddev = workspace.mat(MatWorkspace.Slot.STDDEV);
+            opencv_core.meanStdDev(gray(), mean, stddev);
+            grayMean = mean.createIndexer().getDouble(0);
+            grayStdDev = stddev.createIndexer().getDouble(0);
+            grayStatsReady = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        workspace.close();
+    }
+}
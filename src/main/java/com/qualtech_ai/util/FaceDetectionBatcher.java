@@ -0,0 +1,270 @@
+package com.qualtech_ai.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.indexer.Indexer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_dnn;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.opencv_dnn.Net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the pooled networks of {@link SsdFaceDetector}, optionally batching
+ * frames from concurrent requests into one forward pass.
+ * <p>
+ * With batching enabled, the first frame to arrive opens a batch and its
+ * thread waits up to {@code window-micros} (or until {@code max-batch}
+ * frames have joined), then builds one {@code blobFromImages} blob, runs a
+ * single {@code forward} on a pooled network and hands every waiting request
+ * its own detections. Requests block until their batch has run, so the
+ * frames they pass in stay valid throughout. With batching disabled each
+ * frame is a batch of one and nothing waits.
+ * <p>
+ * Batching trades up to one window of latency per frame for throughput and
+ * only pays off when many streams detect at once; batch sizes are published
+ * as {@code face.detector.batch.size}.
+ */
+@Slf4j
+public class FaceDetectionBatcher {
+
+    /**
+     * Values per detection: image index in the batch, class, confidence,
+     * then left, top, right, bottom relative to the frame size
+     */
+    public static final int DETECTION_FIELDS = 7;
+
+    /**
+     * Side of the square detector input
+     */
+    public static final int INPUT_SIZE = 300;
+
+    private static final Size INPUT = new Size(INPUT_SIZE, INPUT_SIZE);
+    private static final Scalar MEAN = new Scalar(104.0, 177.0, 123.0, 0.0);
+    private static final float[] NO_DETECTIONS = new float[0];
+
+    private final FaceDetectorPool<Net> pool;
+    private final boolean enabled;
+    private final long windowMicros;
+    private final int maxBatch;
+
+    private final Object lock = new Object();
+    private Batch open;
+    private final DistributionSummary batchSizes;
+    private final Timer windowTimer;
+
+    /**
+     * @param enabled      collect frames from concurrent requests; otherwise every frame is its own batch
+     * @param windowMicros how long the first frame of a batch waits for others
+     * @param maxBatch     frames that close a batch before the window ends
+     */
+    public FaceDetectionBatcher(FaceDetectorPool<Net> pool, MeterRegistry meterRegistry,
+                                boolean enabled, long windowMicros, int maxBatch) {
+        this.pool = pool;
+        this.enabled = enabled;
+        this.windowMicros = windowMicros;
+        this.maxBatch = maxBatch;
+        batchSizes = DistributionSummary.builder("face.detector.batch.size")
+                .description("Frames per detector forward pass")
+                .register(meterRegistry);
+        windowTimer = Timer.builder("face.detector.batch.window")
+                .description("Time a batch stayed open collecting frames")
+                .register(meterRegistry);
+        if (isBatching()) {
+            log.info("Face detector batching enabled (window {} us, up to {} frames)", windowMicros, maxBatch);
+        }
+    }
+
+    /**
+     * Detect faces in a BGR frame
+     *
+     * @return {@link #DETECTION_FIELDS} values per detection, unfiltered
+     */
+    public float[] detect(Mat image) {
+        if (!isBatching()) {
+            batchSizes.record(1);
+            return forward(List.of(image))[0];
+        }
+
+        Batch batch;
+        int index;
+        boolean leader = false;
+        synchronized (lock) {
+            if (open == null) {
+                open = new Batch();
+                leader = true;
+            }
+            batch = open;
+            index = batch.images.size();
+            batch.images.add(image);
+            if (batch.images.size() >= maxBatch) {
+                open = null;
+                batch.full.countDown();
+            }
+        }
+
+        if (leader) {
+            long start = System.nanoTime();
+            try {
+                batch.full.await(windowMicros, TimeUnit.MICROSECONDS);
+            } catch (InterruptedException e) {
+                // Run the batch anyway, the other requests are waiting on it
+                Thread.currentThread().interrupt();
+            }
+            synchronized (lock) {
+                if (open == batch) {
+                    open = null;
+                }
+            }
+            windowTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batch.run();
+        }
+        return batch.result(index);
+    }
+
+    /**
+     * Run one forward pass on a synthetic frame, so a freshly loaded network
+     * has allocated its layer buffers before the first real request
+     */
+    public static void warmUp(Net net) {
+        Mat frame = new Mat(INPUT_SIZE, INPUT_SIZE, opencv_core.CV_8UC3);
+        Mat blob = null;
+        Mat detections = null;
+        try {
+            opencv_core.randu(frame, new Mat(new Scalar(0, 0, 0, 0)), new Mat(new Scalar(255, 255, 255, 0)));
+            blob = opencv_dnn.blobFromImage(frame, 1.0, INPUT, MEAN, false, false, opencv_core.CV_32F);
+            net.setInput(blob);
+            detections = net.forward();
+        } finally {
+            if (detections != null)
+                detections.release();
+            if (blob != null)
+                blob.release();
+            frame.release();
+        }
+    }
+
+    public boolean isBatching() {
+        return enabled && maxBatch > 1;
+    }
+
+    /**
+     * One forward pass over the frames, detections split per frame
+     */
+    private float[][] forward(List<Mat> images) {
+        Mat blob = null;
+        Mat detections = null;
+        try {
+            if (images.size() == 1) {
+                blob = opencv_dnn.blobFromImage(images.get(0), 1.0, INPUT, MEAN, false, false, opencv_core.CV_32F);
+            } else {
+                try (MatVector batch = new MatVector(images.toArray(new Mat[0]))) {
+                    blob = opencv_dnn.blobFromImages(batch, 1.0, INPUT, MEAN, false, false, opencv_core.CV_32F);
+                }
+            }
+
+            try (FaceDetectorPool<Net>.Lease lease = pool.acquire()) {
+                lease.detector().setInput(blob);
+                detections = lease.detector().forward();
+            }
+            return scatter(detections, images.size());
+        } finally {
+            if (detections != null)
+                detections.release();
+            if (blob != null)
+                blob.release();
+        }
+    }
+
+    /**
+     * The 1 x 1 x N x 7 output holds the detections of the whole batch; the
+     * first field of each row says which frame it belongs to
+     */
+    private static float[][] scatter(Mat detections, int frames) {
+        int rows;
+        try (Indexer indexer = detections.createIndexer()) {
+            rows = (int) indexer.sizes()[2];
+        }
+        float[] all = new float[rows * DETECTION_FIELDS];
+        try (FloatPointer data = new FloatPointer(detections.data())) {
+            data.get(all);
+        }
+
+        int[] counts = new int[frames];
+        for (int r = 0; r < rows; r++) {
+            int frame = (int) all[r * DETECTION_FIELDS];
+            if (frame >= 0 && frame < frames) {
+                counts[frame]++;
+            }
+        }
+        float[][] perFrame = new float[frames][];
+        for (int f = 0; f < frames; f++) {
+            perFrame[f] = counts[f] == 0 ? NO_DETECTIONS : new float[counts[f] * DETECTION_FIELDS];
+            counts[f] = 0;
+        }
+        for (int r = 0; r < rows; r++) {
+            int frame = (int) all[r * DETECTION_FIELDS];
+            if (frame >= 0 && frame < frames) {
+                System.arraycopy(all, r * DETECTION_FIELDS, perFrame[frame], counts[frame]++ * DETECTION_FIELDS,
+                        DETECTION_FIELDS);
+            }
+        }
+        return perFrame;
+    }
+
+    /**
+     * Frames collected for one forward pass
+     */
+    private final class Batch {
+
+        private final List<Mat> images = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private float[][] results;
+        private RuntimeException failure;
+
+        void run() {
+            try {
+                batchSizes.record(images.size());
+                results = forward(images);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Wait for the batch to run. Waits through interrupts: the caller's
+         * frame must stay alive until the forward pass is over.
+         */
+        float[] result(int index) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Batched face detection failed: " + failure.getMessage(), failure);
+            }
+            return results[index];
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Local face detection backend. The active backend is chosen with
+ * {@code face.detector.backend} and loaded once at startup by
+ * {@code FaceModelRegistry}; implementations pool their native detectors so
+ * {@link #detect} can be called from any number of threads.
+ */
+public interface FaceDetector {
+
+    /**
+     * Backend name as used in {@code face.detector.backend}
+     */
+    String name();
+
+    /**
+     * Load the model and create the pooled detectors, in parallel on
+     * {@code loader}. Blocks until every detector is loaded and warmed up.
+     * May be called again after {@link #close()}, e.g. by the startup tuner.
+     *
+     * @param tuning pool size (0 = {@code face.detector.pool.size}) and DNN backend
+     */
+    void load(Executor loader, OpenCvTuning tuning) throws IOException;
+
+    /**
+     * Load with the configured pool size and OpenCV's default DNN backend
+     */
+    default void load(Executor loader) throws IOException {
+        load(loader, OpenCvTuning.UNTUNED);
+    }
+
+    /**
+     * Detect faces in a BGR image, which may be a reduced decode of the frame
+     *
+     * @return faces at or above the confidence threshold in frame coordinates
+     * ({@code frameWidth} x {@code frameHeight}), clipped to the frame, in no
+     * particular order
+     */
+    List<DetectedFace> detect(Mat image, int frameWidth, int frameHeight);
+
+    /**
+     * Minimum score for a detection to be returned
+     */
+    double confidenceThreshold();
+
+    /**
+     * Pooled detectors, 0 until loaded
+     */
+    int poolSize();
+
+    /**
+     * Pooled detectors currently checked out
+     */
+    int inUse();
+
+    /**
+     * Release the pooled detectors
+     */
+    void close();
+
+    /**
+     * Read a model file into native memory; the caller deallocates it once
+     * the detectors are created
+     */
+    static BytePointer readModel(ResourceLoader resourceLoader, String location) throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            throw new IOException("Model file not found: " + location);
+        }
+        byte[] bytes;
+        try (InputStream in = resource.getInputStream()) {
+            bytes = in.readAllBytes();
+        }
+        return new BytePointer(bytes);
+    }
+}
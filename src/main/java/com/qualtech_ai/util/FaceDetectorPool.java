@@ -0,0 +1,207 @@
+package com.qualtech_ai.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.Pointer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool of native face detectors ({@code Net}, {@code FaceDetectorYN}), one
+ * per core by default. Also pools the SFace embedding networks.
+ * <p>
+ * A detector keeps per-inference state between setting its input and
+ * reading its output, so one instance can only serve one request at a time.
+ * Requests check an instance out instead of serializing on a single one:
+ * <pre>
+ * try (FaceDetectorPool&lt;Net&gt;.Lease lease = pool.acquire()) {
+ *     lease.detector().setInput(blob);
+ *     detections = lease.detector().forward();
+ * }
+ * </pre>
+ * Wait time, instances in use and utilization are published under the
+ * pool's metric prefix ({@code face.detector.pool.*} for detectors,
+ * {@code face.embedder.pool.*} for embedders), tagged with the backend;
+ * closing the pool removes them, so a reloaded pool publishes its own.
+ */
+@Slf4j
+public final class FaceDetectorPool<T extends Pointer> implements AutoCloseable {
+
+    public static final String DETECTOR_METRICS = "face.detector.pool";
+    public static final String EMBEDDER_METRICS = "face.embedder.pool";
+
+    private final List<T> instances;
+    private final ArrayBlockingQueue<T> idle;
+    private final long maxWaitMs;
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final Timer waitTimer;
+    private final MeterRegistry meterRegistry;
+    private final List<Meter> meters = new ArrayList<>();
+    private volatile boolean closed;
+
+    private FaceDetectorPool(String metricPrefix, String backend, List<T> instances, long maxWaitMs,
+                             MeterRegistry meterRegistry) {
+        this.instances = instances;
+        this.idle = new ArrayBlockingQueue<>(instances.size(), false, instances);
+        this.maxWaitMs = maxWaitMs;
+        this.meterRegistry = meterRegistry;
+        waitTimer = Timer.builder(metricPrefix + ".wait")
+                .description("Time spent waiting for a free pooled network")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        meters.add(waitTimer);
+        meters.add(Gauge.builder(metricPrefix + ".size", this, FaceDetectorPool::getSize)
+                .description("Pooled networks loaded")
+                .tag("backend", backend)
+                .register(meterRegistry));
+        meters.add(Gauge.builder(metricPrefix + ".in-use", inUse, AtomicInteger::get)
+                .description("Pooled networks currently checked out")
+                .tag("backend", backend)
+                .register(meterRegistry));
+        meters.add(Gauge.builder(metricPrefix + ".utilization", this, FaceDetectorPool::getUtilization)
+                .description("Fraction of the pooled networks in use")
+                .tag("backend", backend)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Pool size for a configured value; 0 = one detector per available core
+     */
+    public static int sizeFor(int configuredSize) {
+        return configuredSize > 0 ? configuredSize : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Create {@code size} detectors in parallel on {@code loader} and pool
+     * them, publishing {@code face.detector.pool.*} metrics
+     *
+     * @see #load(String, String, int, Supplier, Executor, long, MeterRegistry)
+     */
+    public static <T extends Pointer> FaceDetectorPool<T> load(String backend, int size, Supplier<T> factory,
+                                                               Executor loader, long maxWaitMs,
+                                                               MeterRegistry meterRegistry) {
+        return load(DETECTOR_METRICS, backend, size, factory, loader, maxWaitMs, meterRegistry);
+    }
+
+    /**
+     * Create {@code size} instances in parallel on {@code loader} and pool
+     * them. Blocks until all are loaded; if any fails, the others are closed
+     * and the failure is rethrown.
+     *
+     * @param metricPrefix name prefix of the pool's metrics, e.g. {@link #EMBEDDER_METRICS}
+     * @param factory      loads one independent instance
+     */
+    public static <T extends Pointer> FaceDetectorPool<T> load(String metricPrefix, String backend, int size,
+                                                               Supplier<T> factory, Executor loader,
+                                                               long maxWaitMs, MeterRegistry meterRegistry) {
+        List<CompletableFuture<T>> loads = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            loads.add(CompletableFuture.supplyAsync(factory, loader));
+        }
+        try {
+            CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            loads.stream().filter(load -> !load.isCompletedExceptionally()).map(CompletableFuture::join)
+                    .forEach(Pointer::close);
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        List<T> instances = new ArrayList<>();
+        for (CompletableFuture<T> load : loads) {
+            // Lives as long as the pool, not the request or thread that happened to load it
+            instances.add(NativeMemoryTracker.untracked(load.join()));
+        }
+        log.info("Pool {} ready with {} {} networks", metricPrefix, size, backend);
+        return new FaceDetectorPool<>(metricPrefix, backend, instances, maxWaitMs, meterRegistry);
+    }
+
+    /**
+     * Check out a detector, waiting up to the configured time for one to be returned
+     *
+     * @throws IllegalStateException if the pool is closed, no detector became
+     *                               free in time, or the thread was interrupted
+     */
+    public Lease acquire() {
+        if (closed) {
+            throw new IllegalStateException("Face detector pool is closed");
+        }
+        long start = System.nanoTime();
+        T detector;
+        try {
+            detector = idle.poll();
+            if (detector == null) {
+                detector = idle.poll(maxWaitMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a face detector", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (detector == null) {
+            throw new IllegalStateException("No face detector became free within " + maxWaitMs + " ms");
+        }
+        inUse.incrementAndGet();
+        return new Lease(detector);
+    }
+
+    public int getSize() {
+        return closed ? 0 : instances.size();
+    }
+
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public double getUtilization() {
+        int size = getSize();
+        return size == 0 ? 0.0 : (double) inUse.get() / size;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            instances.forEach(Pointer::close);
+            meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    /**
+     * A checked-out detector; closing the lease returns it to the pool
+     */
+    public final class Lease implements AutoCloseable {
+
+        private T detector;
+
+        private Lease(T detector) {
+            this.detector = detector;
+        }
+
+        public T detector() {
+            if (detector == null) {
+                throw new IllegalStateException("Face detector lease already returned");
+            }
+            return detector;
+        }
+
+        @Override
+        public void close() {
+            if (detector != null) {
+                inUse.decrementAndGet();
+                idle.offer(detector);
+                detector = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.qualtech_ai.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Local face embedding backend. The active backend is chosen with
+ * {@code face.embedder.backend} and loaded once at startup by
+ * {@code FaceModelRegistry}, after the detector.
+ * <p>
+ * Embeddings are 128 floats, compared by cosine similarity. Embeddings of
+ * different backends are not comparable, so each backend has a model id that
+ * is stored with every embedding (see {@link FaceEmbeddingCodec}); stored
+ * users embedded by another backend are left out of the gallery until they
+ * are re-embedded.
+ */
+public interface FaceEmbedder {
+
+    /**
+     * Backend name as used in {@code face.embedder.backend}
+     */
+    String name();
+
+    /**
+     * Id stored in the embedding header; never reused for another model
+     */
+    int modelId();
+
+    /**
+     * Load the model, in parallel on {@code loader}. Blocks until the
+     * embedder is ready.
+     */
+    void load(Executor loader) throws IOException;
+
+    /**
+     * Cosine similarity at which two embeddings are taken to be the same person
+     */
+    double matchThreshold();
+
+    /**
+     * Embed all faces of a frame, in one inference where the backend allows
+     *
+     * @return one embedding per face, in order
+     */
+    List<float[]> embed(List<FaceAnalysis> faces);
+
+    /**
+     * Embed a single face
+     */
+    default float[] embed(FaceAnalysis face) {
+        return embed(List.of(face)).get(0);
+    }
+}
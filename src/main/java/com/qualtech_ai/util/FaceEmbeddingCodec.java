@@ -0,0 +1,208 @@
+package com.qualtech_ai.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encoding and decoding of stored face embeddings.
+ * <p>
+ * The binary format (face_users.face_embedding_bin) is an 8 byte header
+ * followed by the exemplars as little-endian float32 values:
+ * 
+ * <pre>
+ * [0]    format version (1)
+ * [1]    embedding model id ({@link FaceEmbedder#modelId()}, 0 = grid
+ *        statistics, which is also what every row written before the id
+ *        existed holds)
+ * [2..3] uint16 dimension
+ * [4..7] uint32 exemplar count
+ * [8..]  count * dimension float32
+ * </pre>
+ * 
+ * The legacy format is a Base64 encoded CSV string per exemplar, stored as a
+ * JSON list in face_users.face_embedding; it only ever held grid statistics.
+ */
+public class FaceEmbeddingCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private FaceEmbeddingCodec() {
+        // utility class
+    }
+
+    /**
+     * Encode exemplars (all of the same dimension) into the binary format
+     *
+     * @param model id of the embedder that produced them
+     */
+    public static byte[] encode(List<float[]> exemplars, int model) {
+        if (exemplars == null || exemplars.isEmpty()) {
+            throw new IllegalArgumentException("At least one exemplar is required");
+        }
+        if (model < 0 || model > 0xFF) {
+            throw new IllegalArgumentException("Unsupported embedding model id: " + model);
+        }
+        int dimension = exemplars.get(0).length;
+        if (dimension == 0 || dimension > 0xFFFF) {
+            throw new IllegalArgumentException("Unsupported embedding dimension: " + dimension);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + exemplars.size() * dimension * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FORMAT_VERSION);
+        buffer.put((byte) model);
+        buffer.putShort((short) dimension);
+        buffer.putInt(exemplars.size());
+
+        FloatBuffer payload = buffer.asFloatBuffer();
+        for (float[] exemplar : exemplars) {
+            if (exemplar.length != dimension) {
+                throw new IllegalArgumentException("Exemplars must share one dimension: "
+                        + exemplar.length + " vs " + dimension);
+            }
+            payload.put(exemplar);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Id of the embedder that produced the exemplars
+     */
+    public static int model(byte[] data) {
+        validateHeader(data);
+        return data[1] & 0xFF;
+    }
+
+    /**
+     * Model of a stored user's exemplars given the binary column; rows not
+     * yet migrated to it hold grid statistics
+     */
+    public static int storedModel(byte[] data) {
+        if (data != null && data.length > 0) {
+            return model(data);
+        }
+        return GridFeatureEmbedder.MODEL_ID;
+    }
+
+    /**
+     * Embedding dimension stored in the header
+     */
+    public static int dimension(byte[] data) {
+        validateHeader(data);
+        return header(data).getShort(2) & 0xFFFF;
+    }
+
+    /**
+     * Number of exemplars stored in the header
+     */
+    public static int exemplarCount(byte[] data) {
+        validateHeader(data);
+        return header(data).getInt(4);
+    }
+
+    /**
+     * Little-endian float view over the exemplar payload (no copy)
+     */
+    public static FloatBuffer floatView(byte[] data) {
+        validateHeader(data);
+        return ByteBuffer.wrap(data, HEADER_SIZE, data.length - HEADER_SIZE)
+                .slice()
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+    }
+
+    /**
+     * Decode all exemplars from the binary format
+     */
+    public static List<float[]> decode(byte[] data) {
+        int dimension = dimension(data);
+        int count = exemplarCount(data);
+        FloatBuffer view = floatView(data);
+
+        List<float[]> exemplars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] exemplar = new float[dimension];
+            view.get(exemplar);
+            exemplars.add(exemplar);
+        }
+        return exemplars;
+    }
+
+    /**
+     * Decode a stored user's exemplars, preferring the binary column and
+     * falling back to the legacy text column for rows not yet migrated
+     */
+    public static List<float[]> decodeStored(byte[] data, String legacy) throws IOException {
+        if (data != null && data.length > 0) {
+            return decode(data);
+        }
+        return decodeLegacyList(legacy);
+    }
+
+    private static ByteBuffer header(byte[] data) {
+        return ByteBuffer.wrap(data, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void validateHeader(byte[] data) {
+        if (data == null || data.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Embedding data is too short");
+        }
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported embedding format version: " + data[0]);
+        }
+        ByteBuffer header = header(data);
+        long expected = HEADER_SIZE + (long) (header.getShort(2) & 0xFFFF) * header.getInt(4) * Float.BYTES;
+        if (data.length != expected) {
+            throw new IllegalArgumentException("Embedding data length " + data.length + " does not match header");
+        }
+    }
+
+    /**
+     * Decode a single Base64 encoded CSV string back to a feature vector
+     */
+    public static float[] decodeLegacy(String encoded) {
+        String decoded = new String(Base64.getDecoder().decode(encoded.trim()), StandardCharsets.UTF_8);
+        String[] parts = decoded.split(",");
+        float[] features = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            features[i] = Float.parseFloat(parts[i]);
+        }
+        return features;
+    }
+
+    /**
+     * Decode the face_embedding column: either a JSON list of exemplars or a
+     * single Base64 encoded CSV string
+     */
+    public static List<float[]> decodeLegacyList(String stored) throws IOException {
+        List<float[]> exemplars = new ArrayList<>();
+        if (stored == null || stored.isBlank()) {
+            return exemplars;
+        }
+
+        List<String> encoded;
+        if (stored.trim().startsWith("[")) {
+            encoded = OBJECT_MAPPER.readValue(stored, new TypeReference<List<String>>() {
+            });
+        } else {
+            encoded = List.of(stored);
+        }
+
+        for (String item : encoded) {
+            exemplars.add(decodeLegacy(item));
+        }
+        return exemplars;
+    }
+}
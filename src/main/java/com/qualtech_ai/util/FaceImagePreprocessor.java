@@ -15,6 +15,9 @@ import org.bytedeco.javacpp.BytePointer;
 public class FaceImagePreprocessor {
 
     private static final int TARGET_FACE_SIZE = 224;
+    private static final Size TARGET_SIZE = new Size(TARGET_FACE_SIZE, TARGET_FACE_SIZE);
+    private static final double CLAHE_CLIP_LIMIT = 2.0;
+    private static final Size CLAHE_TILE_GRID = new Size(8, 8);
     private static final double BRIGHTNESS_THRESHOLD_LOW = 80.0;
     private static final double BRIGHTNESS_THRESHOLD_HIGH = 180.0;
 
@@ -25,73 +28,65 @@ public class FaceImagePreprocessor {
         }
 
         Mat processed = new Mat();
-        try {
-            faceRoi.copyTo(processed);
-
-            // Simple safe preprocessing pipeline
+        try (MatWorkspace workspace = MatWorkspace.acquire()) {
+            // Simple safe preprocessing pipeline; intermediates come from the workspace
             // 1. Resize consistently to ensure standard input (if not full image)
             // Note: If this is used for recognition input, resizing is good.
             // If used for detection, we usually don't resize the ROI again unless needed.
-            processed = resizeConsistently(processed);
+            Mat resized = workspace.mat(MatWorkspace.Slot.ALIGNED);
+            resizeConsistently(faceRoi, resized);
 
             // 2. Grayscale conversion for histogram equalization (processed separately but
             // kept in color for some models)
             // But if we return BGR, we need to apply EQ to Value/Intensity channel
-            processed = normalizeLighting(processed);
+            Mat lit = workspace.mat(MatWorkspace.Slot.LIT);
+            normalizeLighting(resized, lit, workspace);
 
             // 3. Histogram Equalization (Safe version)
-            processed = applyHistogramEqualization(processed);
+            applyHistogramEqualization(lit, processed, workspace);
 
             return processed;
         } catch (Exception e) {
             log.error("Error during face image preprocessing: {}", e.getMessage());
             // Fallback to original
-            Mat fallback = new Mat();
-            faceRoi.copyTo(fallback);
-            return fallback;
+            faceRoi.copyTo(processed);
+            return processed;
         }
     }
 
-    private Mat normalizeLighting(Mat image) {
-        Mat normalized = new Mat();
+    private void normalizeLighting(Mat image, Mat normalized, MatWorkspace workspace) {
         try {
             // Convert to LAB color space to isolate luminance
-            Mat lab = new Mat();
+            Mat lab = workspace.mat(MatWorkspace.Slot.LAB);
             opencv_imgproc.cvtColor(image, lab, opencv_imgproc.COLOR_BGR2Lab);
 
-            MatVector channels = new MatVector(3);
+            MatVector channels = workspace.channels();
             opencv_core.split(lab, channels);
 
             Mat lChannel = channels.get(0);
 
             // Apply CLAHE to L-channel
             // ClipLimit 2.0 is safe, TileGridSize 8x8 is standard
-            CLAHE clahe = opencv_imgproc.createCLAHE(2.0, new Size(8, 8));
+            CLAHE clahe = workspace.clahe();
+            clahe.setClipLimit(CLAHE_CLIP_LIMIT);
+            clahe.setTilesGridSize(CLAHE_TILE_GRID);
             clahe.apply(lChannel, lChannel);
 
             opencv_core.merge(channels, lab);
             opencv_imgproc.cvtColor(lab, normalized, opencv_imgproc.COLOR_Lab2BGR);
 
-            lab.release();
-            lChannel.release();
-            channels.close(); // Important to release MatVector resource if possible, but let's trust javacpp
-                              // for now or explicit release
-
         } catch (Exception e) {
             log.error("Error in lighting normalization: {}", e.getMessage());
             image.copyTo(normalized);
         }
-
-        return normalized;
     }
 
-    private Mat applyHistogramEqualization(Mat image) {
-        Mat equalized = new Mat();
+    private void applyHistogramEqualization(Mat image, Mat equalized, MatWorkspace workspace) {
         try {
-            Mat ycrcb = new Mat();
+            Mat ycrcb = workspace.mat(MatWorkspace.Slot.YCRCB);
             opencv_imgproc.cvtColor(image, ycrcb, opencv_imgproc.COLOR_BGR2YCrCb);
 
-            MatVector channels = new MatVector(3);
+            MatVector channels = workspace.channels();
             opencv_core.split(ycrcb, channels);
 
             Mat yChannel = channels.get(0);
@@ -102,31 +97,21 @@ public class FaceImagePreprocessor {
             opencv_core.merge(channels, ycrcb);
             opencv_imgproc.cvtColor(ycrcb, equalized, opencv_imgproc.COLOR_YCrCb2BGR);
 
-            ycrcb.release();
-            yChannel.release();
-            channels.close();
-
         } catch (Exception e) {
             log.error("Error in histogram equalization: {}", e.getMessage());
             image.copyTo(equalized);
         }
-
-        return equalized;
     }
 
     // Removed correctColorBalance to avoid CV_64F crashes on CV_8U images
 
-    private Mat resizeConsistently(Mat image) {
-        Mat resized = new Mat();
+    private void resizeConsistently(Mat image, Mat resized) {
         try {
-            opencv_imgproc.resize(image, resized, new Size(TARGET_FACE_SIZE, TARGET_FACE_SIZE), 0, 0,
-                    opencv_imgproc.INTER_LANCZOS4);
+            opencv_imgproc.resize(image, resized, TARGET_SIZE, 0, 0, opencv_imgproc.INTER_LANCZOS4);
         } catch (Exception e) {
             log.error("Error in consistent resizing: {}", e.getMessage());
             image.copyTo(resized);
         }
-
-        return resized;
     }
 
     public double calculateBrightness(Mat image) {
@@ -168,12 +153,10 @@ public class FaceImagePreprocessor {
         }
 
         Mat processed = new Mat();
-        try {
-            image.copyTo(processed);
-
+        try (MatWorkspace workspace = MatWorkspace.acquire()) {
             // Only apply lighting normalization
             // Do NOT resize as it reduces detection accuracy for small faces
-            processed = normalizeLighting(processed);
+            normalizeLighting(image, processed, workspace);
 
             return processed;
         } catch (Exception e) {
@@ -0,0 +1,377 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Point;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Size;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Faces followed across the frames of one stream, so the detector and the
+ * per-face analysis run only when something changes.
+ * <p>
+ * On detection frames (every {@code detectEvery} frames, whenever a track
+ * was lost, and whenever a visible track needs identification) detections
+ * are associated with the existing tracks by IoU, or by centroid distance
+ * for fast movers, and keep their track id; unmatched detections start new
+ * tracks. In between, each track is followed by matching the gray face
+ * template it had on its last detection frame within a window around its
+ * last position; a weak match marks the track lost and the caller falls back
+ * to detection on the same frame.
+ * <p>
+ * Each track carries the caller's per-face state {@code S} (identity,
+ * liveness, emotion). Its trust starts at 1 when the state is set, decays
+ * every frame and with weak template matches, and the track asks to be
+ * re-identified once trust falls below {@code reidentifyBelow}. A detection
+ * that continues a track by position is also compared with the track's
+ * template: trust is scaled by that score, and below
+ * {@code minMatchScore} the state is dropped, since a different face has
+ * taken the track's place. Identification should only run on detection
+ * frames, where the box and landmarks come from the detector.
+ * <p>
+ * Not thread-safe: one stream's frames are processed one at a time. Templates
+ * outlive the request that created them, so they are kept out of request
+ * scopes; {@link #close()} releases them.
+ */
+public final class FaceTracker<S> implements AutoCloseable {
+
+    /**
+     * @param detectEvery      full detection every this many frames (1 = every frame)
+     * @param minIou           IoU for a detection to continue a track
+     * @param maxCentroidShift centroid distance, in track sizes, at which a
+     *                         non-overlapping detection may still continue a track
+     * @param minMatchScore    normalized template correlation below which a track is lost
+     * @param searchMargin     template search window around a track, in track sizes
+     * @param trustDecay       trust kept per frame without re-identification
+     * @param reidentifyBelow  trust below which a track asks to be re-identified
+     * @param maxMisses        detection frames a track may go unmatched before it is dropped
+     */
+    public record Settings(int detectEvery, double minIou, double maxCentroidShift, double minMatchScore,
+                           double searchMargin, double trustDecay, double reidentifyBelow, int maxMisses) {
+    }
+
+    private final Settings settings;
+    private final List<Track<S>> tracks = new ArrayList<>();
+    private final Mat gray = NativeMemoryTracker.untracked(new Mat());
+    private final Mat scores = NativeMemoryTracker.untracked(new Mat());
+    private final Mat resized = NativeMemoryTracker.untracked(new Mat());
+    private int nextId = 1;
+    private long frames;
+    private int templateScale;
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+
+    public FaceTracker(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Start a frame
+     *
+     * @param scale reduction of the image the frame will be tracked on
+     * @return true if the frame needs full detection: on schedule, with no
+     * live tracks, after a lost track, when the image scale changed, or when
+     * a visible track needs identification, so it is identified from a
+     * detected box and landmarks rather than a followed one
+     */
+    public boolean nextFrame(int scale) {
+        lastUsedMillis = System.currentTimeMillis();
+        boolean scheduled = frames++ % Math.max(1, settings.detectEvery()) == 0;
+        return scheduled || tracks.isEmpty() || scale != templateScale
+                || tracks.stream().anyMatch(track -> track.misses > 0 || track.needsIdentification());
+    }
+
+    /**
+     * Follow every track into {@code image} (the frame reduced by
+     * {@code scale}) by template matching
+     *
+     * @return false if any track was lost, in which case nothing has moved
+     * and the frame needs full detection
+     */
+    public boolean follow(Mat image, int scale) {
+        if (scale != templateScale) {
+            return false;
+        }
+        opencv_imgproc.cvtColor(image, gray, opencv_imgproc.COLOR_BGR2GRAY);
+        int[][] moved = new int[tracks.size()][];
+        double[] matchScores = new double[tracks.size()];
+        for (int i = 0; i < tracks.size(); i++) {
+            Track<S> track = tracks.get(i);
+            int tw = track.template.cols();
+            int th = track.template.rows();
+            int margin = (int) Math.ceil(settings.searchMargin() * Math.max(tw, th));
+            int x0 = Math.max(0, track.x / scale - margin);
+            int y0 = Math.max(0, track.y / scale - margin);
+            int x1 = Math.min(gray.cols(), track.x / scale + tw + margin);
+            int y1 = Math.min(gray.rows(), track.y / scale + th + margin);
+            if (x1 - x0 < tw || y1 - y0 < th) {
+                return false;
+            }
+            try (Rect window = new Rect(x0, y0, x1 - x0, y1 - y0);
+                 Mat region = new Mat(gray, window);
+                 Point best = new Point()) {
+                opencv_imgproc.matchTemplate(region, track.template, scores, opencv_imgproc.TM_CCOEFF_NORMED);
+                double[] min = new double[1];
+                double[] max = new double[1];
+                opencv_core.minMaxLoc(scores, min, max, null, best, null);
+                if (max[0] < settings.minMatchScore()) {
+                    return false;
+                }
+                matchScores[i] = max[0];
+                moved[i] = new int[]{(x0 + best.x()) * scale, (y0 + best.y()) * scale};
+            }
+        }
+        for (int i = 0; i < tracks.size(); i++) {
+            Track<S> track = tracks.get(i);
+            track.x = moved[i][0];
+            track.y = moved[i][1];
+            track.landmarks = null;
+            track.trust *= settings.trustDecay() * Math.min(1.0, matchScores[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Take the frame's detections: continue matched tracks, start new ones,
+     * count misses on the rest and refresh the templates from {@code image}
+     * (the frame reduced by {@code scale}). A continued track whose new crop
+     * does not look like its template keeps its id but not its state.
+     *
+     * @param faces detections in full-frame coordinates
+     * @return the tracks seen in this frame, in detection order
+     */
+    public List<Track<S>> update(List<DetectedFace> faces, Mat image, int scale) {
+        List<Track<S>> seen = associate(faces);
+        templateScale = scale;
+        opencv_imgproc.cvtColor(image, gray, opencv_imgproc.COLOR_BGR2GRAY);
+        for (Track<S> track : seen) {
+            int x = Math.min(track.x / scale, gray.cols() - 1);
+            int y = Math.min(track.y / scale, gray.rows() - 1);
+            int width = Math.max(1, Math.min(track.width / scale, gray.cols() - x));
+            int height = Math.max(1, Math.min(track.height / scale, gray.rows() - y));
+            try (Rect rect = new Rect(x, y, width, height); Mat region = new Mat(gray, rect)) {
+                if (!track.template.empty()) {
+                    track.continued(similarity(region, track.template), settings.minMatchScore());
+                }
+                region.copyTo(track.template);
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Association step of {@link #update} on boxes only: greedy, strongest
+     * pair first, IoU pairs ahead of centroid-only pairs
+     */
+    List<Track<S>> associate(List<DetectedFace> faces) {
+        List<double[]> pairs = new ArrayList<>();
+        for (int t = 0; t < tracks.size(); t++) {
+            Track<S> track = tracks.get(t);
+            for (int f = 0; f < faces.size(); f++) {
+                double score = associationScore(track, faces.get(f));
+                if (score > 0) {
+                    pairs.add(new double[]{score, t, f});
+                }
+            }
+        }
+        pairs.sort(Comparator.comparingDouble((double[] pair) -> pair[0]).reversed());
+
+        @SuppressWarnings("unchecked")
+        Track<S>[] matched = new Track[faces.size()];
+        boolean[] trackUsed = new boolean[tracks.size()];
+        for (double[] pair : pairs) {
+            int t = (int) pair[1];
+            int f = (int) pair[2];
+            if (!trackUsed[t] && matched[f] == null) {
+                trackUsed[t] = true;
+                matched[f] = tracks.get(t);
+            }
+        }
+
+        List<Track<S>> kept = new ArrayList<>();
+        for (int t = 0; t < tracks.size(); t++) {
+            Track<S> track = tracks.get(t);
+            if (trackUsed[t]) {
+                track.misses = 0;
+                kept.add(track);
+            } else if (++track.misses <= settings.maxMisses()) {
+                kept.add(track);
+            } else {
+                track.template.release();
+            }
+        }
+
+        List<Track<S>> seen = new ArrayList<>(faces.size());
+        for (int f = 0; f < faces.size(); f++) {
+            DetectedFace face = faces.get(f);
+            Track<S> track = matched[f];
+            if (track == null) {
+                track = new Track<>(nextId++, settings.reidentifyBelow());
+                kept.add(track);
+            } else {
+                track.trust *= settings.trustDecay();
+            }
+            track.x = face.x();
+            track.y = face.y();
+            track.width = face.width();
+            track.height = face.height();
+            track.landmarks = face.landmarks();
+            seen.add(track);
+        }
+        tracks.clear();
+        tracks.addAll(kept);
+        return seen;
+    }
+
+    /**
+     * Tracks currently in view (not missing), in track id order
+     */
+    public List<Track<S>> visibleTracks() {
+        return tracks.stream().filter(track -> track.misses == 0).toList();
+    }
+
+    public int getTrackCount() {
+        return tracks.size();
+    }
+
+    public long getLastUsedMillis() {
+        return lastUsedMillis;
+    }
+
+    /**
+     * Normalized correlation of a detected crop with a track's template,
+     * after bringing the crop to the template's size; 0 for flat images
+     */
+    private double similarity(Mat region, Mat template) {
+        try (Size size = new Size(template.cols(), template.rows())) {
+            opencv_imgproc.resize(region, resized, size, 0, 0, opencv_imgproc.INTER_AREA);
+        }
+        opencv_imgproc.matchTemplate(resized, template, scores, opencv_imgproc.TM_CCOEFF_NORMED);
+        double[] min = new double[1];
+        double[] max = new double[1];
+        opencv_core.minMaxLoc(scores, min, max, null, null, null);
+        return Double.isFinite(max[0]) ? max[0] : 0.0;
+    }
+
+    private double associationScore(Track<S> track, DetectedFace face) {
+        double iou = DetectedFace.iou(track.x, track.y, track.width, track.height,
+                face.x(), face.y(), face.width(), face.height());
+        if (iou >= settings.minIou()) {
+            return 1.0 + iou;
+        }
+        double dx = (track.x + track.width / 2.0) - (face.x() + face.width() / 2.0);
+        double dy = (track.y + track.height / 2.0) - (face.y() + face.height() / 2.0);
+        double maxShift = settings.maxCentroidShift() * Math.max(track.width, track.height);
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        return distance < maxShift ? 1.0 - distance / maxShift : 0.0;
+    }
+
+    @Override
+    public void close() {
+        for (Track<S> track : tracks) {
+            track.template.release();
+        }
+        tracks.clear();
+        gray.close();
+        scores.close();
+        resized.close();
+    }
+
+    /**
+     * One face followed across frames, in full-frame coordinates
+     */
+    public static final class Track<S> {
+        private final int id;
+        private final double reidentifyBelow;
+        private final Mat template = NativeMemoryTracker.untracked(new Mat());
+        private int x;
+        private int y;
+        private int width;
+        private int height;
+        private float[] landmarks;
+        private int misses;
+        private double trust;
+        private S state;
+
+        private Track(int id, double reidentifyBelow) {
+            this.id = id;
+            this.reidentifyBelow = reidentifyBelow;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Rect toRect() {
+            return new Rect(x, y, width, height);
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * As a detection in the current frame; landmarks are only known on
+         * detection frames
+         */
+        public DetectedFace toDetectedFace() {
+            return new DetectedFace(x, y, width, height, 1f, landmarks);
+        }
+
+        public double getTrust() {
+            return trust;
+        }
+
+        /**
+         * State from the last identification, or null for a new track
+         */
+        public S getState() {
+            return state;
+        }
+
+        /**
+         * Set the per-face state after a full identification; trust is reset
+         */
+        public void identified(S state) {
+            this.state = state;
+            this.trust = 1.0;
+        }
+
+        /**
+         * A detection continued this track with {@code score} correlation to
+         * its template: trust is scaled by it, and below {@code minScore} the
+         * state is dropped so the face is identified afresh
+         */
+        void continued(double score, double minScore) {
+            if (score < minScore) {
+                state = null;
+                trust = 0.0;
+            } else {
+                trust *= Math.min(1.0, score);
+            }
+        }
+
+        /**
+         * True for new tracks and tracks whose trust has decayed
+         */
+        public boolean needsIdentification() {
+            return state == null || trust < reidentifyBelow;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.qualtech_ai.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exact float32 rows stored off-heap, little-endian, in fixed-size chunks.
+ * Holding the rows outside the Java heap keeps a large gallery out of GC
+ * work, and chunking means growth never copies more than one chunk.
+ * <p>
+ * Every chunk but the last holds exactly {@code rowsPerChunk} rows; the last
+ * one starts small and doubles up to that size. Scans copy a block of rows
+ * at a time into a heap scratch array and run the {@link SimilarityKernel}
+ * over it, as {@link QuantizedVectorStore} does for INT8 codes.
+ * <p>
+ * A store opened with {@link #map} uses the file's pages directly for every
+ * row it opened, in mapped segments of up to {@code rowsPerChunk} rows (the
+ * last one partial); rows appended afterwards go to off-heap tail chunks.
+ * Segments are mapped copy-on-write: untouched pages stay shared with the
+ * page cache (and with other processes mapping the file), a write gives this
+ * process a private copy of just that page and never reaches the file. The
+ * file must be replaced, not truncated, while mapped.
+ * <p>
+ * Not thread-safe for writers: writes must be serialized by the caller,
+ * reads may run concurrently with each other.
+ */
+public class FloatRowStore implements ScannableRows {
+
+    private static final int CHUNK_BYTES = 16 << 20;
+    private static final int SCAN_BLOCK_ROWS = 64;
+    private static final int MIN_CAPACITY = 16;
+
+    private final int dimension;
+    private final int rowsPerChunk;
+    private final int initialRows;
+    private final SimilarityKernel kernel;
+    private final List<FloatBuffer> mapped = new ArrayList<>(); // Leading rows, backed by a file mapping
+    private final List<FloatBuffer> chunks = new ArrayList<>(); // Off-heap rows after the mapped ones
+    private int mappedRows = 0;
+    private int rows = 0;
+
+    public FloatRowStore(int dimension, int initialRows) {
+        this(dimension, initialRows, Math.max(1, CHUNK_BYTES / (dimension * Float.BYTES)),
+                SimilarityKernels.preferred());
+    }
+
+    FloatRowStore(int dimension, int initialRows, int rowsPerChunk, SimilarityKernel kernel) {
+        this.dimension = dimension;
+        this.rowsPerChunk = rowsPerChunk;
+        this.initialRows = Math.min(Math.max(initialRows, MIN_CAPACITY), rowsPerChunk);
+        this.kernel = kernel;
+    }
+
+    /**
+     * Open {@code rows} rows stored contiguously at {@code offset} in the
+     * file, in place; all of them stay mapped and appends go to a separate
+     * off-heap tail. Copy-on-write mappings need the channel open for reading
+     * and writing; the file itself is never written.
+     */
+    public static FloatRowStore map(FileChannel channel, long offset, int rows, int dimension) throws IOException {
+        return map(channel, offset, rows, new FloatRowStore(dimension, MIN_CAPACITY));
+    }
+
+    static FloatRowStore map(FileChannel channel, long offset, int rows, FloatRowStore store) throws IOException {
+        long rowBytes = store.rowBytes();
+        for (int from = 0; from < rows; from += store.rowsPerChunk) {
+            int count = Math.min(store.rowsPerChunk, rows - from);
+            store.mapped.add(channel.map(FileChannel.MapMode.PRIVATE, offset + from * rowBytes, count * rowBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer());
+        }
+        store.mappedRows = rows;
+        store.rows = rows;
+        return store;
+    }
+
+    /**
+     * Append one row from {@code source} at {@code offset}
+     */
+    public void append(float[] source, int offset) {
+        ensureTailCapacity(rows - mappedRows + 1);
+        chunk(rows).put(slot(rows), source, offset, dimension);
+        rows++;
+    }
+
+    /**
+     * Copy row {@code from} over row {@code to}
+     */
+    public void moveRow(int from, int to) {
+        chunk(to).put(slot(to), chunk(from), slot(from), dimension);
+    }
+
+    /**
+     * Drop rows from the end, releasing chunks and mapped segments that
+     * became empty; once mapped rows are dropped, appends go to the tail
+     */
+    public void truncate(int newRows) {
+        rows = Math.min(rows, Math.max(0, newRows));
+        mappedRows = Math.min(mappedRows, rows);
+        int mappedNeeded = (mappedRows + rowsPerChunk - 1) / rowsPerChunk;
+        while (mapped.size() > mappedNeeded) {
+            mapped.remove(mapped.size() - 1);
+        }
+        int needed = Math.max(1, (rows - mappedRows + rowsPerChunk - 1) / rowsPerChunk);
+        while (chunks.size() > needed) {
+            chunks.remove(chunks.size() - 1);
+        }
+    }
+
+    /**
+     * Copy one row into {@code target} at {@code offset}
+     */
+    public void copyRow(int row, float[] target, int offset) {
+        checkRow(row);
+        chunk(row).get(slot(row), target, offset, dimension);
+    }
+
+    /**
+     * Copy {@code count} rows starting at {@code fromRow} into {@code target}
+     * at {@code offset}, row-major
+     */
+    public void copyRows(int fromRow, int count, float[] target, int offset) {
+        if (count > 0) {
+            checkRow(fromRow + count - 1);
+        }
+        int row = fromRow;
+        int end = fromRow + count;
+        while (row < end) {
+            int span = Math.min(end, chunkEnd(row)) - row;
+            chunk(row).get(slot(row), target, offset + (row - fromRow) * dimension, span * dimension);
+            row += span;
+        }
+    }
+
+    /**
+     * Dot product of the probe with one row
+     */
+    public float dot(float[] probe, int row) {
+        checkRow(row);
+        FloatBuffer chunk = chunk(row);
+        int base = slot(row);
+        float s0 = 0f, s1 = 0f;
+        int i = 0;
+        for (; i + 1 < dimension; i += 2) {
+            s0 += probe[i] * chunk.get(base + i);
+            s1 += probe[i + 1] * chunk.get(base + i + 1);
+        }
+        for (; i < dimension; i++) {
+            s0 += probe[i] * chunk.get(base + i);
+        }
+        return s0 + s1;
+    }
+
+    /**
+     * Score one probe against rows [fromRow, toRow)
+     */
+    public void scan(float[] probe, int fromRow, int toRow, TopK collector) {
+        scan(new float[][]{probe}, fromRow, toRow, new TopK[]{collector});
+    }
+
+    /**
+     * Score every probe against rows [fromRow, toRow); each block of rows is
+     * copied out once and scanned for all probes while it is hot in cache
+     */
+    @Override
+    public void scan(float[][] probes, int fromRow, int toRow, TopK[] collectors) {
+        if (toRow > fromRow) {
+            checkRow(toRow - 1);
+        }
+        float[] block = new float[SCAN_BLOCK_ROWS * dimension];
+        int blockStart = fromRow;
+        while (blockStart < toRow) {
+            int blockRows = Math.min(Math.min(SCAN_BLOCK_ROWS, toRow - blockStart), chunkEnd(blockStart) - blockStart);
+            chunk(blockStart).get(slot(blockStart), block, 0, blockRows * dimension);
+            for (int p = 0; p < probes.length; p++) {
+                kernel.scan(probes[p], block, dimension, 0, blockRows, blockStart, collectors[p]);
+            }
+            blockStart += blockRows;
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int rowBytes() {
+        return dimension * Float.BYTES;
+    }
+
+    /**
+     * Bytes held by the rows in use
+     */
+    public long bytesUsed() {
+        return (long) rows * dimension * Float.BYTES;
+    }
+
+    /**
+     * Off-heap bytes allocated for the tail, including spare capacity;
+     * excludes mapped rows
+     */
+    public long bytesReserved() {
+        long floats = 0L;
+        for (FloatBuffer chunk : chunks) {
+            floats += chunk.capacity();
+        }
+        return floats * Float.BYTES;
+    }
+
+    /**
+     * Bytes of rows backed by a file mapping, shared with the page cache
+     * except for pages written since
+     */
+    public long bytesMapped() {
+        return (long) mappedRows * dimension * Float.BYTES;
+    }
+
+    private FloatBuffer chunk(int row) {
+        return row < mappedRows ? mapped.get(row / rowsPerChunk) : chunks.get((row - mappedRows) / rowsPerChunk);
+    }
+
+    private int slot(int row) {
+        return ((row < mappedRows ? row : row - mappedRows) % rowsPerChunk) * dimension;
+    }
+
+    /**
+     * First row after the segment or chunk holding {@code row}
+     */
+    private int chunkEnd(int row) {
+        if (row < mappedRows) {
+            return Math.min(mappedRows, (row / rowsPerChunk + 1) * rowsPerChunk);
+        }
+        return mappedRows + ((row - mappedRows) / rowsPerChunk + 1) * rowsPerChunk;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+    }
+
+    private void ensureTailCapacity(int required) {
+        while (tailCapacity() < required) {
+            if (chunks.isEmpty()) {
+                chunks.add(allocate(initialRows));
+                continue;
+            }
+            int last = chunks.size() - 1;
+            int lastRows = chunks.get(last).capacity() / dimension;
+            if (lastRows < rowsPerChunk) {
+                FloatBuffer grown = allocate(Math.min(rowsPerChunk, lastRows * 2));
+                int lastUsed = Math.min(rows - mappedRows - last * rowsPerChunk, lastRows);
+                grown.put(0, chunks.get(last), 0, lastUsed * dimension);
+                chunks.set(last, grown);
+            } else {
+                chunks.add(allocate(rowsPerChunk));
+            }
+        }
+    }
+
+    private int tailCapacity() {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        int last = chunks.size() - 1;
+        return last * rowsPerChunk + chunks.get(last).capacity() / dimension;
+    }
+
+    private FloatBuffer allocate(int chunkRows) {
+        return ByteBuffer.allocateDirect(chunkRows * dimension * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+    }
+}
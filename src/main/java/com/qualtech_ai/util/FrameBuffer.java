@@ -0,0 +1,134 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One uploaded frame held in pooled native memory. Decoding, stream buffering
+ * and cloud uploads all read this buffer by reference instead of copying the
+ * bytes again.
+ * <p>
+ * Reference counted: every holder calls {@link #retain()} and closes its
+ * reference when done; the memory goes back to the pool when the last one is
+ * closed. Retaining a frame that has already been returned fails, so a late
+ * reader never sees memory reused by another request.
+ */
+public final class FrameBuffer implements AutoCloseable {
+
+    private final FrameBufferPool pool;
+    private final BytePointer pointer;
+    private final ByteBuffer data;
+    private final int length;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    FrameBuffer(FrameBufferPool pool, BytePointer pointer, ByteBuffer data, int length) {
+        this.pool = pool;
+        this.pointer = pointer;
+        this.data = data;
+        this.length = length;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Native memory holding the frame; only the first {@link #length()} bytes
+     * are valid
+     */
+    public BytePointer pointer() {
+        return pointer;
+    }
+
+    /**
+     * Read-only view of the frame bytes (independent position and limit)
+     */
+    public ByteBuffer asByteBuffer() {
+        return data.asReadOnlyBuffer().limit(length);
+    }
+
+    /**
+     * 1 x length CV_8UC1 header over the frame bytes, for {@code imdecode};
+     * the caller releases the header, not the frame
+     */
+    public Mat asMat() {
+        return new Mat(1, length, opencv_core.CV_8UC1, pointer);
+    }
+
+    /**
+     * Writable view of the frame bytes, used by the pool to fill the buffer
+     */
+    ByteBuffer writableView() {
+        return data.duplicate().limit(length);
+    }
+
+    public InputStream openStream() {
+        ByteBuffer view = asByteBuffer();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, view.remaining());
+                view.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return view.remaining();
+            }
+        };
+    }
+
+    /**
+     * Heap copy, for APIs that only accept byte arrays
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[length];
+        asByteBuffer().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Take another reference to this frame
+     *
+     * @throws IllegalStateException if the frame has already been returned to the pool
+     */
+    public FrameBuffer retain() {
+        while (true) {
+            int current = references.get();
+            if (current == 0) {
+                throw new IllegalStateException("Frame buffer already released");
+            }
+            if (references.compareAndSet(current, current + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Drop this reference; the last one returns the memory to the pool
+     */
+    @Override
+    public void close() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(pointer, data);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame buffer released twice");
+        }
+    }
+}
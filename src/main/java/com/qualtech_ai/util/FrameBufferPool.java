@@ -0,0 +1,152 @@
+package com.qualtech_ai.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.BytePointer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of native buffers for uploaded frames, in power-of-two size classes.
+ * <p>
+ * Each upload is read once, straight from the request stream into a pooled
+ * buffer; at steady frame rates the same few buffers are reused and no
+ * per-frame heap arrays or native allocations are made.
+ */
+@Slf4j
+@Component
+public class FrameBufferPool {
+
+    private static final int MIN_CLASS_BYTES = 64 * 1024;
+
+    @Value("${face.ingest.max-frame-bytes:16777216}")
+    private int maxFrameBytes;
+
+    @Value("${face.ingest.pool.buffers-per-class:8}")
+    private int buffersPerClass;
+
+    private ArrayBlockingQueue<BytePointer>[] freeLists;
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void init() {
+        int classes = sizeClass(maxFrameBytes) + 1;
+        freeLists = new ArrayBlockingQueue[classes];
+        for (int i = 0; i < classes; i++) {
+            freeLists[i] = new ArrayBlockingQueue<>(Math.max(1, buffersPerClass));
+        }
+    }
+
+    /**
+     * Read an upload into a pooled buffer. A multipart view that is already
+     * backed by a frame buffer is shared, not copied.
+     *
+     * @return the frame; the caller closes it when done
+     */
+    public FrameBuffer read(MultipartFile file) throws IOException {
+        if (file instanceof FrameMultipartFile frameFile) {
+            return frameFile.frame().retain();
+        }
+        long size = file.getSize();
+        if (size <= 0) {
+            throw new IOException("Empty image upload");
+        }
+        if (size > maxFrameBytes) {
+            throw new IOException("Image upload of " + size + " bytes exceeds the " + maxFrameBytes + " byte limit");
+        }
+        FrameBuffer frame = null;
+        try (InputStream in = file.getInputStream(); ReadableByteChannel channel = Channels.newChannel(in)) {
+            frame = acquire((int) size);
+            ByteBuffer target = frame.writableView();
+            while (target.hasRemaining()) {
+                if (channel.read(target) < 0) {
+                    throw new IOException("Upload ended after " + target.position() + " of " + size + " bytes");
+                }
+            }
+            return frame;
+        } catch (IOException | RuntimeException e) {
+            if (frame != null) {
+                frame.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Number of frames currently checked out
+     */
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    /**
+     * Native bytes held by the pool, idle or in use
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+    private FrameBuffer acquire(int length) {
+        int sizeClass = sizeClass(length);
+        BytePointer pointer = freeLists[sizeClass].poll();
+        if (pointer == null) {
+            long capacity = classBytes(sizeClass);
+            // Pooled beyond the request that happens to allocate it
+            pointer = NativeMemoryTracker.untracked(new BytePointer(capacity));
+            pooledBytes.addAndGet(capacity);
+            allocations.incrementAndGet();
+        }
+        inUse.incrementAndGet();
+        // Full-capacity view created once per checkout; FrameBuffer hands out duplicates
+        ByteBuffer data = pointer.position(0).limit(classBytes(sizeClass)).asByteBuffer();
+        return new FrameBuffer(this, pointer, data, length);
+    }
+
+    void recycle(BytePointer pointer, ByteBuffer data) {
+        inUse.decrementAndGet();
+        int sizeClass = sizeClass(data.capacity());
+        if (!freeLists[sizeClass].offer(pointer)) {
+            pooledBytes.addAndGet(-data.capacity());
+            pointer.deallocate();
+        }
+    }
+
+    private int sizeClass(int length) {
+        int bytes = Math.max(MIN_CLASS_BYTES, length);
+        int highest = Integer.highestOneBit(bytes - 1) << 1;
+        return Integer.numberOfTrailingZeros(highest) - Integer.numberOfTrailingZeros(MIN_CLASS_BYTES);
+    }
+
+    private static long classBytes(int sizeClass) {
+        return (long) MIN_CLASS_BYTES << sizeClass;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ArrayBlockingQueue<BytePointer> list : freeLists) {
+            BytePointer pointer;
+            while ((pointer = list.poll()) != null) {
+                pointer.deallocate();
+            }
+        }
+        log.info("Frame buffer pool released ({} native allocations over its lifetime)", allocations.get());
+    }
+}
@@ -0,0 +1,82 @@
+package com.qualtech_ai.util;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+
+/**
+ * {@link MultipartFile} view of a buffered frame, so frames collected in
+ * stream mode can be handed to multi-frame verification by reference.
+ * {@link FrameBufferPool#read(MultipartFile)} recognises the view and shares
+ * the underlying buffer instead of reading it again.
+ * <p>
+ * The view does not own a reference; whoever created it keeps the frame
+ * alive while the view is in use.
+ */
+public class FrameMultipartFile implements MultipartFile {
+
+    private final FrameBuffer frame;
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+
+    public FrameMultipartFile(FrameBuffer frame, String name, String originalFilename, String contentType) {
+        this.frame = frame;
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+    }
+
+    public FrameBuffer frame() {
+        return frame;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return frame.length() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return frame.length();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return frame.toByteArray();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return frame.openStream();
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException, IllegalStateException {
+        try (OutputStream out = Files.newOutputStream(dest.toPath());
+             WritableByteChannel channel = Channels.newChannel(out)) {
+            channel.write(frame.asByteBuffer());
+        }
+    }
+}
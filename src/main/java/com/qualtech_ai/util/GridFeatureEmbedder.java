@@ -0,0 +1,53 @@
+package com.qualtech_ai.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Hand-made descriptor: mean and standard deviation per grid cell of the
+ * equalized face (see {@link GridFeatureExtractor}). No model to load, but
+ * weak discrimination; embeddings stored before model ids existed are of
+ * this kind.
+ */
+@Component
+public class GridFeatureEmbedder implements FaceEmbedder {
+
+    public static final String NAME = "grid";
+    public static final int MODEL_ID = 0;
+
+    @Value("${face.embedder.grid.match-threshold:0.70}")
+    private double matchThreshold;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int modelId() {
+        return MODEL_ID;
+    }
+
+    @Override
+    public void load(Executor loader) {
+        // Nothing to load
+    }
+
+    @Override
+    public double matchThreshold() {
+        return matchThreshold;
+    }
+
+    @Override
+    public List<float[]> embed(List<FaceAnalysis> faces) {
+        List<float[]> embeddings = new ArrayList<>(faces.size());
+        for (FaceAnalysis face : faces) {
+            embeddings.add(face.features());
+        }
+        return embeddings;
+    }
+}
@@ -0,0 +1,103 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Grid statistics face descriptor: the equalized, min-max normalized gray
+ * face is split into an 8x8 grid and each cell contributes its mean and
+ * standard deviation; the remaining slots hold the global mean.
+ * <p>
+ * Sums and squared sums come from integral images computed once per face,
+ * so every cell is a constant-time lookup of four corners instead of a
+ * sub-Mat and a {@code meanStdDev} call. The layout of the vector is what
+ * stored embeddings were built with and must not change.
+ */
+public final class GridFeatureExtractor {
+
+    /**
+     * Length of the feature vector (standard face embedding size)
+     */
+    public static final int FEATURE_SIZE = 128;
+
+    // Split budget between mean and variance
+    private static final int DIVISIONS = (int) Math.sqrt(FEATURE_SIZE / 2);
+
+    private GridFeatureExtractor() {
+    }
+
+    /**
+     * Extract the descriptor of a BGR face crop
+     *
+     * @param workspace supplies the intermediate and integral images
+     */
+    public static float[] extract(Mat face, MatWorkspace workspace) {
+        Mat gray = workspace.mat(MatWorkspace.Slot.GRAY);
+        opencv_imgproc.cvtColor(face, gray, opencv_imgproc.COLOR_BGR2GRAY);
+
+        // Equalize histogram to handle lighting variations
+        Mat equalized = workspace.mat(MatWorkspace.Slot.EQUALIZED);
+        opencv_imgproc.equalizeHist(gray, equalized);
+
+        return fromEqualized(equalized, workspace);
+    }
+
+    /**
+     * Extract the descriptor from the histogram-equalized gray face, for
+     * callers that already have it
+     */
+    public static float[] fromEqualized(Mat equalized, MatWorkspace workspace) {
+        Mat normalized = workspace.mat(MatWorkspace.Slot.NORMALIZED);
+        opencv_core.normalize(equalized, normalized, 0, 1.0, opencv_core.NORM_MINMAX, opencv_core.CV_32F, null);
+
+        // (rows + 1) x (cols + 1) running sums of the pixels and their squares, in double
+        Mat integral = workspace.mat(MatWorkspace.Slot.INTEGRAL);
+        Mat squaredIntegral = workspace.mat(MatWorkspace.Slot.SQUARED_INTEGRAL);
+        opencv_imgproc.integral2(normalized, integral, squaredIntegral, opencv_core.CV_64F, opencv_core.CV_64F);
+
+        int cols = normalized.cols();
+        int rows = normalized.rows();
+        int stride = cols + 1;
+        DoubleBuffer sums = integral.createBuffer();
+        DoubleBuffer squares = squaredIntegral.createBuffer();
+
+        float[] features = new float[FEATURE_SIZE];
+        int cellW = cols / DIVISIONS;
+        int cellH = rows / DIVISIONS;
+        int idx = 0;
+
+        for (int i = 0; i < DIVISIONS && idx < FEATURE_SIZE - 2; i++) {
+            for (int j = 0; j < DIVISIONS && idx < FEATURE_SIZE - 2; j++) {
+                int x = j * cellW;
+                int y = i * cellH;
+                int w = Math.min(cellW, cols - x);
+                int h = Math.min(cellH, rows - y);
+
+                // Same population statistics as meanStdDev
+                double count = (double) w * h;
+                double mean = rectangleSum(sums, stride, x, y, w, h) / count;
+                double meanSquare = rectangleSum(squares, stride, x, y, w, h) / count;
+                features[idx++] = (float) mean;
+                features[idx++] = (float) Math.sqrt(Math.max(0.0, meanSquare - mean * mean));
+            }
+        }
+
+        // Add more global characteristics to fill the rest of the vector
+        float globalMean = (float) (sums.get(rows * stride + cols) / ((double) cols * rows));
+        while (idx < FEATURE_SIZE) {
+            features[idx++] = globalMean;
+        }
+
+        return features;
+    }
+
+    private static double rectangleSum(DoubleBuffer integral, int stride, int x, int y, int w, int h) {
+        int top = y * stride;
+        int bottom = (y + h) * stride;
+        return integral.get(bottom + x + w) - integral.get(bottom + x)
+                - integral.get(top + x + w) + integral.get(top + x);
+    }
+}
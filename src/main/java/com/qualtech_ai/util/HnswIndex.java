@@ -0,0 +1,648 @@
+package com.qualtech_ai.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest neighbour
+ * search over L2-normalized vectors (similarity = dot product).
+ * <p>
+ * Nodes carry a string label (the user id); one label may own several nodes
+ * (exemplars). Deletes are tombstones: deleted nodes still route searches but
+ * are never returned. Callers rebuild once {@link #deletedRatio()} grows.
+ * <p>
+ * Not thread-safe for writers: inserts and deletes must be serialized by the
+ * caller, searches may run concurrently with each other.
+ * <p>
+ * Node vectors live off-heap in a {@link FloatRowStore} (node id = row), so
+ * a large index adds nothing to the Java heap and is not limited by the
+ * size of a single array.
+ */
+public class HnswIndex {
+
+    private static final int FILE_MAGIC = 0x51484E53; // "QHNS"
+    private static final int FILE_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SimilarityKernel kernel;
+    private final Random random;
+
+    private volatile int efSearch;
+
+    private final FloatRowStore vectors;
+    private String[] labels;
+    private int[] levels;
+    private boolean[] deleted;
+    private int[][][] links; // links[node][level] = [count, n1, n2, ...]
+    private int size = 0;
+    private int deletedCount = 0;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private final Map<String, List<Integer>> labelNodes = new HashMap<>();
+
+    // Scratch rows for score(); writes are serialized by the caller
+    private final float[] scoreRowA;
+    private final float[] scoreRowB;
+
+    private final ThreadLocal<VisitedSet> visitedSets = ThreadLocal.withInitial(VisitedSet::new);
+
+    public HnswIndex(int dimension, int m, int efConstruction, int efSearch) {
+        this(dimension, m, efConstruction, efSearch, SimilarityKernels.preferred(), 42L);
+    }
+
+    HnswIndex(int dimension, int m, int efConstruction, int efSearch, SimilarityKernel kernel, long seed) {
+        if (m < 2) {
+            throw new IllegalArgumentException("M must be at least 2");
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(1, efSearch);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.kernel = kernel;
+        this.random = new Random(seed);
+        this.vectors = new FloatRowStore(dimension, INITIAL_CAPACITY);
+        this.scoreRowA = new float[dimension];
+        this.scoreRowB = new float[dimension];
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Insert an L2-normalized vector under the given label
+     *
+     * @return the internal node id
+     */
+    public int add(String label, float[] vector) {
+        return add(label, vector, 0);
+    }
+
+    /**
+     * Insert an L2-normalized vector read from {@code source} at {@code offset}
+     */
+    public int add(String label, float[] source, int offset) {
+        if (size == labels.length) {
+            grow(size * 2);
+        }
+        int node = size++;
+        vectors.append(source, offset);
+        labels[node] = label;
+        int level = randomLevel();
+        levels[node] = level;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[(l == 0 ? maxM0 : m) + 1];
+        }
+        labelNodes.computeIfAbsent(label, k -> new ArrayList<>(1)).add(node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        float[] row = new float[dimension];
+        int current = entryPoint;
+        float currentScore = dot(source, offset, current, row);
+        for (int l = maxLevel; l > level; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbours = links[current][l];
+                for (int i = 1; i <= neighbours[0]; i++) {
+                    int candidate = neighbours[i];
+                    float s = dot(source, offset, candidate, row);
+                    if (s > currentScore) {
+                        currentScore = s;
+                        current = candidate;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap candidates = searchLayer(source, offset, current, efConstruction, l);
+            current = candidates.best();
+            int[] selected = selectNeighbours(candidates, l == 0 ? maxM0 : m);
+            int[] own = links[node][l];
+            for (int neighbour : selected) {
+                own[++own[0]] = neighbour;
+                connect(neighbour, node, l);
+            }
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * Tombstone all nodes of a label
+     *
+     * @return number of nodes removed
+     */
+    public int remove(String label) {
+        List<Integer> nodes = labelNodes.remove(label);
+        if (nodes == null) {
+            return 0;
+        }
+        for (int node : nodes) {
+            if (!deleted[node]) {
+                deleted[node] = true;
+                deletedCount++;
+            }
+        }
+        return nodes.size();
+    }
+
+    /**
+     * Approximate top-k search, best first; at most one hit per label
+     */
+    public List<Hit> search(float[] query, int k) {
+        List<Hit> hits = new ArrayList<>(k);
+        if (entryPoint < 0 || k <= 0) {
+            return hits;
+        }
+
+        float[] row = new float[dimension];
+        int current = entryPoint;
+        float currentScore = dot(query, 0, current, row);
+        for (int l = maxLevel; l > 0; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbours = links[current][l];
+                for (int i = 1; i <= neighbours[0]; i++) {
+                    int candidate = neighbours[i];
+                    float s = dot(query, 0, candidate, row);
+                    if (s > currentScore) {
+                        currentScore = s;
+                        current = candidate;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // Over-fetch so tombstones and extra exemplars of one label don't starve k
+        int ef = Math.max(efSearch, k * 2);
+        NodeHeap found = searchLayer(query, 0, current, ef, 0);
+        found.sortDescending();
+        Map<String, Hit> byLabel = new LinkedHashMap<>();
+        for (int i = 0; i < found.size(); i++) {
+            int node = found.nodeAt(i);
+            if (deleted[node]) {
+                continue;
+            }
+            byLabel.putIfAbsent(labels[node], new Hit(labels[node], found.keyAt(i)));
+            if (byLabel.size() == k) {
+                break;
+            }
+        }
+        hits.addAll(byLabel.values());
+        return hits;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = Math.max(1, efSearch);
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * Live (non-deleted) node count
+     */
+    public int size() {
+        return size - deletedCount;
+    }
+
+    public double deletedRatio() {
+        return size == 0 ? 0.0 : (double) deletedCount / size;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Order-independent fingerprint of the live (label, vector) pairs, used to
+     * check that a persisted index still matches the gallery
+     */
+    public long fingerprint() {
+        long fingerprint = 0L;
+        float[] row = new float[dimension];
+        for (int node = 0; node < size; node++) {
+            if (!deleted[node]) {
+                vectors.copyRow(node, row, 0);
+                fingerprint += rowFingerprint(labels[node], row, 0, dimension);
+            }
+        }
+        return fingerprint;
+    }
+
+    public static long rowFingerprint(String label, float[] source, int offset, int dimension) {
+        int h = 1;
+        for (int i = 0; i < dimension; i++) {
+            h = 31 * h + Float.floatToIntBits(source[offset + i]);
+        }
+        return label.hashCode() * 0x9E3779B97F4A7C15L + h;
+    }
+
+    /**
+     * Write the index to a file atomically (temp file + move)
+     */
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(dimension);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(efSearch);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            float[] row = new float[dimension];
+            for (int node = 0; node < size; node++) {
+                out.writeUTF(labels[node]);
+                out.writeBoolean(deleted[node]);
+                out.writeByte(levels[node]);
+                vectors.copyRow(node, row, 0);
+                for (int i = 0; i < dimension; i++) {
+                    out.writeFloat(row[i]);
+                }
+                for (int l = 0; l <= levels[node]; l++) {
+                    int[] neighbours = links[node][l];
+                    out.writeShort(neighbours[0]);
+                    for (int i = 1; i <= neighbours[0]; i++) {
+                        out.writeInt(neighbours[i]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read an index written by {@link #save(Path)}
+     */
+    public static HnswIndex load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not a face index file: " + file);
+            }
+            int dimension = in.readInt();
+            int m = in.readInt();
+            int efConstruction = in.readInt();
+            int efSearch = in.readInt();
+            int size = in.readInt();
+
+            HnswIndex index = new HnswIndex(dimension, m, efConstruction, efSearch);
+            index.grow(Math.max(size, INITIAL_CAPACITY));
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            float[] row = new float[dimension];
+            for (int node = 0; node < size; node++) {
+                String label = in.readUTF();
+                boolean isDeleted = in.readBoolean();
+                int level = in.readByte();
+                index.labels[node] = label;
+                index.deleted[node] = isDeleted;
+                index.levels[node] = level;
+                for (int i = 0; i < dimension; i++) {
+                    row[i] = in.readFloat();
+                }
+                index.vectors.append(row, 0);
+                index.links[node] = new int[level + 1][];
+                for (int l = 0; l <= level; l++) {
+                    int[] neighbours = new int[(l == 0 ? index.maxM0 : m) + 1];
+                    neighbours[0] = in.readShort();
+                    for (int i = 1; i <= neighbours[0]; i++) {
+                        neighbours[i] = in.readInt();
+                    }
+                    index.links[node][l] = neighbours;
+                }
+                if (isDeleted) {
+                    index.deletedCount++;
+                } else {
+                    index.labelNodes.computeIfAbsent(label, k -> new ArrayList<>(1)).add(node);
+                }
+            }
+            index.size = size;
+            return index;
+        }
+    }
+
+    private NodeHeap searchLayer(float[] query, int queryOffset, int start, int ef, int level) {
+        VisitedSet visited = visitedSets.get();
+        visited.reset(size);
+
+        NodeHeap candidates = new NodeHeap(ef * 2); // max-heap via negated scores
+        NodeHeap results = new NodeHeap(ef + 1); // min-heap, worst result on top
+
+        float[] row = new float[dimension];
+        float startScore = dot(query, queryOffset, start, row);
+        visited.mark(start);
+        candidates.push(start, -startScore);
+        results.push(start, startScore);
+
+        while (candidates.size() > 0) {
+            float candidateScore = -candidates.topKey();
+            if (results.size() >= ef && candidateScore < results.topKey()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int[] neighbours = links[candidate][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (!visited.mark(neighbour)) {
+                    continue;
+                }
+                float s = dot(query, queryOffset, neighbour, row);
+                if (results.size() < ef || s > results.topKey()) {
+                    candidates.push(neighbour, -s);
+                    results.push(neighbour, s);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to
+     * the new node than to any neighbour already selected (keeps the graph
+     * navigable across clusters)
+     */
+    private int[] selectNeighbours(NodeHeap candidates, int maxNeighbours) {
+        candidates.sortDescending();
+        int[] selected = new int[Math.min(maxNeighbours, candidates.size())];
+        int count = 0;
+        for (int c = 0; c < candidates.size() && count < selected.length; c++) {
+            int candidate = candidates.nodeAt(c);
+            float toQuery = candidates.keyAt(c);
+            boolean keep = true;
+            for (int i = 0; i < count; i++) {
+                if (score(candidate, selected[i]) > toQuery) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+            }
+        }
+        // Fill remaining slots with the closest skipped candidates
+        for (int c = 0; c < candidates.size() && count < selected.length; c++) {
+            int candidate = candidates.nodeAt(c);
+            boolean present = false;
+            for (int i = 0; i < count; i++) {
+                if (selected[i] == candidate) {
+                    present = true;
+                    break;
+                }
+            }
+            if (!present) {
+                selected[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void connect(int node, int neighbour, int level) {
+        int[] own = links[node][level];
+        int capacity = own.length - 1;
+        if (own[0] < capacity) {
+            own[++own[0]] = neighbour;
+            return;
+        }
+        // Full: replace the weakest link if the new neighbour is closer
+        int weakestSlot = -1;
+        float weakestScore = score(node, neighbour);
+        for (int i = 1; i <= own[0]; i++) {
+            float s = score(node, own[i]);
+            if (s < weakestScore) {
+                weakestScore = s;
+                weakestSlot = i;
+            }
+        }
+        if (weakestSlot > 0) {
+            own[weakestSlot] = neighbour;
+        }
+    }
+
+    /**
+     * Similarity of two nodes; only called by the (single) writer
+     */
+    private float score(int a, int b) {
+        vectors.copyRow(a, scoreRowA, 0);
+        vectors.copyRow(b, scoreRowB, 0);
+        return kernel.dot(scoreRowA, 0, scoreRowB, 0, dimension);
+    }
+
+    /**
+     * Similarity of the query with a node, copied into {@code row} first
+     */
+    private float dot(float[] query, int queryOffset, int node, float[] row) {
+        vectors.copyRow(node, row, 0);
+        return kernel.dot(query, queryOffset, row, 0, dimension);
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble(); // (0, 1]
+        return Math.min((int) (-Math.log(r) * levelMultiplier), 16);
+    }
+
+    private void allocate(int capacity) {
+        labels = new String[capacity];
+        levels = new int[capacity];
+        deleted = new boolean[capacity];
+        links = new int[capacity][][];
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= labels.length) {
+            return;
+        }
+        labels = Arrays.copyOf(labels, capacity);
+        levels = Arrays.copyOf(levels, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    /**
+     * Search hit: label and cosine similarity
+     */
+    public record Hit(String label, float score) {
+    }
+
+    /**
+     * Primitive binary min-heap of (node, key); {@link #sortDescending()}
+     * turns it into a plain array ordered best first
+     */
+    private static final class NodeHeap {
+        private int[] nodes;
+        private float[] keys;
+        private int size = 0;
+
+        NodeHeap(int capacity) {
+            nodes = new int[Math.max(capacity, 4)];
+            keys = new float[nodes.length];
+        }
+
+        void push(int node, float key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                int node = nodes[size];
+                float key = keys[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && keys[child + 1] < keys[child]) {
+                        child++;
+                    }
+                    if (keys[child] >= key) {
+                        break;
+                    }
+                    nodes[i] = nodes[child];
+                    keys[i] = keys[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                keys[i] = key;
+            }
+            return top;
+        }
+
+        float topKey() {
+            return keys[0];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Best (highest key) node currently in the heap
+         */
+        int best() {
+            int best = nodes[0];
+            float bestKey = keys[0];
+            for (int i = 1; i < size; i++) {
+                if (keys[i] > bestKey) {
+                    bestKey = keys[i];
+                    best = nodes[i];
+                }
+            }
+            return best;
+        }
+
+        int nodeAt(int i) {
+            return nodes[i];
+        }
+
+        float keyAt(int i) {
+            return keys[i];
+        }
+
+        /**
+         * Heap sort in place, highest key first; the heap must not be
+         * pushed to afterwards
+         */
+        void sortDescending() {
+            int n = size;
+            while (size > 1) {
+                float key = keys[0];
+                int node = pop();
+                nodes[size] = node;
+                keys[size] = key;
+            }
+            size = n;
+        }
+    }
+
+    /**
+     * Epoch-stamped visited markers, reused per thread
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int epoch = 0;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                epoch = 0;
+            }
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * @return true if the node was not visited before
+         */
+        boolean mark(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
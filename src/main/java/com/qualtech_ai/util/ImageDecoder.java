@@ -0,0 +1,56 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgcodecs;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+/**
+ * Decodes uploaded images (JPEG, PNG, ...) straight from memory with
+ * {@code imdecode}, so the face pipeline never writes a frame to disk just to
+ * hand OpenCV a file path.
+ */
+public final class ImageDecoder {
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * Decode to a 3-channel BGR image
+     *
+     * @return the decoded image; empty when the bytes are not a supported image
+     */
+    public static Mat decode(byte[] imageBytes) {
+        return decode(imageBytes, opencv_imgcodecs.IMREAD_COLOR);
+    }
+
+    /**
+     * Decode with explicit {@code IMREAD_*} flags
+     */
+    public static Mat decode(byte[] imageBytes, int flags) {
+        if (imageBytes == null || imageBytes.length == 0) {
+            return new Mat();
+        }
+        // The header Mat wraps the native copy of the bytes without copying again
+        try (BytePointer data = new BytePointer(imageBytes);
+             Mat encoded = new Mat(1, imageBytes.length, opencv_core.CV_8UC1, data)) {
+            return opencv_imgcodecs.imdecode(encoded, flags);
+        }
+    }
+
+    /**
+     * Decode a pooled frame in place; the frame stays owned by the caller
+     */
+    public static Mat decode(FrameBuffer frame) {
+        return decode(frame, opencv_imgcodecs.IMREAD_COLOR);
+    }
+
+    public static Mat decode(FrameBuffer frame, int flags) {
+        if (frame.length() == 0) {
+            return new Mat();
+        }
+        try (Mat encoded = frame.asMat()) {
+            return opencv_imgcodecs.imdecode(encoded, flags);
+        }
+    }
+}
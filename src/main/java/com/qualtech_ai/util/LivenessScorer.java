@@ -0,0 +1,229 @@
+package com.qualtech_ai.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+/**
+ * Liveness measurements for a BGR face crop in two passes over the pixels,
+ * replacing the gray / Laplacian / HSV / inRange / split / meanStdDev chain
+ * (about seven full passes and as many intermediate Mats).
+ * <p>
+ * The results are bit-identical to that chain: gray and saturation use the
+ * same fixed-point arithmetic as OpenCV's 8-bit {@code cvtColor}, the
+ * Laplacian is the {@code ksize = 1} kernel with {@code BORDER_REFLECT_101},
+ * and all sums are exact integers before the final division, the same
+ * formula {@code meanStdDev} uses.
+ * <ol>
+ * <li>Pass 1 (BGR): gray value, glare mask (V &gt;= 220, S &lt;= 50) and the
+ * blue and red sums.</li>
+ * <li>Pass 2 (gray): Laplacian sum and sum of squares.</li>
+ * </ol>
+ */
+@Slf4j
+public final class LivenessScorer {
+
+    // cvtColor BGR2GRAY, 8-bit: fixed point with 14 fractional bits
+    private static final int GRAY_SHIFT = 14;
+    private static final int B2Y = 1868;
+    private static final int G2Y = 9617;
+    private static final int R2Y = 4899;
+    private static final int GRAY_ROUND = 1 << (GRAY_SHIFT - 1);
+
+    // cvtColor BGR2HSV, 8-bit: S = diff * round((255 << 12) / V) >> 12
+    private static final int HSV_SHIFT = 12;
+    private static final int HSV_ROUND = 1 << (HSV_SHIFT - 1);
+    private static final int[] SATURATION_DIVISORS = new int[256];
+
+    // Glare: high value, low saturation; any hue (8-bit hue is always within 0..180)
+    private static final int GLARE_MIN_VALUE = 220;
+    private static final int GLARE_MAX_SATURATION = 50;
+
+    static {
+        for (int v = 1; v < 256; v++) {
+            SATURATION_DIVISORS[v] = (int) Math.rint((255 << HSV_SHIFT) / (double) v);
+        }
+    }
+
+    private LivenessScorer() {
+    }
+
+    /**
+     * @param laplacianVariance texture/sharpness: variance of the Laplacian of the gray face
+     * @param reflectionRatio   fraction of glare pixels (screens, glass)
+     * @param redToBlue         mean red over mean blue; screens skew blue
+     */
+    public record Measurements(double laplacianVariance, double reflectionRatio, double redToBlue) {
+    }
+
+    /**
+     * Measure a face crop (CV_8UC3, BGR; ROIs are fine)
+     *
+     * @param workspace supplies the pixel buffer
+     */
+    public static Measurements measure(Mat face, MatWorkspace workspace) {
+        return measure(face, null, workspace);
+    }
+
+    /**
+     * Measure a face crop whose gray conversion has already been made, so the
+     * gray values are read instead of computed again
+     *
+     * @param gray {@code COLOR_BGR2GRAY} of the face, or null to compute it here
+     */
+    public static Measurements measure(Mat face, Mat gray, MatWorkspace workspace) {
+        if (face.type() != opencv_core.CV_8UC3) {
+            throw new IllegalArgumentException("Liveness expects an 8-bit BGR face, got type " + face.type());
+        }
+        int rows = face.rows();
+        int cols = face.cols();
+        int pixels = rows * cols;
+        if (pixels == 0) {
+            throw new IllegalArgumentException("Empty face crop");
+        }
+        int grayOffset = pixels * 3;
+        byte[] buffer = workspace.bytes(pixels * 4);
+        readPixels(face, buffer, 0, cols * 3);
+        boolean computeGray = gray == null;
+        if (!computeGray) {
+            if (gray.rows() != rows || gray.cols() != cols || gray.type() != opencv_core.CV_8UC1) {
+                throw new IllegalArgumentException("Gray image does not match the face crop");
+            }
+            readPixels(gray, buffer, grayOffset, cols);
+        }
+
+        // Pass 1: gray (unless supplied), glare and channel sums
+        long blueSum = 0;
+        long redSum = 0;
+        int glare = 0;
+        for (int p = 0, i = 0; p < pixels; p++, i += 3) {
+            int b = buffer[i] & 0xFF;
+            int g = buffer[i + 1] & 0xFF;
+            int r = buffer[i + 2] & 0xFF;
+            blueSum += b;
+            redSum += r;
+            if (computeGray) {
+                buffer[grayOffset + p] = (byte) ((b * B2Y + g * G2Y + r * R2Y + GRAY_ROUND) >> GRAY_SHIFT);
+            }
+
+            int max = Math.max(b, Math.max(g, r));
+            if (max >= GLARE_MIN_VALUE) {
+                int min = Math.min(b, Math.min(g, r));
+                int saturation = ((max - min) * SATURATION_DIVISORS[max] + HSV_ROUND) >> HSV_SHIFT;
+                if (saturation <= GLARE_MAX_SATURATION) {
+                    glare++;
+                }
+            }
+        }
+
+        // Pass 2: Laplacian [0 1 0; 1 -4 1; 0 1 0] over the gray image
+        long sum = 0;
+        long sumSquares = 0;
+        for (int y = 0; y < rows; y++) {
+            int row = grayOffset + y * cols;
+            int up = grayOffset + reflect(y - 1, rows) * cols;
+            int down = grayOffset + reflect(y + 1, rows) * cols;
+            for (int x = 0; x < cols; x++) {
+                int left = x > 0 ? x - 1 : reflect(-1, cols);
+                int right = x < cols - 1 ? x + 1 : reflect(cols, cols);
+                int value = (buffer[up + x] & 0xFF) + (buffer[down + x] & 0xFF)
+                        + (buffer[row + left] & 0xFF) + (buffer[row + right] & 0xFF)
+                        - 4 * (buffer[row + x] & 0xFF);
+                sum += value;
+                sumSquares += (long) value * value;
+            }
+        }
+
+        double scale = 1.0 / pixels;
+        double mean = sum * scale;
+        double stddev = Math.sqrt(Math.max(sumSquares * scale - mean * mean, 0.0));
+        double variance = Math.pow(stddev, 2);
+
+        double reflectionRatio = (double) glare / pixels;
+
+        double blueAvg = blueSum * scale;
+        double redAvg = redSum * scale;
+        double redToBlue = (blueAvg > 0) ? redAvg / blueAvg : 1.0;
+
+        return new Measurements(variance, reflectionRatio, redToBlue);
+    }
+
+    /**
+     * Liveness score (0-100) with strict anti-spoofing for screens and frames
+     */
+    public static double score(Measurements measurements) {
+        double variance = measurements.laplacianVariance();
+        double reflectionRatio = measurements.reflectionRatio();
+        double rToB = measurements.redToBlue();
+
+        double finalScore = 50.0; // Start with a stable base score for a detected face
+
+        // Texture Bonus: Real skin has natural texture/sharpness
+        // Adjusted for 160x160 face crops: variance of 100-200 is common for sharp faces
+        if (variance > 60 && variance < 1000) {
+            finalScore += 20.0;
+        }
+
+        // --- PENALTIES (Strict Gates) ---
+
+        // Penalty: Blue Light (Screen indication)
+        if (rToB <= 1.0) { // Relaxed from 1.2
+            finalScore -= 30.0; // Reduced penalty
+            log.debug("Liveness Penalty: Blue light detected (R/B ratio: {})", rToB);
+        } else if (rToB < 1.1) { // Mild penalty for cool lighting that mimics screens
+            finalScore -= 15.0;
+        }
+
+        // Penalty: Reflections (Screen/Glass)
+        if (reflectionRatio > 0.10) { // Relaxed from 0.04
+            finalScore -= 100.0; // Immediate fail
+            log.debug("Liveness Penalty: High reflection detected ({}%)", reflectionRatio * 100);
+        } else if (reflectionRatio > 0.03) { // Relaxed from 0.005
+            finalScore -= 20.0;
+        }
+
+        // Penalty: Too Smooth (Blurry Photo) or Too Grainy (Moiré pattern/Screen noise)
+        if (variance < 40) { // Stricter blur threshold
+            finalScore -= 70.0;
+            log.debug("Liveness Penalty: Image too smooth/blurry (Var: {})", variance);
+        } else if (variance > 1400) {
+            finalScore -= 80.0;
+            log.debug("Liveness Penalty: High frequency noise (Moiré pattern likely) (Var: {})", variance);
+        }
+
+        // Clamp 0-100
+        return Math.max(0, Math.min(100, finalScore));
+    }
+
+    /**
+     * BORDER_REFLECT_101 index: -1 maps to 1, n maps to n - 2
+     */
+    private static int reflect(int index, int length) {
+        if (length == 1) {
+            return 0;
+        }
+        if (index < 0) {
+            return -index;
+        }
+        if (index >= length) {
+            return 2 * length - 2 - index;
+        }
+        return index;
+    }
+
+    /**
+     * Copy 8-bit pixels row by row, so ROIs with a larger row step work too
+     */
+    private static void readPixels(Mat image, byte[] buffer, int offset, int rowBytes) {
+        BytePointer data = image.data();
+        if (image.isContinuous()) {
+            data.get(buffer, offset, rowBytes * image.rows());
+            return;
+        }
+        long step = image.step1();
+        for (int y = 0; y < image.rows(); y++) {
+            data.position(y * step).get(buffer, offset + y * rowBytes, rowBytes);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_imgproc.CLAHE;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reusable scratch Mats for per-face image analysis.
+ * <p>
+ * OpenCV only reallocates an output Mat when its size or type changes, so
+ * drawing intermediates from a workspace means the fixed 160x160 / 224x224
+ * face paths touch the native allocator only while a workspace warms up.
+ * Workspaces are pooled rather than thread-local so their number follows
+ * the number of faces analysed concurrently, not the size of the request
+ * thread pool.
+ * <pre>
+ * try (MatWorkspace ws = MatWorkspace.acquire()) {
+ *     Mat gray = ws.mat(MatWorkspace.Slot.GRAY);
+ *     ...
+ * }
+ * </pre>
+ * Mats from a workspace are only valid until it is closed; results that
+ * outlive the call must be copied out. Workspace objects are pooled, so they
+ * are kept out of any request {@code PointerScope}.
+ */
+public final class MatWorkspace implements AutoCloseable {
+
+    /**
+     * Scratch roles; one Mat per role per workspace
+     */
+    public enum Slot {
+        GRAY, EQUALIZED, NORMALIZED, INTEGRAL, SQUARED_INTEGRAL, MEAN, STDDEV, FACE, ALIGNED, LIT, LAB, YCRCB
+    }
+
+    private static final int MAX_POOLED = 16;
+    // Intermediates of full frames are released on close rather than pooled
+    private static final long MAX_RETAINED_ELEMENTS = 512L * 512L;
+
+    private static final ArrayBlockingQueue<MatWorkspace> POOL = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    private final Map<Slot, Mat> mats = new EnumMap<>(Slot.class);
+    private final MatVector channels = NativeMemoryTracker.untracked(new MatVector(3));
+    private CLAHE clahe;
+    private byte[] bytes = new byte[0];
+
+    private MatWorkspace() {
+    }
+
+    public static MatWorkspace acquire() {
+        MatWorkspace workspace = POOL.poll();
+        return workspace != null ? workspace : new MatWorkspace();
+    }
+
+    public Mat mat(Slot slot) {
+        return mats.computeIfAbsent(slot, s -> NativeMemoryTracker.untracked(new Mat()));
+    }
+
+    /**
+     * CLAHE instance owned by this workspace. CLAHE keeps per-call buffers, so
+     * it is not shared between threads; callers set clip limit and tile grid
+     * before applying it.
+     */
+    public CLAHE clahe() {
+        if (clahe == null) {
+            clahe = NativeMemoryTracker.untracked(opencv_imgproc.createCLAHE());
+        }
+        return clahe;
+    }
+
+    /**
+     * Reusable vector for split/merge of up to three channels
+     */
+    public MatVector channels() {
+        return channels;
+    }
+
+    /**
+     * Heap buffer of at least {@code length} bytes, for reading Mat pixels
+     */
+    public byte[] bytes(int length) {
+        if (bytes.length < length) {
+            bytes = new byte[length];
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the workspace to the pool, trimming anything sized for a full
+     * frame; discarded workspaces free their native memory immediately
+     */
+    @Override
+    public void close() {
+        for (Mat mat : mats.values()) {
+            if (mat.total() * mat.channels() > MAX_RETAINED_ELEMENTS) {
+                mat.release();
+            }
+        }
+        for (long i = 0; i < channels.size(); i++) {
+            Mat channel = channels.get(i);
+            if (channel.total() > MAX_RETAINED_ELEMENTS) {
+                channel.release();
+            }
+        }
+        if (!POOL.offer(this)) {
+            mats.values().forEach(Mat::close);
+            channels.close();
+            if (clahe != null) {
+                clahe.close();
+            }
+        }
+    }
+}
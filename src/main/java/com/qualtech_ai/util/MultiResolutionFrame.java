@@ -0,0 +1,197 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_imgcodecs;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A frame decoded at two resolutions on demand: a reduced JPEG decode
+ * ({@code IMREAD_REDUCED_COLOR_2/4/8}, which skips most of the IDCT work) for
+ * detection and gating, and the full-resolution decode only when a face crop
+ * needs more detail than the reduced image has.
+ * <p>
+ * The reduction is chosen from the frame size in the JPEG header so that the
+ * reduced image still covers the detector input on both sides. Other formats
+ * are decoded once at full resolution.
+ */
+public final class MultiResolutionFrame implements AutoCloseable {
+
+    private static final int[] REDUCTIONS = {8, 4, 2};
+
+    private final FrameBuffer frame;
+    private int fullWidth;
+    private int fullHeight;
+    private final int scale;
+    private Mat detectionImage;
+    private Mat fullImage;
+
+    private MultiResolutionFrame(FrameBuffer frame, int fullWidth, int fullHeight, int scale) {
+        this.frame = frame;
+        this.fullWidth = fullWidth;
+        this.fullHeight = fullHeight;
+        this.scale = scale;
+    }
+
+    /**
+     * Prepare a frame for two-resolution decoding; nothing is decoded yet.
+     * The frame stays owned by the caller and must outlive this object.
+     *
+     * @param minDetectionSide smallest side the reduced image may have
+     */
+    public static MultiResolutionFrame of(FrameBuffer frame, int minDetectionSide) {
+        int[] size = jpegSize(frame.asByteBuffer());
+        if (size == null) {
+            return new MultiResolutionFrame(frame, 0, 0, 1);
+        }
+        return new MultiResolutionFrame(frame, size[0], size[1], reductionFor(size[0], size[1], minDetectionSide));
+    }
+
+    /**
+     * Largest supported reduction that keeps both sides at or above
+     * {@code minSide}; 1 when the frame is already small
+     */
+    public static int reductionFor(int width, int height, int minSide) {
+        int shortSide = Math.min(width, height);
+        for (int reduction : REDUCTIONS) {
+            if (shortSide / reduction >= minSide) {
+                return reduction;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Image for detection: reduced by {@link #scale()}, or the full image when
+     * no reduction applies or it has already been decoded
+     *
+     * @return the image, empty if the frame cannot be decoded
+     */
+    public Mat detectionImage() {
+        if (fullImage != null || scale == 1) {
+            return fullImage();
+        }
+        if (detectionImage == null) {
+            detectionImage = ImageDecoder.decode(frame, reducedFlag(scale));
+            if (detectionImage.empty()) {
+                return fullImage();
+            }
+            // EXIF orientation is applied by the decoder but not reflected in the header
+            if ((detectionImage.cols() > detectionImage.rows()) != (fullWidth > fullHeight)
+                    && fullWidth != fullHeight) {
+                int width = fullWidth;
+                fullWidth = fullHeight;
+                fullHeight = width;
+            }
+        }
+        return detectionImage;
+    }
+
+    /**
+     * Full-resolution image, decoded on first use
+     */
+    public Mat fullImage() {
+        if (fullImage == null) {
+            fullImage = ImageDecoder.decode(frame);
+        }
+        return fullImage;
+    }
+
+    /**
+     * Reduction of {@link #detectionImage()} relative to the full frame
+     */
+    public int scale() {
+        return fullImage != null ? 1 : scale;
+    }
+
+    public int fullWidth() {
+        return fullImage != null || fullWidth == 0 ? fullImage().cols() : fullWidth;
+    }
+
+    public int fullHeight() {
+        return fullImage != null || fullHeight == 0 ? fullImage().rows() : fullHeight;
+    }
+
+    /**
+     * Crop of a face given in full-resolution coordinates. The reduced image
+     * is used when the face is at least {@code minCropSide} pixels there, so
+     * the full decode happens only for faces too small to embed from it.
+     * The crop shares memory with the source image; release it, not the frame.
+     */
+    public Mat crop(Rect fullRect, int minCropSide) {
+        int reduction = scale();
+        if (reduction > 1 && Math.min(fullRect.width(), fullRect.height()) / reduction >= minCropSide) {
+            Mat reduced = detectionImage();
+            int x = Math.min(fullRect.x() / reduction, reduced.cols() - 1);
+            int y = Math.min(fullRect.y() / reduction, reduced.rows() - 1);
+            int width = Math.min(fullRect.width() / reduction, reduced.cols() - x);
+            int height = Math.min(fullRect.height() / reduction, reduced.rows() - y);
+            return new Mat(reduced, new Rect(x, y, width, height));
+        }
+        return new Mat(fullImage(), fullRect);
+    }
+
+    @Override
+    public void close() {
+        if (detectionImage != null) {
+            detectionImage.release();
+        }
+        if (fullImage != null) {
+            fullImage.release();
+        }
+    }
+
+    private static int reducedFlag(int reduction) {
+        return switch (reduction) {
+            case 2 -> opencv_imgcodecs.IMREAD_REDUCED_COLOR_2;
+            case 4 -> opencv_imgcodecs.IMREAD_REDUCED_COLOR_4;
+            case 8 -> opencv_imgcodecs.IMREAD_REDUCED_COLOR_8;
+            default -> opencv_imgcodecs.IMREAD_COLOR;
+        };
+    }
+
+    /**
+     * Width and height from the first start-of-frame marker of a JPEG
+     *
+     * @return {width, height}, or null if the bytes are not a JPEG with a
+     * readable frame header
+     */
+    static int[] jpegSize(ByteBuffer data) {
+        int limit = data.limit();
+        if (limit < 4 || (data.get(0) & 0xFF) != 0xFF || (data.get(1) & 0xFF) != 0xD8) {
+            return null;
+        }
+        int position = 2;
+        while (position + 4 <= limit) {
+            if ((data.get(position) & 0xFF) != 0xFF) {
+                return null;
+            }
+            int marker = data.get(position + 1) & 0xFF;
+            if (marker == 0xFF) {
+                position++; // fill byte
+                continue;
+            }
+            if (marker == 0xD8 || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                position += 2; // markers without a length
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                return null; // end of image or scan data before any frame header
+            }
+            int length = ((data.get(position + 2) & 0xFF) << 8) | (data.get(position + 3) & 0xFF);
+            boolean startOfFrame = marker >= 0xC0 && marker <= 0xCF
+                    && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (startOfFrame) {
+                if (position + 9 > limit) {
+                    return null;
+                }
+                int height = ((data.get(position + 5) & 0xFF) << 8) | (data.get(position + 6) & 0xFF);
+                int width = ((data.get(position + 7) & 0xFF) << 8) | (data.get(position + 8) & 0xFF);
+                return width > 0 && height > 0 ? new int[]{width, height} : null;
+            }
+            position += 2 + length;
+        }
+        return null;
+    }
+}
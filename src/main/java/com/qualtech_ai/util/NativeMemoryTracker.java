@@ -0,0 +1,194 @@
+package com.qualtech_ai.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.javacpp.PointerScope;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accounting for native memory allocated through JavaCPP/OpenCV.
+ * <p>
+ * Publishes {@link Pointer#totalBytes()} and {@link Pointer#physicalBytes()}
+ * as gauges ({@code opencv.native.*} on the actuator metrics endpoint) and
+ * opens a tracking {@link PointerScope} per face request. The scope only
+ * observes: every native object created on the request thread is counted,
+ * none is freed by the scope. With leak detection enabled the scope also
+ * remembers those objects and logs the ones still holding memory when the
+ * request ends.
+ * <pre>
+ * try (NativeMemoryTracker.Scope scope = nativeMemoryTracker.open("verify")) {
+ *     ...
+ * }
+ * </pre>
+ * Pooled objects that are meant to outlive a request are excluded with
+ * {@link #untracked(Pointer)}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NativeMemoryTracker {
+
+    private static final int MAX_LOGGED_PER_SCOPE = 10;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${face.native-memory.leak-detection:false}")
+    private boolean leakDetection;
+
+    @Value("${face.native-memory.leak-min-bytes:1024}")
+    private long leakMinBytes;
+
+    private final Map<String, DistributionSummary> allocationSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> leakCounters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerGauges() {
+        Gauge.builder("opencv.native.memory.total", Pointer::totalBytes)
+                .description("Native memory currently allocated through JavaCPP")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("opencv.native.memory.physical", Pointer::physicalBytes)
+                .description("Resident memory of the process, heap included")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("opencv.native.memory.max", Pointer::maxBytes)
+                .description("Limit on JavaCPP native memory before it forces a GC")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("opencv.native.pointers", Pointer::totalCount)
+                .description("Native objects currently allocated through JavaCPP")
+                .register(meterRegistry);
+        log.info("Native memory tracking enabled (leak detection: {})", leakDetection);
+    }
+
+    /**
+     * Open a tracking scope for one request on the current thread
+     *
+     * @param operation tag for the per-request metrics, e.g. "verify"
+     */
+    public Scope open(String operation) {
+        return new Scope(operation, leakDetection);
+    }
+
+    /**
+     * Keep a pooled object out of the current thread's scope, so it is neither
+     * freed by a releasing scope nor reported as having outlived the request
+     */
+    public static <P extends Pointer> P untracked(P pointer) {
+        PointerScope scope = PointerScope.getInnerScope();
+        if (scope != null) {
+            scope.detach(pointer);
+        }
+        return pointer;
+    }
+
+    /**
+     * Native bytes still held by an object: pixel data for a Mat, the
+     * allocated capacity otherwise; 0 once it has been deallocated
+     */
+    static long retainedBytes(Pointer pointer) {
+        if (pointer.isNull()) {
+            return 0;
+        }
+        if (pointer instanceof Mat mat) {
+            return mat.empty() ? 0 : mat.total() * mat.elemSize();
+        }
+        return Math.max(pointer.capacity(), pointer.limit()) * Math.max(1, pointer.sizeof());
+    }
+
+    private void record(Scope scope) {
+        allocationSummaries.computeIfAbsent(scope.operation, operation -> DistributionSummary
+                .builder("opencv.native.scope.allocations")
+                .description("Native objects allocated per request")
+                .tag("operation", operation)
+                .register(meterRegistry))
+                .record(scope.allocations);
+
+        if (scope.live == null) {
+            return;
+        }
+        int leaked = 0;
+        long leakedBytes = 0;
+        for (Pointer pointer : scope.live) {
+            long bytes = retainedBytes(pointer);
+            if (bytes < leakMinBytes) {
+                continue;
+            }
+            if (leaked < MAX_LOGGED_PER_SCOPE) {
+                log.warn("🧪 Native {} of {} bytes allocated during '{}' outlived the request: {}",
+                        pointer.getClass().getSimpleName(), bytes, scope.operation, pointer);
+            }
+            leaked++;
+            leakedBytes += bytes;
+        }
+        if (leaked > 0) {
+            leakCounters.computeIfAbsent(scope.operation, operation -> Counter
+                    .builder("opencv.native.scope.leaked")
+                    .description("Native objects still holding memory when their request ended")
+                    .tag("operation", operation)
+                    .register(meterRegistry))
+                    .increment(leaked);
+            log.warn("🧪 {} native objects ({} bytes) outlived '{}' ({} allocated in total)",
+                    leaked, leakedBytes, scope.operation, scope.allocations);
+        }
+    }
+
+    /**
+     * Per-request tracking scope; close it on the thread that opened it
+     */
+    public final class Scope extends PointerScope {
+
+        private final String operation;
+        private final Set<Pointer> live;
+        private long allocations;
+
+        private Scope(String operation, boolean trackObjects) {
+            this.operation = operation;
+            this.live = trackObjects ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        }
+
+        public long getAllocations() {
+            return allocations;
+        }
+
+        /**
+         * Count the new object instead of taking ownership of it
+         */
+        @Override
+        public PointerScope attach(Pointer pointer) {
+            allocations++;
+            if (live != null) {
+                live.add(pointer);
+            }
+            return this;
+        }
+
+        @Override
+        public PointerScope detach(Pointer pointer) {
+            if (live != null) {
+                live.remove(pointer);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            record(this);
+        }
+    }
+}
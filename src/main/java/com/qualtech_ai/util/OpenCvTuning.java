@@ -0,0 +1,121 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_dnn;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * How local inference shares the CPU: OpenCV's internal thread count (used
+ * by {@code Net.forward}, {@code resize}, {@code cvtColor} and friends), the
+ * number of pooled face detectors (how many requests infer at once) and the
+ * DNN backend the detector networks run on.
+ * <p>
+ * Zero {@code threads} leaves OpenCV's own default; zero {@code poolSize}
+ * falls back to {@code face.detector.pool.size}.
+ *
+ * @param threads  {@code cv::setNumThreads} value, 0 = OpenCV default
+ * @param poolSize pooled detectors, 0 = as configured
+ * @param backend  DNN backend of the detector networks, always on the CPU target
+ */
+public record OpenCvTuning(int threads, int poolSize, DnnBackend backend) {
+
+    /**
+     * OpenCV and detector defaults, as before tuning existed
+     */
+    public static final OpenCvTuning UNTUNED = new OpenCvTuning(0, 0, DnnBackend.DEFAULT);
+
+    public enum DnnBackend {
+        /**
+         * Whatever the OpenCV build prefers (Inference Engine when present)
+         */
+        DEFAULT(opencv_dnn.DNN_BACKEND_DEFAULT),
+        /**
+         * OpenCV's own CPU implementation
+         */
+        OPENCV(opencv_dnn.DNN_BACKEND_OPENCV);
+
+        private final int backendId;
+
+        DnnBackend(int backendId) {
+            this.backendId = backendId;
+        }
+
+        public int backendId() {
+            return backendId;
+        }
+
+        public int targetId() {
+            return opencv_dnn.DNN_TARGET_CPU;
+        }
+    }
+
+    /**
+     * Throughput and latency of one configuration under concurrent load
+     *
+     * @param throughput detections per second across all clients
+     */
+    public record Measurement(OpenCvTuning tuning, double throughput, double p50Millis, double p95Millis) {
+
+        public boolean meets(double latencySloMillis) {
+            return p95Millis <= latencySloMillis;
+        }
+    }
+
+    /**
+     * Set OpenCV's thread count, unless left at the default
+     */
+    public void applyThreads() {
+        if (threads > 0) {
+            opencv_core.setNumThreads(threads);
+        }
+    }
+
+    /**
+     * Counts worth trying on {@code cores} cores: powers of two up to the
+     * core count, and the core count itself
+     */
+    public static List<Integer> candidateCounts(int cores) {
+        List<Integer> counts = new ArrayList<>();
+        for (int count = 1; count < cores; count *= 2) {
+            counts.add(count);
+        }
+        counts.add(Math.max(1, cores));
+        return counts;
+    }
+
+    /**
+     * Pool sizes worth trying on {@code cores} cores with {@code clients}
+     * concurrent callers: the {@link #candidateCounts} no larger than the
+     * callers can keep busy, plus one detector per caller when that fits
+     */
+    public static List<Integer> poolCandidates(int cores, int clients) {
+        int limit = Math.max(1, Math.min(clients, cores));
+        List<Integer> counts = new ArrayList<>();
+        for (int count : candidateCounts(cores)) {
+            if (count <= limit) {
+                counts.add(count);
+            }
+        }
+        if (counts.get(counts.size() - 1) < limit) {
+            counts.add(limit);
+        }
+        return counts;
+    }
+
+    /**
+     * The highest throughput whose p95 latency meets the SLO; if none does,
+     * the lowest p95 latency
+     */
+    public static Optional<Measurement> best(List<Measurement> measurements, double latencySloMillis) {
+        Optional<Measurement> withinSlo = measurements.stream()
+                .filter(measurement -> measurement.meets(latencySloMillis))
+                .max(Comparator.comparingDouble(Measurement::throughput));
+        return withinSlo.isPresent()
+                ? withinSlo
+                : measurements.stream().min(Comparator.comparingDouble(Measurement::p95Millis));
+    }
+}
@@ -0,0 +1,206 @@
+package com.qualtech_ai.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Row-aligned quantized copy of a float matrix, stored off-heap in a direct
+ * buffer. Used as a first-pass scan tier: candidates found here are meant to
+ * be re-ranked against the exact float rows.
+ * <p>
+ * INT8 stores each row as signed bytes with a per-row scale (max |v| / 127),
+ * FP16 stores IEEE half floats. Rows are expected to be L2-normalized.
+ * Both scans run through the {@link SimilarityKernel}: INT8 with its int8
+ * dot product, FP16 by widening a block of rows to float32 first.
+ */
+public class QuantizedVectorStore implements ScannableRows {
+
+    public enum Encoding {
+        INT8(Byte.BYTES), FP16(Short.BYTES);
+
+        private final int bytesPerValue;
+
+        Encoding(int bytesPerValue) {
+            this.bytesPerValue = bytesPerValue;
+        }
+
+        /**
+         * Parse a config value; "none" (or blank) yields null
+         */
+        public static Encoding fromConfig(String value) {
+            if (value == null || value.isBlank() || value.equalsIgnoreCase("none")) {
+                return null;
+            }
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final int SCAN_BLOCK_ROWS = 64;
+
+    private final int dimension;
+    private final Encoding encoding;
+    private final int rowBytes;
+    private final SimilarityKernel kernel = SimilarityKernels.preferred();
+
+    private ByteBuffer codes;
+    private float[] scales; // INT8 only
+    private int rows = 0;
+
+    public QuantizedVectorStore(int dimension, Encoding encoding, int initialRows) {
+        this.dimension = dimension;
+        this.encoding = encoding;
+        this.rowBytes = dimension * encoding.bytesPerValue;
+        int capacity = Math.max(initialRows, 16);
+        this.codes = ByteBuffer.allocateDirect(capacity * rowBytes).order(ByteOrder.nativeOrder());
+        this.scales = new float[encoding == Encoding.INT8 ? capacity : 0];
+    }
+
+    /**
+     * Quantize one row from {@code source} at {@code offset} and append it
+     */
+    public void append(float[] source, int offset) {
+        ensureCapacity(rows + 1);
+        int base = rows * rowBytes;
+        if (encoding == Encoding.INT8) {
+            float max = 0f;
+            for (int i = 0; i < dimension; i++) {
+                max = Math.max(max, Math.abs(source[offset + i]));
+            }
+            float scale = max == 0f ? 0f : max / 127f;
+            float inverse = max == 0f ? 0f : 127f / max;
+            for (int i = 0; i < dimension; i++) {
+                codes.put(base + i, (byte) Math.round(source[offset + i] * inverse));
+            }
+            scales[rows] = scale;
+        } else {
+            for (int i = 0; i < dimension; i++) {
+                codes.putShort(base + i * Short.BYTES, Float.floatToFloat16(source[offset + i]));
+            }
+        }
+        rows++;
+    }
+
+    /**
+     * Copy row {@code from} over row {@code to} (to fill the hole of a removed row)
+     */
+    public void moveRow(int from, int to) {
+        codes.put(to * rowBytes, codes, from * rowBytes, rowBytes);
+        if (encoding == Encoding.INT8) {
+            scales[to] = scales[from];
+        }
+    }
+
+    public void truncate(int newRows) {
+        rows = Math.min(rows, Math.max(0, newRows));
+    }
+
+    /**
+     * Approximate similarity scan over rows [fromRow, toRow); the probe stays
+     * float, rows are decoded on the fly
+     */
+    public void scan(float[] probe, int fromRow, int toRow, TopK collector) {
+        scan(new float[][]{probe}, fromRow, toRow, new TopK[]{collector});
+    }
+
+    /**
+     * Approximate scan of every probe over rows [fromRow, toRow); each block
+     * of rows is copied out of the direct buffer once and scored for all
+     * probes while it is hot in cache
+     */
+    @Override
+    public void scan(float[][] probes, int fromRow, int toRow, TopK[] collectors) {
+        if (encoding == Encoding.INT8) {
+            scanInt8(probes, fromRow, toRow, collectors);
+        } else {
+            scanFp16(probes, fromRow, toRow, collectors);
+        }
+    }
+
+    /**
+     * Quantize the probes too and accumulate in int through the kernel's
+     * int8 dot product
+     */
+    private void scanInt8(float[][] probes, int fromRow, int toRow, TopK[] collectors) {
+        byte[][] queries = new byte[probes.length][dimension];
+        float[] probeScales = new float[probes.length];
+        for (int p = 0; p < probes.length; p++) {
+            float probeMax = 0f;
+            for (int i = 0; i < dimension; i++) {
+                probeMax = Math.max(probeMax, Math.abs(probes[p][i]));
+            }
+            probeScales[p] = probeMax == 0f ? 0f : probeMax / 127f;
+            float probeInverse = probeMax == 0f ? 0f : 127f / probeMax;
+            for (int i = 0; i < dimension; i++) {
+                queries[p][i] = (byte) Math.round(probes[p][i] * probeInverse);
+            }
+        }
+        byte[] block = new byte[SCAN_BLOCK_ROWS * rowBytes];
+        for (int blockStart = fromRow; blockStart < toRow; blockStart += SCAN_BLOCK_ROWS) {
+            int blockRows = Math.min(SCAN_BLOCK_ROWS, toRow - blockStart);
+            codes.get(blockStart * rowBytes, block, 0, blockRows * rowBytes);
+            for (int p = 0; p < probes.length; p++) {
+                for (int b = 0; b < blockRows; b++) {
+                    int dot = kernel.dotInt8(queries[p], 0, block, b * rowBytes, dimension);
+                    int r = blockStart + b;
+                    collectors[p].offer(r, dot * probeScales[p] * scales[r]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Widen a block of half floats to float32 once with the kernel, then
+     * score it for every probe with the float kernel
+     */
+    private void scanFp16(float[][] probes, int fromRow, int toRow, TopK[] collectors) {
+        ShortBuffer view = codes.asShortBuffer();
+        short[] halves = new short[SCAN_BLOCK_ROWS * dimension];
+        float[] block = new float[SCAN_BLOCK_ROWS * dimension];
+        for (int blockStart = fromRow; blockStart < toRow; blockStart += SCAN_BLOCK_ROWS) {
+            int blockRows = Math.min(SCAN_BLOCK_ROWS, toRow - blockStart);
+            int values = blockRows * dimension;
+            view.get(blockStart * dimension, halves, 0, values);
+            kernel.widenFp16(halves, 0, block, 0, values);
+            for (int p = 0; p < probes.length; p++) {
+                kernel.scan(probes[p], block, dimension, 0, blockRows, blockStart, collectors[p]);
+            }
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    @Override
+    public int rowBytes() {
+        return rowBytes;
+    }
+
+    /**
+     * Bytes held by the quantized rows in use (codes plus INT8 scales)
+     */
+    public long bytesUsed() {
+        return (long) rows * rowBytes + (encoding == Encoding.INT8 ? (long) rows * Float.BYTES : 0L);
+    }
+
+    private void ensureCapacity(int required) {
+        int capacity = codes.capacity() / rowBytes;
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity * 2);
+        ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity * rowBytes).order(ByteOrder.nativeOrder());
+        grown.put(0, codes, 0, rows * rowBytes);
+        codes = grown;
+        if (encoding == Encoding.INT8) {
+            scales = Arrays.copyOf(scales, newCapacity);
+        }
+    }
+}
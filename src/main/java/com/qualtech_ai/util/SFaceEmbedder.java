@@ -0,0 +1,298 @@
+package com.qualtech_ai.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_dnn;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.opencv_dnn.Net;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * SFace (ONNX) face recognition CNN: 128-d embeddings from faces aligned to
+ * a 112x112 template, L2-normalized.
+ * <p>
+ * This is the network behind OpenCV's {@code FaceRecognizerSF}, run through
+ * the DNN module directly: {@code FaceRecognizerSF} embeds one face per call
+ * and in OpenCV 4.9 only loads from a file, while a {@code Net} parsed from
+ * memory can take every face of a frame in one blob. Alignment and input
+ * scaling follow {@code FaceRecognizerSF::alignCrop} and {@code feature}:
+ * a similarity transform of the five detector landmarks onto the template,
+ * then the BGR crop swapped to RGB, unscaled. Faces without landmarks (the
+ * SSD detector) are embedded from the resized box, which costs accuracy.
+ * <p>
+ * Models exported with a fixed batch size of one are detected at load time
+ * and run face by face instead.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SFaceEmbedder implements FaceEmbedder {
+
+    public static final String NAME = "sface";
+    public static final int MODEL_ID = 1;
+
+    private static final int INPUT_SIZE = 112;
+    private static final int EMBEDDING_SIZE = 128;
+    // Landmark positions SFace was trained on (FaceRecognizerSF::alignCrop)
+    private static final float[] TEMPLATE = {
+            38.2946f, 51.6963f, 73.5318f, 51.5014f, 56.0252f, 71.7366f, 41.5493f, 92.3655f, 70.7299f, 92.2041f};
+
+    private final ResourceLoader resourceLoader;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${face.embedder.sface.model:classpath:face_models/face_recognition_sface_2021dec.onnx}")
+    private String modelLocation;
+
+    @Value("${face.embedder.sface.match-threshold:0.363}")
+    private double matchThreshold;
+
+    @Value("${face.embedder.sface.max-batch:8}")
+    private int maxBatch;
+
+    @Value("${face.embedder.pool.size:0}")
+    private int poolSize;
+
+    @Value("${face.embedder.pool.max-wait-ms:5000}")
+    private long maxWaitMs;
+
+    private volatile FaceDetectorPool<Net> pool;
+    private volatile boolean batchInference = true;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int modelId() {
+        return MODEL_ID;
+    }
+
+    @Override
+    public void load(Executor loader) throws IOException {
+        BytePointer model = FaceDetector.readModel(resourceLoader, modelLocation);
+        try {
+            pool = FaceDetectorPool.load(FaceDetectorPool.EMBEDDER_METRICS, NAME, FaceDetectorPool.sizeFor(poolSize),
+                    () -> loadNetwork(model), loader, maxWaitMs, meterRegistry);
+        } finally {
+            // OpenCV keeps its own copy of the parsed model
+            model.deallocate();
+        }
+        if (!batchInference) {
+            log.info("SFace model takes one face per inference; multi-face frames are embedded face by face");
+        }
+    }
+
+    @Override
+    public double matchThreshold() {
+        return matchThreshold;
+    }
+
+    @Override
+    public List<float[]> embed(List<FaceAnalysis> faces) {
+        FaceDetectorPool<Net> pool = this.pool;
+        if (pool == null) {
+            throw new IllegalStateException("SFace embedder is not loaded");
+        }
+        List<Mat> aligned = new ArrayList<>(faces.size());
+        for (FaceAnalysis face : faces) {
+            aligned.add(align(face));
+        }
+        int batch = batchInference ? Math.max(1, maxBatch) : 1;
+        List<float[]> embeddings = new ArrayList<>(faces.size());
+        for (int from = 0; from < aligned.size(); from += batch) {
+            List<Mat> chunk = aligned.subList(from, Math.min(aligned.size(), from + batch));
+            Mat blob = null;
+            Mat output = null;
+            try (MatVector images = new MatVector(chunk.toArray(new Mat[0]));
+                 Size size = new Size(INPUT_SIZE, INPUT_SIZE);
+                 Scalar mean = new Scalar(0, 0, 0, 0)) {
+                blob = opencv_dnn.blobFromImages(images, 1.0, size, mean, true, false, opencv_core.CV_32F);
+                try (FaceDetectorPool<Net>.Lease lease = pool.acquire()) {
+                    lease.detector().setInput(blob);
+                    output = lease.detector().forward();
+                }
+                embeddings.addAll(normalizedRows(output, chunk.size()));
+            } finally {
+                if (output != null)
+                    output.release();
+                if (blob != null)
+                    blob.release();
+            }
+        }
+        return embeddings;
+    }
+
+    /**
+     * The face warped onto the SFace template, or the box resized to the
+     * input size without landmarks; drawn from the face's workspace
+     */
+    private static Mat align(FaceAnalysis face) {
+        Mat aligned = face.workspace().mat(MatWorkspace.Slot.ALIGNED);
+        try (Size size = new Size(INPUT_SIZE, INPUT_SIZE)) {
+            if (face.landmarks() == null) {
+                opencv_imgproc.resize(face.source(), aligned, size, 0, 0, opencv_imgproc.INTER_LINEAR);
+                return aligned;
+            }
+            double[] transform = similarityTransform(face.landmarks(), TEMPLATE);
+            Mat matrix = new Mat(2, 3, opencv_core.CV_64F);
+            try (DoubleIndexer indexer = matrix.createIndexer()) {
+                for (int i = 0; i < transform.length; i++) {
+                    indexer.put(i / 3, i % 3, transform[i]);
+                }
+                opencv_imgproc.warpAffine(face.source(), aligned, matrix, size);
+            } finally {
+                matrix.release();
+            }
+        }
+        return aligned;
+    }
+
+    /**
+     * Least-squares similarity transform (rotation, uniform scale,
+     * translation) taking the {@code from} points onto the {@code to} points,
+     * both given as x, y pairs
+     *
+     * @return row-major 2x3 affine matrix
+     */
+    static double[] similarityTransform(float[] from, float[] to) {
+        int points = from.length / 2;
+        double fromX = 0, fromY = 0, toX = 0, toY = 0;
+        for (int i = 0; i < points; i++) {
+            fromX += from[2 * i];
+            fromY += from[2 * i + 1];
+            toX += to[2 * i];
+            toY += to[2 * i + 1];
+        }
+        fromX /= points;
+        fromY /= points;
+        toX /= points;
+        toY /= points;
+
+        double norm = 0, a = 0, b = 0;
+        for (int i = 0; i < points; i++) {
+            double x = from[2 * i] - fromX;
+            double y = from[2 * i + 1] - fromY;
+            double u = to[2 * i] - toX;
+            double v = to[2 * i + 1] - toY;
+            norm += x * x + y * y;
+            a += x * u + y * v;
+            b += x * v - y * u;
+        }
+        if (norm == 0) {
+            throw new IllegalArgumentException("Landmarks are degenerate");
+        }
+        a /= norm;
+        b /= norm;
+        return new double[]{
+                a, -b, toX - (a * fromX - b * fromY),
+                b, a, toY - (b * fromX + a * fromY)};
+    }
+
+    private static List<float[]> normalizedRows(Mat output, int rows) {
+        if (output.total() != (long) rows * EMBEDDING_SIZE) {
+            throw new IllegalStateException("SFace output has " + output.total() + " values for " + rows + " faces");
+        }
+        float[] values = new float[rows * EMBEDDING_SIZE];
+        try (FloatPointer data = new FloatPointer(output.data())) {
+            data.get(values);
+        }
+        List<float[]> embeddings = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            float[] embedding = new float[EMBEDDING_SIZE];
+            double norm = 0.0;
+            for (int i = 0; i < EMBEDDING_SIZE; i++) {
+                embedding[i] = values[r * EMBEDDING_SIZE + i];
+                norm += embedding[i] * embedding[i];
+            }
+            float scale = norm > 0 ? (float) (1.0 / Math.sqrt(norm)) : 0f;
+            for (int i = 0; i < EMBEDDING_SIZE; i++) {
+                embedding[i] *= scale;
+            }
+            embeddings.add(embedding);
+        }
+        return embeddings;
+    }
+
+    private Net loadNetwork(BytePointer model) {
+        Net net = opencv_dnn.readNetFromONNX(model, model.limit());
+        if (net.empty()) {
+            net.close();
+            throw new IllegalStateException("SFace model could not be parsed");
+        }
+        try {
+            // One inference so the first request runs at steady-state latency; a batch of two
+            // also tells whether the export accepts more than one face per blob
+            if (batchInference && maxBatch > 1 && !warmUp(net, 2)) {
+                batchInference = false;
+            }
+            if (!batchInference) {
+                warmUp(net, 1);
+            }
+        } catch (RuntimeException e) {
+            net.close();
+            throw e;
+        }
+        return net;
+    }
+
+    /**
+     * Forward {@code faces} synthetic faces
+     *
+     * @return false if the network rejects a batch of that size
+     */
+    private static boolean warmUp(Net net, int faces) {
+        Mat face = new Mat(INPUT_SIZE, INPUT_SIZE, opencv_core.CV_8UC3);
+        Mat blob = null;
+        Mat output = null;
+        try (Scalar low = new Scalar(0, 0, 0, 0); Scalar high = new Scalar(255, 255, 255, 0);
+             Size size = new Size(INPUT_SIZE, INPUT_SIZE); Scalar mean = new Scalar(0, 0, 0, 0)) {
+            opencv_core.randu(face, new Mat(low), new Mat(high));
+            Mat[] images = new Mat[faces];
+            Arrays.fill(images, face);
+            try (MatVector vector = new MatVector(images)) {
+                blob = opencv_dnn.blobFromImages(vector, 1.0, size, mean, true, false, opencv_core.CV_32F);
+            }
+            net.setInput(blob);
+            output = net.forward();
+            return output.total() == (long) faces * EMBEDDING_SIZE;
+        } catch (RuntimeException e) {
+            if (faces == 1) {
+                throw e;
+            }
+            return false;
+        } finally {
+            if (output != null)
+                output.release();
+            if (blob != null)
+                blob.release();
+            face.release();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        FaceDetectorPool<Net> pool = this.pool;
+        if (pool != null) {
+            pool.close();
+        }
+    }
+}
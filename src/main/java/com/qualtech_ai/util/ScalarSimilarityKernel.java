@@ -0,0 +1,53 @@
+package com.qualtech_ai.util;
+
+/**
+ * Portable float kernel, used when the JDK Vector API module is not available
+ */
+public class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        // Four independent accumulators let the JIT pipeline the multiply-adds
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (; i <= length - 4; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public int dotInt8(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void widenFp16(short[] source, int sourceOffset, float[] target, int targetOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] = Float.float16ToFloat(source[sourceOffset + i]);
+        }
+    }
+
+    @Override
+    public void scan(float[] probe, float[] matrix, int dimension, int fromRow, int toRow, int idOffset,
+                     TopK topK) {
+        for (int row = fromRow; row < toRow; row++) {
+            topK.offer(idOffset + row, dot(probe, 0, matrix, row * dimension, dimension));
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,20 @@
+package com.qualtech_ai.util;
+
+/**
+ * Row-major matrix that can score probes against a range of its rows, so
+ * {@link ShardedScanner} can split either the exact float rows or a quantized
+ * copy of them across a pool.
+ */
+public interface ScannableRows {
+
+    /**
+     * Score every probe against rows [fromRow, toRow), offering row r under
+     * id r to the probe's collector
+     */
+    void scan(float[][] probes, int fromRow, int toRow, TopK[] collectors);
+
+    /**
+     * Bytes one row occupies, used to size shards
+     */
+    int rowBytes();
+}
@@ -0,0 +1,126 @@
+package com.qualtech_ai.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Top-K scan of {@link ScannableRows} (the exact float rows or their
+ * quantized copy) split into shards and searched on a ForkJoinPool. Each
+ * shard scans every probe over its rows while they are hot in cache, and
+ * per-shard collectors are merged pairwise on the way up.
+ * <p>
+ * Shard sizes are a multiple of whole cache lines so that neighbouring shards
+ * never share a line of the rows. Below {@code parallelThreshold} rows the
+ * scan runs on the calling thread, where fork/join overhead would dominate.
+ */
+public class ShardedScanner {
+
+    private static final int CACHE_LINE_BYTES = 64;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int shardBytes;
+
+    public ShardedScanner(ForkJoinPool pool, int parallelThreshold, int shardBytes) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.shardBytes = Math.max(shardBytes, CACHE_LINE_BYTES);
+    }
+
+    /**
+     * Scan rows [0, rowCount) for each probe
+     *
+     * @return one collector per probe, unsorted
+     */
+    public TopK[] scan(float[][] probes, ScannableRows rows, int rowCount, int k) {
+        return scan(pool, probes, rows, rowCount, k);
+    }
+
+    /**
+     * Scan rows [0, rowCount) for each probe on {@code executor} instead of
+     * the scanner's own pool, so a background job stays within its own
+     * thread budget
+     *
+     * @return one collector per probe, unsorted
+     */
+    public TopK[] scan(ForkJoinPool executor, float[][] probes, ScannableRows rows, int rowCount, int k) {
+        if (rowCount < parallelThreshold || executor.getParallelism() < 2) {
+            return scanRange(probes, rows, 0, rowCount, k);
+        }
+        int shardRows = shardRows(rows.rowBytes());
+        int shards = (rowCount + shardRows - 1) / shardRows;
+        return executor.invoke(new ShardTask(probes, rows, rowCount, k, shardRows, 0, shards));
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Rows per shard: close to the configured byte size, rounded up so a
+     * shard covers a whole number of cache lines
+     */
+    int shardRows(int rowBytes) {
+        int rowsPerLineBoundary = CACHE_LINE_BYTES / gcd(CACHE_LINE_BYTES, rowBytes);
+        int rows = Math.max(1, shardBytes / rowBytes);
+        return (rows + rowsPerLineBoundary - 1) / rowsPerLineBoundary * rowsPerLineBoundary;
+    }
+
+    private static TopK[] scanRange(float[][] probes, ScannableRows rows, int fromRow, int toRow, int k) {
+        TopK[] collectors = new TopK[probes.length];
+        for (int p = 0; p < probes.length; p++) {
+            collectors[p] = new TopK(k);
+        }
+        rows.scan(probes, fromRow, toRow, collectors);
+        return collectors;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private final class ShardTask extends RecursiveTask<TopK[]> {
+        private final float[][] probes;
+        private final ScannableRows rows;
+        private final int rowCount;
+        private final int k;
+        private final int shardRows;
+        private final int fromShard;
+        private final int toShard;
+
+        ShardTask(float[][] probes, ScannableRows rows, int rowCount, int k, int shardRows,
+                  int fromShard, int toShard) {
+            this.probes = probes;
+            this.rows = rows;
+            this.rowCount = rowCount;
+            this.k = k;
+            this.shardRows = shardRows;
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+        }
+
+        @Override
+        protected TopK[] compute() {
+            if (toShard - fromShard == 1) {
+                int fromRow = fromShard * shardRows;
+                int toRow = Math.min(rowCount, fromRow + shardRows);
+                return scanRange(probes, rows, fromRow, toRow, k);
+            }
+            int mid = (fromShard + toShard) >>> 1;
+            ShardTask left = new ShardTask(probes, rows, rowCount, k, shardRows, fromShard, mid);
+            ShardTask right = new ShardTask(probes, rows, rowCount, k, shardRows, mid, toShard);
+            left.fork();
+            TopK[] merged = right.compute();
+            TopK[] other = left.join();
+            for (int p = 0; p < merged.length; p++) {
+                merged[p].merge(other[p]);
+            }
+            return merged;
+        }
+    }
+}
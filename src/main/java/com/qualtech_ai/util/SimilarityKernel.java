@@ -0,0 +1,45 @@
+package com.qualtech_ai.util;
+
+/**
+ * Dot product kernel over row-major float matrices.
+ * Rows are expected to be L2-normalized, so the dot product is the cosine
+ * similarity. Obtain an instance through {@link SimilarityKernels}.
+ */
+public interface SimilarityKernel {
+
+    /**
+     * Dot product of two vectors of the given length
+     */
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Integer dot product of two int8 code vectors of the given length
+     */
+    int dotInt8(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+    /**
+     * Widen IEEE half floats to float32, exactly as
+     * {@link Float#float16ToFloat(short)} does (NaN payloads aside)
+     */
+    void widenFp16(short[] source, int sourceOffset, float[] target, int targetOffset, int length);
+
+    /**
+     * Score one probe against rows [fromRow, toRow) of the matrix in a single
+     * pass, offering every row to the top-K collector
+     */
+    default void scan(float[] probe, float[] matrix, int dimension, int fromRow, int toRow, TopK topK) {
+        scan(probe, matrix, dimension, fromRow, toRow, 0, topK);
+    }
+
+    /**
+     * As {@link #scan(float[], float[], int, int, int, TopK)}, offering row
+     * {@code r} under id {@code idOffset + r}; used to scan blocks copied out
+     * of a larger row store
+     */
+    void scan(float[] probe, float[] matrix, int dimension, int fromRow, int toRow, int idOffset, TopK topK);
+
+    /**
+     * Short name for status and logging
+     */
+    String name();
+}
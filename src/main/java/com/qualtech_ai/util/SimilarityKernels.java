@@ -0,0 +1,52 @@
+package com.qualtech_ai.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Selects the fastest available {@link SimilarityKernel}.
+ * The Vector API kernel is used when the JVM was started with
+ * --add-modules jdk.incubator.vector; otherwise the scalar kernel is used.
+ */
+@Slf4j
+public class SimilarityKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "com.qualtech_ai.util.VectorSimilarityKernel";
+
+    private static final SimilarityKernel PREFERRED = select();
+
+    private SimilarityKernels() {
+        // utility class
+    }
+
+    public static SimilarityKernel preferred() {
+        return PREFERRED;
+    }
+
+    public static SimilarityKernel scalar() {
+        return new ScalarSimilarityKernel();
+    }
+
+    private static SimilarityKernel select() {
+        if (Boolean.getBoolean("qualtech.simd.disabled")) {
+            log.info("SIMD similarity kernel disabled by system property, using scalar kernel");
+            return scalar();
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.info("Module {} not present (start the JVM with --add-modules {}), using scalar kernel",
+                    VECTOR_MODULE, VECTOR_MODULE);
+            return scalar();
+        }
+        try {
+            // Loaded reflectively so this class never links against the incubator module
+            SimilarityKernel kernel = (SimilarityKernel) Class.forName(VECTOR_KERNEL)
+                    .getDeclaredConstructor()
+                    .newInstance();
+            log.info("Using SIMD similarity kernel: {}", kernel.name());
+            return kernel;
+        } catch (Throwable t) {
+            log.warn("Vector API kernel unavailable, using scalar kernel: {}", t.getMessage());
+            return scalar();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.qualtech_ai.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.global.opencv_dnn;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_dnn.Net;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * res10 SSD (Caffe) face detector at a fixed 300x300 input, run through
+ * {@link FaceDetectionBatcher}. Boxes only, no landmarks.
+ */
+@Component
+@RequiredArgsConstructor
+public class SsdFaceDetector implements FaceDetector {
+
+    public static final String NAME = "ssd";
+    public static final String PROTO_RES = "classpath:face_models/deploy.prototxt";
+    public static final String WEIGHTS_RES = "classpath:face_models/res10_300x300_ssd_iter_140000.caffemodel";
+
+    private final ResourceLoader resourceLoader;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${face.detector.ssd.confidence:0.45}")
+    private double confidence;
+
+    @Value("${face.detector.pool.size:0}")
+    private int poolSize;
+
+    @Value("${face.detector.pool.max-wait-ms:5000}")
+    private long maxWaitMs;
+
+    @Value("${face.detector.batching.enabled:false}")
+    private boolean batching;
+
+    @Value("${face.detector.batching.window-micros:3000}")
+    private long windowMicros;
+
+    @Value("${face.detector.batching.max-batch:8}")
+    private int maxBatch;
+
+    private volatile FaceDetectorPool<Net> pool;
+    private volatile FaceDetectionBatcher batcher;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void load(Executor loader, OpenCvTuning tuning) throws IOException {
+        BytePointer proto = FaceDetector.readModel(resourceLoader, PROTO_RES);
+        BytePointer weights = FaceDetector.readModel(resourceLoader, WEIGHTS_RES);
+        int size = FaceDetectorPool.sizeFor(tuning.poolSize() > 0 ? tuning.poolSize() : poolSize);
+        try {
+            FaceDetectorPool<Net> loaded = FaceDetectorPool.load(NAME, size,
+                    () -> loadNetwork(proto, weights, tuning.backend()), loader, maxWaitMs, meterRegistry);
+            batcher = new FaceDetectionBatcher(loaded, meterRegistry, batching, windowMicros, maxBatch);
+            pool = loaded;
+        } finally {
+            // OpenCV keeps its own copy of the parsed model
+            proto.deallocate();
+            weights.deallocate();
+        }
+    }
+
+    @Override
+    public List<DetectedFace> detect(Mat image, int frameWidth, int frameHeight) {
+        FaceDetectionBatcher batcher = this.batcher;
+        if (batcher == null) {
+            throw new IllegalStateException("SSD face detector is not loaded");
+        }
+        float[] detections = batcher.detect(image);
+
+        List<DetectedFace> faces = new ArrayList<>();
+        for (int i = 0; i < detections.length; i += FaceDetectionBatcher.DETECTION_FIELDS) {
+            float score = detections[i + 2];
+            if (score <= confidence) {
+                continue;
+            }
+            int x = (int) (detections[i + 3] * frameWidth);
+            int y = (int) (detections[i + 4] * frameHeight);
+            int width = (int) (detections[i + 5] * frameWidth - x);
+            int height = (int) (detections[i + 6] * frameHeight - y);
+
+            // Bound checking
+            x = Math.max(0, x);
+            y = Math.max(0, y);
+            width = Math.min(width, frameWidth - x);
+            height = Math.min(height, frameHeight - y);
+            if (width > 0 && height > 0) {
+                faces.add(new DetectedFace(x, y, width, height, score, null));
+            }
+        }
+        return faces;
+    }
+
+    @Override
+    public double confidenceThreshold() {
+        return confidence;
+    }
+
+    @Override
+    public int poolSize() {
+        FaceDetectorPool<Net> pool = this.pool;
+        return pool == null ? 0 : pool.getSize();
+    }
+
+    @Override
+    public int inUse() {
+        FaceDetectorPool<Net> pool = this.pool;
+        return pool == null ? 0 : pool.getInUse();
+    }
+
+    private static Net loadNetwork(BytePointer proto, BytePointer weights, OpenCvTuning.DnnBackend backend) {
+        Net net = opencv_dnn.readNetFromCaffe(proto, proto.limit(), weights, weights.limit());
+        if (net.empty()) {
+            net.close();
+            throw new IllegalStateException("SSD face detector model could not be parsed");
+        }
+        try {
+            net.setPreferableBackend(backend.backendId());
+            net.setPreferableTarget(backend.targetId());
+            FaceDetectionBatcher.warmUp(net);
+        } catch (RuntimeException e) {
+            net.close();
+            throw e;
+        }
+        return net;
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        FaceDetectorPool<Net> pool = this.pool;
+        if (pool != null) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.qualtech_ai.util;
+
+/**
+ * Bounded top-K collector over (id, score) pairs.
+ * A primitive min-heap keeps the K best scores seen so far, so selecting the
+ * best candidates never sorts or boxes the full result set.
+ */
+public class TopK {
+
+    private final int[] ids;
+    private final float[] scores;
+    private int size = 0;
+    private boolean sorted = false;
+
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.ids = new int[k];
+        this.scores = new float[k];
+    }
+
+    /**
+     * Offer a candidate; it is kept only if it beats the current K-th best
+     */
+    public void offer(int id, float score) {
+        if (sorted) {
+            throw new IllegalStateException("TopK already sorted");
+        }
+        if (size < ids.length) {
+            int i = size++;
+            // Sift up
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        } else if (score > scores[0]) {
+            siftDown(id, score, size);
+        }
+    }
+
+    /**
+     * Merge another collector's candidates into this one
+     */
+    public void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * Lowest score that is still kept, or negative infinity while not full
+     */
+    public float threshold() {
+        return size < ids.length ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    /**
+     * Order the kept candidates best first; no further offers are accepted
+     */
+    public TopK sortDescending() {
+        if (!sorted) {
+            // Heap sort: repeatedly move the minimum to the end
+            for (int end = size - 1; end > 0; end--) {
+                int minId = ids[0];
+                float minScore = scores[0];
+                siftDown(ids[end], scores[end], end);
+                ids[end] = minId;
+                scores[end] = minScore;
+            }
+            sorted = true;
+        }
+        return this;
+    }
+
+    /**
+     * Id at rank i (0 = best) after {@link #sortDescending()}
+     */
+    public int id(int i) {
+        checkSorted(i);
+        return ids[i];
+    }
+
+    /**
+     * Score at rank i (0 = best) after {@link #sortDescending()}
+     */
+    public float score(int i) {
+        checkSorted(i);
+        return scores[i];
+    }
+
+    private void siftDown(int id, float score, int heapSize) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[child] >= score) {
+                break;
+            }
+            ids[i] = ids[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+
+    private void checkSorted(int i) {
+        if (!sorted) {
+            throw new IllegalStateException("Call sortDescending() first");
+        }
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException(i);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.qualtech_ai.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel on the JDK Vector API (jdk.incubator.vector).
+ * Only load this class through {@link SimilarityKernels}, which checks that
+ * the incubator module was added to the JVM.
+ */
+public class VectorSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    // Bytes widened to ints lane for lane: one byte lane per int lane
+    private static final VectorSpecies<Byte> BYTE_SPECIES = INT_SPECIES.length() * Byte.SIZE >= 64
+            ? VectorSpecies.of(byte.class, VectorShape.forBitSize(INT_SPECIES.length() * Byte.SIZE))
+            : null;
+    // Half floats widened to int lanes the same way
+    private static final VectorSpecies<Short> SHORT_SPECIES = INT_SPECIES.length() * Short.SIZE >= 64
+            ? VectorSpecies.of(short.class, VectorShape.forBitSize(INT_SPECIES.length() * Short.SIZE))
+            : null;
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            acc = va.fma(vb, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dotInt8(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int i = 0;
+        int sum = 0;
+        if (BYTE_SPECIES != null) {
+            IntVector acc = IntVector.zero(INT_SPECIES);
+            int upper = BYTE_SPECIES.loopBound(length);
+            for (; i < upper; i += BYTE_SPECIES.length()) {
+                IntVector va = (IntVector) ByteVector.fromArray(BYTE_SPECIES, a, aOffset + i)
+                        .convertShape(VectorOperators.B2I, INT_SPECIES, 0);
+                IntVector vb = (IntVector) ByteVector.fromArray(BYTE_SPECIES, b, bOffset + i)
+                        .convertShape(VectorOperators.B2I, INT_SPECIES, 0);
+                acc = va.mul(vb).add(acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void widenFp16(short[] source, int sourceOffset, float[] target, int targetOffset, int length) {
+        int i = 0;
+        if (SHORT_SPECIES != null && SPECIES.length() == INT_SPECIES.length()) {
+            int upper = SHORT_SPECIES.loopBound(length);
+            for (; i < upper; i += SHORT_SPECIES.length()) {
+                IntVector half = (IntVector) ShortVector.fromArray(SHORT_SPECIES, source, sourceOffset + i)
+                        .convertShape(VectorOperators.S2I, INT_SPECIES, 0);
+                // Exponent and mantissa moved to their float32 position, then rescaled by
+                // 2^(127 - 15): exact for normal and subnormal halves alike
+                IntVector bits = half.and(0x7FFF)
+                        .lanewise(VectorOperators.LSHL, 13)
+                        .reinterpretAsFloats()
+                        .mul(0x1p112f)
+                        .reinterpretAsInts();
+                // Infinities and NaNs keep an all-ones exponent
+                VectorMask<Integer> special = half.and(0x7C00).eq(0x7C00);
+                bits = bits.blend(half.and(0x03FF).lanewise(VectorOperators.LSHL, 13).or(0x7F800000), special);
+                bits.or(half.and(0x8000).lanewise(VectorOperators.LSHL, 16))
+                        .reinterpretAsFloats()
+                        .intoArray(target, targetOffset + i);
+            }
+        }
+        for (; i < length; i++) {
+            target[targetOffset + i] = Float.float16ToFloat(source[sourceOffset + i]);
+        }
+    }
+
+    @Override
+    public void scan(float[] probe, float[] matrix, int dimension, int fromRow, int toRow, int idOffset,
+                     TopK topK) {
+        int upper = SPECIES.loopBound(dimension);
+        if (upper != dimension) {
+            // Odd dimensions: no blocking, per-row kernel handles the tail
+            for (int row = fromRow; row < toRow; row++) {
+                topK.offer(idOffset + row, dot(probe, 0, matrix, row * dimension, dimension));
+            }
+            return;
+        }
+
+        int row = fromRow;
+        // Four rows per iteration share each probe load
+        for (; row <= toRow - 4; row += 4) {
+            int o0 = row * dimension;
+            int o1 = o0 + dimension;
+            int o2 = o1 + dimension;
+            int o3 = o2 + dimension;
+            FloatVector a0 = FloatVector.zero(SPECIES);
+            FloatVector a1 = FloatVector.zero(SPECIES);
+            FloatVector a2 = FloatVector.zero(SPECIES);
+            FloatVector a3 = FloatVector.zero(SPECIES);
+            for (int i = 0; i < dimension; i += SPECIES.length()) {
+                FloatVector q = FloatVector.fromArray(SPECIES, probe, i);
+                a0 = q.fma(FloatVector.fromArray(SPECIES, matrix, o0 + i), a0);
+                a1 = q.fma(FloatVector.fromArray(SPECIES, matrix, o1 + i), a1);
+                a2 = q.fma(FloatVector.fromArray(SPECIES, matrix, o2 + i), a2);
+                a3 = q.fma(FloatVector.fromArray(SPECIES, matrix, o3 + i), a3);
+            }
+            topK.offer(idOffset + row, a0.reduceLanes(VectorOperators.ADD));
+            topK.offer(idOffset + row + 1, a1.reduceLanes(VectorOperators.ADD));
+            topK.offer(idOffset + row + 2, a2.reduceLanes(VectorOperators.ADD));
+            topK.offer(idOffset + row + 3, a3.reduceLanes(VectorOperators.ADD));
+        }
+        for (; row < toRow; row++) {
+            topK.offer(idOffset + row, dot(probe, 0, matrix, row * dimension, dimension));
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+}
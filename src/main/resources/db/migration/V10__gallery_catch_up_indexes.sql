@@ -0,0 +1,11 @@
+-- Gallery catch-up after a snapshot restore reads users changed since the
+-- snapshot watermark (updated_at) and users deleted since then
+CREATE INDEX IF NOT EXISTS idx_face_users_updated_at ON face_users(updated_at);
+
+-- One row per deleted face user, written by the application in the deleting transaction
+CREATE TABLE IF NOT EXISTS face_user_deletions (
+    user_id VARCHAR(36) PRIMARY KEY,
+    deleted_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_face_user_deletions_deleted_at ON face_user_deletions(deleted_at);
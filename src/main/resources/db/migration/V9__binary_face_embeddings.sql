@@ -0,0 +1,52 @@
+-- Compact binary face embeddings (see FaceEmbeddingCodec)
+-- Layout: 8 byte header [version=1][embedding model id][uint16 LE dimension][uint32 LE exemplar count]
+-- followed by exemplar_count * dimension little-endian float32 values.
+-- Model id 0 is the grid statistics embedder, the only model legacy rows were produced by
+ALTER TABLE face_users ADD COLUMN IF NOT EXISTS face_embedding_bin BYTEA;
+
+-- *send() functions emit big-endian bytes, the binary format is little-endian
+CREATE OR REPLACE FUNCTION qt_reverse_bytes(b BYTEA) RETURNS BYTEA AS $$
+    SELECT COALESCE(string_agg(substring(b FROM i FOR 1), ''::BYTEA ORDER BY i DESC), ''::BYTEA)
+    FROM generate_series(1, length(b)) AS i
+$$ LANGUAGE SQL IMMUTABLE;
+
+-- Convert legacy rows: JSON list of Base64 encoded CSV strings (or a single such string)
+WITH exemplars AS (
+    SELECT fu.id,
+           e.ord,
+           string_to_array(convert_from(decode(e.value, 'base64'), 'UTF8'), ',') AS parts
+    FROM face_users fu
+    CROSS JOIN LATERAL jsonb_array_elements_text(
+        CASE WHEN left(btrim(fu.face_embedding), 1) = '['
+             THEN fu.face_embedding::jsonb
+             ELSE jsonb_build_array(btrim(fu.face_embedding)) END
+    ) WITH ORDINALITY AS e(value, ord)
+    WHERE fu.face_embedding IS NOT NULL
+      AND btrim(fu.face_embedding) <> ''
+      AND fu.face_embedding_bin IS NULL
+),
+payloads AS (
+    SELECT ex.id,
+           ex.ord,
+           array_length(ex.parts, 1) AS dim,
+           (SELECT string_agg(qt_reverse_bytes(float4send(p.v::REAL)), ''::BYTEA ORDER BY p.n)
+            FROM unnest(ex.parts) WITH ORDINALITY AS p(v, n)) AS payload
+    FROM exemplars ex
+),
+blobs AS (
+    SELECT id,
+           decode('0100', 'hex') -- version 1, model 0 (grid)
+               || qt_reverse_bytes(int2send(max(dim)::SMALLINT))
+               || qt_reverse_bytes(int4send(count(*)::INTEGER))
+               || string_agg(payload, ''::BYTEA ORDER BY ord) AS blob
+    FROM payloads
+    GROUP BY id
+    HAVING count(DISTINCT dim) = 1 -- all exemplars of a user must share one dimension
+)
+UPDATE face_users fu
+SET face_embedding_bin = blobs.blob
+FROM blobs
+WHERE fu.id = blobs.id;
+
+-- Legacy text is kept for rollback; the application reads it only when face_embedding_bin is NULL
+DROP FUNCTION qt_reverse_bytes(BYTEA);
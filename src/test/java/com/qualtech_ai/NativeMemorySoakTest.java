@@ -0,0 +1,149 @@
+package com.qualtech_ai;
+
+import com.qualtech_ai.dto.AdvancedFaceAnalysisResult;
+import com.qualtech_ai.dto.AdvancedFaceDetail;
+import com.qualtech_ai.dto.FaceVerificationRequest;
+import com.qualtech_ai.dto.FaceVerificationResponse;
+import com.qualtech_ai.service.AwsFaceService;
+import com.qualtech_ai.service.FaceRecognitionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgcodecs;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Point;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import software.amazon.awssdk.services.rekognition.model.BoundingBox;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Soak test for native memory in the verification pipeline: thousands of
+ * verifications through decode, local liveness, preprocessing and per-face
+ * cropping must leave JavaCPP and process memory flat, and the per-request
+ * tracking scopes must not see any native object outlive its request.
+ * <p>
+ * AWS is mocked to report one face per frame, so no credentials are needed.
+ * Opt-in because it runs for minutes: {@code mvn test -Dsoak=true -Dtest=NativeMemorySoakTest}.
+ */
+@Slf4j
+@SpringBootTest(properties = "face.native-memory.leak-detection=true")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "soak", matches = "true")
+class NativeMemorySoakTest {
+
+    private static final int WARMUP = 500;
+    private static final int VERIFICATIONS = 5_000;
+    // Pools and allocator arenas settle during warm-up; one leaked 720p frame per call would be ~13 GB
+    private static final long MAX_TRACKED_GROWTH_BYTES = 16L * 1024 * 1024;
+    private static final long MAX_PHYSICAL_GROWTH_BYTES = 64L * 1024 * 1024;
+
+    @Autowired
+    private FaceRecognitionService faceRecognitionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private AwsFaceService awsFaceService;
+
+    @Test
+    void nativeMemoryStaysFlatOverThousandsOfVerifications() throws Exception {
+        AdvancedFaceDetail face = AdvancedFaceDetail.builder()
+                .boundingBox(BoundingBox.builder().left(0.35f).top(0.25f).width(0.3f).height(0.5f).build())
+                .topEmotion("CALM")
+                .spoofProbability(0.05)
+                .build();
+        when(awsFaceService.isAvailable()).thenReturn(true);
+        when(awsFaceService.analyzeFaceAdvanced(any(byte[].class))).thenReturn(AdvancedFaceAnalysisResult.builder()
+                .faceDetails(List.of(face))
+                .totalFaces(1)
+                .build());
+
+        byte[] jpeg = syntheticFrame(1280, 720);
+
+        verify(jpeg, WARMUP);
+        long trackedBaseline = settledTotalBytes();
+        long physicalBaseline = Pointer.physicalBytes();
+
+        verify(jpeg, VERIFICATIONS);
+        long trackedGrowth = settledTotalBytes() - trackedBaseline;
+        long physicalGrowth = Pointer.physicalBytes() - physicalBaseline;
+
+        log.info("{} verifications: JavaCPP {} KB, physical {} KB",
+                VERIFICATIONS, trackedGrowth / 1024, physicalGrowth / 1024);
+        assertTrue(trackedGrowth < MAX_TRACKED_GROWTH_BYTES,
+                "JavaCPP native memory grew by " + trackedGrowth + " bytes");
+        assertTrue(physicalGrowth < MAX_PHYSICAL_GROWTH_BYTES,
+                "Process memory grew by " + physicalGrowth + " bytes");
+
+        double leaked = meterRegistry.find("opencv.native.scope.leaked").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+        assertEquals(0.0, leaked, "Native objects outlived their request");
+    }
+
+    private void verify(byte[] jpeg, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            FaceVerificationRequest request = new FaceVerificationRequest();
+            request.setImage(new MockMultipartFile("image", "frame.jpg", "image/jpeg", jpeg));
+            FaceVerificationResponse response = faceRecognitionService.verifyFace(request);
+            assertNotNull(response);
+        }
+    }
+
+    /**
+     * JavaCPP bytes after collecting unreachable pointers, so the comparison
+     * is not skewed by garbage the GC has not got to yet
+     */
+    private static long settledTotalBytes() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Pointer.deallocateReferences();
+        return Pointer.totalBytes();
+    }
+
+    /**
+     * Noisy frame with a bright face-sized ellipse, large enough to pass the
+     * 50 KB upload check
+     */
+    private static byte[] syntheticFrame(int width, int height) {
+        Mat image = new Mat(height, width, opencv_core.CV_8UC3, new Scalar(90, 110, 130, 0));
+        Mat noise = new Mat(height, width, opencv_core.CV_8UC3);
+        BytePointer encoded = new BytePointer();
+        try {
+            opencv_core.randu(noise, new Mat(new Scalar(0, 0, 0, 0)), new Mat(new Scalar(60, 60, 60, 0)));
+            opencv_core.add(image, noise, image);
+            opencv_imgproc.ellipse(image, new Point(width / 2, height / 2), new Size(width / 8, height / 4),
+                    0, 0, 360, new Scalar(150, 170, 200, 0), -1, opencv_imgproc.LINE_8, 0);
+            opencv_imgcodecs.imencode(".jpg", image, encoded);
+            byte[] bytes = new byte[(int) encoded.limit()];
+            encoded.get(bytes);
+            return bytes;
+        } finally {
+            image.release();
+            noise.release();
+            encoded.close();
+        }
+    }
+}
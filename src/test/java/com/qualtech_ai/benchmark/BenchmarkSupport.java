@@ -0,0 +1,65 @@
+package com.qualtech_ai.benchmark;
+
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Minimal timing harness for the opt-in benchmarks in this package.
+ * <p>
+ * Benchmarks are skipped unless the build runs with {@code -Dperf=true},
+ * e.g. {@code mvn test -Dperf=true -Dtest='*Benchmark'}.
+ */
+final class BenchmarkSupport {
+
+    static final String PERF_PROPERTY = "perf";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Mean wall time of one call to {@code operation}, after a warm-up phase
+     * so the JIT and native caches have settled
+     */
+    static double nanosPerOp(int warmupIterations, int measuredIterations, Runnable operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredIterations; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / (double) measuredIterations;
+    }
+
+    /**
+     * The reference-against-candidate comparison the optimization benchmarks
+     * share: check once that the candidate reproduces the reference, then
+     * time both and report each and the speed-up
+     *
+     * @param assertEquivalent called with (reference result, candidate result)
+     */
+    static <T> void compareWithReference(String label, int warmupIterations, int measuredIterations,
+                                         Implementation<T> reference, Implementation<T> candidate,
+                                         BiConsumer<T, T> assertEquivalent) {
+        assertEquivalent.accept(reference.operation().get(), candidate.operation().get());
+        double referenceNanos = nanosPerOp(warmupIterations, measuredIterations, reference.operation()::get);
+        double candidateNanos = nanosPerOp(warmupIterations, measuredIterations, candidate.operation()::get);
+        report(reference.name() + " " + label, referenceNanos);
+        report(candidate.name() + " " + label, candidateNanos);
+        reportRatio("speed-up " + label, referenceNanos, candidateNanos);
+    }
+
+    static void report(String name, double nanosPerOp) {
+        System.out.printf("%-48s %12.1f us/op%n", name, nanosPerOp / 1_000.0);
+    }
+
+    static void reportRatio(String name, double baselineNanos, double candidateNanos) {
+        System.out.printf("%-48s %12.2fx%n", name, baselineNanos / candidateNanos);
+    }
+
+    /**
+     * One side of a {@link #compareWithReference} run
+     */
+    record Implementation<T>(String name, Supplier<T> operation) {
+    }
+}
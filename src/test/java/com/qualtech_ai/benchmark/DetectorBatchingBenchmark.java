@@ -0,0 +1,152 @@
+package com.qualtech_ai.benchmark;
+
+import com.qualtech_ai.util.FaceDetectionBatcher;
+import com.qualtech_ai.util.FaceDetectorPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_dnn;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_dnn.Net;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Detector throughput against per-frame latency for concurrent streams, one
+ * forward pass per frame against cross-request batches at several windows.
+ * <p>
+ * Needs the SSD weights in {@code src/main/resources/face_models} (see the
+ * README there) and skips without them.
+ */
+@EnabledIfSystemProperty(named = BenchmarkSupport.PERF_PROPERTY, matches = "true")
+class DetectorBatchingBenchmark {
+
+    private static final int STREAMS = 16;
+    private static final int POOL_SIZE = 4;
+    private static final int WARMUP_FRAMES = 10;
+    private static final int FRAMES_PER_STREAM = 60;
+    private static final long[] WINDOWS_MICROS = {0, 1_000, 2_000, 5_000};
+
+    @Test
+    void throughputAgainstLatency() throws Exception {
+        Path proto = modelFile("deploy.prototxt");
+        Path weights = modelFile("res10_300x300_ssd_iter_140000.caffemodel");
+        assumeTrue(proto != null && weights != null, "SSD model files not found on the classpath");
+
+        List<Mat> frames = new ArrayList<>();
+        for (int i = 0; i < STREAMS; i++) {
+            Mat frame = new Mat(480, 640, opencv_core.CV_8UC3);
+            opencv_core.setRNGSeed(i + 1);
+            opencv_core.randu(frame, new Mat(new Scalar(0, 0, 0, 0)), new Mat(new Scalar(255, 255, 255, 0)));
+            frames.add(frame);
+        }
+
+        FaceDetectorPool<Net> pool = FaceDetectorPool.load("ssd", POOL_SIZE,
+                () -> opencv_dnn.readNetFromCaffe(proto.toString(), weights.toString()),
+                Runnable::run, 60_000L, new SimpleMeterRegistry());
+
+        ExecutorService streams = Executors.newFixedThreadPool(STREAMS);
+        try {
+            FaceDetectionBatcher single = batcher(pool, 0);
+            FaceDetectionBatcher batched = batcher(pool, 5_000);
+            // A frame's detections do not depend on the batch it ran in
+            List<float[][]> inBatch = runConcurrently(streams, batched, frames.subList(0, 4), 1);
+            for (int i = 0; i < 4; i++) {
+                assertArrayEquals(single.detect(frames.get(i)), inBatch.get(i)[0], 1e-3f, "frame " + i);
+            }
+
+            for (long window : WINDOWS_MICROS) {
+                FaceDetectionBatcher batcher = batcher(pool, window);
+                String label = window == 0 ? "per-frame forward" : "batched, window " + window + " us";
+                runConcurrently(streams, batcher, frames, WARMUP_FRAMES);
+
+                long start = System.nanoTime();
+                List<long[]> latencies = runTimed(streams, batcher, frames, FRAMES_PER_STREAM);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+                double mean = Arrays.stream(all).average().orElse(0);
+                System.out.printf("%-48s %12.1f frames/s%n", label, all.length / seconds);
+                BenchmarkSupport.report("  mean latency", mean);
+                BenchmarkSupport.report("  p99 latency", all[(int) (all.length * 0.99)]);
+            }
+        } finally {
+            streams.shutdownNow();
+            pool.close();
+            frames.forEach(Mat::release);
+        }
+    }
+
+    private static FaceDetectionBatcher batcher(FaceDetectorPool<Net> pool, long windowMicros) {
+        return new FaceDetectionBatcher(pool, new SimpleMeterRegistry(), windowMicros > 0, windowMicros, STREAMS);
+    }
+
+    /**
+     * Every stream detects on its own frame {@code rounds} times, all streams
+     * released at once
+     */
+    private static List<float[][]> runConcurrently(ExecutorService streams, FaceDetectionBatcher batcher,
+                                                   List<Mat> frames, int rounds) throws Exception {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<float[][]>> futures = new ArrayList<>();
+        for (Mat frame : frames) {
+            futures.add(streams.submit(() -> {
+                go.await();
+                float[][] results = new float[rounds][];
+                for (int r = 0; r < rounds; r++) {
+                    results[r] = batcher.detect(frame);
+                }
+                return results;
+            }));
+        }
+        go.countDown();
+        List<float[][]> results = new ArrayList<>();
+        for (Future<float[][]> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private static List<long[]> runTimed(ExecutorService streams, FaceDetectionBatcher batcher,
+                                         List<Mat> frames, int rounds) throws Exception {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (Mat frame : frames) {
+            futures.add(streams.submit(() -> {
+                go.await();
+                long[] nanos = new long[rounds];
+                for (int r = 0; r < rounds; r++) {
+                    long start = System.nanoTime();
+                    batcher.detect(frame);
+                    nanos[r] = System.nanoTime() - start;
+                }
+                return nanos;
+            }));
+        }
+        go.countDown();
+        List<long[]> latencies = new ArrayList<>();
+        for (Future<long[]> future : futures) {
+            latencies.add(future.get());
+        }
+        return latencies;
+    }
+
+    private static Path modelFile(String name) throws URISyntaxException {
+        URL url = DetectorBatchingBenchmark.class.getResource("/face_models/" + name);
+        return url == null || !"file".equals(url.getProtocol()) ? null : Path.of(url.toURI());
+    }
+}
@@ -0,0 +1,199 @@
+package com.qualtech_ai.benchmark;
+
+import com.qualtech_ai.util.DetectedFace;
+import com.qualtech_ai.util.FaceDetector;
+import com.qualtech_ai.util.SsdFaceDetector;
+import com.qualtech_ai.util.YuNetFaceDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgcodecs;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Point;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * SSD against YuNet: latency per frame size, measured with JMH
+ * ({@link FaceDetectorLatencyJmh}), and detection recall on a labelled
+ * sample set.
+ * <p>
+ * Backends whose model files are missing from
+ * {@code src/main/resources/face_models} are skipped (see the README there).
+ * The recall comparison reads {@code labels.csv} from the directory given by
+ * {@code -Dface.samples} (default {@code src/test/resources/face_samples}),
+ * one face per line: {@code image-file,x,y,width,height}, with the image
+ * files next to it (see the README there). It is skipped while the set has
+ * no labelled faces and fails when a labelled image is missing.
+ */
+@EnabledIfSystemProperty(named = BenchmarkSupport.PERF_PROPERTY, matches = "true")
+class FaceDetectorComparisonBenchmark {
+
+    private static final double MATCH_IOU = 0.5;
+
+    private static final List<FaceDetector> detectors = new ArrayList<>();
+
+    @BeforeAll
+    static void loadDetectors() {
+        for (String backend : new String[]{SsdFaceDetector.NAME, YuNetFaceDetector.NAME}) {
+            FaceDetector detector = newDetector(backend);
+            try {
+                detector.load(Runnable::run);
+                detectors.add(detector);
+            } catch (IOException | RuntimeException e) {
+                System.out.printf("%-48s skipped: %s%n", detector.name(), e.getMessage());
+            }
+        }
+    }
+
+    @AfterAll
+    static void closeDetectors() {
+        detectors.forEach(FaceDetectorComparisonBenchmark::close);
+        detectors.clear();
+    }
+
+    @Test
+    void latencyPerFrameSize() throws RunnerException {
+        assumeTrue(!detectors.isEmpty(), "No detector model files found on the classpath");
+        Options options = new OptionsBuilder()
+                .include(FaceDetectorLatencyJmh.class.getName())
+                .param("backend", detectors.stream().map(FaceDetector::name).toArray(String[]::new))
+                .build();
+        Map<String, Map<String, Double>> nanos = new LinkedHashMap<>();
+        for (RunResult result : new Runner(options).run()) {
+            String backend = result.getParams().getParam("backend");
+            String frameSize = result.getParams().getParam("frameSize");
+            double perFrame = result.getPrimaryResult().getScore() * 1_000.0;
+            nanos.computeIfAbsent(frameSize, size -> new LinkedHashMap<>()).put(backend, perFrame);
+            BenchmarkSupport.report(backend + " " + frameSize, perFrame);
+        }
+        nanos.forEach((frameSize, perBackend) -> {
+            if (perBackend.size() == 2) {
+                BenchmarkSupport.reportRatio("yunet speed-up " + frameSize,
+                        perBackend.get(SsdFaceDetector.NAME), perBackend.get(YuNetFaceDetector.NAME));
+            }
+        });
+    }
+
+    @Test
+    void recallOnSampleSet() throws IOException {
+        assumeTrue(!detectors.isEmpty(), "No detector model files found on the classpath");
+        Path samples = Path.of(System.getProperty("face.samples", "src/test/resources/face_samples"));
+        Path labels = samples.resolve("labels.csv");
+        assumeTrue(Files.isRegularFile(labels), "No labelled sample set at " + samples.toAbsolutePath());
+
+        Map<String, List<DetectedFace>> expected = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(labels)) {
+            String[] fields = line.trim().split("\\s*,\\s*");
+            if (fields.length < 5 || line.startsWith("#") || !fields[1].matches("-?\\d+")) {
+                continue;
+            }
+            expected.computeIfAbsent(fields[0], file -> new ArrayList<>()).add(new DetectedFace(
+                    Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), 1f, null));
+        }
+        assumeTrue(!expected.isEmpty(), "Sample set has no labelled faces");
+
+        List<String> missing = expected.keySet().stream()
+                .filter(file -> !Files.isRegularFile(samples.resolve(file)))
+                .toList();
+        assertTrue(missing.isEmpty(), "Labelled images missing from " + samples.toAbsolutePath() + ": " + missing);
+
+        for (FaceDetector detector : detectors) {
+            int labelled = 0;
+            int found = 0;
+            int falsePositives = 0;
+            for (Map.Entry<String, List<DetectedFace>> entry : expected.entrySet()) {
+                Mat image = opencv_imgcodecs.imread(samples.resolve(entry.getKey()).toString());
+                assertFalse(image.empty(), "Unreadable sample image " + entry.getKey());
+                List<DetectedFace> detections = new ArrayList<>(detector.detect(image, image.cols(), image.rows()));
+                for (DetectedFace face : entry.getValue()) {
+                    labelled++;
+                    DetectedFace best = null;
+                    for (DetectedFace detection : detections) {
+                        if (face.iou(detection) >= MATCH_IOU && (best == null || face.iou(detection) > face.iou(best))) {
+                            best = detection;
+                        }
+                    }
+                    if (best != null) {
+                        found++;
+                        detections.remove(best);
+                    }
+                }
+                falsePositives += detections.size();
+                image.release();
+            }
+            System.out.printf("%-48s %11.1f%% (%d/%d faces, %d false positives)%n",
+                    detector.name() + " recall @ IoU " + MATCH_IOU,
+                    labelled == 0 ? 0.0 : 100.0 * found / labelled, found, labelled, falsePositives);
+        }
+    }
+
+    /**
+     * A detector configured as in production, not yet loaded
+     */
+    static FaceDetector newDetector(String backend) {
+        DefaultResourceLoader resources = new DefaultResourceLoader();
+        if (SsdFaceDetector.NAME.equals(backend)) {
+            SsdFaceDetector ssd = new SsdFaceDetector(resources, new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(ssd, "confidence", 0.45);
+            ReflectionTestUtils.setField(ssd, "poolSize", 1);
+            ReflectionTestUtils.setField(ssd, "maxWaitMs", 60_000L);
+            ReflectionTestUtils.setField(ssd, "windowMicros", 0L);
+            ReflectionTestUtils.setField(ssd, "maxBatch", 1);
+            return ssd;
+        }
+        YuNetFaceDetector yunet = new YuNetFaceDetector(resources, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(yunet, "modelLocation", "classpath:face_models/face_detection_yunet_2023mar.onnx");
+        ReflectionTestUtils.setField(yunet, "confidence", 0.7);
+        ReflectionTestUtils.setField(yunet, "nmsThreshold", 0.3);
+        ReflectionTestUtils.setField(yunet, "topK", 50);
+        ReflectionTestUtils.setField(yunet, "inputSize", 320);
+        ReflectionTestUtils.setField(yunet, "poolSize", 1);
+        ReflectionTestUtils.setField(yunet, "maxWaitMs", 60_000L);
+        return yunet;
+    }
+
+    static void close(FaceDetector detector) {
+        if (detector instanceof SsdFaceDetector ssd) {
+            ssd.close();
+        } else if (detector instanceof YuNetFaceDetector yunet) {
+            yunet.close();
+        }
+    }
+
+    /**
+     * Noisy background with a bright face-sized ellipse; for timing only
+     */
+    static Mat syntheticFrame(int width, int height) {
+        Mat frame = new Mat(height, width, opencv_core.CV_8UC3);
+        opencv_core.setRNGSeed(width);
+        opencv_core.randu(frame, new Mat(new Scalar(40, 40, 40, 0)), new Mat(new Scalar(120, 120, 120, 0)));
+        opencv_imgproc.ellipse(frame, new Point(width / 2, height / 2), new Size(width / 8, height / 5),
+                0, 0, 360, new Scalar(120, 160, 210, 0), -1, opencv_imgproc.LINE_8, 0);
+        return frame;
+    }
+}
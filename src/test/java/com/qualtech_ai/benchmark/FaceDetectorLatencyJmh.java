@@ -0,0 +1,67 @@
+package com.qualtech_ai.benchmark;
+
+import com.qualtech_ai.util.DetectedFace;
+import com.qualtech_ai.util.FaceDetector;
+import com.qualtech_ai.util.SsdFaceDetector;
+import com.qualtech_ai.util.YuNetFaceDetector;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH harness for {@link FaceDetectorComparisonBenchmark}: mean latency of
+ * one detection per backend and frame size, in a forked JVM with JIT
+ * warm-up iterations. The comparison benchmark narrows {@code backend} to
+ * the models that are present before running it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FaceDetectorLatencyJmh {
+
+    @Param({SsdFaceDetector.NAME, YuNetFaceDetector.NAME})
+    public String backend;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String frameSize;
+
+    private FaceDetector detector;
+    private Mat frame;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        detector = FaceDetectorComparisonBenchmark.newDetector(backend);
+        detector.load(Runnable::run);
+        String[] size = frameSize.split("x");
+        frame = FaceDetectorComparisonBenchmark.syntheticFrame(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FaceDetectorComparisonBenchmark.close(detector);
+        frame.release();
+    }
+
+    @Benchmark
+    public List<DetectedFace> detect() {
+        return detector.detect(frame, frame.cols(), frame.rows());
+    }
+}
@@ -0,0 +1,103 @@
+package com.qualtech_ai.benchmark;
+
+import com.qualtech_ai.benchmark.BenchmarkSupport.Implementation;
+import com.qualtech_ai.util.FaceAnalysis;
+import com.qualtech_ai.util.FaceImageFixtures;
+import com.qualtech_ai.util.GridFeatureEmbedder;
+import com.qualtech_ai.util.SFaceEmbedder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Embedding cost per frame for 1 to 8 faces: SFace with every face in one
+ * forward pass against one pass per face, with the grid descriptor for
+ * reference.
+ * <p>
+ * Needs {@code face_recognition_sface_2021dec.onnx} in
+ * {@code src/main/resources/face_models} (see the README there) and skips
+ * without it.
+ */
+@EnabledIfSystemProperty(named = BenchmarkSupport.PERF_PROPERTY, matches = "true")
+class FaceEmbedderBenchmark {
+
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 100;
+    private static final Size FACE_CROP = new Size(FaceAnalysis.STANDARD_SIZE, FaceAnalysis.STANDARD_SIZE);
+    // Five landmarks of a frontal face in a 160x160 crop
+    private static final float[] LANDMARKS = {55, 70, 105, 70, 80, 98, 60, 125, 100, 125};
+
+    @Test
+    void batchedAgainstPerFace() {
+        SFaceEmbedder sface = new SFaceEmbedder(new DefaultResourceLoader(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(sface, "modelLocation",
+                "classpath:face_models/face_recognition_sface_2021dec.onnx");
+        ReflectionTestUtils.setField(sface, "maxBatch", 8);
+        ReflectionTestUtils.setField(sface, "poolSize", 1);
+        ReflectionTestUtils.setField(sface, "maxWaitMs", 60_000L);
+        try {
+            sface.load(Runnable::run);
+        } catch (IOException | RuntimeException e) {
+            assumeTrue(false, "SFace model not available: " + e.getMessage());
+        }
+        GridFeatureEmbedder grid = new GridFeatureEmbedder();
+
+        List<Mat> crops = new ArrayList<>();
+        try {
+            for (int faces : new int[]{1, 4, 8}) {
+                while (crops.size() < faces) {
+                    crops.add(FaceImageFixtures.randomFace(FaceAnalysis.STANDARD_SIZE, FaceAnalysis.STANDARD_SIZE,
+                            FaceImageFixtures.SKIN, 0, crops.size() + 1));
+                }
+                List<Mat> frame = crops.subList(0, faces);
+                String label = faces + " faces/frame";
+                BenchmarkSupport.compareWithReference(label, WARMUP, ITERATIONS,
+                        new Implementation<>("sface per face,",
+                                () -> withAnalyses(frame, analyses -> analyses.stream().map(sface::embed).toList())),
+                        new Implementation<>("sface batched,", () -> withAnalyses(frame, sface::embed)),
+                        FaceEmbedderBenchmark::assertSameEmbeddings);
+                BenchmarkSupport.report("grid, " + label,
+                        BenchmarkSupport.nanosPerOp(WARMUP, ITERATIONS, () -> withAnalyses(frame, grid::embed)));
+            }
+        } finally {
+            crops.forEach(Mat::release);
+            sface.close();
+        }
+    }
+
+    /**
+     * One batched forward pass must give each face the embedding it gets alone
+     */
+    private static void assertSameEmbeddings(List<float[]> perFace, List<float[]> batched) {
+        assertEquals(perFace.size(), batched.size());
+        for (int i = 0; i < perFace.size(); i++) {
+            assertArrayEquals(perFace.get(i), batched.get(i), 1e-4f, "face " + i);
+        }
+    }
+
+    private static List<float[]> withAnalyses(List<Mat> crops,
+                                              Function<List<FaceAnalysis>, List<float[]>> embed) {
+        List<FaceAnalysis> analyses = new ArrayList<>(crops.size());
+        try {
+            for (Mat crop : crops) {
+                analyses.add(FaceAnalysis.resized(crop, FACE_CROP, LANDMARKS));
+            }
+            return embed.apply(analyses);
+        } finally {
+            analyses.forEach(FaceAnalysis::close);
+        }
+    }
+}
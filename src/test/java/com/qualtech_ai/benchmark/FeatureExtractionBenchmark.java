@@ -0,0 +1,39 @@
+package com.qualtech_ai.benchmark;
+
+import com.qualtech_ai.benchmark.BenchmarkSupport.Implementation;
+import com.qualtech_ai.util.FaceImageFixtures;
+import com.qualtech_ai.util.GridFeatureExtractor;
+import com.qualtech_ai.util.MatWorkspace;
+import com.qualtech_ai.util.OpenCvGridFeatureReference;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Grid descriptor per face: a sub-Mat and {@code meanStdDev} per cell
+ * against integral-image lookups.
+ */
+@EnabledIfSystemProperty(named = BenchmarkSupport.PERF_PROPERTY, matches = "true")
+class FeatureExtractionBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    void integralAgainstPerCellMeanStdDev() {
+        for (int side : new int[]{160, 224}) {
+            Mat face = FaceImageFixtures.randomFace(side, side, FaceImageFixtures.FULL_RANGE, 1.5, side);
+            BenchmarkSupport.compareWithReference(side + "x" + side, WARMUP, ITERATIONS,
+                    new Implementation<>("per-cell meanStdDev", () -> OpenCvGridFeatureReference.extract(face)),
+                    new Implementation<>("integral images", () -> {
+                        try (MatWorkspace workspace = MatWorkspace.acquire()) {
+                            return GridFeatureExtractor.extract(face, workspace);
+                        }
+                    }),
+                    (expected, actual) -> assertArrayEquals(expected, actual, 1e-5f));
+            face.release();
+        }
+    }
+}
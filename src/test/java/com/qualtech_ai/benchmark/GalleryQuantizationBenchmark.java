@@ -0,0 +1,101 @@
+package com.qualtech_ai.benchmark;
+
+import com.qualtech_ai.util.FloatRowStore;
+import com.qualtech_ai.util.QuantizedVectorStore;
+import com.qualtech_ai.util.ShardedScanner;
+import com.qualtech_ai.util.TopK;
+import com.qualtech_ai.util.VectorFixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Gallery search per probe on 100k exemplars, both sharded across the cores
+ * as the gallery runs them: the exact off-heap float scan against the int8
+ * and fp16 first pass plus exact re-rank, with the recall@1 each quantized
+ * path reaches against the exact scan.
+ */
+@EnabledIfSystemProperty(named = BenchmarkSupport.PERF_PROPERTY, matches = "true")
+class GalleryQuantizationBenchmark {
+
+    private static final int DIMENSION = 128;
+    private static final int ROWS = 100_000;
+    private static final int PROBES = 64;
+    private static final int RERANK_DEPTH = 16;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+    private static final int SHARD_BYTES = 262_144;
+
+    @Test
+    void quantizedAgainstExactScan() {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            compare(new ShardedScanner(pool, 0, SHARD_BYTES));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void compare(ShardedScanner scanner) {
+        Random random = new Random(23);
+        float[] matrix = VectorFixtures.normalizedRows(random, ROWS, DIMENSION);
+        FloatRowStore exact = new FloatRowStore(DIMENSION, ROWS);
+        for (int row = 0; row < ROWS; row++) {
+            exact.append(matrix, row * DIMENSION);
+        }
+        float[][] probes = new float[PROBES][DIMENSION];
+        float noise = (float) (0.5 / Math.sqrt(DIMENSION));
+        for (float[] probe : probes) {
+            System.arraycopy(matrix, random.nextInt(ROWS) * DIMENSION, probe, 0, DIMENSION);
+            for (int i = 0; i < DIMENSION; i++) {
+                probe[i] += noise * (float) random.nextGaussian();
+            }
+            VectorFixtures.normalize(probe);
+        }
+        int[] expected = new int[PROBES];
+        for (int p = 0; p < PROBES; p++) {
+            expected[p] = exactBest(scanner, exact, probes[p]);
+        }
+
+        int[] next = {0};
+        double exactNanos = BenchmarkSupport.nanosPerOp(WARMUP, ITERATIONS,
+                () -> exactBest(scanner, exact, probes[next[0]++ % PROBES]));
+        BenchmarkSupport.report("exact float32 scan", exactNanos);
+
+        for (QuantizedVectorStore.Encoding encoding : QuantizedVectorStore.Encoding.values()) {
+            QuantizedVectorStore quantized = new QuantizedVectorStore(DIMENSION, encoding, ROWS);
+            for (int row = 0; row < ROWS; row++) {
+                quantized.append(matrix, row * DIMENSION);
+            }
+            int hits = 0;
+            for (int p = 0; p < PROBES; p++) {
+                hits += quantizedBest(scanner, quantized, exact, probes[p]) == expected[p] ? 1 : 0;
+            }
+            double nanos = BenchmarkSupport.nanosPerOp(WARMUP, ITERATIONS,
+                    () -> quantizedBest(scanner, quantized, exact, probes[next[0]++ % PROBES]));
+            String label = encoding.name().toLowerCase();
+            BenchmarkSupport.report(label + " scan + re-rank", nanos);
+            BenchmarkSupport.reportRatio(label + " speed-up", exactNanos, nanos);
+            assertTrue(hits >= PROBES * 0.98, label + " recall@1 " + hits + "/" + PROBES);
+        }
+    }
+
+    private static int exactBest(ShardedScanner scanner, FloatRowStore exact, float[] probe) {
+        return scanner.scan(new float[][]{probe}, exact, exact.rows(), 1)[0].sortDescending().id(0);
+    }
+
+    private static int quantizedBest(ShardedScanner scanner, QuantizedVectorStore quantized, FloatRowStore exact,
+                                     float[] probe) {
+        TopK candidates = scanner.scan(new float[][]{probe}, quantized, quantized.rows(), RERANK_DEPTH)[0];
+        candidates.sortDescending();
+        TopK best = new TopK(1);
+        for (int i = 0; i < candidates.size(); i++) {
+            best.offer(candidates.id(i), exact.dot(probe, candidates.id(i)));
+        }
+        return best.sortDescending().id(0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.qualtech_ai.benchmark;
+
+import com.qualtech_ai.util.ImageDecoder;
+import com.qualtech_ai.util.MultiResolutionFrame;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgcodecs;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Per-frame cost of decoding an uploaded JPEG: the old temp file + imread
+ * round trip against in-memory imdecode, and full against reduced decoding
+ * for the detection pass.
+ */
+@EnabledIfSystemProperty(named = BenchmarkSupport.PERF_PROPERTY, matches = "true")
+class ImageDecodeBenchmark {
+
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 300;
+    private static final int DETECTION_MIN_SIDE = 300;
+
+    @Test
+    void decodeFrame() {
+        for (int[] size : new int[][]{{640, 480}, {1280, 720}, {1920, 1080}}) {
+            byte[] jpeg = syntheticJpeg(size[0], size[1]);
+            String label = size[0] + "x" + size[1] + " (" + jpeg.length / 1024 + " KB)";
+
+            Mat check = ImageDecoder.decode(jpeg);
+            assertFalse(check.empty());
+            assertEquals(size[0], check.cols());
+            check.release();
+
+            double tempFile = BenchmarkSupport.nanosPerOp(WARMUP, ITERATIONS, () -> decodeViaTempFile(jpeg));
+            double inMemory = BenchmarkSupport.nanosPerOp(WARMUP, ITERATIONS, () -> ImageDecoder.decode(jpeg).release());
+            BenchmarkSupport.report("temp file + imread " + label, tempFile);
+            BenchmarkSupport.report("imdecode " + label, inMemory);
+            BenchmarkSupport.reportRatio("speed-up " + label, tempFile, inMemory);
+        }
+    }
+
+    /**
+     * Full decode against the reduced decode used for detection, at the
+     * reduction the pipeline picks for each frame size
+     */
+    @Test
+    void reducedDecodeForDetection() {
+        for (int[] size : new int[][]{{1280, 720}, {1920, 1080}, {3840, 2160}}) {
+            byte[] jpeg = syntheticJpeg(size[0], size[1]);
+            int reduction = MultiResolutionFrame.reductionFor(size[0], size[1], DETECTION_MIN_SIDE);
+            int flags = switch (reduction) {
+                case 2 -> opencv_imgcodecs.IMREAD_REDUCED_COLOR_2;
+                case 4 -> opencv_imgcodecs.IMREAD_REDUCED_COLOR_4;
+                case 8 -> opencv_imgcodecs.IMREAD_REDUCED_COLOR_8;
+                default -> opencv_imgcodecs.IMREAD_COLOR;
+            };
+            String label = size[0] + "x" + size[1] + " 1/" + reduction;
+
+            Mat check = ImageDecoder.decode(jpeg, flags);
+            assertEquals((size[0] + reduction - 1) / reduction, check.cols());
+            check.release();
+
+            double full = BenchmarkSupport.nanosPerOp(WARMUP / 2, ITERATIONS / 3, () -> ImageDecoder.decode(jpeg).release());
+            double reduced = BenchmarkSupport.nanosPerOp(WARMUP / 2, ITERATIONS / 3,
+                    () -> ImageDecoder.decode(jpeg, flags).release());
+            BenchmarkSupport.report("full decode " + label, full);
+            BenchmarkSupport.report("reduced decode " + label, reduced);
+            BenchmarkSupport.reportRatio("speed-up " + label, full, reduced);
+        }
+    }
+
+    /**
+     * What the verification paths did before: write, imread, delete
+     */
+    private static void decodeViaTempFile(byte[] jpeg) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("bench_", ".jpg");
+            Files.write(file, jpeg);
+            Mat image = opencv_imgcodecs.imread(file.toAbsolutePath().toString(), opencv_imgcodecs.IMREAD_COLOR);
+            image.release();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (file != null) {
+                file.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * Camera-like frame: flat colour plus sensor-like noise so the JPEG has a
+     * realistic size
+     */
+    static byte[] syntheticJpeg(int width, int height) {
+        Mat image = new Mat(height, width, opencv_core.CV_8UC3, new Scalar(90, 120, 160, 0));
+        Mat noise = new Mat(height, width, opencv_core.CV_8UC3);
+        opencv_core.randu(noise, new Mat(1, 1, opencv_core.CV_64F, new Scalar(0)),
+                new Mat(1, 1, opencv_core.CV_64F, new Scalar(60)));
+        opencv_core.add(image, noise, image);
+        try (BytePointer encoded = new BytePointer()) {
+            opencv_imgcodecs.imencode(".jpg", image, encoded);
+            byte[] bytes = new byte[(int) encoded.limit()];
+            encoded.get(bytes);
+            return bytes;
+        } finally {
+            noise.release();
+            image.release();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.qualtech_ai.benchmark;
+
+import com.qualtech_ai.benchmark.BenchmarkSupport.Implementation;
+import com.qualtech_ai.util.FaceImageFixtures;
+import com.qualtech_ai.util.LivenessScorer;
+import com.qualtech_ai.util.MatWorkspace;
+import com.qualtech_ai.util.OpenCvLivenessReference;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Liveness measurements per face: the seven-pass OpenCV chain against the
+ * fused two-pass scorer, on the crop sizes the pipeline uses.
+ */
+@EnabledIfSystemProperty(named = BenchmarkSupport.PERF_PROPERTY, matches = "true")
+class LivenessBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    void fusedAgainstOpenCvChain() {
+        for (int side : new int[]{160, 224}) {
+            Mat face = FaceImageFixtures.randomFace(side, side, FaceImageFixtures.SKIN, 1.2, side);
+            BenchmarkSupport.compareWithReference(side + "x" + side, WARMUP, ITERATIONS,
+                    new Implementation<>("OpenCV chain", () -> OpenCvLivenessReference.measure(face)),
+                    new Implementation<>("fused scorer", () -> {
+                        try (MatWorkspace workspace = MatWorkspace.acquire()) {
+                            return LivenessScorer.measure(face, workspace);
+                        }
+                    }),
+                    (expected, actual) -> assertEquals(expected, actual));
+            face.release();
+        }
+    }
+}
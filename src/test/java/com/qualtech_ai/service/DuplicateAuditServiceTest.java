@@ -0,0 +1,133 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.entity.FaceUser;
+import com.qualtech_ai.repository.FaceUserRepository;
+import com.qualtech_ai.util.FaceEmbedder;
+import com.qualtech_ai.util.VectorFixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The audit must find every account enrolled twice, join chains of
+ * duplicates into one cluster, and run the exact sharded scan of an
+ * unindexed gallery on its own pool rather than the gallery's search pool.
+ * Without a configured threshold it reports at the embedder's match threshold.
+ */
+class DuplicateAuditServiceTest {
+
+    private static final int USERS = 300;
+
+    private final Random random = new Random(11);
+    private FaceGalleryService gallery;
+    private DuplicateAuditService audit;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void startServices() {
+        FaceUserRepository repository = mock(FaceUserRepository.class);
+        FaceModelRegistry registry = mock(FaceModelRegistry.class);
+        when(repository.findActiveGalleryEntries()).thenReturn(List.of());
+        FaceEmbedder embedder = mock(FaceEmbedder.class);
+        when(registry.getEmbeddingModel()).thenReturn(1);
+        when(registry.embedder()).thenReturn(embedder);
+        when(embedder.matchThreshold()).thenReturn(0.7);
+
+        gallery = new FaceGalleryService(repository, registry);
+        ReflectionTestUtils.setField(gallery, "indexMinSize", 20_000);
+        // Small enough that the exact scan is sharded across a pool
+        ReflectionTestUtils.setField(gallery, "parallelMinRows", 64);
+        ReflectionTestUtils.setField(gallery, "searchParallelism", 4);
+        ReflectionTestUtils.setField(gallery, "shardBytes", 8192);
+        ReflectionTestUtils.setField(gallery, "quantizationEncoding", "none");
+        ReflectionTestUtils.setField(gallery, "indexFile", tempDir.resolve("gallery.hnsw").toString());
+        gallery.loadGallery();
+
+        audit = new DuplicateAuditService(gallery, registry);
+        ReflectionTestUtils.setField(audit, "defaultNeighbours", 5);
+        ReflectionTestUtils.setField(audit, "configuredParallelism", 2);
+    }
+
+    @AfterEach
+    void stopServices() {
+        audit.shutdown();
+        gallery.shutdown();
+    }
+
+    @Test
+    void findsDuplicateAccountsOnTheAuditPool() throws InterruptedException {
+        float[][] faces = new float[USERS][];
+        for (int i = 0; i < USERS; i++) {
+            faces[i] = probe();
+            gallery.onEmbeddingsSaved(user("user-" + i), List.of(faces[i]));
+        }
+        // user-0 enrolled twice more, user-1 once more
+        gallery.onEmbeddingsSaved(user("copy-0a"), List.of(recapture(faces[0])));
+        gallery.onEmbeddingsSaved(user("copy-0b"), List.of(recapture(faces[0])));
+        gallery.onEmbeddingsSaved(user("copy-1"), List.of(recapture(faces[1])));
+
+        DuplicateAuditService.AuditJob job = audit.startAudit(null, null);
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (job.getStatus() == DuplicateAuditService.AuditStatus.RUNNING
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(DuplicateAuditService.AuditStatus.COMPLETED, job.getStatus(), job.getError());
+        assertEquals(0.7, job.getThreshold()); // The embedder's match threshold, none configured
+        assertEquals(USERS + 3, job.getRowsScanned());
+        assertEquals(4, job.getVerifiedPairs());
+        assertEquals(2, job.getClusterCount());
+        List<DuplicateAuditService.DuplicateCluster> clusters = audit.clusters(job).toList();
+        List<List<String>> members = clusters.stream().map(DuplicateAuditServiceTest::memberIds).toList();
+        assertTrue(members.contains(List.of("copy-0a", "copy-0b", "user-0")), members.toString());
+        assertTrue(members.contains(List.of("copy-1", "user-1")), members.toString());
+        assertTrue(clusters.get(0).maxSimilarity() >= clusters.get(1).maxSimilarity());
+        assertEquals("user-0", clusters.get(members.indexOf(List.of("copy-0a", "copy-0b", "user-0")))
+                .users().get(2).name());
+
+        // No gallery search worker was ever started for the audit's probes
+        ForkJoinPool searchPool = (ForkJoinPool) ReflectionTestUtils.getField(gallery, "searchPool");
+        assertEquals(0, searchPool.getPoolSize());
+    }
+
+    private static List<String> memberIds(DuplicateAuditService.DuplicateCluster cluster) {
+        return cluster.users().stream().map(DuplicateAuditService.DuplicateMember::userId).toList();
+    }
+
+    private float[] recapture(float[] face) {
+        float[] copy = face.clone();
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] += 0.02f * (float) random.nextGaussian();
+        }
+        VectorFixtures.normalize(copy);
+        return copy;
+    }
+
+    private float[] probe() {
+        float[] probe = new float[FaceGalleryService.DIMENSION];
+        VectorFixtures.fillNormalized(random, probe);
+        return probe;
+    }
+
+    private static FaceUser user(String id) {
+        FaceUser user = new FaceUser();
+        user.setId(id);
+        user.setName(id);
+        return user;
+    }
+}
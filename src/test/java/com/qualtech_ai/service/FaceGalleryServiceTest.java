@@ -0,0 +1,273 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.entity.FaceUser;
+import com.qualtech_ai.repository.FaceUserRepository;
+import com.qualtech_ai.util.FloatRowStore;
+import com.qualtech_ai.util.VectorFixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Gallery lookups on an in-memory gallery (no snapshot): probes that cannot
+ * be matched must yield no match rather than an exception, the duplicate
+ * check must find re-captures with and without the HNSW index and through
+ * the sharded quantized tier, and only one of several concurrent
+ * registrations of a face may hold its reservation. A gallery restored from
+ * a snapshot drops users logged as deleted since its watermark.
+ */
+class FaceGalleryServiceTest {
+
+    private static final double THRESHOLD = 0.7;
+    private static final int THREADS = 8;
+
+    private final Random random = new Random(9);
+    private FaceGalleryService gallery;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void startGallery() {
+        gallery = newGallery("none", 50_000);
+    }
+
+    private FaceGalleryService newGallery(String quantization, int parallelMinRows) {
+        FaceUserRepository repository = mock(FaceUserRepository.class);
+        when(repository.findActiveGalleryEntries()).thenReturn(List.of());
+        return newGallery(repository, quantization, parallelMinRows, null);
+    }
+
+    private FaceGalleryService newGallery(FaceUserRepository repository, String quantization, int parallelMinRows,
+                                          Path snapshotFile) {
+        FaceModelRegistry registry = mock(FaceModelRegistry.class);
+        when(registry.getEmbeddingModel()).thenReturn(1);
+
+        FaceGalleryService service = new FaceGalleryService(repository, registry);
+        ReflectionTestUtils.setField(service, "snapshotEnabled", snapshotFile != null);
+        if (snapshotFile != null) {
+            ReflectionTestUtils.setField(service, "snapshotFile", snapshotFile.toString());
+            ReflectionTestUtils.setField(service, "snapshotWriteDelayMs", 60_000L);
+        }
+        ReflectionTestUtils.setField(service, "indexMinSize", 20_000);
+        ReflectionTestUtils.setField(service, "parallelMinRows", parallelMinRows);
+        ReflectionTestUtils.setField(service, "searchParallelism", 4);
+        ReflectionTestUtils.setField(service, "shardBytes", 8192);
+        ReflectionTestUtils.setField(service, "quantizationEncoding", quantization);
+        ReflectionTestUtils.setField(service, "rerankDepth", 16);
+        ReflectionTestUtils.setField(service, "indexM", 16);
+        ReflectionTestUtils.setField(service, "indexEfConstruction", 100);
+        ReflectionTestUtils.setField(service, "indexEfSearch", 64);
+        ReflectionTestUtils.setField(service, "indexFile", tempDir.resolve("gallery.hnsw").toString());
+        service.loadGallery();
+        return service;
+    }
+
+    @AfterEach
+    void stopGallery() {
+        gallery.shutdown();
+    }
+
+    @Test
+    void invalidProbesMatchNobody() {
+        float[] enrolled = probe();
+        gallery.onEmbeddingsSaved(user("alice"), List.of(enrolled));
+
+        assertEquals(Optional.empty(), gallery.findBestMatch(null));
+        assertEquals(Optional.empty(), gallery.findBestMatch(new float[FaceGalleryService.DIMENSION - 1]));
+        assertEquals(List.of(Optional.empty()), gallery.findBestMatches(Collections.singletonList(null)));
+        assertEquals("alice", gallery.findBestMatch(enrolled).orElseThrow().user().getId());
+    }
+
+    @Test
+    void emptyGalleryMatchesNobody() {
+        assertTrue(gallery.findBestMatch(probe()).isEmpty());
+        assertTrue(gallery.findFirstMatchAtLeast(probe(), 0.0).isEmpty());
+    }
+
+    @Test
+    void duplicateCheckFindsRecapturesWithoutIndex() {
+        List<float[]> enrolled = enroll(200);
+
+        assertEquals("exact", gallery.getSearchMode());
+        assertDuplicateCheck(enrolled);
+    }
+
+    @Test
+    void duplicateCheckFindsRecapturesThroughIndex() throws InterruptedException {
+        ReflectionTestUtils.setField(gallery, "indexEnabled", true);
+        ReflectionTestUtils.setField(gallery, "indexMinSize", 100);
+        List<float[]> enrolled = enroll(200);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!gallery.getSearchMode().equals("hnsw") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("hnsw", gallery.getSearchMode());
+        assertDuplicateCheck(enrolled);
+    }
+
+    @Test
+    void quantizedTierMatchesThroughShardedScan() {
+        for (String encoding : List.of("int8", "fp16")) {
+            gallery.shutdown();
+            gallery = newGallery(encoding, 64);
+            List<float[]> enrolled = enroll(200);
+
+            assertEquals("quantized-" + encoding, gallery.getSearchMode());
+            assertDuplicateCheck(enrolled);
+            for (int i = 5; i < enrolled.size(); i += 10) {
+                Optional<FaceGalleryService.Match> match = gallery.findBestMatch(recapture(enrolled.get(i)));
+                assertEquals("user-" + i, match.orElseThrow().user().getId(), encoding);
+            }
+        }
+    }
+
+    @Test
+    void onlyOneConcurrentRegistrationOfAFaceIsReserved() throws Exception {
+        float[] face = probe();
+        List<Optional<FaceGalleryService.InFlightProbe>> reservations = reserveConcurrently(i -> recapture(face));
+
+        assertEquals(1, reservations.stream().filter(Optional::isPresent).count());
+        // Released once the winner's registration is done
+        reservations.forEach(reservation -> reservation.ifPresent(FaceGalleryService.InFlightProbe::close));
+        try (FaceGalleryService.InFlightProbe again = gallery.reserveProbe(face, THRESHOLD).orElseThrow()) {
+            assertFalse(gallery.reserveProbe(recapture(face), THRESHOLD).isPresent());
+        }
+    }
+
+    @Test
+    void differentFacesRegisterConcurrently() throws Exception {
+        List<float[]> faces = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            faces.add(probe());
+        }
+        List<Optional<FaceGalleryService.InFlightProbe>> reservations = reserveConcurrently(faces::get);
+
+        assertTrue(reservations.stream().allMatch(Optional::isPresent));
+        reservations.forEach(reservation -> reservation.orElseThrow().close());
+    }
+
+    private void assertDuplicateCheck(List<float[]> enrolled) {
+        for (int i = 0; i < enrolled.size(); i += 10) {
+            Optional<FaceGalleryService.Match> match =
+                    gallery.findFirstMatchAtLeast(recapture(enrolled.get(i)), THRESHOLD);
+            assertEquals("user-" + i, match.orElseThrow().user().getId());
+            assertTrue(match.get().similarity() >= THRESHOLD);
+        }
+        // Random 128-d unit vectors are nearly orthogonal to every enrolled face
+        for (int i = 0; i < 20; i++) {
+            assertTrue(gallery.findFirstMatchAtLeast(probe(), THRESHOLD).isEmpty());
+        }
+    }
+
+    @Test
+    void snapshotRestoreDropsOnlyUsersDeletedAfterWatermark() throws Exception {
+        float[] alice = probe();
+        float[] bob = probe();
+        FloatRowStore vectors = new FloatRowStore(FaceGalleryService.DIMENSION, 2);
+        vectors.append(alice, 0);
+        vectors.append(bob, 0);
+        Path snapshot = tempDir.resolve("gallery.snapshot");
+        LocalDateTime watermark = LocalDateTime.of(2026, 1, 1, 12, 0);
+        FaceGallerySnapshot.write(snapshot, FaceGalleryService.DIMENSION, 1, 2, new String[]{"alice", "bob"},
+                vectors, Map.of("alice", user("alice"), "bob", user("bob")), watermark);
+
+        FaceUserRepository repository = mock(FaceUserRepository.class);
+        when(repository.findGalleryUserIdsDeletedAfter(any())).thenReturn(List.of("bob"));
+        when(repository.findGalleryEntriesUpdatedAfter(any())).thenReturn(List.of());
+        FaceGalleryService restored = newGallery(repository, "none", 50_000, snapshot);
+        try {
+            assertEquals(1, restored.getExemplarCount());
+            assertEquals("alice", restored.findBestMatch(bob).orElseThrow().user().getId());
+            verify(repository, never()).findActiveGalleryEntries();
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    private List<float[]> enroll(int users) {
+        List<float[]> enrolled = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            float[] face = probe();
+            enrolled.add(face);
+            gallery.onEmbeddingsSaved(user("user-" + i), List.of(face));
+        }
+        return enrolled;
+    }
+
+    private List<Optional<FaceGalleryService.InFlightProbe>> reserveConcurrently(
+            IntFunction<float[]> probes) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Optional<FaceGalleryService.InFlightProbe>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                float[] probe = probes.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return gallery.reserveProbe(probe, THRESHOLD);
+                }));
+            }
+            start.countDown();
+            List<Optional<FaceGalleryService.InFlightProbe>> reservations = new ArrayList<>();
+            for (Future<Optional<FaceGalleryService.InFlightProbe>> future : futures) {
+                reservations.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return reservations;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The same face captured again: a small perturbation of the enrolled vector
+     */
+    private float[] recapture(float[] face) {
+        float[] copy = face.clone();
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] += 0.02f * (float) random.nextGaussian();
+        }
+        VectorFixtures.normalize(copy);
+        return copy;
+    }
+
+    private float[] probe() {
+        float[] probe = new float[FaceGalleryService.DIMENSION];
+        VectorFixtures.fillNormalized(random, probe);
+        return probe;
+    }
+
+    private static FaceUser user(String id) {
+        FaceUser user = new FaceUser();
+        user.setId(id);
+        user.setName(id);
+        return user;
+    }
+}
@@ -0,0 +1,125 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.entity.FaceUser;
+import com.qualtech_ai.util.FloatRowStore;
+import com.qualtech_ai.util.VectorFixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A snapshot must read back the rows, users and watermark it was written
+ * with, serve its rows from the mapping without ever writing the file, and
+ * refuse files that are truncated or from another embedding model.
+ */
+class FaceGallerySnapshotTest {
+
+    private static final int DIMENSION = 16;
+    private static final int MODEL = 1;
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2026, 3, 1, 12, 30, 15, 250_000_000);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        float[] matrix = VectorFixtures.normalizedRows(new Random(1), 3, DIMENSION);
+        Path file = write(matrix, WATERMARK);
+
+        FaceGallerySnapshot.Contents contents = FaceGallerySnapshot.read(file, DIMENSION, MODEL);
+
+        assertEquals(3, contents.rowCount());
+        assertArrayEquals(new String[]{"alice", "bob", "alice"}, contents.rowIds());
+        assertEquals(WATERMARK, contents.watermark());
+        assertEquals("Alice", contents.users().get("alice").getName());
+        assertNull(contents.users().get("bob").getDepartment());
+        float[] rows = new float[matrix.length];
+        contents.vectors().copyRows(0, 3, rows, 0);
+        assertArrayEquals(matrix, rows);
+    }
+
+    @Test
+    void mappedRowsAreCopyOnWrite() throws IOException {
+        // Far less than one 16 MiB chunk, and still every row is mapped
+        int rows = 37;
+        float[] matrix = VectorFixtures.normalizedRows(new Random(2), rows, DIMENSION);
+        Path file = write(matrix, null);
+        byte[] before = Files.readAllBytes(file);
+
+        FloatRowStore vectors = FaceGallerySnapshot.read(file, DIMENSION, MODEL).vectors();
+        assertEquals((long) rows * DIMENSION * Float.BYTES, vectors.bytesMapped());
+        assertEquals(0L, vectors.bytesReserved());
+        vectors.moveRow(rows - 1, 0);
+        vectors.append(matrix, 0);
+
+        float[] row = new float[DIMENSION];
+        vectors.copyRow(0, row, 0);
+        assertArrayEquals(slice(matrix, rows - 1), row);
+        vectors.copyRow(rows, row, 0);
+        assertArrayEquals(slice(matrix, 0), row);
+        assertArrayEquals(before, Files.readAllBytes(file));
+        assertNull(FaceGallerySnapshot.read(file, DIMENSION, MODEL).watermark());
+    }
+
+    @Test
+    void rejectsTruncatedSnapshot() throws IOException {
+        Path file = write(VectorFixtures.normalizedRows(new Random(3), 3, DIMENSION), WATERMARK);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - Float.BYTES);
+        }
+
+        IOException error = assertThrows(IOException.class, () -> FaceGallerySnapshot.read(file, DIMENSION, MODEL));
+        assertTrue(error.getMessage().contains("truncated"), error.getMessage());
+    }
+
+    @Test
+    void rejectsOtherModelOrDimension() throws IOException {
+        Path file = write(VectorFixtures.normalizedRows(new Random(4), 3, DIMENSION), WATERMARK);
+
+        assertThrows(IOException.class, () -> FaceGallerySnapshot.read(file, DIMENSION, MODEL + 1));
+        assertThrows(IOException.class, () -> FaceGallerySnapshot.mapVectors(file, DIMENSION * 2, MODEL));
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> FaceGallerySnapshot.read(file, DIMENSION, MODEL));
+    }
+
+    private Path write(float[] matrix, LocalDateTime watermark) throws IOException {
+        int rows = matrix.length / DIMENSION;
+        FloatRowStore vectors = new FloatRowStore(DIMENSION, rows);
+        String[] rowIds = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            vectors.append(matrix, row * DIMENSION);
+            rowIds[row] = row % 2 == 0 ? "alice" : "bob";
+        }
+        Path file = tempDir.resolve("gallery.snapshot");
+        FaceGallerySnapshot.write(file, DIMENSION, MODEL, rows, rowIds, vectors,
+                Map.of("alice", user("alice", "Alice"), "bob", user("bob", "Bob")), watermark);
+        return file;
+    }
+
+    private static FaceUser user(String id, String name) {
+        FaceUser user = new FaceUser();
+        user.setId(id);
+        user.setName(name);
+        return user;
+    }
+
+    private static float[] slice(float[] matrix, int row) {
+        float[] vector = new float[DIMENSION];
+        System.arraycopy(matrix, row * DIMENSION, vector, 0, DIMENSION);
+        return vector;
+    }
+}
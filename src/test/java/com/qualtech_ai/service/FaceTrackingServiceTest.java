@@ -0,0 +1,56 @@
+package com.qualtech_ai.service;
+
+import com.qualtech_ai.util.FaceTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A tracking session belongs to one caller: the same correlation id from
+ * another principal must get its own tracker, and anonymous streams none.
+ */
+class FaceTrackingServiceTest {
+
+    private final FaceTrackingService service = new FaceTrackingService(new SimpleMeterRegistry());
+
+    @BeforeEach
+    void init() {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "detectEvery", 5);
+        ReflectionTestUtils.setField(service, "sessionTtlMs", 30_000L);
+        service.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void scopesSessionsByPrincipal() {
+        FaceTracker<FaceTrackingService.Identity> alice = service.session("alice", "stream-1").orElseThrow();
+
+        assertSame(alice, service.session("alice", "stream-1").orElseThrow());
+        assertNotSame(alice, service.session("mallory", "stream-1").orElseThrow());
+        assertEquals(2, service.getSessionCount());
+
+        service.end("mallory", "stream-1");
+        assertSame(alice, service.session("alice", "stream-1").orElseThrow());
+        assertEquals(1, service.getSessionCount());
+    }
+
+    @Test
+    void anonymousStreamsAreNotTracked() {
+        assertTrue(service.session(null, "stream-1").isEmpty());
+        assertTrue(service.session("alice", null).isEmpty());
+        assertTrue(service.session(" ", "stream-1").isEmpty());
+        assertEquals(0, service.getSessionCount());
+    }
+}
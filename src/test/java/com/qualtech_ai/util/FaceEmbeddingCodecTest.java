@@ -0,0 +1,96 @@
+package com.qualtech_ai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Binary embeddings must round-trip bit for bit, and rows still holding the
+ * legacy Base64 CSV text must keep decoding to the same vectors.
+ */
+class FaceEmbeddingCodecTest {
+
+    private static final float[] FIRST = {0.25f, -1.5f, 3.0e-7f, Float.MIN_VALUE, -0.0f};
+    private static final float[] SECOND = {1f, 2f, 3f, 4f, 5f};
+
+    @Test
+    void roundTripsExemplarsAndHeader() {
+        byte[] data = FaceEmbeddingCodec.encode(List.of(FIRST, SECOND), 1);
+
+        assertEquals(FaceEmbeddingCodec.HEADER_SIZE + 2 * FIRST.length * Float.BYTES, data.length);
+        assertEquals(FaceEmbeddingCodec.FORMAT_VERSION, data[0]);
+        assertEquals(1, FaceEmbeddingCodec.model(data));
+        assertEquals(FIRST.length, FaceEmbeddingCodec.dimension(data));
+        assertEquals(2, FaceEmbeddingCodec.exemplarCount(data));
+
+        List<float[]> decoded = FaceEmbeddingCodec.decode(data);
+        assertEquals(2, decoded.size());
+        assertArrayEquals(FIRST, decoded.get(0));
+        assertArrayEquals(SECOND, decoded.get(1));
+    }
+
+    @Test
+    void storesFloatsLittleEndian() {
+        byte[] data = FaceEmbeddingCodec.encode(List.of(new float[]{1f}), 0);
+        int bits = Float.floatToIntBits(1f);
+
+        assertArrayEquals(new byte[]{(byte) bits, (byte) (bits >>> 8), (byte) (bits >>> 16), (byte) (bits >>> 24)},
+                Arrays.copyOfRange(data, FaceEmbeddingCodec.HEADER_SIZE, data.length));
+    }
+
+    @Test
+    void decodesLegacyTextColumn() throws Exception {
+        String first = legacy("0.25,-1.5,3.0E-7");
+        String second = legacy("1.0,2.0,3.0");
+
+        assertArrayEquals(new float[]{0.25f, -1.5f, 3.0e-7f}, FaceEmbeddingCodec.decodeLegacy(first));
+        List<float[]> list = FaceEmbeddingCodec.decodeLegacyList("[\"" + first + "\",\"" + second + "\"]");
+        assertEquals(2, list.size());
+        assertArrayEquals(new float[]{1f, 2f, 3f}, list.get(1));
+        // A single exemplar was stored without the JSON list
+        assertArrayEquals(new float[]{1f, 2f, 3f}, FaceEmbeddingCodec.decodeLegacyList(second).get(0));
+        assertTrue(FaceEmbeddingCodec.decodeLegacyList("  ").isEmpty());
+    }
+
+    @Test
+    void prefersBinaryColumnOverLegacyText() throws Exception {
+        byte[] data = FaceEmbeddingCodec.encode(List.of(SECOND), 1);
+
+        assertArrayEquals(SECOND, FaceEmbeddingCodec.decodeStored(data, legacy("9.0,9.0")).get(0));
+        assertArrayEquals(new float[]{9f, 9f}, FaceEmbeddingCodec.decodeStored(new byte[0], legacy("9.0,9.0")).get(0));
+        assertEquals(1, FaceEmbeddingCodec.storedModel(data));
+        // Rows not migrated to the binary column hold grid statistics
+        assertEquals(GridFeatureEmbedder.MODEL_ID, FaceEmbeddingCodec.storedModel(null));
+    }
+
+    @Test
+    void rejectsMalformedData() {
+        byte[] data = FaceEmbeddingCodec.encode(List.of(FIRST), 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> FaceEmbeddingCodec.decode(Arrays.copyOf(data, data.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> FaceEmbeddingCodec.decode(new byte[3]));
+        byte[] future = data.clone();
+        future[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> FaceEmbeddingCodec.decode(future));
+    }
+
+    @Test
+    void rejectsUnencodableInput() {
+        assertThrows(IllegalArgumentException.class, () -> FaceEmbeddingCodec.encode(List.of(), 0));
+        assertThrows(IllegalArgumentException.class, () -> FaceEmbeddingCodec.encode(List.of(FIRST, new float[2]), 0));
+        assertThrows(IllegalArgumentException.class, () -> FaceEmbeddingCodec.encode(List.of(FIRST), 256));
+    }
+
+    private static String legacy(String csv) {
+        return Base64.getEncoder().encodeToString(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
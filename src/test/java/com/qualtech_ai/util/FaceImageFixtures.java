@@ -0,0 +1,45 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+import java.util.Random;
+
+/**
+ * Seeded synthetic face crops for the golden-image tests and the benchmarks
+ * that compare an optimized OpenCV path against its reference.
+ */
+public final class FaceImageFixtures {
+
+    /**
+     * Per-channel ranges {bLow, bHigh, gLow, gHigh, rLow, rHigh} of warm skin
+     */
+    public static final int[] SKIN = {60, 160, 80, 180, 110, 230};
+    public static final int[] FULL_RANGE = {0, 255, 0, 255, 0, 255};
+
+    private FaceImageFixtures() {
+    }
+
+    /**
+     * Seeded BGR noise within per-channel ranges {bLow, bHigh, gLow, gHigh, rLow, rHigh},
+     * optionally blurred to tune the texture. The caller releases the Mat.
+     */
+    public static Mat randomFace(int width, int height, int[] ranges, double sigma, long seed) {
+        Random random = new Random(seed);
+        byte[] pixels = new byte[width * height * 3];
+        for (int i = 0; i < pixels.length; i++) {
+            int c = i % 3;
+            int low = ranges[2 * c];
+            int high = ranges[2 * c + 1];
+            pixels[i] = (byte) (low + random.nextInt(high - low + 1));
+        }
+        Mat face = new Mat(height, width, opencv_core.CV_8UC3);
+        face.data().put(pixels, 0, pixels.length);
+        if (sigma > 0) {
+            opencv_imgproc.GaussianBlur(face, face, new Size(0, 0), sigma);
+        }
+        return face;
+    }
+}
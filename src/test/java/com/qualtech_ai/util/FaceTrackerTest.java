@@ -0,0 +1,133 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Track ids must survive small and fast movements, new faces must get new
+ * ids, identity must be asked for again only for new or stale tracks, and
+ * only on detection frames, and a different face taking a track's place must
+ * not inherit its identity.
+ */
+class FaceTrackerTest {
+
+    private static final FaceTracker.Settings SETTINGS =
+            new FaceTracker.Settings(5, 0.3, 0.5, 0.6, 0.5, 0.9, 0.6, 1);
+
+    private final FaceTracker<String> tracker = new FaceTracker<>(SETTINGS);
+
+    @AfterEach
+    void close() {
+        tracker.close();
+    }
+
+    @Test
+    void keepsIdsOfOverlappingFaces() {
+        List<FaceTracker.Track<String>> first = tracker.associate(List.of(face(100, 100), face(400, 100)));
+        // Listed in the other order and moved a little
+        List<FaceTracker.Track<String>> second = tracker.associate(List.of(face(410, 105), face(95, 98)));
+
+        assertEquals(first.get(1).getId(), second.get(0).getId());
+        assertEquals(first.get(0).getId(), second.get(1).getId());
+        assertEquals(2, tracker.getTrackCount());
+    }
+
+    @Test
+    void fallsBackToCentroidsForFastMovers() {
+        int id = tracker.associate(List.of(face(100, 100))).get(0).getId();
+        // Diagonal jump: IoU 0.27 is below min-iou but the centre moved less than half a face
+        FaceTracker.Track<String> moved = tracker.associate(List.of(face(128, 128))).get(0);
+
+        assertEquals(id, moved.getId());
+        assertEquals(128, moved.getX());
+    }
+
+    @Test
+    void startsNewTracksForDistantFaces() {
+        int id = tracker.associate(List.of(face(100, 100))).get(0).getId();
+        List<FaceTracker.Track<String>> next = tracker.associate(List.of(face(100, 100), face(500, 300)));
+
+        assertEquals(id, next.get(0).getId());
+        assertNotEquals(id, next.get(1).getId());
+    }
+
+    @Test
+    void dropsTracksAfterTooManyMisses() {
+        int id = tracker.associate(List.of(face(100, 100))).get(0).getId();
+
+        tracker.associate(List.of());
+        assertEquals(1, tracker.getTrackCount());
+        assertTrue(tracker.visibleTracks().isEmpty());
+
+        // Back within the miss budget: same track
+        assertEquals(id, tracker.associate(List.of(face(102, 100))).get(0).getId());
+
+        tracker.associate(List.of());
+        tracker.associate(List.of());
+        assertEquals(0, tracker.getTrackCount());
+        assertNotEquals(id, tracker.associate(List.of(face(102, 100))).get(0).getId());
+    }
+
+    @Test
+    void asksForIdentityOnlyWhenNewOrStale() {
+        FaceTracker.Track<String> track = tracker.associate(List.of(face(100, 100))).get(0);
+        assertTrue(track.needsIdentification());
+
+        track.identified("alice");
+        for (int frame = 0; frame < 4; frame++) {
+            tracker.associate(List.of(face(100, 100)));
+            assertFalse(track.needsIdentification(), "frame " + frame);
+        }
+        // 0.9^5 < 0.6
+        tracker.associate(List.of(face(100, 100)));
+        assertTrue(track.needsIdentification());
+        assertEquals("alice", track.getState());
+    }
+
+    @Test
+    void detectsWhileAVisibleTrackNeedsIdentification() {
+        Mat frame = FaceImageFixtures.randomFace(640, 480, FaceImageFixtures.FULL_RANGE, 3.0, 1);
+        assertTrue(tracker.nextFrame(1));
+        FaceTracker.Track<String> track = tracker.update(List.of(face(100, 100)), frame, 1).get(0);
+
+        // Off schedule, but the new track has not been identified yet
+        assertTrue(tracker.nextFrame(1));
+        track.identified("alice");
+        assertFalse(tracker.nextFrame(1));
+        frame.release();
+    }
+
+    @Test
+    void keepsIdentityOnlyWhileTheCropMatchesTheTemplate() {
+        Mat first = FaceImageFixtures.randomFace(640, 480, FaceImageFixtures.FULL_RANGE, 3.0, 1);
+        Mat other = FaceImageFixtures.randomFace(640, 480, FaceImageFixtures.FULL_RANGE, 3.0, 2);
+        FaceTracker.Track<String> track = tracker.update(List.of(face(100, 100)), first, 1).get(0);
+        track.identified("alice");
+
+        // Same face, moved a little
+        assertEquals(track.getId(), tracker.update(List.of(face(102, 100)), first, 1).get(0).getId());
+        assertEquals("alice", track.getState());
+        assertFalse(track.needsIdentification());
+        assertTrue(track.getTrust() < SETTINGS.trustDecay());
+
+        // Someone else in the same place: same track, identity dropped
+        assertEquals(track.getId(), tracker.update(List.of(face(102, 100)), other, 1).get(0).getId());
+        assertNull(track.getState());
+        assertTrue(track.needsIdentification());
+        first.release();
+        other.release();
+    }
+
+    private static DetectedFace face(int x, int y) {
+        return new DetectedFace(x, y, 80, 80, 0.9f, null);
+    }
+}
@@ -0,0 +1,151 @@
+package com.qualtech_ai.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Rows must read back exactly across chunk boundaries, and scanning the
+ * off-heap rows must rank exactly as scanning the same rows on the heap.
+ */
+class FloatRowStoreTest {
+
+    private static final int DIMENSION = 8;
+    private static final int ROWS_PER_CHUNK = 5;
+
+    private final Random random = new Random(11);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rowsReadBackAcrossChunks() {
+        float[] matrix = randomRows(23);
+        FloatRowStore store = store(matrix);
+
+        assertEquals(23, store.rows());
+        float[] copy = new float[matrix.length];
+        store.copyRows(0, 23, copy, 0);
+        assertArrayEquals(matrix, copy);
+
+        float[] row = new float[DIMENSION];
+        store.copyRow(17, row, 0);
+        assertArrayEquals(slice(matrix, 17), row);
+        assertEquals(23L * DIMENSION * Float.BYTES, store.bytesUsed());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.copyRow(23, row, 0));
+    }
+
+    @Test
+    void moveAndTruncateAcrossChunks() {
+        float[] matrix = randomRows(12);
+        FloatRowStore store = store(matrix);
+
+        store.moveRow(11, 2);
+        store.truncate(11);
+        float[] row = new float[DIMENSION];
+        store.copyRow(2, row, 0);
+        assertArrayEquals(slice(matrix, 11), row);
+        assertEquals(11, store.rows());
+
+        // Empty chunks are released and grow back on append
+        store.truncate(3);
+        assertEquals(ROWS_PER_CHUNK * DIMENSION * Float.BYTES, store.bytesReserved());
+        store.append(matrix, 5 * DIMENSION);
+        store.copyRow(3, row, 0);
+        assertArrayEquals(slice(matrix, 5), row);
+    }
+
+    @Test
+    void mappedRowsIncludePartialSegmentAndAppendsGoToTail() throws IOException {
+        float[] matrix = randomRows(13);
+        Path file = directory.resolve("rows.bin");
+        ByteBuffer bytes = ByteBuffer.allocate(Float.BYTES + matrix.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putFloat(-1f).asFloatBuffer().put(matrix);
+        Files.write(file, bytes.array());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FloatRowStore store = FloatRowStore.map(channel, Float.BYTES, 13,
+                    new FloatRowStore(DIMENSION, 1, ROWS_PER_CHUNK, SimilarityKernels.scalar()));
+            assertEquals(13L * DIMENSION * Float.BYTES, store.bytesMapped());
+            assertEquals(0L, store.bytesReserved());
+
+            float[] extra = randomRows(2);
+            store.append(extra, 0);
+            store.append(extra, DIMENSION);
+            store.moveRow(14, 12);
+            float[] copy = new float[15 * DIMENSION];
+            store.copyRows(0, 15, copy, 0);
+            System.arraycopy(extra, DIMENSION, matrix, 12 * DIMENSION, DIMENSION);
+            for (int row = 0; row < 13; row++) {
+                assertArrayEquals(slice(matrix, row), slice(copy, row));
+            }
+            assertArrayEquals(slice(extra, 0), slice(copy, 13));
+
+            // Dropping into the mapped rows sends later appends to the tail
+            store.truncate(11);
+            assertEquals(11L * DIMENSION * Float.BYTES, store.bytesMapped());
+            store.append(extra, 0);
+            float[] row = new float[DIMENSION];
+            store.copyRow(11, row, 0);
+            assertArrayEquals(slice(extra, 0), row);
+        }
+    }
+
+    @Test
+    void scanMatchesHeapScan() {
+        float[] matrix = randomRows(150);
+        FloatRowStore store = new FloatRowStore(DIMENSION, 1, 70, SimilarityKernels.scalar());
+        for (int row = 0; row < 150; row++) {
+            store.append(matrix, row * DIMENSION);
+        }
+        float[][] probes = {randomRows(1), randomRows(1)};
+
+        TopK[] offHeap = {new TopK(10), new TopK(10)};
+        store.scan(probes, 3, 147, offHeap);
+        for (int p = 0; p < probes.length; p++) {
+            TopK heap = new TopK(10);
+            SimilarityKernels.scalar().scan(probes[p], matrix, DIMENSION, 3, 147, heap);
+            heap.sortDescending();
+            offHeap[p].sortDescending();
+            for (int i = 0; i < 10; i++) {
+                assertEquals(heap.id(i), offHeap[p].id(i));
+                assertEquals(heap.score(i), offHeap[p].score(i), 1e-6f);
+                assertEquals(heap.score(i), store.dot(probes[p], heap.id(i)), 1e-6f);
+            }
+        }
+    }
+
+    private FloatRowStore store(float[] matrix) {
+        FloatRowStore store = new FloatRowStore(DIMENSION, 1, ROWS_PER_CHUNK, SimilarityKernels.scalar());
+        for (int row = 0; row < matrix.length / DIMENSION; row++) {
+            store.append(matrix, row * DIMENSION);
+        }
+        return store;
+    }
+
+    private float[] randomRows(int rows) {
+        float[] matrix = new float[rows * DIMENSION];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = (float) random.nextGaussian();
+        }
+        return matrix;
+    }
+
+    private static float[] slice(float[] matrix, int row) {
+        float[] vector = new float[DIMENSION];
+        System.arraycopy(matrix, row * DIMENSION, vector, 0, DIMENSION);
+        return vector;
+    }
+}
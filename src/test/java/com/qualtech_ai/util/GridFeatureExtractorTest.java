@@ -0,0 +1,70 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The integral-image extractor must produce the same vectors as the per-cell
+ * {@code meanStdDev} version, so embeddings stored before the change still
+ * match faces extracted after it.
+ */
+class GridFeatureExtractorTest {
+
+    // Only summation order differs; float32 output keeps well inside this
+    private static final float TOLERANCE = 1e-5f;
+
+    @Test
+    void matchesPerCellStatistics() {
+        int[][] channelRanges = {
+                FaceImageFixtures.SKIN,
+                FaceImageFixtures.FULL_RANGE,
+                {100, 120, 100, 120, 100, 120}, // low contrast, small variances
+        };
+        long seed = 7;
+        for (int[] size : new int[][]{{160, 160}, {224, 224}, {97, 131}, {8, 8}}) {
+            for (int[] ranges : channelRanges) {
+                for (double sigma : new double[]{0, 1.5}) {
+                    Mat face = FaceImageFixtures.randomFace(size[0], size[1], ranges, sigma, seed++);
+                    assertMatches(face, size[0] + "x" + size[1] + " seed " + seed);
+                    face.release();
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesOnNonContinuousCrop() {
+        Mat frame = FaceImageFixtures.randomFace(640, 480, new int[]{30, 220, 30, 220, 30, 220}, 1.0, 3);
+        Mat crop = new Mat(frame, new Rect(120, 60, 170, 190));
+        assertMatches(crop, "ROI 170x190");
+        crop.release();
+        frame.release();
+    }
+
+    @Test
+    void keepsVectorLayout() {
+        Mat face = FaceImageFixtures.randomFace(160, 160, FaceImageFixtures.FULL_RANGE, 1.0, 11);
+        float[] features;
+        try (MatWorkspace workspace = MatWorkspace.acquire()) {
+            features = GridFeatureExtractor.extract(face, workspace);
+        }
+        face.release();
+
+        assertEquals(128, features.length);
+        // 63 cells of (mean, stddev), then the global mean twice
+        assertEquals(features[126], features[127]);
+    }
+
+    private static void assertMatches(Mat face, String label) {
+        float[] expected = OpenCvGridFeatureReference.extract(face);
+        float[] actual;
+        try (MatWorkspace workspace = MatWorkspace.acquire()) {
+            actual = GridFeatureExtractor.extract(face, workspace);
+        }
+        assertArrayEquals(expected, actual, TOLERANCE, label);
+    }
+}
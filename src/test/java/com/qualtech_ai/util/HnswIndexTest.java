@@ -0,0 +1,195 @@
+package com.qualtech_ai.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The index must find what an exact scan finds, never return deleted
+ * labels, and load back from disk answering as before.
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int ROWS = 2000;
+    private static final int PROBES = 200;
+
+    private final Random random = new Random(7);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recallMatchesExactScan() {
+        float[] matrix = randomRows(ROWS);
+        HnswIndex index = build(matrix);
+
+        int hits = 0;
+        for (int probe = 0; probe < PROBES; probe++) {
+            float[] query = normalized();
+            List<HnswIndex.Hit> found = index.search(query, 1);
+            if (!found.isEmpty() && found.get(0).label().equals(label(exactBest(matrix, query)))) {
+                hits++;
+            }
+        }
+        assertTrue(hits >= PROBES * 0.95, "recall@1 " + hits + "/" + PROBES);
+    }
+
+    @Test
+    void higherEfSearchDoesNotLoseRecall() {
+        float[] matrix = randomRows(ROWS);
+        HnswIndex index = build(matrix);
+        float[][] queries = new float[PROBES][];
+        for (int i = 0; i < PROBES; i++) {
+            queries[i] = normalized();
+        }
+
+        index.setEfSearch(4);
+        int narrow = recall(index, matrix, queries);
+        index.setEfSearch(128);
+        int wide = recall(index, matrix, queries);
+
+        assertEquals(128, index.getEfSearch());
+        assertTrue(wide >= narrow, "ef 4: " + narrow + ", ef 128: " + wide);
+    }
+
+    @Test
+    void deletedLabelsAreNeverReturned() {
+        float[] matrix = randomRows(ROWS);
+        HnswIndex index = build(matrix);
+        // A second exemplar of a label is removed along with the first
+        index.add(label(10), matrix, 11 * DIMENSION);
+
+        assertEquals(2, index.remove(label(10)));
+        assertEquals(0, index.remove(label(10)));
+        assertEquals(ROWS - 1, index.size());
+        assertTrue(index.deletedRatio() > 0);
+
+        float[] query = row(matrix, 10);
+        List<HnswIndex.Hit> hits = index.search(query, 5);
+        assertEquals(5, hits.size());
+        assertTrue(hits.stream().noneMatch(hit -> hit.label().equals(label(10))));
+
+        // Inserting the label again makes it findable again
+        index.add(label(10), query);
+        assertEquals(label(10), index.search(query, 1).get(0).label());
+    }
+
+    @Test
+    void returnsOneHitPerLabel() {
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64, 32, SimilarityKernels.scalar(), 1L);
+        float[] query = normalized();
+        index.add("alice", query);
+        index.add("alice", query);
+        index.add("bob", normalized());
+
+        List<HnswIndex.Hit> hits = index.search(query, 3);
+        assertEquals(List.of("alice", "bob"), labels(hits));
+        assertEquals(1f, hits.get(0).score(), 1e-5f);
+    }
+
+    @Test
+    void savedIndexLoadsBackIdentical() throws Exception {
+        float[] matrix = randomRows(500);
+        HnswIndex index = build(matrix);
+        index.remove(label(3));
+        index.setEfSearch(48);
+        Path file = tempDir.resolve("faces.hnsw");
+
+        index.save(file);
+        HnswIndex loaded = HnswIndex.load(file);
+
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.fingerprint(), loaded.fingerprint());
+        assertEquals(48, loaded.getEfSearch());
+        for (int probe = 0; probe < 50; probe++) {
+            float[] query = normalized();
+            // The loaded index scores with the preferred kernel, so compare labels only
+            assertEquals(labels(index.search(query, 3)), labels(loaded.search(query, 3)));
+        }
+        assertFalse(loaded.search(row(matrix, 3), 1).get(0).label().equals(label(3)));
+    }
+
+    @Test
+    void fingerprintIgnoresInsertOrderButNotContent() {
+        float[] matrix = randomRows(50);
+        HnswIndex forward = new HnswIndex(DIMENSION, 8, 64, 32, SimilarityKernels.scalar(), 1L);
+        HnswIndex backward = new HnswIndex(DIMENSION, 8, 64, 32, SimilarityKernels.scalar(), 2L);
+        for (int row = 0; row < 50; row++) {
+            forward.add(label(row), matrix, row * DIMENSION);
+            backward.add(label(49 - row), matrix, (49 - row) * DIMENSION);
+        }
+        assertEquals(forward.fingerprint(), backward.fingerprint());
+
+        backward.remove(label(0));
+        assertTrue(forward.fingerprint() != backward.fingerprint());
+    }
+
+    private HnswIndex build(float[] matrix) {
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100, 64, SimilarityKernels.scalar(), 42L);
+        for (int row = 0; row < matrix.length / DIMENSION; row++) {
+            index.add(label(row), matrix, row * DIMENSION);
+        }
+        return index;
+    }
+
+    private static int recall(HnswIndex index, float[] matrix, float[][] queries) {
+        int hits = 0;
+        for (float[] query : queries) {
+            List<HnswIndex.Hit> found = index.search(query, 1);
+            if (!found.isEmpty() && found.get(0).label().equals(label(exactBest(matrix, query)))) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static int exactBest(float[] matrix, float[] query) {
+        TopK best = new TopK(1);
+        SimilarityKernels.scalar().scan(query, matrix, DIMENSION, 0, matrix.length / DIMENSION, best);
+        return best.sortDescending().id(0);
+    }
+
+    private static List<String> labels(List<HnswIndex.Hit> hits) {
+        return hits.stream().map(HnswIndex.Hit::label).toList();
+    }
+
+    private static String label(int row) {
+        return "user-" + row;
+    }
+
+    private static float[] row(float[] matrix, int row) {
+        float[] vector = new float[DIMENSION];
+        System.arraycopy(matrix, row * DIMENSION, vector, 0, DIMENSION);
+        return vector;
+    }
+
+    private float[] randomRows(int rows) {
+        float[] matrix = new float[rows * DIMENSION];
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(normalized(), 0, matrix, row * DIMENSION, DIMENSION);
+        }
+        return matrix;
+    }
+
+    private float[] normalized() {
+        float[] vector = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,95 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Golden-image test: the fused scorer must reproduce the OpenCV pipeline
+ * exactly, measurement for measurement and score for score.
+ */
+class LivenessScorerTest {
+
+    @Test
+    void matchesOpenCvOnTexturedFaces() {
+        // From blurry to grainy, so every texture branch of the score is covered
+        double[] blurSigmas = {0, 0.6, 1.2, 2.5, 6};
+        int[][] channelRanges = {
+                FaceImageFixtures.SKIN,
+                {120, 255, 90, 200, 60, 170}, // blue cast, like a screen
+                {170, 255, 170, 255, 170, 255}, // washed out, glare
+        };
+        long seed = 1;
+        for (double sigma : blurSigmas) {
+            for (int[] ranges : channelRanges) {
+                Mat face = FaceImageFixtures.randomFace(160, 160, ranges, sigma, seed++);
+                assertMatches(face, "160x160 sigma " + sigma + " seed " + seed);
+                face.release();
+            }
+        }
+    }
+
+    @Test
+    void matchesOpenCvOnOddSizesAndRois() {
+        int[] ranges = {40, 220, 40, 220, 40, 220};
+        for (int[] size : new int[][]{{97, 131}, {224, 224}, {3, 1}, {1, 3}, {1, 1}, {2, 2}}) {
+            // Tiny crops stay unblurred: the Laplacian borders are what is under test there
+            double sigma = Math.min(size[0], size[1]) > 8 ? 1.0 : 0;
+            Mat face = FaceImageFixtures.randomFace(size[0], size[1], ranges, sigma, size[0] * 1000L + size[1]);
+            assertMatches(face, size[0] + "x" + size[1]);
+            face.release();
+        }
+
+        // Non-continuous crop with a row step wider than the face
+        Mat frame = FaceImageFixtures.randomFace(640, 480, ranges, 0.8, 42);
+        Mat crop = new Mat(frame, new Rect(211, 97, 150, 170));
+        assertMatches(crop, "ROI 150x170");
+        crop.release();
+        frame.release();
+    }
+
+    /**
+     * Every (max, min) channel pair with the maximum in each channel, so the
+     * fixed-point saturation rounding around the glare threshold is checked
+     * exhaustively
+     */
+    @Test
+    void matchesOpenCvGlareMaskForEveryValueAndSaturation() {
+        for (int maxChannel = 0; maxChannel < 3; maxChannel++) {
+            byte[] pixels = new byte[256 * 256 * 3];
+            for (int v = 0; v < 256; v++) {
+                for (int m = 0; m < 256; m++) {
+                    int min = Math.min(m, v);
+                    int i = (v * 256 + m) * 3;
+                    for (int c = 0; c < 3; c++) {
+                        // Third channel sits between min and max
+                        int value = c == maxChannel ? v : c == (maxChannel + 1) % 3 ? min : (min + v) / 2;
+                        pixels[i + c] = (byte) value;
+                    }
+                }
+            }
+            Mat image = new Mat(256, 256, opencv_core.CV_8UC3);
+            image.data().put(pixels, 0, pixels.length);
+            assertMatches(image, "saturation sweep, max in channel " + maxChannel);
+            image.release();
+        }
+    }
+
+    private static void assertMatches(Mat face, String label) {
+        LivenessScorer.Measurements expected = OpenCvLivenessReference.measure(face);
+        LivenessScorer.Measurements actual;
+        try (MatWorkspace workspace = MatWorkspace.acquire()) {
+            actual = LivenessScorer.measure(face, workspace);
+        }
+        assertEquals(expected, actual, label);
+        assertEquals(LivenessScorer.score(expected), LivenessScorer.score(actual), label);
+
+        // Same result when the gray image comes from a shared FaceAnalysis
+        try (FaceAnalysis analysis = FaceAnalysis.of(face)) {
+            assertEquals(expected, analysis.liveness(), label + " (shared gray)");
+        }
+    }
+}
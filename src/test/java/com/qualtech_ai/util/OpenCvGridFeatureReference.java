@@ -0,0 +1,67 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Scalar;
+
+/**
+ * The per-cell {@code meanStdDev} descriptor that {@link GridFeatureExtractor}
+ * replaced, kept as the reference for the equivalence test and the benchmark.
+ */
+public final class OpenCvGridFeatureReference {
+
+    private OpenCvGridFeatureReference() {
+    }
+
+    public static float[] extract(Mat face) {
+        int featureSize = GridFeatureExtractor.FEATURE_SIZE;
+        Mat gray = new Mat();
+        opencv_imgproc.cvtColor(face, gray, opencv_imgproc.COLOR_BGR2GRAY);
+
+        Mat equalized = new Mat();
+        opencv_imgproc.equalizeHist(gray, equalized);
+
+        Mat normalized = new Mat();
+        opencv_core.normalize(equalized, normalized, 0, 1.0, opencv_core.NORM_MINMAX, opencv_core.CV_32F, null);
+
+        float[] features = new float[featureSize];
+        int divisions = (int) Math.sqrt(featureSize / 2);
+        int cellW = normalized.cols() / divisions;
+        int cellH = normalized.rows() / divisions;
+        int idx = 0;
+
+        for (int i = 0; i < divisions && idx < featureSize - 2; i++) {
+            for (int j = 0; j < divisions && idx < featureSize - 2; j++) {
+                int x = j * cellW;
+                int y = i * cellH;
+                int w = Math.min(cellW, normalized.cols() - x);
+                int h = Math.min(cellH, normalized.rows() - y);
+
+                Mat cell = new Mat(normalized, new Rect(x, y, w, h));
+                Mat mean = new Mat();
+                Mat stddev = new Mat();
+                opencv_core.meanStdDev(cell, mean, stddev);
+
+                features[idx++] = (float) mean.createIndexer().getDouble(0);
+                features[idx++] = (float) stddev.createIndexer().getDouble(0);
+
+                mean.release();
+                stddev.release();
+                cell.release();
+            }
+        }
+
+        Scalar globalMean = opencv_core.mean(normalized);
+        while (idx < featureSize) {
+            features[idx++] = (float) globalMean.get(0);
+        }
+
+        gray.release();
+        equalized.release();
+        normalized.release();
+
+        return features;
+    }
+}
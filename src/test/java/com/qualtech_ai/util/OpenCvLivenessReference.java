@@ -0,0 +1,58 @@
+package com.qualtech_ai.util;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Scalar;
+
+/**
+ * The multi-pass OpenCV liveness measurements that {@link LivenessScorer}
+ * replaced, kept as the reference for the golden-image test and the benchmark.
+ */
+public final class OpenCvLivenessReference {
+
+    private OpenCvLivenessReference() {
+    }
+
+    public static LivenessScorer.Measurements measure(Mat face) {
+        Mat gray = new Mat();
+        Mat laplacian = new Mat();
+        Mat hsv = new Mat();
+        Mat reflectionMask = new Mat();
+        Mat mean = new Mat();
+        Mat stddev = new Mat();
+        Mat lowerBound = new Mat(new Scalar(0, 0, 220, 0));
+        Mat upperBound = new Mat(new Scalar(180, 50, 255, 0));
+        MatVector channels = new MatVector();
+        try {
+            opencv_imgproc.cvtColor(face, gray, opencv_imgproc.COLOR_BGR2GRAY);
+            opencv_imgproc.Laplacian(gray, laplacian, opencv_core.CV_64F);
+            opencv_core.meanStdDev(laplacian, mean, stddev);
+            double variance = Math.pow(stddev.createIndexer().getDouble(0), 2);
+
+            opencv_imgproc.cvtColor(face, hsv, opencv_imgproc.COLOR_BGR2HSV);
+            opencv_core.inRange(hsv, lowerBound, upperBound, reflectionMask);
+            double reflectionRatio = (double) opencv_core.countNonZero(reflectionMask) / (face.rows() * face.cols());
+
+            opencv_core.split(face, channels);
+            opencv_core.meanStdDev(channels.get(0), mean, stddev);
+            double blueAvg = mean.createIndexer().getDouble(0);
+            opencv_core.meanStdDev(channels.get(2), mean, stddev);
+            double redAvg = mean.createIndexer().getDouble(0);
+            double rToB = (blueAvg > 0) ? redAvg / blueAvg : 1.0;
+
+            return new LivenessScorer.Measurements(variance, reflectionRatio, rToB);
+        } finally {
+            gray.release();
+            laplacian.release();
+            hsv.release();
+            reflectionMask.release();
+            mean.release();
+            stddev.release();
+            lowerBound.release();
+            upperBound.release();
+            channels.close();
+        }
+    }
+}
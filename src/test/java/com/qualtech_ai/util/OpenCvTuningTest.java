@@ -0,0 +1,63 @@
+package com.qualtech_ai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The tuner must try sensible counts, never pools larger than its callers
+ * can use, and prefer throughput only among configurations that meet the
+ * latency SLO.
+ */
+class OpenCvTuningTest {
+
+    private static final double SLO_MS = 100;
+
+    @Test
+    void candidateCountsArePowersOfTwoUpToTheCores() {
+        assertEquals(List.of(1), OpenCvTuning.candidateCounts(1));
+        assertEquals(List.of(1, 2, 4, 8), OpenCvTuning.candidateCounts(8));
+        assertEquals(List.of(1, 2, 4, 8, 12), OpenCvTuning.candidateCounts(12));
+    }
+
+    @Test
+    void poolCandidatesStopAtWhatTheClientsCanUse() {
+        assertEquals(List.of(1, 2, 4, 8, 12), OpenCvTuning.poolCandidates(12, 12));
+        assertEquals(List.of(1, 2, 4), OpenCvTuning.poolCandidates(16, 4));
+        assertEquals(List.of(1, 2, 4, 6), OpenCvTuning.poolCandidates(16, 6));
+        // More callers than cores: still at most one detector per core
+        assertEquals(List.of(1, 2, 4, 8), OpenCvTuning.poolCandidates(8, 32));
+        assertEquals(List.of(1), OpenCvTuning.poolCandidates(8, 0));
+    }
+
+    @Test
+    void picksHighestThroughputWithinSlo() {
+        OpenCvTuning.Measurement oversubscribed = measurement(8, 4, 120, 180);
+        OpenCvTuning.Measurement balanced = measurement(2, 4, 90, 70);
+        OpenCvTuning.Measurement serial = measurement(8, 1, 40, 60);
+
+        assertEquals(balanced,
+                OpenCvTuning.best(List.of(oversubscribed, balanced, serial), SLO_MS).orElseThrow());
+    }
+
+    @Test
+    void fallsBackToLowestLatencyWhenNothingMeetsSlo() {
+        OpenCvTuning.Measurement fast = measurement(4, 2, 50, 130);
+        OpenCvTuning.Measurement slow = measurement(1, 8, 80, 250);
+
+        assertEquals(fast, OpenCvTuning.best(List.of(slow, fast), SLO_MS).orElseThrow());
+    }
+
+    @Test
+    void nothingMeasuredNothingChosen() {
+        assertTrue(OpenCvTuning.best(List.of(), SLO_MS).isEmpty());
+    }
+
+    private static OpenCvTuning.Measurement measurement(int threads, int poolSize, double throughput, double p95) {
+        return new OpenCvTuning.Measurement(new OpenCvTuning(threads, poolSize, OpenCvTuning.DnnBackend.OPENCV),
+                throughput, p95 / 2, p95);
+    }
+}
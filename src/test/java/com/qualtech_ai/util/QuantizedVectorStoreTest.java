@@ -0,0 +1,116 @@
+package com.qualtech_ai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The quantized first pass plus an exact re-rank of its best candidates must
+ * find the same best row as the exact scan, for both encodings, on probes
+ * that are noisy copies of gallery rows as real re-captures are.
+ */
+class QuantizedVectorStoreTest {
+
+    private static final int DIMENSION = 128;
+    private static final int ROWS = 5000;
+    private static final int PROBES = 300;
+    private static final int RERANK_DEPTH = 16;
+
+    @Test
+    void int8RecallAt1() {
+        assertRecall(QuantizedVectorStore.Encoding.INT8);
+    }
+
+    @Test
+    void fp16RecallAt1() {
+        assertRecall(QuantizedVectorStore.Encoding.FP16);
+    }
+
+    @Test
+    void batchedScanMatchesPerProbeScans() {
+        Random random = new Random(8);
+        float[][] probes = new float[3][DIMENSION];
+        for (float[] probe : probes) {
+            VectorFixtures.fillNormalized(random, probe);
+        }
+        float[] row = new float[DIMENSION];
+        for (QuantizedVectorStore.Encoding encoding : QuantizedVectorStore.Encoding.values()) {
+            QuantizedVectorStore quantized = new QuantizedVectorStore(DIMENSION, encoding, 16);
+            for (int r = 0; r < 300; r++) {
+                VectorFixtures.fillNormalized(random, row);
+                quantized.append(row, 0);
+            }
+            TopK[] batched = {new TopK(10), new TopK(10), new TopK(10)};
+            quantized.scan(probes, 7, 290, batched);
+            for (int p = 0; p < probes.length; p++) {
+                TopK single = new TopK(10);
+                quantized.scan(probes[p], 7, 290, single);
+                single.sortDescending();
+                batched[p].sortDescending();
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(single.id(i), batched[p].id(i), encoding.name());
+                    assertEquals(single.score(i), batched[p].score(i), 1e-6f, encoding.name());
+                }
+            }
+        }
+    }
+
+    @Test
+    void bytesUsedPerEncoding() {
+        QuantizedVectorStore int8 = new QuantizedVectorStore(DIMENSION, QuantizedVectorStore.Encoding.INT8, 4);
+        QuantizedVectorStore fp16 = new QuantizedVectorStore(DIMENSION, QuantizedVectorStore.Encoding.FP16, 4);
+        float[] row = new float[DIMENSION];
+        row[0] = 1f;
+        for (int i = 0; i < 10; i++) {
+            int8.append(row, 0);
+            fp16.append(row, 0);
+        }
+
+        assertEquals(10L * (DIMENSION + Float.BYTES), int8.bytesUsed());
+        assertEquals(10L * DIMENSION * Short.BYTES, fp16.bytesUsed());
+    }
+
+    private static void assertRecall(QuantizedVectorStore.Encoding encoding) {
+        Random random = new Random(5);
+        FloatRowStore exact = new FloatRowStore(DIMENSION, ROWS);
+        QuantizedVectorStore quantized = new QuantizedVectorStore(DIMENSION, encoding, ROWS);
+        float[] row = new float[DIMENSION];
+        for (int r = 0; r < ROWS; r++) {
+            VectorFixtures.fillNormalized(random, row);
+            exact.append(row, 0);
+            quantized.append(row, 0);
+        }
+
+        float noise = (float) (0.5 / Math.sqrt(DIMENSION));
+        float[] probe = new float[DIMENSION];
+        int firstPassHits = 0;
+        int rerankedHits = 0;
+        for (int p = 0; p < PROBES; p++) {
+            exact.copyRow(random.nextInt(ROWS), probe, 0);
+            for (int i = 0; i < DIMENSION; i++) {
+                probe[i] += noise * (float) random.nextGaussian();
+            }
+            VectorFixtures.normalize(probe);
+
+            TopK best = new TopK(1);
+            exact.scan(probe, 0, ROWS, best);
+            int expected = best.sortDescending().id(0);
+
+            TopK candidates = new TopK(RERANK_DEPTH);
+            quantized.scan(probe, 0, ROWS, candidates);
+            candidates.sortDescending();
+            TopK reranked = new TopK(1);
+            for (int i = 0; i < candidates.size(); i++) {
+                reranked.offer(candidates.id(i), exact.dot(probe, candidates.id(i)));
+            }
+            firstPassHits += candidates.id(0) == expected ? 1 : 0;
+            rerankedHits += reranked.sortDescending().id(0) == expected ? 1 : 0;
+        }
+
+        assertTrue(firstPassHits >= PROBES * 0.95, encoding + " first pass recall@1 " + firstPassHits + "/" + PROBES);
+        assertEquals(PROBES, rerankedHits, encoding + " re-ranked recall@1");
+    }
+}
@@ -0,0 +1,51 @@
+package com.qualtech_ai.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Alignment must recover the similarity transform between detector landmarks
+ * and the SFace template, as {@code FaceRecognizerSF::alignCrop} does.
+ */
+class SFaceEmbedderTest {
+
+    private static final float[] TEMPLATE = {
+            38.2946f, 51.6963f, 73.5318f, 51.5014f, 56.0252f, 71.7366f, 41.5493f, 92.3655f, 70.7299f, 92.2041f};
+    private static final double TOLERANCE = 1e-4;
+
+    @Test
+    void identityOnTemplate() {
+        assertArrayEquals(new double[]{1, 0, 0, 0, 1, 0},
+                SFaceEmbedder.similarityTransform(TEMPLATE, TEMPLATE), TOLERANCE);
+    }
+
+    @Test
+    void invertsRotationScaleAndTranslation() {
+        // Landmarks of a face rotated by 20 degrees, scaled 2.5x and moved to (300, 180)
+        double angle = Math.toRadians(20);
+        double scale = 2.5;
+        float[] landmarks = new float[TEMPLATE.length];
+        for (int i = 0; i < TEMPLATE.length; i += 2) {
+            landmarks[i] = (float) (scale * (Math.cos(angle) * TEMPLATE[i] - Math.sin(angle) * TEMPLATE[i + 1]) + 300);
+            landmarks[i + 1] = (float) (scale * (Math.sin(angle) * TEMPLATE[i] + Math.cos(angle) * TEMPLATE[i + 1]) + 180);
+        }
+
+        double[] m = SFaceEmbedder.similarityTransform(landmarks, TEMPLATE);
+        float[] mapped = new float[landmarks.length];
+        for (int i = 0; i < landmarks.length; i += 2) {
+            mapped[i] = (float) (m[0] * landmarks[i] + m[1] * landmarks[i + 1] + m[2]);
+            mapped[i + 1] = (float) (m[3] * landmarks[i] + m[4] * landmarks[i + 1] + m[5]);
+        }
+        assertArrayEquals(TEMPLATE, mapped, 1e-2f);
+        assertArrayEquals(new double[]{Math.cos(-angle) / scale, Math.sin(-angle) / scale},
+                new double[]{m[0], m[3]}, TOLERANCE);
+    }
+
+    @Test
+    void rejectsDegenerateLandmarks() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SFaceEmbedder.similarityTransform(new float[10], TEMPLATE));
+    }
+}
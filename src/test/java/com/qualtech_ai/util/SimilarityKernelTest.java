@@ -0,0 +1,125 @@
+package com.qualtech_ai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Vector API kernel must agree with the scalar kernel, including on
+ * dimensions that leave a tail after the last full vector and on row counts
+ * that leave a tail after the last four-row block, and must widen every half
+ * float exactly as the JDK does.
+ */
+class SimilarityKernelTest {
+
+    private static final float TOLERANCE = 1e-4f;
+
+    private final SimilarityKernel scalar = SimilarityKernels.scalar();
+    private final SimilarityKernel vector = new VectorSimilarityKernel();
+    private final Random random = new Random(42);
+
+    @Test
+    void dotMatchesScalar() {
+        for (int length : new int[]{1, 7, 16, 33, 128, 130}) {
+            float[] a = randomVector(length + 3);
+            float[] b = randomVector(length + 5);
+
+            assertEquals(scalar.dot(a, 3, b, 5, length), vector.dot(a, 3, b, 5, length), TOLERANCE,
+                    "length " + length);
+        }
+    }
+
+    @Test
+    void dotInt8MatchesScalarExactly() {
+        for (int length : new int[]{1, 7, 16, 33, 128, 130}) {
+            byte[] a = randomCodes(length + 1);
+            byte[] b = randomCodes(length + 2);
+            // Extremes of the code range must not overflow the widened lanes
+            a[1] = Byte.MIN_VALUE;
+            b[2] = Byte.MIN_VALUE;
+
+            assertEquals(scalar.dotInt8(a, 1, b, 2, length), vector.dotInt8(a, 1, b, 2, length),
+                    "length " + length);
+        }
+    }
+
+    @Test
+    void widenFp16MatchesJdkConversionForEveryHalf() {
+        short[] halves = new short[1 << 16];
+        for (int i = 0; i < halves.length; i++) {
+            halves[i] = (short) i;
+        }
+        float[] expected = new float[halves.length];
+        float[] actual = new float[halves.length + 3];
+        scalar.widenFp16(halves, 0, expected, 0, halves.length);
+        // Odd offsets and length leave a tail after the last full vector
+        vector.widenFp16(halves, 1, actual, 3, halves.length - 1);
+
+        for (int i = 1; i < halves.length; i++) {
+            if (Float.isNaN(expected[i])) {
+                // Whether the quiet bit is set depends on the JIT's conversion instruction
+                assertTrue(Float.isNaN(actual[i + 2]), "vector, half " + i);
+                continue;
+            }
+            assertEquals(Float.floatToRawIntBits(Float.float16ToFloat(halves[i])),
+                    Float.floatToRawIntBits(expected[i]), "scalar, half " + i);
+            assertEquals(Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(actual[i + 2]),
+                    "vector, half " + i);
+        }
+    }
+
+    @Test
+    void scanMatchesScalar() {
+        for (int dimension : new int[]{128, 130}) {
+            int rows = 103;
+            float[] matrix = new float[rows * dimension];
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(normalized(dimension), 0, matrix, row * dimension, dimension);
+            }
+            float[] probe = normalized(dimension);
+
+            TopK expected = new TopK(rows);
+            TopK actual = new TopK(rows);
+            scalar.scan(probe, matrix, dimension, 1, rows, expected);
+            vector.scan(probe, matrix, dimension, 1, rows, actual);
+            expected.sortDescending();
+            actual.sortDescending();
+
+            assertEquals(rows - 1, actual.size(), "dimension " + dimension);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.id(i), actual.id(i), "dimension " + dimension + ", rank " + i);
+                assertEquals(expected.score(i), actual.score(i), TOLERANCE);
+            }
+        }
+    }
+
+    private float[] randomVector(int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private float[] normalized(int length) {
+        float[] vector = randomVector(length);
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private byte[] randomCodes(int length) {
+        byte[] codes = new byte[length];
+        random.nextBytes(codes);
+        return codes;
+    }
+}
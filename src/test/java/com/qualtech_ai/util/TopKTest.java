@@ -0,0 +1,79 @@
+package com.qualtech_ai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The collector must keep exactly the K best of any offer sequence, merge
+ * partial results losslessly and report them best first.
+ */
+class TopKTest {
+
+    @Test
+    void keepsTheBestKInDescendingOrder() {
+        Random random = new Random(3);
+        float[] scores = new float[1000];
+        TopK topK = new TopK(10);
+        for (int id = 0; id < scores.length; id++) {
+            scores[id] = random.nextFloat();
+            topK.offer(id, scores[id]);
+        }
+        topK.sortDescending();
+
+        float[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        assertEquals(10, topK.size());
+        for (int rank = 0; rank < 10; rank++) {
+            assertEquals(sorted[sorted.length - 1 - rank], topK.score(rank));
+            assertEquals(scores[topK.id(rank)], topK.score(rank));
+        }
+    }
+
+    @Test
+    void thresholdIsOpenUntilFull() {
+        TopK topK = new TopK(2);
+        assertEquals(Float.NEGATIVE_INFINITY, topK.threshold());
+        topK.offer(1, 0.5f);
+        assertEquals(Float.NEGATIVE_INFINITY, topK.threshold());
+        topK.offer(2, 0.9f);
+        assertEquals(0.5f, topK.threshold());
+        topK.offer(3, 0.7f);
+        assertEquals(0.7f, topK.threshold());
+    }
+
+    @Test
+    void mergeEqualsOneCollector() {
+        TopK left = new TopK(3);
+        TopK right = new TopK(3);
+        TopK all = new TopK(3);
+        for (int id = 0; id < 20; id++) {
+            float score = (id * 7 % 20) / 20f;
+            (id % 2 == 0 ? left : right).offer(id, score);
+            all.offer(id, score);
+        }
+        left.merge(right);
+        left.sortDescending();
+        all.sortDescending();
+
+        for (int rank = 0; rank < 3; rank++) {
+            assertEquals(all.id(rank), left.id(rank));
+        }
+    }
+
+    @Test
+    void sortedCollectorRejectsOffersAndUnsortedReads() {
+        TopK topK = new TopK(2);
+        topK.offer(1, 1f);
+        assertThrows(IllegalStateException.class, () -> topK.id(0));
+
+        topK.sortDescending();
+        assertThrows(IllegalStateException.class, () -> topK.offer(2, 2f));
+        assertThrows(IndexOutOfBoundsException.class, () -> topK.score(1));
+        assertThrows(IllegalArgumentException.class, () -> new TopK(0));
+    }
+}
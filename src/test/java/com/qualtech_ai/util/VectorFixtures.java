@@ -0,0 +1,49 @@
+package com.qualtech_ai.util;
+
+import java.util.Random;
+
+/**
+ * Random L2-normalized embeddings for the gallery search tests and benchmarks.
+ */
+public final class VectorFixtures {
+
+    private VectorFixtures() {
+    }
+
+    /**
+     * Fill {@code target} with a random unit vector
+     */
+    public static void fillNormalized(Random random, float[] target) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] = (float) random.nextGaussian();
+        }
+        normalize(target);
+    }
+
+    /**
+     * {@code rows} random unit vectors, row-major
+     */
+    public static float[] normalizedRows(Random random, int rows, int dimension) {
+        float[] matrix = new float[rows * dimension];
+        float[] row = new float[dimension];
+        for (int r = 0; r < rows; r++) {
+            fillNormalized(random, row);
+            System.arraycopy(row, 0, matrix, r * dimension, dimension);
+        }
+        return matrix;
+    }
+
+    /**
+     * Scale {@code vector} to unit length in place
+     */
+    public static void normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}